@@ -0,0 +1,110 @@
+package org.cthing.molinillo;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.cthing.molinillo.io.BinaryIO;
+
+
+/**
+ * Snapshot of an in-progress resolution from which the resolution can be resumed using
+ * {@link Resolver#resume(Checkpoint)}. A checkpoint captures the requested dependencies, the locking graph, the
+ * stack of resolution states, the activated dependency graph together with its undo log, the bookkeeping of
+ * which requirements were introduced by which states, and the progress of the restart policy. Resuming from a checkpoint continues the resolution exactly
+ * as if it had never been interrupted, provided the specification provider answers the same way it did when the
+ * checkpoint was taken.
+ *
+ * <p>
+ * Checkpoints are produced by the resolver according to a {@link CheckpointPolicy}. The binary form of a
+ * checkpoint can be persisted using {@link #writeTo(OutputStream)} and loaded using {@link #readFrom(InputStream)}.
+ * </p>
+ *
+ * @param <R> Requirement type
+ * @param <S> Specification type
+ */
+public final class Checkpoint<R, S> {
+
+    static final int MAGIC = 0x4D4C4350;
+    static final int VERSION = 2;
+
+    private final int iterationCount;
+    private final byte[] data;
+
+    /**
+     * Constructs a checkpoint.
+     *
+     * @param iterationCount Number of resolution iterations completed when the checkpoint was taken
+     * @param data Binary form of the checkpoint, including its header
+     */
+    Checkpoint(final int iterationCount, final byte[] data) {
+        this.iterationCount = iterationCount;
+        this.data = data;
+    }
+
+    /**
+     * Obtains the number of resolution iterations that had been completed when the checkpoint was taken.
+     *
+     * @return Number of completed iterations.
+     */
+    public int getIterationCount() {
+        return this.iterationCount;
+    }
+
+    /**
+     * Obtains the binary form of the checkpoint.
+     *
+     * @return Checkpoint data, including its header.
+     */
+    byte[] getData() {
+        return this.data;
+    }
+
+    /**
+     * Writes the binary form of the checkpoint to the specified stream. The stream is not closed.
+     *
+     * @param outputStream Destination for the checkpoint
+     * @throws IOException if there was a problem writing the checkpoint
+     */
+    public void writeTo(final OutputStream outputStream) throws IOException {
+        outputStream.write(this.data);
+        outputStream.flush();
+    }
+
+    /**
+     * Reads a checkpoint previously written using {@link #writeTo(OutputStream)}. The remainder of the stream is
+     * consumed but the stream is not closed.
+     *
+     * @param inputStream Source of the checkpoint
+     * @param <R> Requirement type
+     * @param <S> Specification type
+     * @return Checkpoint read from the stream.
+     * @throws IOException if there was a problem reading the checkpoint or the stream does not contain a checkpoint
+     */
+    public static <R, S> Checkpoint<R, S> readFrom(final InputStream inputStream) throws IOException {
+        final byte[] data = inputStream.readAllBytes();
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+        final int iterationCount = readHeader(input);
+        return new Checkpoint<>(iterationCount, data);
+    }
+
+    /**
+     * Reads and validates the checkpoint header.
+     *
+     * @param input Source of the checkpoint
+     * @return Number of resolution iterations completed when the checkpoint was taken.
+     * @throws IOException if the input does not contain a supported checkpoint
+     */
+    static int readHeader(final DataInputStream input) throws IOException {
+        if (input.available() < Integer.BYTES || input.readInt() != MAGIC) {
+            throw new IOException("Not a resolution checkpoint");
+        }
+        final int version = BinaryIO.readVarInt(input);
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version);
+        }
+        return BinaryIO.readVarInt(input);
+    }
+}
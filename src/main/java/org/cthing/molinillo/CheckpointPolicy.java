@@ -0,0 +1,79 @@
+package org.cthing.molinillo;
+
+import java.util.function.Consumer;
+
+import org.cthing.molinillo.io.Codec;
+
+
+/**
+ * Specifies how often an in-progress resolution is checkpointed and what is done with each checkpoint. A
+ * checkpoint is taken between iterations of the resolution loop whenever the number of completed iterations is a
+ * multiple of the interval. The codecs are used both to write checkpoints and to read them back when a resolution
+ * is resumed using {@link Resolver#resume(Checkpoint)}.
+ *
+ * @param <R> Requirement type
+ * @param <S> Specification type
+ */
+public final class CheckpointPolicy<R, S> {
+
+    private final int interval;
+    private final Codec<R> requirementCodec;
+    private final Codec<S> specificationCodec;
+    private final Consumer<Checkpoint<R, S>> handler;
+
+    /**
+     * Constructs a checkpoint policy.
+     *
+     * @param interval Number of resolution iterations between checkpoints. Must be greater than zero.
+     * @param requirementCodec Encodes and decodes requirements
+     * @param specificationCodec Encodes and decodes specifications
+     * @param handler Called with each checkpoint as it is taken (e.g. to persist it)
+     */
+    public CheckpointPolicy(final int interval, final Codec<R> requirementCodec, final Codec<S> specificationCodec,
+                            final Consumer<Checkpoint<R, S>> handler) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be greater than zero");
+        }
+
+        this.interval = interval;
+        this.requirementCodec = requirementCodec;
+        this.specificationCodec = specificationCodec;
+        this.handler = handler;
+    }
+
+    /**
+     * Obtains the number of resolution iterations between checkpoints.
+     *
+     * @return Checkpoint interval.
+     */
+    public int getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * Obtains the codec for requirements.
+     *
+     * @return Requirement codec.
+     */
+    public Codec<R> getRequirementCodec() {
+        return this.requirementCodec;
+    }
+
+    /**
+     * Obtains the codec for specifications.
+     *
+     * @return Specification codec.
+     */
+    public Codec<S> getSpecificationCodec() {
+        return this.specificationCodec;
+    }
+
+    /**
+     * Obtains the handler that is called with each checkpoint.
+     *
+     * @return Checkpoint handler.
+     */
+    public Consumer<Checkpoint<R, S>> getHandler() {
+        return this.handler;
+    }
+}
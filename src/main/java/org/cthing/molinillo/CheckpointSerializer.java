@@ -0,0 +1,859 @@
+package org.cthing.molinillo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cthing.molinillo.errors.CircularDependencyError;
+import org.cthing.molinillo.graph.Action;
+import org.cthing.molinillo.graph.AddEdgeNoCircular;
+import org.cthing.molinillo.graph.AddVertex;
+import org.cthing.molinillo.graph.DetachVertexNamed;
+import org.cthing.molinillo.graph.Log;
+import org.cthing.molinillo.graph.SetPayload;
+import org.cthing.molinillo.graph.Tag;
+import org.cthing.molinillo.graph.Vertex;
+import org.cthing.molinillo.io.BinaryIO;
+import org.cthing.molinillo.io.Codec;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Converts an in-progress resolution to and from the binary form of a {@link Checkpoint}.
+ *
+ * <p>
+ * Requirements and specifications are compared by equality and written only once, the first time they are
+ * encountered. Possibility sets, conflicts and unwind details are shared between resolution states by identity, and
+ * the resolution relies on that sharing (e.g. the requirements an unwind was chosen over are accumulated in place),
+ * so those objects are written once per identity and the sharing is reconstructed when reading. A reference is
+ * written as zero for {@code null}, one followed by the definition of a value not seen before, or two plus the index
+ * of a value already written.
+ * </p>
+ *
+ * <p>
+ * The locking graph is written using a {@link DependencyGraphCodec}, with its payloads and requirements written as
+ * references.
+ * </p>
+ *
+ * <p>
+ * The activated dependency graph is not written directly. Instead, its undo log is written as the sequence of
+ * actions that produced the graph, and the graph is rebuilt by performing those actions again. This reconstructs
+ * both the graph and the log, so that a resumed resolution can unwind to any state that precedes the checkpoint.
+ * Tags in the log are written as the index of the state they mark.
+ * </p>
+ *
+ * <p>
+ * The progress of the restart policy is written last: the number of restarts, the number of unwinds since the last
+ * restart, the perturbation of the requirement order and the conflicts learned before the last restart.
+ * </p>
+ *
+ * <p>
+ * The possibilities of a state are usually built lazily from groups of candidate specifications shared by all the
+ * states for the same requirement. Such possibilities are written as the requirement, the number of groups copied
+ * and the possibility sets built so far, so that taking a checkpoint does not build the remaining possibility sets.
+ * When reading, the possibilities continue from the groups for the requirement, which are rebuilt as they are
+ * needed and shared again by the states for the requirement.
+ * </p>
+ *
+ * @param <R> Requirement type
+ * @param <S> Specification type
+ */
+final class CheckpointSerializer<R, S> {
+
+    private static final int STATE_NONE = 0;
+    private static final int STATE_DEPENDENCY = 1;
+    private static final int STATE_POSSIBILITY = 2;
+
+    private static final int ACTION_ADD_VERTEX = 1;
+    private static final int ACTION_DETACH_VERTEX = 2;
+    private static final int ACTION_ADD_EDGE = 3;
+    private static final int ACTION_SET_PAYLOAD = 4;
+    private static final int ACTION_TAG_INITIAL_STATE = 5;
+    private static final int ACTION_TAG_STATE = 6;
+
+    private static final int POSSIBILITIES_LIST = 0;
+    private static final int POSSIBILITIES_LAZY = 1;
+
+    private static final int PAYLOAD_NONE = 0;
+    private static final int PAYLOAD_POSSIBILITY_SET = 1;
+    private static final int PAYLOAD_SPECIFICATION = 2;
+
+    private static final int KEY_NAME = 0;
+    private static final int KEY_SPECIFICATION = 1;
+
+    private static final int ERROR_NONE = 0;
+    private static final int ERROR_CIRCULAR_DEPENDENCY = 1;
+
+    private static final int REF_NULL = 0;
+    private static final int REF_DEFINITION = 1;
+    private static final int REF_OFFSET = 2;
+
+    /**
+     * Writes the definition of a value.
+     *
+     * @param <T> Type of the value
+     */
+    @FunctionalInterface
+    private interface DefinitionWriter<T> {
+        void write(T value) throws IOException;
+    }
+
+    /**
+     * Reads the definition of a value.
+     *
+     * @param <T> Type of the value
+     */
+    @FunctionalInterface
+    private interface DefinitionReader<T> {
+        T read() throws IOException;
+    }
+
+    private final Codec<R> requirementCodec;
+    private final Codec<S> specificationCodec;
+    private final Map<R, Integer> requirementIds;
+    private final Map<S, Integer> specificationIds;
+    private final Map<PossibilitySet<R, S>, Integer> possibilitySetIds;
+    private final Map<Conflict<R, S>, Integer> conflictIds;
+    private final Map<UnwindDetails<R, S>, Integer> unwindDetailsIds;
+    private final List<R> requirements;
+    private final List<S> specifications;
+    private final List<PossibilitySet<R, S>> possibilitySets;
+    private final List<Conflict<R, S>> conflicts;
+    private final List<UnwindDetails<R, S>> unwindDetails;
+    private final Map<PossibilityGroups<R, S>, R> groupRequirements;
+    private final DependencyGraphCodec<R, R> baseCodec;
+
+    private CheckpointSerializer(final CheckpointPolicy<R, S> policy) {
+        this.requirementCodec = policy.getRequirementCodec();
+        this.specificationCodec = policy.getSpecificationCodec();
+        this.requirementIds = new HashMap<>();
+        this.specificationIds = new HashMap<>();
+        this.possibilitySetIds = new IdentityHashMap<>();
+        this.conflictIds = new IdentityHashMap<>();
+        this.unwindDetailsIds = new IdentityHashMap<>();
+        this.requirements = new ArrayList<>();
+        this.specifications = new ArrayList<>();
+        this.possibilitySets = new ArrayList<>();
+        this.conflicts = new ArrayList<>();
+        this.unwindDetails = new ArrayList<>();
+        this.groupRequirements = new IdentityHashMap<>();
+
+        final Codec<R> requirementReferences = new Codec<>() {
+            @Override
+            public void write(final R requirement, final DataOutput output) throws IOException {
+                writeRequirement(requirement, output);
+            }
+
+            @Override
+            public R read(final DataInput input) throws IOException {
+                return readRequirement(input);
+            }
+        };
+        this.baseCodec = new DependencyGraphCodec<>(requirementReferences, requirementReferences, false);
+    }
+
+    /**
+     * Creates a checkpoint of the specified resolution.
+     *
+     * @param resolution Resolution to checkpoint. The resolution must be between iterations.
+     * @param policy Provides the codecs for requirements and specifications
+     * @param <R> Requirement type
+     * @param <S> Specification type
+     * @return Checkpoint of the resolution.
+     * @throws UncheckedIOException if a codec could not write a requirement or specification
+     * @throws IllegalStateException if two resolution states cannot be told apart by the graph tags marking them
+     */
+    static <R, S> Checkpoint<R, S> write(final Resolution<R, S> resolution, final CheckpointPolicy<R, S> policy) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        final int iterationCount = resolution.getIterationCount();
+
+        try {
+            output.writeInt(Checkpoint.MAGIC);
+            BinaryIO.writeVarInt(output, Checkpoint.VERSION);
+            BinaryIO.writeVarInt(output, iterationCount);
+            new CheckpointSerializer<>(policy).writeResolution(resolution, output);
+            output.flush();
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return new Checkpoint<>(iterationCount, bytes.toByteArray());
+    }
+
+    /**
+     * Reconstructs a resolution from the specified checkpoint.
+     *
+     * @param checkpoint Checkpoint from which to reconstruct the resolution
+     * @param policy Provides the codecs for requirements and specifications
+     * @param specificationProvider Provider for the resumed resolution
+     * @param resolverUi User interface for the resumed resolution
+     * @param <R> Requirement type
+     * @param <S> Specification type
+     * @return Resolution ready to be resumed.
+     * @throws IllegalArgumentException if the checkpoint could not be decoded
+     */
+    static <R, S> Resolution<R, S> read(final Checkpoint<R, S> checkpoint, final CheckpointPolicy<R, S> policy,
+                                        final SpecificationProvider<R, S> specificationProvider,
+                                        final UI resolverUi) {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(checkpoint.getData()));
+        try {
+            final int iterationCount = Checkpoint.readHeader(input);
+            final Resolution<R, S> resolution =
+                    new CheckpointSerializer<>(policy).readResolution(input, specificationProvider, resolverUi);
+            resolution.setIterationCount(iterationCount);
+            return resolution;
+        } catch (final IOException ex) {
+            throw new IllegalArgumentException("Checkpoint could not be decoded", ex);
+        }
+    }
+
+    private void writeResolution(final Resolution<R, S> resolution,
+                                 final DataOutputStream output) throws IOException {
+        writeRequirements(resolution.getOriginalRequested(), output);
+        this.baseCodec.write(resolution.getBase(), output);
+
+        resolution.getPossibilityGroups().forEach((requirement, groups) -> this.groupRequirements.put(groups,
+                                                                                                        requirement));
+        // Graph tags only retain the identity hash code of the state they mark, so the states are indexed by it. Two
+        // states sharing a hash code would make their tags indistinguishable.
+        final List<@Nullable ResolutionState<R, S>> states = resolution.getStates();
+        final Map<Integer, Integer> stateIndices = new HashMap<>();
+        final int initialStateTag = new Tag<>(Resolution.INITIAL_STATE).getValue();
+        BinaryIO.writeVarInt(output, states.size());
+        for (int i = 0; i < states.size(); i++) {
+            final ResolutionState<R, S> state = states.get(i);
+            writeState(state, output);
+            if (state != null) {
+                final int tagValue = new Tag<>(state).getValue();
+                final Integer previousIndex = stateIndices.putIfAbsent(tagValue, i);
+                if ((previousIndex != null && states.get(previousIndex) != state) || tagValue == initialStateTag) {
+                    throw new IllegalStateException("Cannot checkpoint resolution state " + i
+                                                            + " because its graph tag is not unique");
+                }
+            }
+        }
+
+        final Map<R, List<Integer>> parentsOf = resolution.getParentsOf();
+        BinaryIO.writeVarInt(output, parentsOf.size());
+        for (final Map.Entry<R, List<Integer>> entry : parentsOf.entrySet()) {
+            writeRequirement(entry.getKey(), output);
+            BinaryIO.writeVarInt(output, entry.getValue().size());
+            for (final Integer index : entry.getValue()) {
+                BinaryIO.writeVarInt(output, index);
+            }
+        }
+
+        final ResolutionState<R, S> topState = states.isEmpty() ? null : states.get(states.size() - 1);
+        if (topState == null) {
+            BinaryIO.writeVarInt(output, 0);
+        } else {
+            final List<Action<Payload<R, S>, R, ?>> actions = new ArrayList<>();
+            topState.getActivated().getLog().forEach(actions::add);
+            BinaryIO.writeVarInt(output, actions.size());
+            for (final Action<Payload<R, S>, R, ?> action : actions) {
+                writeAction(action, stateIndices, initialStateTag, output);
+            }
+        }
+
+        BinaryIO.writeVarInt(output, resolution.getRestarts());
+        output.writeLong(resolution.getUnwinds());
+        output.writeLong(resolution.getPerturbation());
+        writeConflicts(resolution.getLearnedConflicts(), output);
+    }
+
+    private Resolution<R, S> readResolution(final DataInputStream input,
+                                            final SpecificationProvider<R, S> specificationProvider,
+                                            final UI resolverUi) throws IOException {
+        final Set<R> requested = readRequirements(input);
+        final DependencyGraph<R, R> base = this.baseCodec.read(input);
+        final Resolution<R, S> resolution = new Resolution<>(specificationProvider, resolverUi, requested, base);
+        final DependencyGraph<Payload<R, S>, R> activated = new DependencyGraph<>();
+
+        final List<@Nullable ResolutionState<R, S>> states = resolution.getStates();
+        final int stateCount = BinaryIO.readVarInt(input);
+        for (int i = 0; i < stateCount; i++) {
+            states.add(readState(resolution, activated, input));
+        }
+
+        final Map<R, List<Integer>> parentsOf = resolution.getParentsOf();
+        final int parentsCount = BinaryIO.readVarInt(input);
+        for (int i = 0; i < parentsCount; i++) {
+            final R requirement = readRequirement(input);
+            final int indexCount = BinaryIO.readVarInt(input);
+            final List<Integer> indices = new ArrayList<>(indexCount);
+            for (int j = 0; j < indexCount; j++) {
+                indices.add(BinaryIO.readVarInt(input));
+            }
+            parentsOf.put(requirement, indices);
+        }
+
+        final Log<Payload<R, S>, R> log = activated.getLog();
+        final int actionCount = BinaryIO.readVarInt(input);
+        int actionIndex = 0;
+        while (actionIndex < actionCount) {
+            actionIndex += readAction(activated, log, states, requested, specificationProvider, input);
+        }
+        if (actionIndex != actionCount) {
+            throw new IOException("Checkpoint action log is inconsistent");
+        }
+
+        final int restarts = BinaryIO.readVarInt(input);
+        final long unwinds = input.readLong();
+        final long perturbation = input.readLong();
+        resolution.setRestartProgress(restarts, unwinds, perturbation, readConflicts(input));
+
+        return resolution;
+    }
+
+    private void writeState(@Nullable final ResolutionState<R, S> state, final DataOutput output) throws IOException {
+        if (state == null) {
+            BinaryIO.writeVarInt(output, STATE_NONE);
+            return;
+        }
+
+        BinaryIO.writeVarInt(output, (state instanceof PossibilityState) ? STATE_POSSIBILITY : STATE_DEPENDENCY);
+        BinaryIO.writeString(output, state.getName());
+        BinaryIO.writeVarInt(output, state.getRequirements().size());
+        for (final R requirement : state.getRequirements()) {
+            writeRequirement(requirement, output);
+        }
+        writeNullableRequirement(state.getRequirement().orElse(null), output);
+
+        writePossibilities(state.getPossibilities(), output);
+
+        BinaryIO.writeVarInt(output, state.getDepth());
+
+        writeConflicts(state.getConflicts(), output);
+
+        BinaryIO.writeVarInt(output, state.getUnusedUnwindOptions().size());
+        for (final UnwindDetails<R, S> details : state.getUnusedUnwindOptions()) {
+            writeUnwindDetails(details, output);
+        }
+    }
+
+    @Nullable
+    private ResolutionState<R, S> readState(final Resolution<R, S> resolution,
+                                            final DependencyGraph<Payload<R, S>, R> activated,
+                                            final DataInput input) throws IOException {
+        final int kind = BinaryIO.readVarInt(input);
+        if (kind == STATE_NONE) {
+            return null;
+        }
+        if (kind != STATE_DEPENDENCY && kind != STATE_POSSIBILITY) {
+            throw new IOException("Unknown checkpoint state type " + kind);
+        }
+
+        final String name = BinaryIO.readString(input);
+        final int requirementCount = BinaryIO.readVarInt(input);
+        final List<R> stateRequirements = new ArrayList<>(requirementCount);
+        for (int i = 0; i < requirementCount; i++) {
+            stateRequirements.add(readRequirement(input));
+        }
+        final R requirement = readNullableRequirement(input);
+
+        final List<PossibilitySet<R, S>> statePossibilities = readPossibilities(resolution, input);
+
+        final int depth = BinaryIO.readVarInt(input);
+
+        final Map<String, Conflict<R, S>> stateConflicts = readConflicts(input);
+
+        final int unwindCount = BinaryIO.readVarInt(input);
+        final List<UnwindDetails<R, S>> unusedUnwindOptions = new ArrayList<>(unwindCount);
+        for (int i = 0; i < unwindCount; i++) {
+            unusedUnwindOptions.add(required(readUnwindDetails(input)));
+        }
+
+        if (kind == STATE_DEPENDENCY) {
+            return new DependencyState<>(name, stateRequirements, activated, requirement, statePossibilities, depth,
+                                         stateConflicts, unusedUnwindOptions);
+        }
+
+        final PossibilityState<R, S> state = new PossibilityState<>(name, stateRequirements, activated, requirement,
+                                                                    null, depth, stateConflicts,
+                                                                    unusedUnwindOptions);
+        state.getPossibilities().addAll(statePossibilities);
+        return state;
+    }
+
+    /**
+     * Writes the possibilities of a state. Possibilities built lazily from the groups of a requirement are written
+     * without building the possibility sets that have not been built yet.
+     */
+    private void writePossibilities(final List<@Nullable PossibilitySet<R, S>> possibilities,
+                                    final DataOutput output) throws IOException {
+        if (possibilities instanceof final LazyPossibilitySets<R, S> lazyPossibilities) {
+            final R requirement = this.groupRequirements.get(lazyPossibilities.getGroups());
+            if (requirement != null) {
+                BinaryIO.writeVarInt(output, POSSIBILITIES_LAZY);
+                writeRequirement(requirement, output);
+                BinaryIO.writeVarInt(output, lazyPossibilities.getCopied());
+                writePossibilitySets(lazyPossibilities.getBuilt(), output);
+                return;
+            }
+        }
+
+        BinaryIO.writeVarInt(output, POSSIBILITIES_LIST);
+        writePossibilitySets(possibilities, output);
+    }
+
+    private List<PossibilitySet<R, S>> readPossibilities(final Resolution<R, S> resolution,
+                                                         final DataInput input) throws IOException {
+        final int kind = BinaryIO.readVarInt(input);
+        if (kind == POSSIBILITIES_LAZY) {
+            final PossibilityGroups<R, S> groups = resolution.possibilityGroupsFor(readRequirement(input));
+            final int copied = BinaryIO.readVarInt(input);
+            return new LazyPossibilitySets<>(groups, readPossibilitySets(input), copied);
+        }
+        if (kind != POSSIBILITIES_LIST) {
+            throw new IOException("Unknown checkpoint possibilities type " + kind);
+        }
+        return readPossibilitySets(input);
+    }
+
+    private void writePossibilitySets(final List<@Nullable PossibilitySet<R, S>> possibilitySets,
+                                      final DataOutput output) throws IOException {
+        BinaryIO.writeVarInt(output, possibilitySets.size());
+        for (final PossibilitySet<R, S> possibilitySet : possibilitySets) {
+            writePossibilitySet(possibilitySet, output);
+        }
+    }
+
+    private List<PossibilitySet<R, S>> readPossibilitySets(final DataInput input) throws IOException {
+        final int count = BinaryIO.readVarInt(input);
+        final List<@Nullable PossibilitySet<R, S>> possibilitySets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            possibilitySets.add(readPossibilitySet(input));
+        }
+
+        @SuppressWarnings("unchecked")
+        final List<PossibilitySet<R, S>> result = (List<PossibilitySet<R, S>>)(List<?>)possibilitySets;
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeAction(final Action<Payload<R, S>, R, ?> action, final Map<Integer, Integer> stateIndices,
+                             final int initialStateTag, final DataOutput output) throws IOException {
+        if (action instanceof final AddVertex<?, ?> addVertex) {
+            BinaryIO.writeVarInt(output, ACTION_ADD_VERTEX);
+            BinaryIO.writeString(output, addVertex.getName());
+            writePayload((Payload<R, S>)addVertex.getPayload().orElse(null), output);
+            output.writeBoolean(addVertex.isRoot());
+        } else if (action instanceof final DetachVertexNamed<?, ?> detachVertex) {
+            BinaryIO.writeVarInt(output, ACTION_DETACH_VERTEX);
+            BinaryIO.writeString(output, detachVertex.getName());
+        } else if (action instanceof final AddEdgeNoCircular<?, ?> addEdge) {
+            BinaryIO.writeVarInt(output, ACTION_ADD_EDGE);
+            BinaryIO.writeString(output, addEdge.getOrigin());
+            BinaryIO.writeString(output, addEdge.getDestination());
+            writeRequirement((R)addEdge.getRequirement(), output);
+        } else if (action instanceof final SetPayload<?, ?> setPayload) {
+            BinaryIO.writeVarInt(output, ACTION_SET_PAYLOAD);
+            BinaryIO.writeString(output, setPayload.getName());
+            writePayload((Payload<R, S>)setPayload.getPayload().orElse(null), output);
+        } else if (action instanceof final Tag<?, ?> tag) {
+            final Integer stateIndex = stateIndices.get(tag.getValue());
+            if (stateIndex != null) {
+                BinaryIO.writeVarInt(output, ACTION_TAG_STATE);
+                BinaryIO.writeVarInt(output, stateIndex);
+            } else if (tag.getValue() == initialStateTag) {
+                BinaryIO.writeVarInt(output, ACTION_TAG_INITIAL_STATE);
+            } else {
+                throw new IllegalStateException("Cannot checkpoint a graph tag that does not mark a resolution state");
+            }
+        } else {
+            throw new IllegalStateException("Cannot checkpoint graph action " + action);
+        }
+    }
+
+    /**
+     * Reads an action and performs it on the activated graph.
+     *
+     * @return Number of logged actions accounted for by the action. Detaching a vertex also detaches any vertices
+     *      orphaned by its removal, but logs them as part of the same action.
+     */
+    private int readAction(final DependencyGraph<Payload<R, S>, R> activated, final Log<Payload<R, S>, R> log,
+                           final List<@Nullable ResolutionState<R, S>> states, final Set<R> requested,
+                           final SpecificationProvider<R, S> specificationProvider,
+                           final DataInput input) throws IOException {
+        final int kind = BinaryIO.readVarInt(input);
+        switch (kind) {
+            case ACTION_ADD_VERTEX -> {
+                final String name = BinaryIO.readString(input);
+                final Payload<R, S> payload = readPayload(input);
+                log.addVertex(activated, name, payload, input.readBoolean());
+                return 1;
+            }
+            case ACTION_DETACH_VERTEX -> {
+                log.detachVertexNamed(activated, BinaryIO.readString(input));
+                return 1;
+            }
+            case ACTION_ADD_EDGE -> {
+                final String origin = BinaryIO.readString(input);
+                final String destination = BinaryIO.readString(input);
+                log.addEdgeNoCircular(activated, origin, destination, readRequirement(input));
+                return 1;
+            }
+            case ACTION_SET_PAYLOAD -> {
+                final String name = BinaryIO.readString(input);
+                log.setPayload(activated, name, readPayload(input));
+                return 1;
+            }
+            case ACTION_TAG_INITIAL_STATE -> {
+                // The explicit requirements of the requested dependencies are not logged, so they are applied to
+                // the root vertices at the point where the initial state was tagged.
+                for (final R dependency : requested) {
+                    activated.vertexNamed(specificationProvider.nameForDependency(dependency))
+                             .ifPresent(vertex -> vertex.getExplicitRequirements().add(dependency));
+                }
+                log.tag(activated, Resolution.INITIAL_STATE);
+                return 1;
+            }
+            case ACTION_TAG_STATE -> {
+                final int stateIndex = BinaryIO.readVarInt(input);
+                if (stateIndex >= states.size()) {
+                    throw new IOException("Checkpoint tag refers to unknown state " + stateIndex);
+                }
+                log.tag(activated, required(states.get(stateIndex)));
+                return 1;
+            }
+            default -> throw new IOException("Unknown checkpoint action type " + kind);
+        }
+    }
+
+    private void writePayload(@Nullable final Payload<R, S> payload, final DataOutput output) throws IOException {
+        if (payload == null) {
+            BinaryIO.writeVarInt(output, PAYLOAD_NONE);
+        } else if (payload.isPossibilitySet()) {
+            BinaryIO.writeVarInt(output, PAYLOAD_POSSIBILITY_SET);
+            writePossibilitySet(payload.getPossibilitySet(), output);
+            writeNullableRequirement(payload.getMergedRequirement().orElse(null), output);
+        } else {
+            BinaryIO.writeVarInt(output, PAYLOAD_SPECIFICATION);
+            writeSpecification(payload.getSpecification(), output);
+        }
+    }
+
+    @Nullable
+    private Payload<R, S> readPayload(final DataInput input) throws IOException {
+        final int kind = BinaryIO.readVarInt(input);
+        return switch (kind) {
+            case PAYLOAD_NONE -> null;
+            case PAYLOAD_POSSIBILITY_SET -> {
+                final PossibilitySet<R, S> possibilitySet = required(readPossibilitySet(input));
+                yield new Payload<>(possibilitySet, readNullableRequirement(input));
+            }
+            case PAYLOAD_SPECIFICATION -> new Payload<>(readSpecification(input));
+            default -> throw new IOException("Unknown checkpoint payload type " + kind);
+        };
+    }
+
+    private void writePossibilitySet(@Nullable final PossibilitySet<R, S> possibilitySet,
+                                     final DataOutput output) throws IOException {
+        writeReference(possibilitySet, this.possibilitySetIds, output, value -> {
+            writeRequirements(value.getDependencies(), output);
+            BinaryIO.writeVarInt(output, value.getPossibilities().size());
+            for (final S possibility : value.getPossibilities()) {
+                writeSpecification(possibility, output);
+            }
+        });
+    }
+
+    @Nullable
+    private PossibilitySet<R, S> readPossibilitySet(final DataInput input) throws IOException {
+        return readReference(this.possibilitySets, input, () -> {
+            final Set<R> dependencies = readRequirements(input);
+            final int possibilityCount = BinaryIO.readVarInt(input);
+            final List<S> possibilities = new ArrayList<>(possibilityCount);
+            for (int i = 0; i < possibilityCount; i++) {
+                possibilities.add(readSpecification(input));
+            }
+            return new PossibilitySet<>(dependencies, possibilities);
+        });
+    }
+
+    private void writeConflicts(final Map<String, Conflict<R, S>> conflictsByName,
+                                final DataOutput output) throws IOException {
+        BinaryIO.writeVarInt(output, conflictsByName.size());
+        for (final Map.Entry<String, Conflict<R, S>> entry : conflictsByName.entrySet()) {
+            BinaryIO.writeString(output, entry.getKey());
+            writeConflict(entry.getValue(), output);
+        }
+    }
+
+    private Map<String, Conflict<R, S>> readConflicts(final DataInput input) throws IOException {
+        final int count = BinaryIO.readVarInt(input);
+        final Map<String, Conflict<R, S>> conflictsByName = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            final String conflictName = BinaryIO.readString(input);
+            conflictsByName.put(conflictName, required(readConflict(input)));
+        }
+        return conflictsByName;
+    }
+
+    private void writeConflict(final Conflict<R, S> conflict, final DataOutput output) throws IOException {
+        writeReference(conflict, this.conflictIds, output, value -> {
+            writeRequirement(value.getRequirement(), output);
+
+            BinaryIO.writeVarInt(output, value.getRequirements().size());
+            for (final Map.Entry<?, Set<R>> entry : value.getRequirements().entrySet()) {
+                if (entry.getKey() instanceof final String name) {
+                    BinaryIO.writeVarInt(output, KEY_NAME);
+                    BinaryIO.writeString(output, name);
+                } else {
+                    @SuppressWarnings("unchecked")
+                    final S specification = (S)entry.getKey();
+                    BinaryIO.writeVarInt(output, KEY_SPECIFICATION);
+                    writeSpecification(specification, output);
+                }
+                writeRequirements(entry.getValue(), output);
+            }
+
+            writeNullableSpecification(value.getExisting(), output);
+            writePossibilitySet(value.getPossibilitySet(), output);
+            writeNullableRequirement(value.getLockedRequirement(), output);
+
+            BinaryIO.writeVarInt(output, value.getRequirementTrees().size());
+            for (final List<R> tree : value.getRequirementTrees()) {
+                writeRequirementList(tree, output);
+            }
+
+            BinaryIO.writeVarInt(output, value.getActivatedByName().size());
+            for (final Map.Entry<String, S> entry : value.getActivatedByName().entrySet()) {
+                BinaryIO.writeString(output, entry.getKey());
+                writeSpecification(entry.getValue(), output);
+            }
+
+            final RuntimeException error = value.getUnderlyingError();
+            if (error == null) {
+                BinaryIO.writeVarInt(output, ERROR_NONE);
+            } else if (error instanceof final CircularDependencyError circularError) {
+                BinaryIO.writeVarInt(output, ERROR_CIRCULAR_DEPENDENCY);
+                final Collection<Vertex<?, ?>> vertices = circularError.getVertices();
+                BinaryIO.writeVarInt(output, vertices.size());
+                for (final Vertex<?, ?> vertex : vertices) {
+                    @SuppressWarnings("unchecked")
+                    final Payload<R, S> payload = (Payload<R, S>)vertex.getPayload().orElse(null);
+                    BinaryIO.writeString(output, vertex.getName());
+                    writePayload(payload, output);
+                }
+            } else {
+                throw new IllegalStateException("Cannot checkpoint a conflict caused by " + error.getClass().getName());
+            }
+        });
+    }
+
+    @Nullable
+    private Conflict<R, S> readConflict(final DataInput input) throws IOException {
+        return readReference(this.conflicts, input, () -> {
+            final R requirement = readRequirement(input);
+
+            final int requirementsCount = BinaryIO.readVarInt(input);
+            final Map<Object, Set<R>> conflictRequirements = new LinkedHashMap<>();
+            for (int i = 0; i < requirementsCount; i++) {
+                final int keyKind = BinaryIO.readVarInt(input);
+                final Object key = switch (keyKind) {
+                    case KEY_NAME -> BinaryIO.readString(input);
+                    case KEY_SPECIFICATION -> readSpecification(input);
+                    default -> throw new IOException("Unknown checkpoint conflict key type " + keyKind);
+                };
+                conflictRequirements.put(key, readRequirements(input));
+            }
+
+            final S existing = readNullableSpecification(input);
+            final PossibilitySet<R, S> possibilitySet = readPossibilitySet(input);
+            final R lockedRequirement = readNullableRequirement(input);
+
+            final int treeCount = BinaryIO.readVarInt(input);
+            final List<List<R>> requirementTrees = new ArrayList<>(treeCount);
+            for (int i = 0; i < treeCount; i++) {
+                requirementTrees.add(readRequirementList(input));
+            }
+
+            final int activatedCount = BinaryIO.readVarInt(input);
+            final Map<String, S> activatedByName = new LinkedHashMap<>();
+            for (int i = 0; i < activatedCount; i++) {
+                final String name = BinaryIO.readString(input);
+                activatedByName.put(name, readSpecification(input));
+            }
+
+            final int errorKind = BinaryIO.readVarInt(input);
+            final RuntimeException error;
+            if (errorKind == ERROR_NONE) {
+                error = null;
+            } else if (errorKind == ERROR_CIRCULAR_DEPENDENCY) {
+                final int vertexCount = BinaryIO.readVarInt(input);
+                final List<Vertex<Payload<R, S>, R>> vertices = new ArrayList<>(vertexCount);
+                for (int i = 0; i < vertexCount; i++) {
+                    final String name = BinaryIO.readString(input);
+                    vertices.add(new Vertex<>(name, readPayload(input)));
+                }
+                error = new CircularDependencyError(vertices);
+            } else {
+                throw new IOException("Unknown checkpoint conflict error type " + errorKind);
+            }
+
+            return new Conflict<>(requirement, conflictRequirements, existing, possibilitySet, lockedRequirement,
+                                  requirementTrees, activatedByName, error);
+        });
+    }
+
+    private void writeUnwindDetails(final UnwindDetails<R, S> details, final DataOutput output) throws IOException {
+        writeReference(details, this.unwindDetailsIds, output, value -> {
+            BinaryIO.writeVarInt(output, value.getStateIndex() + 1);
+            writeNullableRequirement(value.getStateRequirement(), output);
+            writeRequirementList(value.getRequirementTree(), output);
+            writeRequirementList(value.getConflictingRequirements(), output);
+            BinaryIO.writeVarInt(output, value.getRequirementTrees().size());
+            for (final List<R> tree : value.getRequirementTrees()) {
+                writeRequirementList(tree, output);
+            }
+            writeRequirements(value.getRequirementsUnwoundToInstead(), output);
+        });
+    }
+
+    @Nullable
+    private UnwindDetails<R, S> readUnwindDetails(final DataInput input) throws IOException {
+        return readReference(this.unwindDetails, input, () -> {
+            final int stateIndex = BinaryIO.readVarInt(input) - 1;
+            final R stateRequirement = readNullableRequirement(input);
+            final List<R> requirementTree = readRequirementList(input);
+            final List<R> conflictingRequirements = readRequirementList(input);
+            final int treeCount = BinaryIO.readVarInt(input);
+            final List<List<R>> requirementTrees = new ArrayList<>(treeCount);
+            for (int i = 0; i < treeCount; i++) {
+                requirementTrees.add(readRequirementList(input));
+            }
+            final Set<R> requirementsUnwoundToInstead = readRequirements(input);
+            return new UnwindDetails<>(stateIndex, stateRequirement, requirementTree, conflictingRequirements,
+                                       requirementTrees, requirementsUnwoundToInstead);
+        });
+    }
+
+    private void writeRequirementList(final List<R> list, final DataOutput output) throws IOException {
+        BinaryIO.writeVarInt(output, list.size());
+        for (final R requirement : list) {
+            writeRequirement(requirement, output);
+        }
+    }
+
+    private List<R> readRequirementList(final DataInput input) throws IOException {
+        final int count = BinaryIO.readVarInt(input);
+        final List<R> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(readRequirement(input));
+        }
+        return list;
+    }
+
+    private void writeRequirements(final Set<R> set, final DataOutput output) throws IOException {
+        BinaryIO.writeVarInt(output, set.size());
+        for (final R requirement : set) {
+            writeRequirement(requirement, output);
+        }
+    }
+
+    private Set<R> readRequirements(final DataInput input) throws IOException {
+        final int count = BinaryIO.readVarInt(input);
+        final Set<R> set = new LinkedHashSet<>();
+        for (int i = 0; i < count; i++) {
+            set.add(readRequirement(input));
+        }
+        return set;
+    }
+
+    private void writeRequirement(final R requirement, final DataOutput output) throws IOException {
+        writeNullableRequirement(requirement, output);
+    }
+
+    private R readRequirement(final DataInput input) throws IOException {
+        return required(readNullableRequirement(input));
+    }
+
+    private void writeNullableRequirement(@Nullable final R requirement, final DataOutput output) throws IOException {
+        writeReference(requirement, this.requirementIds, output,
+                       value -> this.requirementCodec.write(value, output));
+    }
+
+    @Nullable
+    private R readNullableRequirement(final DataInput input) throws IOException {
+        return readReference(this.requirements, input, () -> this.requirementCodec.read(input));
+    }
+
+    private void writeSpecification(final S specification, final DataOutput output) throws IOException {
+        writeNullableSpecification(specification, output);
+    }
+
+    private S readSpecification(final DataInput input) throws IOException {
+        return required(readNullableSpecification(input));
+    }
+
+    private void writeNullableSpecification(@Nullable final S specification,
+                                            final DataOutput output) throws IOException {
+        writeReference(specification, this.specificationIds, output,
+                       value -> this.specificationCodec.write(value, output));
+    }
+
+    @Nullable
+    private S readNullableSpecification(final DataInput input) throws IOException {
+        return readReference(this.specifications, input, () -> this.specificationCodec.read(input));
+    }
+
+    private static <T> void writeReference(@Nullable final T value, final Map<T, Integer> ids,
+                                           final DataOutput output,
+                                           final DefinitionWriter<T> writer) throws IOException {
+        if (value == null) {
+            BinaryIO.writeVarInt(output, REF_NULL);
+            return;
+        }
+
+        final Integer id = ids.get(value);
+        if (id != null) {
+            BinaryIO.writeVarInt(output, id + REF_OFFSET);
+        } else {
+            BinaryIO.writeVarInt(output, REF_DEFINITION);
+            writer.write(value);
+            ids.put(value, ids.size());
+        }
+    }
+
+    @Nullable
+    private static <T> T readReference(final List<T> table, final DataInput input,
+                                       final DefinitionReader<T> reader) throws IOException {
+        final int ref = BinaryIO.readVarInt(input);
+        if (ref == REF_NULL) {
+            return null;
+        }
+        if (ref == REF_DEFINITION) {
+            final T value = reader.read();
+            table.add(value);
+            return value;
+        }
+        final int id = ref - REF_OFFSET;
+        if (id >= table.size()) {
+            throw new IOException("Checkpoint refers to an undefined value");
+        }
+        return table.get(id);
+    }
+
+    private static <T> T required(@Nullable final T value) throws IOException {
+        if (value == null) {
+            throw new IOException("Checkpoint is missing a required value");
+        }
+        return value;
+    }
+}
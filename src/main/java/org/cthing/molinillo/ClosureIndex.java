@@ -0,0 +1,159 @@
+package org.cthing.molinillo;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cthing.molinillo.graph.Vertex;
+
+
+/**
+ * Transitive closure of the dependencies of a dependency graph. Each vertex is assigned a dense identifier, and the
+ * transitive dependencies and dependents of each vertex are recorded as bit sets over those identifiers, so that
+ * reachability is determined by testing a single bit. The index is a snapshot of the graph at the time it is built,
+ * and records the modification count of the graph's action log at that time, so that it can be determined whether the
+ * graph has since been modified.
+ *
+ * @param <P> Payload type
+ * @param <R> Requirement type
+ */
+final class ClosureIndex<P, R> {
+
+    private final long modificationCount;
+
+    // Vertices in dependency order, indexed by identifier.
+    private final List<Vertex<P, R>> vertices;
+    private final Map<String, Integer> ids;
+    private final BitSet[] dependencies;
+    private final BitSet[] dependents;
+
+    /**
+     * Builds the index for the specified graph.
+     *
+     * @param graph Graph to index
+     * @throws org.cthing.molinillo.errors.CircularDependencyError if the graph contains a cycle
+     */
+    ClosureIndex(final DependencyGraph<P, R> graph) {
+        this.modificationCount = graph.getLog().getModificationCount();
+        this.vertices = graph.topologicalSort();
+
+        final int size = this.vertices.size();
+        this.ids = new HashMap<>(size * 2);
+        for (int id = 0; id < size; id++) {
+            this.ids.put(this.vertices.get(id).getName(), id);
+        }
+
+        // Every dependency of a vertex precedes it in dependency order, so the closure of each dependency is complete
+        // by the time the vertex is reached. Likewise for the dependents in the reverse order.
+        this.dependencies = new BitSet[size];
+        for (int id = 0; id < size; id++) {
+            final BitSet closure = new BitSet(size);
+            for (final String name : DependencyGraph.successorNames(this.vertices.get(id))) {
+                final int dependencyId = this.ids.get(name);
+                closure.set(dependencyId);
+                closure.or(this.dependencies[dependencyId]);
+            }
+            this.dependencies[id] = closure;
+        }
+
+        this.dependents = new BitSet[size];
+        for (int id = size - 1; id >= 0; id--) {
+            final BitSet closure = new BitSet(size);
+            for (final String name : DependencyGraph.predecessorNames(this.vertices.get(id))) {
+                final int dependentId = this.ids.get(name);
+                closure.set(dependentId);
+                closure.or(this.dependents[dependentId]);
+            }
+            this.dependents[id] = closure;
+        }
+    }
+
+    /**
+     * Indicates whether the index reflects the current state of the specified graph.
+     *
+     * @param graph Graph from which the index was built
+     * @return {@code true} if the graph has not been modified since the index was built.
+     */
+    boolean isCurrent(final DependencyGraph<P, R> graph) {
+        return this.modificationCount == graph.getLog().getModificationCount();
+    }
+
+    /**
+     * Indicates whether one vertex depends on another, directly or transitively.
+     *
+     * @param dependentName Name of the depending vertex
+     * @param dependencyName Name of the vertex that may be depended upon
+     * @return {@code true} if both vertices exist and the first depends on the second.
+     */
+    boolean dependsOn(final String dependentName, final String dependencyName) {
+        final Integer dependentId = this.ids.get(dependentName);
+        final Integer dependencyId = this.ids.get(dependencyName);
+        return dependentId != null && dependencyId != null && this.dependencies[dependentId].get(dependencyId);
+    }
+
+    /**
+     * Obtains the vertices that the specified vertex depends on, directly or transitively.
+     *
+     * @param name Name of the vertex
+     * @return Transitive dependencies of the vertex in dependency order. Empty if there is no such vertex.
+     */
+    Set<Vertex<P, R>> dependencies(final String name) {
+        return toVertices(this.dependencies, name);
+    }
+
+    /**
+     * Obtains the vertices that depend on the specified vertex, directly or transitively.
+     *
+     * @param name Name of the vertex
+     * @return Transitive dependents of the vertex in dependency order. Empty if there is no such vertex.
+     */
+    Set<Vertex<P, R>> dependents(final String name) {
+        return toVertices(this.dependents, name);
+    }
+
+    /**
+     * Obtains the number of vertices that the specified vertex depends on, directly or transitively.
+     *
+     * @param name Name of the vertex
+     * @return Number of transitive dependencies of the vertex. Zero if there is no such vertex.
+     */
+    int dependencyCount(final String name) {
+        final Integer id = this.ids.get(name);
+        return id == null ? 0 : this.dependencies[id].cardinality();
+    }
+
+    /**
+     * Obtains the number of vertices that depend on the specified vertex, directly or transitively.
+     *
+     * @param name Name of the vertex
+     * @return Number of transitive dependents of the vertex. Zero if there is no such vertex.
+     */
+    int dependentCount(final String name) {
+        final Integer id = this.ids.get(name);
+        return id == null ? 0 : this.dependents[id].cardinality();
+    }
+
+    /**
+     * Obtains the vertices in the closure of the specified vertex.
+     *
+     * @param closures Closure of each vertex, indexed by identifier
+     * @param name Name of the vertex
+     * @return Vertices in the closure of the vertex, in dependency order.
+     */
+    private Set<Vertex<P, R>> toVertices(final BitSet[] closures, final String name) {
+        final Integer id = this.ids.get(name);
+        if (id == null) {
+            return new LinkedHashSet<>();
+        }
+
+        final BitSet closure = closures[id];
+        final Set<Vertex<P, R>> result = new LinkedHashSet<>(closure.cardinality() * 2);
+        for (int i = closure.nextSetBit(0); i >= 0; i = closure.nextSetBit(i + 1)) {
+            result.add(this.vertices.get(i));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+package org.cthing.molinillo;
+
+
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * User interface given to each of the resolutions of independent components performed concurrently. Calls are
+ * serialized on the wrapped user interface, and the start and end of each component resolution are not forwarded,
+ * because the resolver indicates the start and end of the overall resolution itself.
+ */
+final class ComponentUI implements UI {
+
+    private final UI delegate;
+
+    /**
+     * Constructs the user interface.
+     *
+     * @param delegate User interface to which calls are forwarded
+     */
+    ComponentUI(final UI delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void indicateProgress() {
+        synchronized (this.delegate) {
+            this.delegate.indicateProgress();
+        }
+    }
+
+    @Override
+    public int getProgressRate() {
+        synchronized (this.delegate) {
+            return this.delegate.getProgressRate();
+        }
+    }
+
+    @Override
+    public void beforeResolution() {
+    }
+
+    @Override
+    public void afterResolution() {
+    }
+
+    @Override
+    public void printf(final int depth, final String format, final @Nullable Object... args) {
+        synchronized (this.delegate) {
+            this.delegate.printf(depth, format, args);
+        }
+    }
+
+    @Override
+    public boolean isDebugMode() {
+        synchronized (this.delegate) {
+            return this.delegate.isDebugMode();
+        }
+    }
+
+    @Override
+    public void setDebugMode(@Nullable final Boolean debugMode) {
+        synchronized (this.delegate) {
+            this.delegate.setDebugMode(debugMode);
+        }
+    }
+}
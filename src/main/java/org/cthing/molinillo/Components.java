@@ -0,0 +1,183 @@
+package org.cthing.molinillo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.cthing.molinillo.errors.NoSuchDependencyError;
+import org.cthing.molinillo.graph.Edge;
+import org.cthing.molinillo.graph.Vertex;
+
+
+/**
+ * Partitions requested dependencies into independent components, and merges the results of resolving each component.
+ * Two requested dependencies are in the same component if the names reachable from them have any name in common. A
+ * name is reachable from a dependency if it is the name of the dependency, or the name of a dependency of any
+ * specification found for a dependency whose name is reachable. A resolution only ever considers the names reachable
+ * from the requested dependencies, so the components can be resolved separately.
+ */
+final class Components {
+
+    private Components() {
+    }
+
+    /**
+     * Partitions the specified requested dependencies into independent components. Each distinct requirement is searched
+     * for at most once, and the dependencies of each distinct specification found are obtained at most once.
+     *
+     * @param provider Provides the specifications and their dependencies
+     * @param requested Dependencies to partition
+     * @param base Dependency graph to which dependencies are locked. The specifications found for the locked
+     *      requirements are also considered reachable.
+     * @return Requested dependencies in each component. The components, and the dependencies in each component,
+     *      are in the iteration order of the requested dependencies.
+     * @param <R> Requirement type
+     * @param <S> Specification type
+     */
+    static <R, S> List<Set<R>> partition(final SpecificationProvider<R, S> provider, final Set<R> requested,
+                                         final DependencyGraph<R, R> base) {
+        final Map<String, String> parents = new HashMap<>();
+        final Set<String> visitedNames = new HashSet<>();
+        final Set<R> searched = new HashSet<>();
+        final Map<S, String> expanded = new HashMap<>();
+        final Deque<R> pending = new ArrayDeque<>(requested);
+
+        // Each distinct requirement is searched for once, since requirements on the same name may find different
+        // specifications, but each specification found is only expanded once, and the locked specifications of a
+        // name are only searched for the first time the name is seen.
+        while (!pending.isEmpty()) {
+            final R requirement = pending.pop();
+            if (!searched.add(requirement)) {
+                continue;
+            }
+
+            final String name = provider.nameForDependency(requirement);
+            final List<S> specifications = new ArrayList<>(search(provider, requirement));
+            if (visitedNames.add(name)) {
+                base.vertexNamed(name)
+                    .flatMap(Vertex::getPayload)
+                    .ifPresent(locked -> specifications.addAll(search(provider, locked)));
+            }
+            for (final S specification : specifications) {
+                final String expandedName = expanded.putIfAbsent(specification, name);
+                if (expandedName != null) {
+                    union(parents, name, expandedName);
+                    continue;
+                }
+                for (final R nested : provider.dependenciesFor(specification)) {
+                    union(parents, name, provider.nameForDependency(nested));
+                    if (!searched.contains(nested)) {
+                        pending.push(nested);
+                    }
+                }
+            }
+        }
+
+        final Map<String, Set<R>> components = new LinkedHashMap<>();
+        for (final R dependency : requested) {
+            components.computeIfAbsent(find(parents, provider.nameForDependency(dependency)),
+                                       root -> new LinkedHashSet<>())
+                      .add(dependency);
+        }
+        return new ArrayList<>(components.values());
+    }
+
+    /**
+     * Merges the results of resolving independent components into a single graph.
+     *
+     * @param results Results of resolving each component
+     * @return Merged graph, or an empty optional if the results have a name in common but do not agree on its
+     *      specification.
+     * @param <R> Requirement type
+     * @param <S> Specification type
+     */
+    static <R, S> Optional<DependencyGraph<S, R>> merge(final List<DependencyGraph<S, R>> results) {
+        final DependencyGraph<S, R> merged = new DependencyGraph<>();
+
+        for (final DependencyGraph<S, R> result : results) {
+            for (final Vertex<S, R> vertex : result.getVertices().values()) {
+                final Optional<Vertex<S, R>> existing = merged.vertexNamed(vertex.getName());
+                if (existing.isPresent() && !existing.get().getPayload().equals(vertex.getPayload())) {
+                    return Optional.empty();
+                }
+                merged.addVertex(vertex.getName(), vertex.getPayload().orElse(null),
+                                 vertex.isRoot() || existing.map(Vertex::isRoot).orElse(false));
+            }
+        }
+
+        for (final DependencyGraph<S, R> result : results) {
+            for (final Vertex<S, R> vertex : result.getVertices().values()) {
+                for (final Edge<S, R> edge : vertex.getOutgoingEdges()) {
+                    merged.addEdge(merged.vertexNamed(edge.getOrigin().getName()).orElseThrow(),
+                                   merged.vertexNamed(edge.getDestination().getName()).orElseThrow(),
+                                   edge.getRequirement());
+                }
+            }
+        }
+
+        return Optional.of(merged);
+    }
+
+    /**
+     * Searches for the specifications matching the specified dependency. A dependency that cannot be found has no
+     * specifications, and is left to the resolution to report or skip.
+     *
+     * @param provider Provides the specifications
+     * @param dependency Dependency to search for
+     * @return Specifications matching the dependency.
+     * @param <R> Requirement type
+     * @param <S> Specification type
+     */
+    private static <R, S> List<S> search(final SpecificationProvider<R, S> provider, final R dependency) {
+        try {
+            return provider.searchFor(dependency);
+        } catch (final NoSuchDependencyError ex) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Merges the sets containing the specified names.
+     *
+     * @param parents Parent of each name in the disjoint set forest. A name without a parent is a root.
+     * @param name1 First name
+     * @param name2 Second name
+     */
+    private static void union(final Map<String, String> parents, final String name1, final String name2) {
+        final String root1 = find(parents, name1);
+        final String root2 = find(parents, name2);
+        if (!root1.equals(root2)) {
+            parents.put(root2, root1);
+        }
+    }
+
+    /**
+     * Finds the root of the set containing the specified name, compressing the path to it.
+     *
+     * @param parents Parent of each name in the disjoint set forest. A name without a parent is a root.
+     * @param name Name whose root is to be found
+     * @return Root of the set containing the name.
+     */
+    private static String find(final Map<String, String> parents, final String name) {
+        String root = name;
+        for (String parent = parents.get(root); parent != null; parent = parents.get(root)) {
+            root = parent;
+        }
+
+        String current = name;
+        while (!current.equals(root)) {
+            final String next = parents.get(current);
+            parents.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+}
@@ -1,16 +1,19 @@
 package org.cthing.molinillo;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.cthing.annotations.AccessForTesting;
@@ -33,6 +36,9 @@ public class DependencyGraph<P, R> {
     private final Log<P, R> log;
     private final Map<String, Vertex<P, R>> vertices;
 
+    @Nullable
+    private ClosureIndex<P, R> closureIndex;
+
     /**
      * Constructs an empty dependency graph.
      */
@@ -60,6 +66,15 @@ public class DependencyGraph<P, R> {
         return this.vertices;
     }
 
+    /**
+     * Obtains the action log recording the changes made to the graph.
+     *
+     * @return Action log for the graph.
+     */
+    Log<P, R> getLog() {
+        return this.log;
+    }
+
     /**
      * Indicates if the dependency graph does not contain any vertices.
      *
@@ -125,7 +140,7 @@ public class DependencyGraph<P, R> {
 
     /**
      * Removes the specified vertex from the dependency graph, all edges related to it and any orphaned non-root
-     * vertices.
+     * vertices. The removal is logged as a single action, so it is undone in a single step.
      *
      * @param name Name of the vertex to remove
      * @return All vertices removed (i.e. the specified one and any orphaned, non-root vertices).
@@ -185,37 +200,346 @@ public class DependencyGraph<P, R> {
     /**
      * Clones this dependency graph and allows the payload type to be changed. Note that edge requirements are
      * shallow copied to the new graph. Whether a payload is shallow or deeply copied is at the discretion of the
-     * payload transform function.
+     * payload transform function. The creation of each vertex and edge is recorded in the action log of the clone.
      *
      * @param <U> Type for the new payload
      * @param payloadTransform Function to map from the original payload to the new payload
      * @return Clone of this graph with a new payload type, if desired
      */
     public <U> DependencyGraph<U, R> cloneGraph(final Function<P, U> payloadTransform) {
+        return cloneGraph(payloadTransform, true);
+    }
+
+    /**
+     * Clones this dependency graph and allows the payload type to be changed, optionally without recording the
+     * creation of the vertices and edges in the action log of the clone. Without recording, the vertices and edges
+     * are copied directly, so the cost of the copy is proportional to the number of vertices and edges, and the log
+     * of the clone starts out empty. The copied vertices and edges cannot then be undone by rewinding the clone,
+     * although subsequent modifications of the clone are recorded as usual.
+     *
+     * @param <U> Type for the new payload
+     * @param payloadTransform Function to map from the original payload to the new payload
+     * @param recordHistory {@code true} to record the creation of each vertex and edge in the action log of the clone
+     * @return Clone of this graph with a new payload type, if desired
+     */
+    public <U> DependencyGraph<U, R> cloneGraph(final Function<P, U> payloadTransform, final boolean recordHistory) {
         final DependencyGraph<U, R> graph = new DependencyGraph<>();
 
         // Copy all vertices and transform the payload in the process.
         for (final Vertex<P, R> vertex : this.vertices.values()) {
-            graph.addVertex(vertex.getName(), vertex.getPayload().map(payloadTransform).orElse(null), vertex.isRoot());
+            final U payload = vertex.getPayload().map(payloadTransform).orElse(null);
+            if (recordHistory) {
+                graph.addVertex(vertex.getName(), payload, vertex.isRoot());
+            } else {
+                graph.putVertex(vertex.getName(), payload, vertex.isRoot());
+            }
         }
 
-        final Consumer<Set<Edge<P, R>>> addEdges = edges -> {
-            for (final Edge<P, R> edge : edges) {
-                final Vertex<U, R> origin = graph.vertexNamed(edge.getOrigin().getName()).orElseThrow();
-                final Vertex<U, R> destination = graph.vertexNamed(edge.getDestination().getName()).orElseThrow();
-                graph.addEdgeNoCircular(origin, destination, edge.getRequirement());
+        // Copy all edges. Every edge is an outgoing edge of exactly one vertex.
+        for (final Vertex<P, R> vertex : this.vertices.values()) {
+            final Vertex<U, R> origin = graph.vertices.get(vertex.getName());
+            for (final Edge<P, R> edge : vertex.getOutgoingEdges()) {
+                final Vertex<U, R> destination = graph.vertices.get(edge.getDestination().getName());
+                if (recordHistory) {
+                    graph.addEdgeNoCircular(origin, destination, edge.getRequirement());
+                } else {
+                    graph.putEdge(origin, destination, edge.getRequirement());
+                }
             }
-        };
+        }
 
-        // Copy all edges.
-        for (final Vertex<P, R> vertex : this.vertices.values()) {
-            addEdges.accept(vertex.getIncomingEdges());
-            addEdges.accept(vertex.getOutgoingEdges());
+        return graph;
+    }
+
+    /**
+     * Adds a new vertex to the graph without recording the addition in the action log. The addition therefore cannot
+     * be undone. Used to build a graph in bulk.
+     *
+     * @param name Name of the vertex, which must not already be in the graph
+     * @param payload Payload for the vertex
+     * @param root Indicates whether the vertex is a root of the graph
+     * @return Newly created vertex
+     */
+    Vertex<P, R> putVertex(final String name, @Nullable final P payload, final boolean root) {
+        final Vertex<P, R> vertex = new Vertex<>(name, payload);
+        vertex.setRoot(root);
+        this.vertices.put(name, vertex);
+        return vertex;
+    }
+
+    /**
+     * Adds a new edge to the graph without recording the addition in the action log or checking for a cycle. The
+     * addition therefore cannot be undone. Used to build a graph in bulk.
+     *
+     * @param origin Edge origin vertex, which must be in the graph
+     * @param destination Edge destination vertex, which must be in the graph
+     * @param requirement Requirement to place on the edge
+     */
+    void putEdge(final Vertex<P, R> origin, final Vertex<P, R> destination, final R requirement) {
+        final Edge<P, R> edge = new Edge<>(origin, destination, requirement);
+        origin.getOutgoingEdges().add(edge);
+        destination.getIncomingEdges().add(edge);
+    }
+
+    /**
+     * Extracts the subgraph reachable from the specified vertices, for example to create the lock file of a single
+     * module from a resolution shared by several modules. The subgraph contains the specified vertices, every vertex
+     * they depend on directly or transitively, and all edges between those vertices. The specified vertices are the
+     * roots of the subgraph, and the subgraph is built without recording history (see
+     * {@link #cloneGraph(Function, boolean)}). Payloads and requirements are shared with this graph.
+     *
+     * <p>
+     * The reachable vertices are found using a breadth first search from the specified vertices, so the cost of the
+     * extraction is proportional to the size of the subgraph rather than that of this graph. To extract many
+     * subgraphs concurrently, freeze the graph once using {@link #freeze()} and use
+     * {@link FrozenDependencyGraph#subgraph(Collection)}.
+     * </p>
+     *
+     * @param rootNames Names of the vertices from which to extract the subgraph. Names of vertices not in this graph
+     *      are ignored.
+     * @return Subgraph reachable from the specified vertices.
+     */
+    public DependencyGraph<P, R> subgraph(final Collection<String> rootNames) {
+        final DependencyGraph<P, R> graph = new DependencyGraph<>();
+        final List<Vertex<P, R>> queue = new ArrayList<>();
+        for (final String rootName : rootNames) {
+            final Vertex<P, R> vertex = this.vertices.get(rootName);
+            if (vertex != null && !graph.vertices.containsKey(rootName)) {
+                graph.putVertex(rootName, vertex.getPayload().orElse(null), true);
+                queue.add(vertex);
+            }
         }
 
+        // Each vertex is copied when it is first reached, so the destination of every edge is either already in
+        // the subgraph or is added to it and queued for its own edges to be copied.
+        for (int head = 0; head < queue.size(); head++) {
+            final Vertex<P, R> vertex = queue.get(head);
+            final Vertex<P, R> origin = graph.vertices.get(vertex.getName());
+            for (final Edge<P, R> edge : vertex.getOutgoingEdges()) {
+                final Vertex<P, R> destination = edge.getDestination();
+                Vertex<P, R> copy = graph.vertices.get(destination.getName());
+                if (copy == null) {
+                    copy = graph.putVertex(destination.getName(), destination.getPayload().orElse(null), false);
+                    queue.add(destination);
+                }
+                graph.putEdge(origin, copy, edge.getRequirement());
+            }
+        }
         return graph;
     }
 
+    /**
+     * Creates an immutable snapshot of the graph that can be shared between threads without locking or copying.
+     * Subsequent modifications of this graph do not affect the snapshot.
+     *
+     * @return Frozen copy of the graph.
+     */
+    public FrozenDependencyGraph<P, R> freeze() {
+        return new FrozenDependencyGraph<>(this);
+    }
+
+    /**
+     * Sorts the vertices of the graph so that each vertex follows all the vertices it depends on (i.e. its
+     * successors). This is the order in which the specifications of a resolved graph can be installed. Vertices whose
+     * relative order is not constrained by their dependencies are ordered by name, so the order is deterministic.
+     *
+     * @return Vertices of the graph in dependency order.
+     * @throws CircularDependencyError if the graph contains a cycle
+     */
+    public List<Vertex<P, R>> topologicalSort() {
+        final Map<String, Integer> remaining = new HashMap<>();
+        final PriorityQueue<Vertex<P, R>> ready = new PriorityQueue<>(Comparator.comparing(Vertex::getName));
+        for (final Vertex<P, R> vertex : this.vertices.values()) {
+            final int dependencyCount = successorNames(vertex).size();
+            remaining.put(vertex.getName(), dependencyCount);
+            if (dependencyCount == 0) {
+                ready.add(vertex);
+            }
+        }
+
+        final List<Vertex<P, R>> sorted = new ArrayList<>(this.vertices.size());
+        while (!ready.isEmpty()) {
+            final Vertex<P, R> vertex = ready.poll();
+            sorted.add(vertex);
+            for (final String dependentName : predecessorNames(vertex)) {
+                final int dependencyCount = remaining.merge(dependentName, -1, Integer::sum);
+                if (dependencyCount == 0) {
+                    ready.add(this.vertices.get(dependentName));
+                }
+            }
+        }
+
+        if (sorted.size() < this.vertices.size()) {
+            throw new CircularDependencyError(cycle(remaining));
+        }
+        return sorted;
+    }
+
+    /**
+     * Decomposes the graph into levels, or wavefronts, of vertices. The first level contains the vertices that do not
+     * depend on any other vertex. Each subsequent level contains the vertices whose dependencies are all in preceding
+     * levels, and at least one of which is in the immediately preceding level. The vertices in a level do not depend
+     * on each other, so the specifications of a resolved graph can be installed one level at a time, with all the
+     * specifications in a level being installed concurrently.
+     *
+     * @return Levels of vertices, each sorted by name.
+     * @throws CircularDependencyError if the graph contains a cycle
+     */
+    public List<List<Vertex<P, R>>> levels() {
+        final Map<String, Integer> levelsByName = new HashMap<>();
+        final List<List<Vertex<P, R>>> levels = new ArrayList<>();
+        for (final Vertex<P, R> vertex : topologicalSort()) {
+            int level = 0;
+            for (final String dependencyName : successorNames(vertex)) {
+                level = Math.max(level, levelsByName.get(dependencyName) + 1);
+            }
+            levelsByName.put(vertex.getName(), level);
+            if (level == levels.size()) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(level).add(vertex);
+        }
+
+        for (final List<Vertex<P, R>> level : levels) {
+            level.sort(Comparator.comparing(Vertex::getName));
+        }
+        return levels;
+    }
+
+    /**
+     * Indicates whether the first vertex depends on the second vertex, either directly or transitively. The
+     * transitive dependencies of every vertex are indexed the first time they are queried, and the index is reused
+     * until the graph is modified, so that each query takes constant time.
+     *
+     * @param dependentName Name of the depending vertex
+     * @param dependencyName Name of the vertex that may be depended upon
+     * @return {@code true} if both vertices are in the graph and the first depends on the second.
+     * @throws CircularDependencyError if the graph contains a cycle
+     */
+    public boolean dependsOn(final String dependentName, final String dependencyName) {
+        return closureIndex().dependsOn(dependentName, dependencyName);
+    }
+
+    /**
+     * Obtains all vertices that the specified vertex depends on, either directly or transitively (i.e. everything
+     * the vertex pulls into the graph).
+     *
+     * @param name Name of the vertex whose dependencies are desired
+     * @return Transitive dependencies of the vertex in the order returned by {@link #topologicalSort()}. The set is
+     *      empty if there is no vertex with the specified name.
+     * @throws CircularDependencyError if the graph contains a cycle
+     */
+    public Set<Vertex<P, R>> transitiveDependencies(final String name) {
+        return closureIndex().dependencies(name);
+    }
+
+    /**
+     * Obtains all vertices that depend on the specified vertex, either directly or transitively.
+     *
+     * @param name Name of the vertex whose dependents are desired
+     * @return Transitive dependents of the vertex in the order returned by {@link #topologicalSort()}. The set is
+     *      empty if there is no vertex with the specified name.
+     * @throws CircularDependencyError if the graph contains a cycle
+     */
+    public Set<Vertex<P, R>> transitiveDependents(final String name) {
+        return closureIndex().dependents(name);
+    }
+
+    /**
+     * Obtains the number of vertices that the specified vertex depends on, either directly or transitively, without
+     * creating the set of those vertices.
+     *
+     * @param name Name of the vertex whose dependencies are to be counted
+     * @return Number of transitive dependencies of the vertex, or zero if there is no vertex with the specified name.
+     * @throws CircularDependencyError if the graph contains a cycle
+     */
+    public int transitiveDependencyCount(final String name) {
+        return closureIndex().dependencyCount(name);
+    }
+
+    /**
+     * Obtains the number of vertices that depend on the specified vertex, either directly or transitively, without
+     * creating the set of those vertices.
+     *
+     * @param name Name of the vertex whose dependents are to be counted
+     * @return Number of transitive dependents of the vertex, or zero if there is no vertex with the specified name.
+     * @throws CircularDependencyError if the graph contains a cycle
+     */
+    public int transitiveDependentCount(final String name) {
+        return closureIndex().dependentCount(name);
+    }
+
+    /**
+     * Obtains the transitive closure index of the graph, building it if the graph has been modified since it was
+     * last built.
+     *
+     * @return Closure index reflecting the current state of the graph.
+     */
+    private ClosureIndex<P, R> closureIndex() {
+        ClosureIndex<P, R> index = this.closureIndex;
+        if (index == null || !index.isCurrent(this)) {
+            index = new ClosureIndex<>(this);
+            this.closureIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Obtains the names of the vertices that the specified vertex depends on.
+     *
+     * @param vertex Vertex whose dependencies are desired
+     * @return Names of the distinct successors of the vertex.
+     */
+    static Set<String> successorNames(final Vertex<?, ?> vertex) {
+        final Set<String> names = new HashSet<>();
+        for (final Edge<?, ?> edge : vertex.getOutgoingEdges()) {
+            names.add(edge.getDestination().getName());
+        }
+        return names;
+    }
+
+    /**
+     * Obtains the names of the vertices that depend on the specified vertex.
+     *
+     * @param vertex Vertex whose dependents are desired
+     * @return Names of the distinct predecessors of the vertex.
+     */
+    static Set<String> predecessorNames(final Vertex<?, ?> vertex) {
+        final Set<String> names = new HashSet<>();
+        for (final Edge<?, ?> edge : vertex.getIncomingEdges()) {
+            names.add(edge.getOrigin().getName());
+        }
+        return names;
+    }
+
+    /**
+     * Finds a cycle among the vertices that could not be sorted topologically. Each of those vertices depends on at
+     * least one other such vertex, so following those dependencies must eventually revisit a vertex.
+     *
+     * @param remaining Number of unsorted dependencies of each vertex, keyed by vertex name
+     * @return Vertices comprising the cycle, each of which depends on the next, with the last depending on the first.
+     */
+    private List<Vertex<P, R>> cycle(final Map<String, Integer> remaining) {
+        final Map<String, Integer> positions = new HashMap<>();
+        final List<Vertex<P, R>> path = new ArrayList<>();
+        String name = remaining.entrySet()
+                               .stream()
+                               .filter(entry -> entry.getValue() > 0)
+                               .map(Map.Entry::getKey)
+                               .min(Comparator.naturalOrder())
+                               .orElseThrow();
+        while (!positions.containsKey(name)) {
+            positions.put(name, path.size());
+            final Vertex<P, R> vertex = this.vertices.get(name);
+            path.add(vertex);
+            name = successorNames(vertex).stream()
+                                         .filter(successorName -> remaining.get(successorName) > 0)
+                                         .min(Comparator.naturalOrder())
+                                         .orElseThrow();
+        }
+        return path.subList(positions.get(name), path.size());
+    }
+
     /**
      * Determines a minimum distance path between the two specified vertices.
      *
@@ -265,31 +589,105 @@ public class DependencyGraph<P, R> {
     }
 
     /**
-     * Creates a string representation of the dependency graph in Graphviz DOT format.
+     * Determines the differences between this graph and the specified graph, for example between the graphs resolved
+     * before and after updating a lock file. Rather than comparing the graphs recursively, the vertex names of the
+     * graphs are sorted and merged, and the payload, root status and outgoing edges of each vertex present in both
+     * graphs are compared. Each vertex and edge is therefore examined once. The differences are reported to the
+     * specified listener as they are found.
      *
-     * @return Graphviz DOT representation of the dependency graph.
+     * @param other Graph to compare with this graph. Differences are reported as changes from this graph to the
+     *      specified graph.
+     * @param listener Receives the differences
      */
-    public String toDot() {
-        final Set<String> dotVertices = new TreeSet<>();
-        final Set<String> dotEdges = new TreeSet<>();
-
-        for (final Map.Entry<String, Vertex<P, R>> vertexEntry : this.vertices.entrySet()) {
-            final String name = vertexEntry.getKey();
-            final Vertex<P, R> vertex = vertexEntry.getValue();
-            final Optional<P> payload = vertex.getPayload();
-            if (payload.isPresent()) {
-                dotVertices.add(String.format("%s [label=\"{%s|%s}\"]", name, name, payload.get()));
+    public void diff(final DependencyGraph<P, R> other, final DependencyGraphDiffListener<P, R> listener) {
+        if (other == this) {
+            return;
+        }
+
+        final List<String> oldNames = new ArrayList<>(this.vertices.keySet());
+        final List<String> newNames = new ArrayList<>(other.vertices.keySet());
+        Collections.sort(oldNames);
+        Collections.sort(newNames);
+
+        int oldIndex = 0;
+        int newIndex = 0;
+        while (oldIndex < oldNames.size() || newIndex < newNames.size()) {
+            final int comparison;
+            if (oldIndex == oldNames.size()) {
+                comparison = 1;
+            } else if (newIndex == newNames.size()) {
+                comparison = -1;
             } else {
-                dotVertices.add(String.format("%s [label=\"{%s}\"]", name, name));
+                comparison = oldNames.get(oldIndex).compareTo(newNames.get(newIndex));
             }
-            for (final Edge<P, R> edge : vertex.getOutgoingEdges()) {
-                final String label = edge.getRequirement().toString();
-                dotEdges.add(String.format("  %s -> %s [label=%s]", edge.getOrigin().getName(),
-                                           edge.getDestination().getName(), label));
+
+            if (comparison < 0) {
+                final Vertex<P, R> oldVertex = this.vertices.get(oldNames.get(oldIndex++));
+                listener.vertexRemoved(oldVertex);
+                diffEdges(oldVertex.getOutgoingEdges(), Set.of(), listener);
+            } else if (comparison > 0) {
+                final Vertex<P, R> newVertex = other.vertices.get(newNames.get(newIndex++));
+                listener.vertexAdded(newVertex);
+                diffEdges(Set.of(), newVertex.getOutgoingEdges(), listener);
+            } else {
+                final Vertex<P, R> oldVertex = this.vertices.get(oldNames.get(oldIndex++));
+                final Vertex<P, R> newVertex = other.vertices.get(newNames.get(newIndex++));
+                if (!Objects.equals(oldVertex.getPayload(), newVertex.getPayload())
+                        || oldVertex.isRoot() != newVertex.isRoot()) {
+                    listener.vertexChanged(oldVertex, newVertex);
+                }
+                diffEdges(oldVertex.getOutgoingEdges(), newVertex.getOutgoingEdges(), listener);
             }
         }
+    }
 
-        return "digraph G {\n" + String.join("\n", dotVertices) + "\n" + String.join("\n", dotEdges) + "}\n";
+    /**
+     * Reports the differences between the outgoing edges of a vertex in two graphs. Edges are compared by the name
+     * of their destination vertex and their requirement, and are reported in order of destination vertex name.
+     *
+     * @param oldEdges Outgoing edges of the vertex in the old graph
+     * @param newEdges Outgoing edges of the vertex in the new graph
+     * @param listener Receives the differences
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     */
+    private static <P, R> void diffEdges(final Set<Edge<P, R>> oldEdges, final Set<Edge<P, R>> newEdges,
+                                         final DependencyGraphDiffListener<P, R> listener) {
+        final Set<EdgeKey<R>> oldKeys = new HashSet<>();
+        for (final Edge<P, R> edge : oldEdges) {
+            oldKeys.add(new EdgeKey<>(edge));
+        }
+        final Set<EdgeKey<R>> newKeys = new HashSet<>();
+        for (final Edge<P, R> edge : newEdges) {
+            newKeys.add(new EdgeKey<>(edge));
+        }
+
+        final Comparator<Edge<P, R>> destinationOrder = Comparator.comparing(edge -> edge.getDestination().getName());
+        oldEdges.stream()
+                .filter(edge -> !newKeys.contains(new EdgeKey<>(edge)))
+                .sorted(destinationOrder)
+                .forEach(listener::edgeRemoved);
+        newEdges.stream()
+                .filter(edge -> !oldKeys.contains(new EdgeKey<>(edge)))
+                .sorted(destinationOrder)
+                .forEach(listener::edgeAdded);
+    }
+
+    /**
+     * Creates a string representation of the dependency graph in Graphviz DOT format. To write a large graph without
+     * holding its entire representation in memory, use {@link DependencyGraphExporter} instead.
+     *
+     * @return Graphviz DOT representation of the dependency graph.
+     */
+    public String toDot() {
+        final StringBuilder dot = new StringBuilder();
+        try {
+            DependencyGraphExporter.toDot(this, dot);
+        } catch (final IOException ex) {
+            // Appending to a StringBuilder does not throw.
+            throw new UncheckedIOException(ex);
+        }
+        return dot.toString();
     }
 
     @Override
@@ -314,4 +712,18 @@ public class DependencyGraph<P, R> {
     public int hashCode() {
         return Objects.hash(this.vertices);
     }
+
+    /**
+     * Identifies an outgoing edge of a vertex independently of the graph containing it.
+     *
+     * @param destination Name of the destination vertex of the edge
+     * @param requirement Requirement of the edge
+     * @param <R> Requirement type
+     */
+    private record EdgeKey<R>(String destination, R requirement) {
+
+        EdgeKey(final Edge<?, R> edge) {
+            this(edge.getDestination().getName(), edge.getRequirement());
+        }
+    }
 }
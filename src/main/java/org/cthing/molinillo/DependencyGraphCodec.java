@@ -0,0 +1,309 @@
+package org.cthing.molinillo;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.cthing.molinillo.errors.CircularDependencyError;
+import org.cthing.molinillo.graph.Edge;
+import org.cthing.molinillo.graph.Vertex;
+import org.cthing.molinillo.io.BinaryIO;
+import org.cthing.molinillo.io.Codec;
+
+
+/**
+ * Compact binary encoding of dependency graphs, for example to store a resolved graph as a lock file that can be
+ * loaded quickly. The names of the vertices are written once, in a string table, and the edges refer to their
+ * destination vertices by their position in that table. All counts and positions are written as variable length
+ * integers. Payloads and requirements are written using the codecs provided. An encoded graph can optionally be
+ * followed by a CRC-32 checksum, which is verified when the graph is read.
+ *
+ * <pre>
+ * graph      := MAGIC VERSION flags count name* vertex* [checksum]
+ * vertex     := vertexFlags [payload] count requirement* count edge*
+ * edge       := destinationPosition requirement
+ * </pre>
+ *
+ * <p>
+ * The vertices are written in ascending order of name and the outgoing edges of each vertex in ascending order of
+ * destination position, so the encoding of a graph does not depend on the order in which it was built. The explicit
+ * requirements of each vertex are written so that the combined requirements of a vertex are preserved.
+ * </p>
+ *
+ * @param <P> Payload type
+ * @param <R> Requirement type
+ */
+public final class DependencyGraphCodec<P, R> {
+
+    private static final int MAGIC = 0x4D4C4447;        // "MLDG"
+    private static final int VERSION = 1;
+
+    private static final int FLAG_CHECKSUM = 0x01;
+
+    private static final int VERTEX_ROOT = 0x01;
+    private static final int VERTEX_PAYLOAD = 0x02;
+
+    private final Codec<P> payloadCodec;
+    private final Codec<R> requirementCodec;
+    private final boolean checksum;
+
+    /**
+     * Constructs a codec that writes graphs followed by a checksum.
+     *
+     * @param payloadCodec Encodes and decodes the payloads of the vertices
+     * @param requirementCodec Encodes and decodes the requirements of the vertices and edges
+     */
+    public DependencyGraphCodec(final Codec<P> payloadCodec, final Codec<R> requirementCodec) {
+        this(payloadCodec, requirementCodec, true);
+    }
+
+    /**
+     * Constructs a codec.
+     *
+     * @param payloadCodec Encodes and decodes the payloads of the vertices
+     * @param requirementCodec Encodes and decodes the requirements of the vertices and edges
+     * @param checksum {@code true} if graphs are to be written followed by a checksum. Graphs are read whether or not
+     *      they are followed by a checksum.
+     */
+    public DependencyGraphCodec(final Codec<P> payloadCodec, final Codec<R> requirementCodec,
+                                final boolean checksum) {
+        this.payloadCodec = payloadCodec;
+        this.requirementCodec = requirementCodec;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Writes the specified graph to the specified file.
+     *
+     * @param graph Graph to write
+     * @param path Location for the file. An existing file is replaced.
+     * @throws IOException if there was a problem writing the file
+     */
+    public void write(final DependencyGraph<P, R> graph, final Path path) throws IOException {
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(graph, output);
+        }
+    }
+
+    /**
+     * Writes the specified graph to the specified stream.
+     *
+     * @param graph Graph to write
+     * @param output Destination for the graph. The stream is flushed but not closed.
+     * @throws IOException if there was a problem writing the graph
+     */
+    public void write(final DependencyGraph<P, R> graph, final OutputStream output) throws IOException {
+        final CRC32 crc = new CRC32();
+        final DataOutputStream dataOutput = new DataOutputStream(new CheckedOutputStream(output, crc));
+
+        dataOutput.writeInt(MAGIC);
+        dataOutput.writeByte(VERSION);
+        dataOutput.writeByte(this.checksum ? FLAG_CHECKSUM : 0);
+
+        final List<Vertex<P, R>> vertices = new ArrayList<>(graph.getVertices().values());
+        vertices.sort(Comparator.comparing(Vertex::getName));
+        final Map<String, Integer> positions = new HashMap<>(vertices.size() * 2);
+        BinaryIO.writeVarInt(dataOutput, vertices.size());
+        for (final Vertex<P, R> vertex : vertices) {
+            positions.put(vertex.getName(), positions.size());
+            BinaryIO.writeString(dataOutput, vertex.getName());
+        }
+
+        for (final Vertex<P, R> vertex : vertices) {
+            final Optional<P> payload = vertex.getPayload();
+            dataOutput.writeByte((vertex.isRoot() ? VERTEX_ROOT : 0) | (payload.isPresent() ? VERTEX_PAYLOAD : 0));
+            if (payload.isPresent()) {
+                this.payloadCodec.write(payload.get(), dataOutput);
+            }
+
+            final Set<R> explicitRequirements = vertex.getExplicitRequirements();
+            BinaryIO.writeVarInt(dataOutput, explicitRequirements.size());
+            for (final R requirement : explicitRequirements) {
+                this.requirementCodec.write(requirement, dataOutput);
+            }
+
+            final List<Edge<P, R>> edges = new ArrayList<>(vertex.getOutgoingEdges());
+            edges.sort(Comparator.comparing(edge -> positions.get(edge.getDestination().getName())));
+            BinaryIO.writeVarInt(dataOutput, edges.size());
+            for (final Edge<P, R> edge : edges) {
+                BinaryIO.writeVarInt(dataOutput, positions.get(edge.getDestination().getName()));
+                this.requirementCodec.write(edge.getRequirement(), dataOutput);
+            }
+        }
+
+        if (this.checksum) {
+            dataOutput.writeInt((int)crc.getValue());
+        }
+        dataOutput.flush();
+    }
+
+    /**
+     * Reads a graph from the specified file. The file is memory-mapped and decoded directly from the mapped pages,
+     * rather than being copied into the heap through stream buffers.
+     *
+     * @param path Location of the file
+     * @return Graph read from the file.
+     * @throws IOException if there was a problem reading the file, or it does not contain a valid graph
+     * @throws CircularDependencyError if the edges of the graph form a cycle
+     */
+    public DependencyGraph<P, R> read(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Dependency graph is too large to map: " + path);
+            }
+
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final DependencyGraph<P, R> graph = read(new ByteBufferInputStream(buffer));
+            if (buffer.hasRemaining()) {
+                throw new IOException("Unexpected content after the dependency graph: " + path);
+            }
+            return graph;
+        }
+    }
+
+    /**
+     * Reads a graph from the specified stream.
+     *
+     * @param input Source of the graph. Only the bytes of the graph are consumed, and the stream is not closed.
+     * @return Graph read from the stream.
+     * @throws IOException if there was a problem reading the stream, or it does not contain a valid graph
+     * @throws CircularDependencyError if the edges of the graph form a cycle
+     */
+    public DependencyGraph<P, R> read(final InputStream input) throws IOException {
+        final CRC32 crc = new CRC32();
+        final DataInputStream dataInput = new DataInputStream(new CheckedInputStream(input, crc));
+
+        if (dataInput.readInt() != MAGIC) {
+            throw new IOException("Not a dependency graph");
+        }
+        final int version = dataInput.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported dependency graph version " + version);
+        }
+        final int flags = dataInput.readUnsignedByte();
+
+        // Counts are read before the checksum can be verified, so they are not used to size collections up front.
+        final int vertexCount = BinaryIO.readVarInt(dataInput);
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < vertexCount; i++) {
+            names.add(BinaryIO.readString(dataInput));
+        }
+
+        // The graph is built without recording history, so reading it does not fill its action log.
+        final DependencyGraph<P, R> graph = new DependencyGraph<>();
+        final List<Vertex<P, R>> vertices = new ArrayList<>();
+        for (final String name : names) {
+            if (graph.getVertices().containsKey(name)) {
+                throw new IOException("Duplicate vertex " + name);
+            }
+            vertices.add(graph.putVertex(name, null, false));
+        }
+
+        for (final Vertex<P, R> vertex : vertices) {
+            final int vertexFlags = dataInput.readUnsignedByte();
+            vertex.setRoot((vertexFlags & VERTEX_ROOT) != 0);
+            if ((vertexFlags & VERTEX_PAYLOAD) != 0) {
+                vertex.setPayload(decode(this.payloadCodec, dataInput));
+            }
+
+            final int requirementCount = BinaryIO.readVarInt(dataInput);
+            for (int i = 0; i < requirementCount; i++) {
+                vertex.getExplicitRequirements().add(decode(this.requirementCodec, dataInput));
+            }
+
+            final int edgeCount = BinaryIO.readVarInt(dataInput);
+            for (int i = 0; i < edgeCount; i++) {
+                final int position = BinaryIO.readVarInt(dataInput);
+                if (position >= vertexCount) {
+                    throw new IOException("Edge refers to unknown vertex " + position);
+                }
+                graph.putEdge(vertex, vertices.get(position), decode(this.requirementCodec, dataInput));
+            }
+        }
+
+        if ((flags & FLAG_CHECKSUM) != 0) {
+            final int expected = (int)crc.getValue();
+            if (dataInput.readInt() != expected) {
+                throw new IOException("Dependency graph checksum mismatch");
+            }
+        }
+
+        // Edges are added without checking for a cycle as each is read, so check the entire graph once.
+        graph.topologicalSort();
+        return graph;
+    }
+
+    /**
+     * Reads a value using the specified codec. The codecs are provided by the caller and may not expect corrupt
+     * input, so any unchecked exception they throw is reported as malformed input.
+     *
+     * @param codec Codec that reads the value
+     * @param input Source of the value
+     * @return Value read from the input.
+     * @param <T> Value type
+     * @throws IOException if there was a problem reading the value, or it is malformed
+     */
+    private static <T> T decode(final Codec<T> codec, final DataInput input) throws IOException {
+        try {
+            return codec.read(input);
+        } catch (final RuntimeException ex) {
+            throw new IOException("Malformed value in dependency graph", ex);
+        }
+    }
+
+    /**
+     * Input stream that reads the remaining bytes of a buffer.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+
+            final int count = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.cthing.molinillo;
+
+import org.cthing.molinillo.graph.Edge;
+import org.cthing.molinillo.graph.Vertex;
+
+
+/**
+ * Receives the differences between two dependency graphs as they are found by
+ * {@link DependencyGraph#diff(DependencyGraph, DependencyGraphDiffListener)}. The differences are reported in order
+ * of vertex name. For each vertex, the change to the vertex itself is reported first, followed by the removed and
+ * then the added edges whose origin is the vertex. Every method does nothing by default, so implementations need
+ * only override the methods for the differences of interest.
+ *
+ * @param <P> Payload type
+ * @param <R> Requirement type
+ */
+public interface DependencyGraphDiffListener<P, R> {
+
+    /**
+     * Called for a vertex that is only in the new graph.
+     *
+     * @param vertex Vertex in the new graph
+     */
+    default void vertexAdded(final Vertex<P, R> vertex) {
+    }
+
+    /**
+     * Called for a vertex that is only in the old graph.
+     *
+     * @param vertex Vertex in the old graph
+     */
+    default void vertexRemoved(final Vertex<P, R> vertex) {
+    }
+
+    /**
+     * Called for a vertex that is in both graphs, but whose payload (e.g. the version of the specification) or root
+     * status differs.
+     *
+     * @param oldVertex Vertex in the old graph
+     * @param newVertex Vertex with the same name in the new graph
+     */
+    default void vertexChanged(final Vertex<P, R> oldVertex, final Vertex<P, R> newVertex) {
+    }
+
+    /**
+     * Called for an edge that is only in the new graph. An edge is identified by the names of its origin and
+     * destination vertices, and its requirement. The edges of an added vertex are reported as added.
+     *
+     * @param edge Edge in the new graph
+     */
+    default void edgeAdded(final Edge<P, R> edge) {
+    }
+
+    /**
+     * Called for an edge that is only in the old graph. An edge is identified by the names of its origin and
+     * destination vertices, and its requirement. The edges of a removed vertex are reported as removed.
+     *
+     * @param edge Edge in the old graph
+     */
+    default void edgeRemoved(final Edge<P, R> edge) {
+    }
+}
@@ -0,0 +1,211 @@
+package org.cthing.molinillo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.cthing.molinillo.errors.CircularDependencyError;
+import org.cthing.molinillo.graph.Vertex;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Performs an action on each vertex of a dependency graph, such as installing the specification of each vertex of a
+ * resolved graph, in dependency order. The action is performed on a vertex as soon as it has completed on all the
+ * vertices the vertex depends on (i.e. its successors). At most the specified number of actions are performed at the
+ * same time, using the specified executor.
+ *
+ * <p>
+ * When more vertices are ready than can be acted on at the same time, those on the critical path go first. The
+ * critical path of a vertex is the longest chain of dependent vertices that cannot start until the action on the
+ * vertex has completed, measured by the sum of the costs of the vertices in the chain. Vertices with the same
+ * critical path length are acted on in order of name.
+ * </p>
+ */
+public final class DependencyGraphExecutor {
+
+    private final Executor executor;
+    private final int parallelism;
+
+    /**
+     * Constructs an executor.
+     *
+     * @param executor Executor used to perform the actions. Must be able to run at least {@code parallelism} tasks
+     *      at the same time for the actions to be performed with that parallelism.
+     * @param parallelism Maximum number of actions performed at the same time. Must be greater than zero.
+     */
+    public DependencyGraphExecutor(final Executor executor, final int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be greater than zero");
+        }
+
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Performs the specified action on each vertex of the specified graph, giving each vertex the same cost for the
+     * purpose of determining critical paths.
+     *
+     * @param graph Graph whose vertices are to be acted on
+     * @param action Action to perform on each vertex
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the actions to complete.
+     *      Actions already started continue to run, but no further actions are started.
+     * @throws CircularDependencyError if the graph contains a cycle
+     */
+    public <P, R> void execute(final DependencyGraph<P, R> graph, final Consumer<Vertex<P, R>> action)
+            throws InterruptedException {
+        execute(graph, action, vertex -> 1L);
+    }
+
+    /**
+     * Performs the specified action on each vertex of the specified graph. If an action fails, no further actions
+     * are started, and the first failure is thrown once the actions already started have completed.
+     *
+     * @param graph Graph whose vertices are to be acted on
+     * @param action Action to perform on each vertex
+     * @param cost Provides the estimated cost of the action on each vertex (e.g. the size of the package to
+     *      download), which is used to determine the critical paths
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the actions to complete.
+     *      Actions already started continue to run, but no further actions are started.
+     * @throws CircularDependencyError if the graph contains a cycle
+     */
+    public <P, R> void execute(final DependencyGraph<P, R> graph, final Consumer<Vertex<P, R>> action,
+                               final ToLongFunction<Vertex<P, R>> cost) throws InterruptedException {
+        final List<Vertex<P, R>> sorted = graph.topologicalSort();
+
+        // Dependents follow their dependencies in the sorted order, so visiting the vertices in reverse determines
+        // the critical path of every dependent of a vertex before that of the vertex itself.
+        final Map<String, Long> criticalPaths = new HashMap<>();
+        final Map<String, Integer> remaining = new HashMap<>();
+        for (int i = sorted.size() - 1; i >= 0; i--) {
+            final Vertex<P, R> vertex = sorted.get(i);
+            long longestDependentPath = 0;
+            for (final String dependentName : DependencyGraph.predecessorNames(vertex)) {
+                longestDependentPath = Math.max(longestDependentPath, criticalPaths.get(dependentName));
+            }
+            criticalPaths.put(vertex.getName(), longestDependentPath + cost.applyAsLong(vertex));
+            remaining.put(vertex.getName(), DependencyGraph.successorNames(vertex).size());
+        }
+
+        final Comparator<Vertex<P, R>> priority =
+                Comparator.<Vertex<P, R>>comparingLong(vertex -> criticalPaths.get(vertex.getName()))
+                          .reversed()
+                          .thenComparing(Vertex::getName);
+        final Schedule<P, R> schedule = new Schedule<>(graph, new PriorityQueue<>(priority), remaining, action);
+        for (final Vertex<P, R> vertex : sorted) {
+            if (remaining.get(vertex.getName()) == 0) {
+                schedule.ready.add(vertex);
+            }
+        }
+        schedule.run();
+    }
+
+    /**
+     * State of the actions being performed on the vertices of a graph. All fields are guarded by the schedule
+     * itself.
+     *
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     */
+    private final class Schedule<P, R> {
+
+        private final DependencyGraph<P, R> graph;
+        private final PriorityQueue<Vertex<P, R>> ready;
+        private final Map<String, Integer> remaining;
+        private final Consumer<Vertex<P, R>> action;
+        private final List<Throwable> failures;
+        private int running;
+
+        /**
+         * Constructs the schedule.
+         *
+         * @param graph Graph whose vertices are to be acted on
+         * @param ready Vertices ready to be acted on, in priority order
+         * @param remaining Number of dependencies of each vertex on which the action has not completed, keyed by
+         *      vertex name
+         * @param action Action to perform on each vertex
+         */
+        Schedule(final DependencyGraph<P, R> graph, final PriorityQueue<Vertex<P, R>> ready,
+                 final Map<String, Integer> remaining, final Consumer<Vertex<P, R>> action) {
+            this.graph = graph;
+            this.ready = ready;
+            this.remaining = remaining;
+            this.action = action;
+            this.failures = new ArrayList<>();
+        }
+
+        /**
+         * Starts actions on the ready vertices as slots become available, until all actions have completed or an
+         * action has failed and the actions already started have completed.
+         *
+         * @throws InterruptedException if the calling thread is interrupted while waiting
+         */
+        synchronized void run() throws InterruptedException {
+            try {
+                while (true) {
+                    while (this.failures.isEmpty() && this.running < DependencyGraphExecutor.this.parallelism
+                            && !this.ready.isEmpty()) {
+                        final Vertex<P, R> vertex = this.ready.poll();
+                        this.running++;
+                        DependencyGraphExecutor.this.executor.execute(() -> perform(vertex));
+                    }
+                    if (this.running == 0) {
+                        break;
+                    }
+                    wait();
+                }
+            } catch (final InterruptedException ex) {
+                this.ready.clear();
+                throw ex;
+            }
+
+            if (!this.failures.isEmpty()) {
+                final Throwable failure = this.failures.get(0);
+                if (failure instanceof final RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw (Error)failure;
+            }
+        }
+
+        /**
+         * Performs the action on the specified vertex and makes the vertices that depend on it ready if the action
+         * has completed on all their dependencies.
+         *
+         * @param vertex Vertex on which to perform the action
+         */
+        private void perform(final Vertex<P, R> vertex) {
+            @Nullable Throwable failure = null;
+            try {
+                this.action.accept(vertex);
+            } catch (final RuntimeException | Error ex) {
+                failure = ex;
+            }
+
+            synchronized (this) {
+                this.running--;
+                if (failure == null) {
+                    for (final String dependentName : DependencyGraph.predecessorNames(vertex)) {
+                        if (this.remaining.merge(dependentName, -1, Integer::sum) == 0) {
+                            this.graph.vertexNamed(dependentName).ifPresent(this.ready::add);
+                        }
+                    }
+                } else {
+                    this.failures.add(failure);
+                }
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package org.cthing.molinillo;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import org.cthing.molinillo.graph.Edge;
+import org.cthing.molinillo.graph.Vertex;
+
+
+/**
+ * Writes dependency graphs in the Graphviz DOT, JSON and GraphML formats. The output is written incrementally as
+ * each vertex and edge is visited, so exporting a large graph does not require the entire document to be held in
+ * memory. The vertices are written in order of name, and the edges in order of origin vertex name, destination vertex
+ * name and requirement. Payloads and requirements are written using their {@link Object#toString()} method.
+ *
+ * <p>
+ * Output written to a {@link WritableByteChannel} is encoded using UTF-8. The channel is not closed.
+ * </p>
+ */
+public final class DependencyGraphExporter {
+
+    private DependencyGraphExporter() {
+    }
+
+    /**
+     * Writes the specified graph in Graphviz DOT format. This is the format produced by
+     * {@link DependencyGraph#toDot()}.
+     *
+     * @param graph Graph to write
+     * @param output Destination for the graph
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     * @throws IOException if there was a problem writing the graph
+     */
+    public static <P, R> void toDot(final DependencyGraph<P, R> graph, final Appendable output) throws IOException {
+        final List<Vertex<P, R>> vertices = sortedVertices(graph);
+
+        output.append("digraph G {\n");
+        String separator = "";
+        for (final Vertex<P, R> vertex : vertices) {
+            output.append(separator).append(vertex.getName()).append(" [label=\"{").append(vertex.getName());
+            final Optional<P> payload = vertex.getPayload();
+            if (payload.isPresent()) {
+                output.append('|').append(payload.get().toString());
+            }
+            output.append("}\"]");
+            separator = "\n";
+        }
+        output.append('\n');
+
+        separator = "";
+        for (final Vertex<P, R> vertex : vertices) {
+            for (final Edge<P, R> edge : sortedEdges(vertex)) {
+                output.append(separator)
+                      .append("  ")
+                      .append(edge.getOrigin().getName())
+                      .append(" -> ")
+                      .append(edge.getDestination().getName())
+                      .append(" [label=")
+                      .append(edge.getRequirement().toString())
+                      .append(']');
+                separator = "\n";
+            }
+        }
+        output.append("}\n");
+    }
+
+    /**
+     * Writes the specified graph in Graphviz DOT format.
+     *
+     * @param graph Graph to write
+     * @param channel Destination for the graph
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     * @throws IOException if there was a problem writing the graph
+     */
+    public static <P, R> void toDot(final DependencyGraph<P, R> graph, final WritableByteChannel channel)
+            throws IOException {
+        final Writer writer = newWriter(channel);
+        toDot(graph, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the specified graph in JSON format. The document is an object with a {@code vertices} member, which is
+     * an array of objects each having a {@code name}, {@code payload} and {@code root} member, followed by an
+     * {@code edges} member, which is an array of objects each having an {@code origin}, {@code destination} and
+     * {@code requirement} member. A vertex without a payload has a {@code null} payload. For example:
+     *
+     * <pre>
+     * {"vertices":[
+     * {"name":"A","payload":"1.0","root":true},
+     * {"name":"B","payload":"2.0","root":false}
+     * ],"edges":[
+     * {"origin":"A","destination":"B","requirement":"&gt;= 2.0"}
+     * ]}
+     * </pre>
+     *
+     * <p>
+     * Graphs in this format can be read using {@link DependencyGraphImporter}.
+     * </p>
+     *
+     * @param graph Graph to write
+     * @param output Destination for the graph
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     * @throws IOException if there was a problem writing the graph
+     */
+    public static <P, R> void toJson(final DependencyGraph<P, R> graph, final Appendable output) throws IOException {
+        final List<Vertex<P, R>> vertices = sortedVertices(graph);
+
+        output.append("{\"vertices\":[");
+        String separator = "\n";
+        for (final Vertex<P, R> vertex : vertices) {
+            output.append(separator).append("{\"name\":");
+            appendJsonString(output, vertex.getName());
+            output.append(",\"payload\":");
+            final Optional<P> payload = vertex.getPayload();
+            if (payload.isPresent()) {
+                appendJsonString(output, payload.get().toString());
+            } else {
+                output.append("null");
+            }
+            output.append(",\"root\":").append(String.valueOf(vertex.isRoot())).append('}');
+            separator = ",\n";
+        }
+
+        output.append("\n],\"edges\":[");
+        separator = "\n";
+        for (final Vertex<P, R> vertex : vertices) {
+            for (final Edge<P, R> edge : sortedEdges(vertex)) {
+                output.append(separator).append("{\"origin\":");
+                appendJsonString(output, edge.getOrigin().getName());
+                output.append(",\"destination\":");
+                appendJsonString(output, edge.getDestination().getName());
+                output.append(",\"requirement\":");
+                appendJsonString(output, edge.getRequirement().toString());
+                output.append('}');
+                separator = ",\n";
+            }
+        }
+        output.append("\n]}\n");
+    }
+
+    /**
+     * Writes the specified graph in JSON format.
+     *
+     * @param graph Graph to write
+     * @param channel Destination for the graph
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     * @throws IOException if there was a problem writing the graph
+     * @see #toJson(DependencyGraph, Appendable)
+     */
+    public static <P, R> void toJson(final DependencyGraph<P, R> graph, final WritableByteChannel channel)
+            throws IOException {
+        final Writer writer = newWriter(channel);
+        toJson(graph, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the specified graph in GraphML format. Each vertex is written as a node whose identifier is the vertex
+     * name, with {@code payload} and {@code root} data. Each edge is written with {@code requirement} data.
+     *
+     * @param graph Graph to write
+     * @param output Destination for the graph
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     * @throws IOException if there was a problem writing the graph
+     */
+    public static <P, R> void toGraphMl(final DependencyGraph<P, R> graph, final Appendable output)
+            throws IOException {
+        final List<Vertex<P, R>> vertices = sortedVertices(graph);
+
+        output.append("""
+                      <?xml version="1.0" encoding="UTF-8"?>
+                      <graphml xmlns="http://graphml.graphdrawing.org/xmlns">
+                        <key id="payload" for="node" attr.name="payload" attr.type="string"/>
+                        <key id="root" for="node" attr.name="root" attr.type="boolean"/>
+                        <key id="requirement" for="edge" attr.name="requirement" attr.type="string"/>
+                        <graph id="G" edgedefault="directed">
+                      """);
+        for (final Vertex<P, R> vertex : vertices) {
+            output.append("    <node id=\"");
+            appendXml(output, vertex.getName());
+            output.append("\">");
+            final Optional<P> payload = vertex.getPayload();
+            if (payload.isPresent()) {
+                output.append("<data key=\"payload\">");
+                appendXml(output, payload.get().toString());
+                output.append("</data>");
+            }
+            output.append("<data key=\"root\">").append(String.valueOf(vertex.isRoot())).append("</data></node>\n");
+        }
+        for (final Vertex<P, R> vertex : vertices) {
+            for (final Edge<P, R> edge : sortedEdges(vertex)) {
+                output.append("    <edge source=\"");
+                appendXml(output, edge.getOrigin().getName());
+                output.append("\" target=\"");
+                appendXml(output, edge.getDestination().getName());
+                output.append("\"><data key=\"requirement\">");
+                appendXml(output, edge.getRequirement().toString());
+                output.append("</data></edge>\n");
+            }
+        }
+        output.append("""
+                        </graph>
+                      </graphml>
+                      """);
+    }
+
+    /**
+     * Writes the specified graph in GraphML format.
+     *
+     * @param graph Graph to write
+     * @param channel Destination for the graph
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     * @throws IOException if there was a problem writing the graph
+     * @see #toGraphMl(DependencyGraph, Appendable)
+     */
+    public static <P, R> void toGraphMl(final DependencyGraph<P, R> graph, final WritableByteChannel channel)
+            throws IOException {
+        final Writer writer = newWriter(channel);
+        toGraphMl(graph, writer);
+        writer.flush();
+    }
+
+    /**
+     * Creates a buffered writer that encodes characters to the specified channel using UTF-8. The writer must be
+     * flushed, but not closed, so that the channel remains open.
+     *
+     * @param channel Channel to write
+     * @return Writer for the channel.
+     */
+    private static Writer newWriter(final WritableByteChannel channel) {
+        return new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Obtains the vertices of the specified graph in order of name. Only the list of vertices is created, so the
+     * graph can be written in order without buffering its output.
+     *
+     * @param graph Graph whose vertices are desired
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     * @return Vertices of the graph sorted by name.
+     */
+    private static <P, R> List<Vertex<P, R>> sortedVertices(final DependencyGraph<P, R> graph) {
+        final List<Vertex<P, R>> vertices = new ArrayList<>(graph.getVertices().values());
+        vertices.sort(Comparator.comparing(Vertex::getName));
+        return vertices;
+    }
+
+    /**
+     * Obtains the outgoing edges of the specified vertex in order of destination vertex name and requirement.
+     *
+     * @param vertex Vertex whose edges are desired
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     * @return Outgoing edges of the vertex in order.
+     */
+    private static <P, R> List<Edge<P, R>> sortedEdges(final Vertex<P, R> vertex) {
+        final List<Edge<P, R>> edges = new ArrayList<>(vertex.getOutgoingEdges());
+        edges.sort(Comparator.<Edge<P, R>, String>comparing(edge -> edge.getDestination().getName())
+                             .thenComparing(edge -> edge.getRequirement().toString()));
+        return edges;
+    }
+
+    /**
+     * Writes the specified string as a quoted JSON string.
+     *
+     * @param output Destination for the string
+     * @param value String to write
+     * @throws IOException if there was a problem writing the string
+     */
+    private static void appendJsonString(final Appendable output, final String value) throws IOException {
+        output.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char ch = value.charAt(i);
+            switch (ch) {
+                case '"' -> output.append("\\\"");
+                case '\\' -> output.append("\\\\");
+                case '\n' -> output.append("\\n");
+                case '\r' -> output.append("\\r");
+                case '\t' -> output.append("\\t");
+                default -> {
+                    if (ch < ' ') {
+                        output.append(String.format("\\u%04x", (int)ch));
+                    } else {
+                        output.append(ch);
+                    }
+                }
+            }
+        }
+        output.append('"');
+    }
+
+    /**
+     * Writes the specified string as XML character data, escaping the characters that have special meaning in
+     * element content and attribute values.
+     *
+     * @param output Destination for the string
+     * @param value String to write
+     * @throws IOException if there was a problem writing the string
+     */
+    private static void appendXml(final Appendable output, final String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            final char ch = value.charAt(i);
+            switch (ch) {
+                case '&' -> output.append("&amp;");
+                case '<' -> output.append("&lt;");
+                case '>' -> output.append("&gt;");
+                case '"' -> output.append("&quot;");
+                case '\'' -> output.append("&apos;");
+                default -> output.append(ch);
+            }
+        }
+    }
+}
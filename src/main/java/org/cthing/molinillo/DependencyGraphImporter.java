@@ -0,0 +1,139 @@
+package org.cthing.molinillo;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Function;
+
+import org.cthing.molinillo.errors.CircularDependencyError;
+import org.cthing.molinillo.graph.Vertex;
+import org.cthing.molinillo.io.JsonReader;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Reads dependency graphs written in JSON format by {@link DependencyGraphExporter}. The document is read as a
+ * stream, so only the graph being built is held in memory. The vertices must precede the edges in the document, as
+ * they do in the output of the exporter. Members other than those written by the exporter are ignored, and comments
+ * are permitted. The graph is built without recording history (see {@link DependencyGraph#cloneGraph(Function,
+ * boolean)}).
+ */
+public final class DependencyGraphImporter {
+
+    private DependencyGraphImporter() {
+    }
+
+    /**
+     * Reads a dependency graph in JSON format.
+     *
+     * @param json Provides the JSON document. The reader is not closed.
+     * @param payloadParser Creates a payload from its string representation
+     * @param requirementParser Creates a requirement from its string representation
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     * @return Dependency graph read from the document.
+     * @throws IOException if there was a problem reading the document or it is malformed
+     * @throws CircularDependencyError if the edges of the graph form a cycle
+     */
+    public static <P, R> DependencyGraph<P, R> fromJson(final Reader json, final Function<String, P> payloadParser,
+                                                        final Function<String, R> requirementParser)
+            throws IOException {
+        final DependencyGraph<P, R> graph = new DependencyGraph<>();
+        final JsonReader reader = new JsonReader(json);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "vertices" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readVertex(reader, graph, payloadParser);
+                    }
+                    reader.endArray();
+                }
+                case "edges" -> {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readEdge(reader, graph, requirementParser);
+                    }
+                    reader.endArray();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (reader.peek() != JsonReader.Token.END_DOCUMENT) {
+            throw new IOException("Unexpected content after the dependency graph");
+        }
+
+        // Edges are added without checking for a cycle as each is read, so check the entire graph once.
+        graph.topologicalSort();
+        return graph;
+    }
+
+    private static <P, R> void readVertex(final JsonReader reader, final DependencyGraph<P, R> graph,
+                                          final Function<String, P> payloadParser) throws IOException {
+        @Nullable String name = null;
+        @Nullable P payload = null;
+        boolean root = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> name = reader.nextString();
+                case "payload" -> {
+                    if (reader.peek() == JsonReader.Token.NULL) {
+                        reader.nextNull();
+                    } else {
+                        payload = payloadParser.apply(reader.nextString());
+                    }
+                }
+                case "root" -> root = reader.nextBoolean();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (name == null) {
+            throw new IOException("Vertex does not have a name");
+        }
+        if (graph.getVertices().containsKey(name)) {
+            throw new IOException("Duplicate vertex " + name);
+        }
+        graph.putVertex(name, payload, root);
+    }
+
+    private static <P, R> void readEdge(final JsonReader reader, final DependencyGraph<P, R> graph,
+                                        final Function<String, R> requirementParser) throws IOException {
+        @Nullable String origin = null;
+        @Nullable String destination = null;
+        @Nullable String requirement = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "origin" -> origin = reader.nextString();
+                case "destination" -> destination = reader.nextString();
+                case "requirement" -> requirement = reader.nextString();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (origin == null || destination == null || requirement == null) {
+            throw new IOException("Edge must have an origin, destination and requirement");
+        }
+        final Vertex<P, R> originVertex = requiredVertex(graph, origin);
+        final Vertex<P, R> destinationVertex = requiredVertex(graph, destination);
+        graph.putEdge(originVertex, destinationVertex, requirementParser.apply(requirement));
+    }
+
+    private static <P, R> Vertex<P, R> requiredVertex(final DependencyGraph<P, R> graph, final String name)
+            throws IOException {
+        final Vertex<P, R> vertex = graph.getVertices().get(name);
+        if (vertex == null) {
+            throw new IOException("Edge refers to unknown vertex " + name);
+        }
+        return vertex;
+    }
+}
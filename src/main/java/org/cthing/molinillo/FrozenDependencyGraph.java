@@ -0,0 +1,324 @@
+package org.cthing.molinillo;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.cthing.molinillo.graph.Edge;
+import org.cthing.molinillo.graph.Vertex;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Immutable snapshot of a dependency graph, created using {@link DependencyGraph#freeze()}. Unlike a
+ * {@link DependencyGraph}, whose vertices and edges can be modified through the objects it returns, a frozen graph
+ * cannot be modified at all, so it can be shared by any number of threads without locking or copying. All of its
+ * state is assigned during construction to final fields, so it is safely published to other threads by any means.
+ *
+ * <p>
+ * Each vertex is assigned a position in ascending order of name. The successors and predecessors of each vertex are
+ * precomputed as arrays of positions, and the combined requirements of each vertex are precomputed, so queries do
+ * not create sets or traverse edge objects. Vertices are identified by name, and queries for a name that is not in
+ * the graph return an empty result.
+ * </p>
+ *
+ * @param <P> Payload type
+ * @param <R> Requirement type
+ */
+public final class FrozenDependencyGraph<P, R> {
+
+    private static final int[] NONE = new int[0];
+
+    private final String[] names;
+    private final Map<String, Integer> positions;
+    private final List<@Nullable P> payloads;
+    private final boolean[] roots;
+    private final List<Set<R>> requirements;
+
+    // Destination position and requirement of the outgoing edges of each vertex, in order of destination position.
+    private final int[][] edgeDestinations;
+    private final List<List<R>> edgeRequirements;
+
+    // Distinct successor and predecessor positions of each vertex, in ascending order.
+    private final int[][] successors;
+    private final int[][] predecessors;
+
+    /**
+     * Creates a snapshot of the specified graph.
+     *
+     * @param graph Graph to freeze
+     */
+    FrozenDependencyGraph(final DependencyGraph<P, R> graph) {
+        final List<Vertex<P, R>> vertices = new ArrayList<>(graph.getVertices().values());
+        vertices.sort(Comparator.comparing(Vertex::getName));
+        final int size = vertices.size();
+
+        this.names = new String[size];
+        final Map<String, Integer> vertexPositions = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            this.names[i] = vertices.get(i).getName();
+            vertexPositions.put(this.names[i], i);
+        }
+        this.positions = Map.copyOf(vertexPositions);
+
+        final List<@Nullable P> vertexPayloads = new ArrayList<>(size);
+        this.roots = new boolean[size];
+        final List<Set<R>> vertexRequirements = new ArrayList<>(size);
+        this.edgeDestinations = new int[size][];
+        final List<List<R>> vertexEdgeRequirements = new ArrayList<>(size);
+        this.successors = new int[size][];
+        this.predecessors = new int[size][];
+
+        for (int i = 0; i < size; i++) {
+            final Vertex<P, R> vertex = vertices.get(i);
+            vertexPayloads.add(vertex.getPayload().orElse(null));
+            this.roots[i] = vertex.isRoot();
+            vertexRequirements.add(Set.copyOf(vertex.requirements()));
+
+            final List<Edge<P, R>> edges = new ArrayList<>(vertex.getOutgoingEdges());
+            edges.sort(Comparator.comparing(edge -> vertexPositions.get(edge.getDestination().getName())));
+            final int[] destinations = new int[edges.size()];
+            final List<R> requirementsOfEdges = new ArrayList<>(edges.size());
+            for (int j = 0; j < destinations.length; j++) {
+                destinations[j] = vertexPositions.get(edges.get(j).getDestination().getName());
+                requirementsOfEdges.add(edges.get(j).getRequirement());
+            }
+            this.edgeDestinations[i] = destinations;
+            vertexEdgeRequirements.add(List.copyOf(requirementsOfEdges));
+
+            this.successors[i] = positionsOf(DependencyGraph.successorNames(vertex), vertexPositions);
+            this.predecessors[i] = positionsOf(DependencyGraph.predecessorNames(vertex), vertexPositions);
+        }
+
+        this.payloads = Collections.unmodifiableList(vertexPayloads);
+        this.requirements = List.copyOf(vertexRequirements);
+        this.edgeRequirements = List.copyOf(vertexEdgeRequirements);
+    }
+
+    /**
+     * Obtains the number of vertices in the graph.
+     *
+     * @return Number of vertices in the graph.
+     */
+    public int size() {
+        return this.names.length;
+    }
+
+    /**
+     * Indicates if the graph does not contain any vertices.
+     *
+     * @return {@code true} if the graph does not contain any vertices.
+     */
+    public boolean isEmpty() {
+        return this.names.length == 0;
+    }
+
+    /**
+     * Obtains the names of the vertices in the graph.
+     *
+     * @return Unmodifiable list of the names of the vertices, in ascending order.
+     */
+    public List<String> getNames() {
+        return namesAt(null);
+    }
+
+    /**
+     * Indicates whether the graph contains a vertex with the specified name.
+     *
+     * @param name Name of the vertex
+     * @return {@code true} if the graph contains the vertex.
+     */
+    public boolean contains(final String name) {
+        return this.positions.containsKey(name);
+    }
+
+    /**
+     * Obtains the payload of the specified vertex.
+     *
+     * @param name Name of the vertex
+     * @return Payload of the vertex. Empty if the vertex does not have a payload or is not in the graph.
+     */
+    public Optional<P> getPayload(final String name) {
+        final Integer position = this.positions.get(name);
+        return position == null ? Optional.empty() : Optional.ofNullable(this.payloads.get(position));
+    }
+
+    /**
+     * Indicates whether the specified vertex is a root of the graph.
+     *
+     * @param name Name of the vertex
+     * @return {@code true} if the vertex is in the graph and is a root.
+     */
+    public boolean isRoot(final String name) {
+        final Integer position = this.positions.get(name);
+        return position != null && this.roots[position];
+    }
+
+    /**
+     * Obtains the requirements placed on the specified vertex, both explicitly and by the incoming edges of the
+     * vertex.
+     *
+     * @param name Name of the vertex
+     * @return Unmodifiable set of the requirements of the vertex. Empty if the vertex is not in the graph.
+     */
+    public Set<R> requirements(final String name) {
+        final Integer position = this.positions.get(name);
+        return position == null ? Set.of() : this.requirements.get(position);
+    }
+
+    /**
+     * Obtains the names of the vertices that the specified vertex depends on directly.
+     *
+     * @param name Name of the vertex
+     * @return Unmodifiable list of the names of the successors of the vertex, in ascending order. Empty if the
+     *      vertex is not in the graph.
+     */
+    public List<String> successors(final String name) {
+        final Integer position = this.positions.get(name);
+        return namesAt(position == null ? NONE : this.successors[position]);
+    }
+
+    /**
+     * Obtains the names of the vertices that depend directly on the specified vertex.
+     *
+     * @param name Name of the vertex
+     * @return Unmodifiable list of the names of the predecessors of the vertex, in ascending order. Empty if the
+     *      vertex is not in the graph.
+     */
+    public List<String> predecessors(final String name) {
+        final Integer position = this.positions.get(name);
+        return namesAt(position == null ? NONE : this.predecessors[position]);
+    }
+
+    /**
+     * Obtains the requirements of the edges from one vertex to another.
+     *
+     * @param originName Name of the origin vertex of the edges
+     * @param destinationName Name of the destination vertex of the edges
+     * @return Unmodifiable list of the requirements of the edges between the vertices. Empty if there are no such
+     *      edges.
+     */
+    public List<R> edgeRequirements(final String originName, final String destinationName) {
+        final Integer origin = this.positions.get(originName);
+        final Integer destination = this.positions.get(destinationName);
+        if (origin == null || destination == null) {
+            return List.of();
+        }
+
+        final int[] destinations = this.edgeDestinations[origin];
+        int start = Arrays.binarySearch(destinations, destination);
+        if (start < 0) {
+            return List.of();
+        }
+        while (start > 0 && destinations[start - 1] == destination) {
+            start--;
+        }
+        int end = start;
+        while (end < destinations.length && destinations[end] == destination) {
+            end++;
+        }
+        return this.edgeRequirements.get(origin).subList(start, end);
+    }
+
+    /**
+     * Extracts the subgraph reachable from the specified vertices. The subgraph contains the specified vertices, every
+     * vertex they depend on directly or transitively, and all edges between those vertices. The specified vertices are
+     * the roots of the subgraph. The reachable vertices are found using a breadth first search over the precomputed
+     * successor positions, recording the visited vertices in a map, so the cost of the extraction is proportional
+     * to the size of the subgraph rather than that of this graph. This method may be called concurrently to extract
+     * many subgraphs from the same frozen graph.
+     *
+     * @param rootNames Names of the vertices from which to extract the subgraph. Names of vertices not in the graph
+     *      are ignored.
+     * @return New dependency graph containing the subgraph. Its creation is not recorded in its action log, and its
+     *      payloads and requirements are shared with this graph.
+     */
+    public DependencyGraph<P, R> subgraph(final Collection<String> rootNames) {
+        // Maps the position of each visited vertex to its vertex in the subgraph.
+        final Map<Integer, Vertex<P, R>> visited = new HashMap<>();
+        final List<Integer> queue = new ArrayList<>();
+        final DependencyGraph<P, R> graph = new DependencyGraph<>();
+        for (final String rootName : rootNames) {
+            final Integer position = this.positions.get(rootName);
+            if (position != null && !visited.containsKey(position)) {
+                visited.put(position, graph.putVertex(rootName, this.payloads.get(position), true));
+                queue.add(position);
+            }
+        }
+        for (int head = 0; head < queue.size(); head++) {
+            for (final int successor : this.successors[queue.get(head)]) {
+                if (!visited.containsKey(successor)) {
+                    visited.put(successor, graph.putVertex(this.names[successor], this.payloads.get(successor), false));
+                    queue.add(successor);
+                }
+            }
+        }
+
+        for (final int position : queue) {
+            final Vertex<P, R> origin = visited.get(position);
+            final int[] destinations = this.edgeDestinations[position];
+            final List<R> requirementsOfEdges = this.edgeRequirements.get(position);
+            for (int i = 0; i < destinations.length; i++) {
+                graph.putEdge(origin, visited.get(destinations[i]), requirementsOfEdges.get(i));
+            }
+        }
+        return graph;
+    }
+
+    @Override
+    public String toString() {
+        return "FrozenDependencyGraph { vertices=" + this.names.length + " }";
+    }
+
+    /**
+     * Obtains a view of the names of the vertices at the specified positions.
+     *
+     * @param vertexPositions Positions of the vertices, or {@code null} for all vertices
+     * @return Unmodifiable list of the names of the vertices.
+     */
+    private List<String> namesAt(final int @Nullable [] vertexPositions) {
+        return new AbstractList<>() {
+            @Override
+            public String get(final int index) {
+                return vertexPositions == null
+                       ? FrozenDependencyGraph.this.names[index]
+                       : FrozenDependencyGraph.this.names[vertexPositions[index]];
+            }
+
+            @Override
+            public int size() {
+                return vertexPositions == null ? FrozenDependencyGraph.this.names.length : vertexPositions.length;
+            }
+        };
+    }
+
+    /**
+     * Converts vertex names to sorted vertex positions.
+     *
+     * @param vertexNames Names of the vertices
+     * @param vertexPositions Position of each vertex, keyed by name
+     * @return Positions of the vertices, in ascending order.
+     */
+    private static int[] positionsOf(final Set<String> vertexNames, final Map<String, Integer> vertexPositions) {
+        if (vertexNames.isEmpty()) {
+            return NONE;
+        }
+
+        final int[] result = new int[vertexNames.size()];
+        int i = 0;
+        for (final String vertexName : vertexNames) {
+            result[i] = vertexPositions.get(vertexName);
+            i++;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,141 @@
+package org.cthing.molinillo;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Unmodifiable collections whose contents are computed the first time they are accessed. These are used for
+ * information that is expensive to compute and that is only occasionally examined (e.g. the details of a conflict,
+ * which are only needed if the conflict ends up being reported).
+ */
+final class Lazy {
+
+    private Lazy() {
+    }
+
+    /**
+     * Creates a list whose elements are obtained from the specified supplier on first access.
+     *
+     * @param supplier Provides the elements of the list. Called at most once.
+     * @return Unmodifiable list backed by the list provided by the supplier.
+     * @param <E> Element type
+     */
+    static <E> List<E> list(final Supplier<List<E>> supplier) {
+        return new LazyList<>(supplier);
+    }
+
+    /**
+     * Creates a map whose entries are obtained from the specified supplier on first access.
+     *
+     * @param supplier Provides the entries of the map. Called at most once.
+     * @return Unmodifiable map backed by the map provided by the supplier.
+     * @param <K> Key type
+     * @param <V> Value type
+     */
+    static <K, V> Map<K, V> map(final Supplier<Map<K, V>> supplier) {
+        return new LazyMap<>(supplier);
+    }
+
+    private static final class LazyList<E> extends AbstractList<E> {
+
+        @Nullable
+        private Supplier<List<E>> supplier;
+
+        @Nullable
+        private List<E> list;
+
+        LazyList(final Supplier<List<E>> supplier) {
+            this.supplier = supplier;
+        }
+
+        private synchronized List<E> list() {
+            if (this.list == null) {
+                assert this.supplier != null;
+                this.list = Collections.unmodifiableList(this.supplier.get());
+                this.supplier = null;
+            }
+            return this.list;
+        }
+
+        @Override
+        public E get(final int index) {
+            return list().get(index);
+        }
+
+        @Override
+        public int size() {
+            return list().size();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj == this || list().equals(obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return list().hashCode();
+        }
+    }
+
+    private static final class LazyMap<K, V> extends AbstractMap<K, V> {
+
+        @Nullable
+        private Supplier<Map<K, V>> supplier;
+
+        @Nullable
+        private Map<K, V> map;
+
+        LazyMap(final Supplier<Map<K, V>> supplier) {
+            this.supplier = supplier;
+        }
+
+        private synchronized Map<K, V> map() {
+            if (this.map == null) {
+                assert this.supplier != null;
+                this.map = Collections.unmodifiableMap(this.supplier.get());
+                this.supplier = null;
+            }
+            return this.map;
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return map().entrySet();
+        }
+
+        @Override
+        @Nullable
+        public V get(final Object key) {
+            return map().get(key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return map().containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return map().size();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj == this || map().equals(obj);
+        }
+
+        @Override
+        public int hashCode() {
+            return map().hashCode();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.cthing.molinillo;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * A list of possibility sets that is built on demand from specifications provided newest first. Each possibility set
+ * groups contiguous specifications that have the same dependencies. The list is ordered like the list produced by
+ * grouping all specifications up front (i.e. the newest possibility set is last), but only the possibility sets
+ * needed so far are built. Removing the newest possibility set using {@link #removeNewest()}, testing whether the
+ * list is empty, or testing whether it consists of a single possibility set using {@link #isSingleton()}, only builds
+ * as many possibility sets as necessary. Any other access builds the entire list. The possibility sets are copied
+ * from {@link PossibilityGroups}, which may be shared with other lists for the same requirement, so that each
+ * specification's dependencies are only obtained once.
+ *
+ * @param <R> Requirement type
+ * @param <S> Specification type
+ */
+final class LazyPossibilitySets<R, S> extends AbstractList<PossibilitySet<R, S>> {
+
+    private final PossibilityGroups<R, S> groups;
+
+    // Possibility sets built so far, oldest first. These are the newest possibility sets.
+    private final List<PossibilitySet<R, S>> possibilitySets;
+
+    // Number of groups copied so far, counting from the newest group.
+    private int copied;
+
+    /**
+     * Constructs the list from groups that are not shared.
+     *
+     * @param specifications Provides the specifications to group, newest first. Only consumed as far as needed.
+     * @param dependenciesFor Provides the dependencies of a specification
+     */
+    LazyPossibilitySets(final Iterator<S> specifications, final Function<S, Set<R>> dependenciesFor) {
+        this(new PossibilityGroups<>(specifications, dependenciesFor));
+    }
+
+    /**
+     * Constructs the list.
+     *
+     * @param groups Groups from which the possibility sets are copied
+     */
+    LazyPossibilitySets(final PossibilityGroups<R, S> groups) {
+        this(groups, List.of(), 0);
+    }
+
+    /**
+     * Constructs a list that continues from the state of a list previously built from the same groups, for example
+     * when a resolution is resumed from a checkpoint.
+     *
+     * @param groups Groups from which the possibility sets are copied
+     * @param possibilitySets Possibility sets built so far and not yet removed, oldest first
+     * @param copied Number of groups copied so far, counting from the newest group
+     */
+    LazyPossibilitySets(final PossibilityGroups<R, S> groups, final List<PossibilitySet<R, S>> possibilitySets,
+                        final int copied) {
+        this.groups = groups;
+        this.possibilitySets = new ArrayList<>(possibilitySets);
+        this.copied = copied;
+    }
+
+    /**
+     * Obtains the groups from which the possibility sets are copied.
+     *
+     * @return Groups of the list.
+     */
+    PossibilityGroups<R, S> getGroups() {
+        return this.groups;
+    }
+
+    /**
+     * Obtains the possibility sets built so far, without building any more.
+     *
+     * @return Unmodifiable view of the possibility sets built so far and not yet removed, oldest first.
+     */
+    List<PossibilitySet<R, S>> getBuilt() {
+        return Collections.unmodifiableList(this.possibilitySets);
+    }
+
+    /**
+     * Obtains the number of groups copied so far.
+     *
+     * @return Number of groups copied, counting from the newest group.
+     */
+    int getCopied() {
+        return this.copied;
+    }
+
+    /**
+     * Removes the newest possibility set from the list, building it if necessary.
+     *
+     * @return Newest possibility set, or {@code null} if the list is empty.
+     */
+    @Nullable
+    PossibilitySet<R, S> removeNewest() {
+        if (this.possibilitySets.isEmpty()) {
+            buildOlder();
+        }
+        if (this.possibilitySets.isEmpty()) {
+            return null;
+        }
+
+        this.modCount++;
+        return this.possibilitySets.remove(this.possibilitySets.size() - 1);
+    }
+
+    /**
+     * Indicates whether the list consists of exactly one possibility set. Only the newest possibility set is built.
+     *
+     * @return {@code true} if the list contains exactly one possibility set.
+     */
+    boolean isSingleton() {
+        if (this.possibilitySets.isEmpty()) {
+            buildOlder();
+        }
+        return this.possibilitySets.size() == 1 && !this.groups.hasGroup(this.copied);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (this.possibilitySets.isEmpty()) {
+            buildOlder();
+        }
+        return this.possibilitySets.isEmpty();
+    }
+
+    @Override
+    public PossibilitySet<R, S> get(final int index) {
+        buildAll();
+        return this.possibilitySets.get(index);
+    }
+
+    @Override
+    public int size() {
+        buildAll();
+        return this.possibilitySets.size();
+    }
+
+    @Override
+    public PossibilitySet<R, S> set(final int index, final PossibilitySet<R, S> element) {
+        buildAll();
+        return this.possibilitySets.set(index, element);
+    }
+
+    @Override
+    public void add(final int index, final PossibilitySet<R, S> element) {
+        buildAll();
+        this.modCount++;
+        this.possibilitySets.add(index, element);
+    }
+
+    @Override
+    public PossibilitySet<R, S> remove(final int index) {
+        buildAll();
+        this.modCount++;
+        return this.possibilitySets.remove(index);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        buildAll();
+        return this.possibilitySets.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        buildAll();
+        return this.possibilitySets.hashCode();
+    }
+
+    /**
+     * Builds all remaining possibility sets.
+     */
+    private void buildAll() {
+        this.groups.buildAll();
+        while (this.groups.hasGroup(this.copied)) {
+            buildOlder();
+        }
+    }
+
+    /**
+     * Builds the possibility set that precedes the oldest possibility set built so far, if there are any groups
+     * remaining.
+     */
+    private void buildOlder() {
+        // Building possibility sets does not change the contents of the list, so it is not counted as a
+        // modification (i.e. modCount is not incremented), which would invalidate active iterators.
+        this.groups.group(this.copied).ifPresent(possibilitySet -> {
+            this.copied++;
+            this.possibilitySets.add(0, possibilitySet);
+        });
+    }
+}
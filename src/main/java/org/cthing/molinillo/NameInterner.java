@@ -0,0 +1,126 @@
+package org.cthing.molinillo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+
+/**
+ * Assigns a dense integer identifier to each distinct dependency and specification name encountered during a
+ * resolution. The name of each dependency and specification object is obtained from the specification provider only
+ * once, which is permitted because the names may only depend on the objects themselves. Names are returned as
+ * canonical string instances, so that maps keyed by name compare them by identity and reuse their cached hash codes.
+ * The identifiers allow per-name information to be kept in compact structures such as bit sets.
+ *
+ * @param <R> Requirement type
+ * @param <S> Specification type
+ */
+final class NameInterner<R, S> {
+
+    private final Function<R, String> dependencyNamer;
+    private final Function<S, String> specificationNamer;
+    private final Map<String, Integer> ids;
+    private final List<String> names;
+    private final Map<R, Integer> dependencyIds;
+    private final Map<S, Integer> specificationIds;
+
+    /**
+     * Constructs an interner.
+     *
+     * @param dependencyNamer Provides the name of a dependency
+     * @param specificationNamer Provides the name of a specification
+     */
+    NameInterner(final Function<R, String> dependencyNamer, final Function<S, String> specificationNamer) {
+        this.dependencyNamer = dependencyNamer;
+        this.specificationNamer = specificationNamer;
+        this.ids = new HashMap<>();
+        this.names = new ArrayList<>();
+        this.dependencyIds = new IdentityHashMap<>();
+        this.specificationIds = new IdentityHashMap<>();
+    }
+
+    /**
+     * Obtains the identifier of the specified name, assigning one if the name has not been seen before.
+     *
+     * @param name Name whose identifier is desired
+     * @return Identifier of the name.
+     */
+    int id(final String name) {
+        final Integer id = this.ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        final int newId = this.names.size();
+        this.names.add(name);
+        this.ids.put(name, newId);
+        return newId;
+    }
+
+    /**
+     * Obtains the name with the specified identifier.
+     *
+     * @param id Identifier of the name
+     * @return Canonical instance of the name.
+     */
+    String name(final int id) {
+        return this.names.get(id);
+    }
+
+    /**
+     * Obtains the identifier of the name of the specified dependency.
+     *
+     * @param dependency Dependency whose name identifier is desired
+     * @return Identifier of the dependency's name.
+     */
+    int dependencyId(final R dependency) {
+        final Integer id = this.dependencyIds.get(dependency);
+        if (id != null) {
+            return id;
+        }
+
+        final int newId = id(this.dependencyNamer.apply(dependency));
+        this.dependencyIds.put(dependency, newId);
+        return newId;
+    }
+
+    /**
+     * Obtains the identifier of the name of the specified specification.
+     *
+     * @param specification Specification whose name identifier is desired
+     * @return Identifier of the specification's name.
+     */
+    int specificationId(final S specification) {
+        final Integer id = this.specificationIds.get(specification);
+        if (id != null) {
+            return id;
+        }
+
+        final int newId = id(this.specificationNamer.apply(specification));
+        this.specificationIds.put(specification, newId);
+        return newId;
+    }
+
+    /**
+     * Obtains the name of the specified dependency.
+     *
+     * @param dependency Dependency whose name is desired
+     * @return Canonical instance of the dependency's name.
+     */
+    String nameForDependency(final R dependency) {
+        return name(dependencyId(dependency));
+    }
+
+    /**
+     * Obtains the name of the specified specification.
+     *
+     * @param specification Specification whose name is desired
+     * @return Canonical instance of the specification's name.
+     */
+    String nameForSpecification(final S specification) {
+        return name(specificationId(specification));
+    }
+}
@@ -0,0 +1,189 @@
+package org.cthing.molinillo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+
+/**
+ * Specifies how a resolver may perform work in parallel. Work is only performed in parallel if the specification
+ * provider declares that it is {@link SpecificationProvider#isThreadSafe() thread safe}. When it is, requested
+ * dependencies that form independent components (i.e. that have no transitive dependency names in common) are
+ * resolved concurrently using the fork-join pool of the policy, and their results are merged. In addition, when
+ * the candidate specifications for a requirement are checked using
+ * {@link SpecificationProvider#requirementSatisfiedBy(Object, DependencyGraph, Object)}, candidate lists whose size
+ * is at least the filter threshold of the policy are split into chunks that are checked concurrently. The order of
+ * the candidates that satisfy the requirement is preserved.
+ */
+public final class ParallelPolicy {
+
+    /** Default minimum number of candidates that are checked concurrently. */
+    public static final int DEFAULT_FILTER_THRESHOLD = 1024;
+
+    private final ForkJoinPool pool;
+    private final int filterThreshold;
+
+    /**
+     * Constructs a parallel policy using the {@link #DEFAULT_FILTER_THRESHOLD default filter threshold}.
+     *
+     * @param pool Fork-join pool on which parallel work is performed
+     */
+    public ParallelPolicy(final ForkJoinPool pool) {
+        this(pool, DEFAULT_FILTER_THRESHOLD);
+    }
+
+    /**
+     * Constructs a parallel policy.
+     *
+     * @param pool Fork-join pool on which parallel work is performed
+     * @param filterThreshold Minimum number of candidate specifications for them to be checked concurrently. Must be
+     *      greater than zero.
+     */
+    public ParallelPolicy(final ForkJoinPool pool, final int filterThreshold) {
+        if (filterThreshold <= 0) {
+            throw new IllegalArgumentException("Filter threshold must be greater than zero");
+        }
+
+        this.pool = pool;
+        this.filterThreshold = filterThreshold;
+    }
+
+    /**
+     * Obtains the fork-join pool on which parallel work is performed.
+     *
+     * @return Fork-join pool.
+     */
+    public ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * Obtains the minimum number of candidate specifications for them to be checked concurrently.
+     *
+     * @return Filter threshold.
+     */
+    public int getFilterThreshold() {
+        return this.filterThreshold;
+    }
+
+    /**
+     * Obtains the items that satisfy the specified predicate. If there are at least as many items as the filter
+     * threshold, the items are split into one chunk per thread of the pool and the chunks are tested concurrently.
+     *
+     * @param items Items to filter
+     * @param predicate Predicate that the items must satisfy. Must be safe to call concurrently.
+     * @return New list of the items that satisfy the predicate, in their original order.
+     * @param <T> Item type
+     */
+    <T> List<T> filter(final List<T> items, final Predicate<? super T> predicate) {
+        return chunked(items, chunk -> chunk.stream().filter(predicate).collect(Collectors.toList()));
+    }
+
+    /**
+     * Applies the specified function to each of the specified items. If there are at least as many items as the
+     * filter threshold, the items are split into one chunk per thread of the pool and the chunks are processed
+     * concurrently.
+     *
+     * @param items Items to process
+     * @param function Function to apply to each item. Must be safe to call concurrently.
+     * @return New list of the results of applying the function to each item, in the order of the items.
+     * @param <T> Item type
+     * @param <U> Result type
+     */
+    <T, U> List<U> map(final List<T> items, final Function<? super T, ? extends U> function) {
+        return chunked(items, chunk -> chunk.stream().<U>map(function).collect(Collectors.toList()));
+    }
+
+    /**
+     * Processes the specified items in chunks, concurrently if there are at least as many items as the filter
+     * threshold.
+     *
+     * @param items Items to process
+     * @param chunkFunction Processes a chunk of items. Must be safe to call concurrently.
+     * @return Concatenation of the results of processing each chunk, in the order of the chunks.
+     * @param <T> Item type
+     * @param <U> Result type
+     */
+    private <T, U> List<U> chunked(final List<T> items, final Function<List<T>, List<U>> chunkFunction) {
+        final int size = items.size();
+        if (size < this.filterThreshold) {
+            return chunkFunction.apply(items);
+        }
+
+        final int chunkSize = (size + this.pool.getParallelism() - 1) / this.pool.getParallelism();
+        final List<CompletableFuture<List<U>>> tasks = new ArrayList<>();
+        for (int start = 0; start < size; start += chunkSize) {
+            final List<T> chunk = items.subList(start, Math.min(start + chunkSize, size));
+            tasks.add(submit(() -> chunkFunction.apply(chunk)));
+        }
+
+        try {
+            final List<U> results = new ArrayList<>();
+            for (final CompletableFuture<List<U>> task : tasks) {
+                results.addAll(join(task));
+            }
+            return results;
+        } finally {
+            awaitAll(tasks);
+        }
+    }
+
+    /**
+     * Submits a task to the pool of this policy.
+     *
+     * @param task Task to perform
+     * @return Future result of the task.
+     * @param <T> Result type
+     */
+    <T> CompletableFuture<T> submit(final Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, this.pool);
+    }
+
+    /**
+     * Waits for a task to complete. An unchecked exception thrown by the task is rethrown as is, rather than
+     * wrapped, so that callers see the same exceptions they would if the task had been performed on their thread.
+     *
+     * @param task Task to wait for
+     * @return Result of the task.
+     * @param <T> Result type
+     */
+    static <T> T join(final CompletableFuture<T> task) {
+        try {
+            return task.join();
+        } catch (final CompletionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof final RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof final Error error) {
+                throw error;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Waits for all the specified tasks to complete, whether or not they succeed. Once one task has failed, callers
+     * use this method before rethrowing its exception so that no task is still running, and still calling the
+     * specification provider, after they return. The failures of the tasks are ignored; callers report them using
+     * {@link #join(CompletableFuture)}.
+     *
+     * @param tasks Tasks to wait for
+     */
+    static void awaitAll(final List<? extends CompletableFuture<?>> tasks) {
+        for (final CompletableFuture<?> task : tasks) {
+            try {
+                task.join();
+            } catch (final CompletionException | CancellationException ex) {
+                // The failure is reported by the caller
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.cthing.molinillo;
 
 import java.util.Objects;
+import java.util.Optional;
 
 import org.jspecify.annotations.Nullable;
 
@@ -20,14 +21,30 @@ public class Payload<R, S> {
     @Nullable
     private final S specification;
 
+    @Nullable
+    private final R mergedRequirement;
+
     /**
      * Constructs a payload based on the specified possibility set.
      *
      * @param possibilitySet Possibility set for the payload
      */
     public Payload(final PossibilitySet<R, S> possibilitySet) {
+        this(possibilitySet, null);
+    }
+
+    /**
+     * Constructs a payload based on the specified possibility set, whose possibilities are known to satisfy the
+     * specified requirement.
+     *
+     * @param possibilitySet Possibility set for the payload
+     * @param mergedRequirement Requirement, combined using the provider's {@link RangeAlgebra}, from all requirements
+     *      the possibility set has been filtered by. Specify {@code null} if not known.
+     */
+    Payload(final PossibilitySet<R, S> possibilitySet, @Nullable final R mergedRequirement) {
         this.possibilitySet = possibilitySet;
         this.specification = null;
+        this.mergedRequirement = mergedRequirement;
     }
 
     /**
@@ -38,6 +55,7 @@ public class Payload<R, S> {
     public Payload(final S specification) {
         this.possibilitySet = null;
         this.specification = specification;
+        this.mergedRequirement = null;
     }
 
     /**
@@ -62,6 +80,16 @@ public class Payload<R, S> {
         return this.specification;
     }
 
+    /**
+     * Obtains the requirement combining all the requirements that the possibility set of the payload has been
+     * filtered by. The merged requirement does not take part in the equality of payloads.
+     *
+     * @return Merged requirement, if known.
+     */
+    Optional<R> getMergedRequirement() {
+        return Optional.ofNullable(this.mergedRequirement);
+    }
+
     /**
      * Indicates if the type of the payload is a PossibilitySet.
      *
@@ -0,0 +1,274 @@
+package org.cthing.molinillo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Groups of contiguous specifications that have the same dependencies, built on demand from specifications provided
+ * newest first. The groups are built at most once and may be shared by any number of {@link LazyPossibilitySets},
+ * for example by the states created for the same requirement before and after an unwind. The groups themselves are
+ * never modified once built. Each possibility set obtained from them is a new copy, so a state may prune its
+ * possibility sets without affecting the groups or any other state.
+ *
+ * <p>
+ * To build the groups, the dependencies of each specification must be obtained. They are obtained one specification
+ * at a time, only as far as needed to build the groups requested. Once all the groups are requested, there is no
+ * laziness left to preserve, so if a {@link ParallelPolicy} is specified, the dependencies of batches of
+ * specifications, one per thread of the pool of the policy, are obtained concurrently. Dependency sets are compared
+ * using hash codes computed when they are obtained, so sets that differ are usually distinguished without comparing
+ * their elements.
+ * </p>
+ *
+ * @param <R> Requirement type
+ * @param <S> Specification type
+ */
+final class PossibilityGroups<R, S> {
+
+    private final Iterator<S> specifications;
+    private final Function<S, Set<R>> dependenciesFor;
+    private final UnaryOperator<RuntimeException> processError;
+
+    @Nullable
+    private final ParallelPolicy parallelPolicy;
+
+    // Groups built so far, newest first.
+    private final List<Group<R, S>> groups;
+
+    // Specifications read, but not yet added to a group, newest first.
+    private final Deque<Entry<R, S>> pending;
+
+    // Whether all the groups have been requested, so that specifications may be read ahead.
+    private boolean exhaustive;
+
+    /**
+     * Constructs groups whose dependencies are obtained one specification at a time.
+     *
+     * @param specifications Provides the specifications to group, newest first. Only consumed as far as needed.
+     * @param dependenciesFor Provides the dependencies of a specification
+     */
+    PossibilityGroups(final Iterator<S> specifications, final Function<S, Set<R>> dependenciesFor) {
+        this(specifications, dependenciesFor, null, UnaryOperator.identity());
+    }
+
+    /**
+     * Constructs groups whose dependencies may be obtained concurrently.
+     *
+     * @param specifications Provides the specifications to group, newest first. Only consumed as far as needed.
+     * @param dependenciesFor Provides the dependencies of a specification. Must be safe to call concurrently if
+     *      there is a parallel policy.
+     * @param parallelPolicy Parallel policy or {@code null} to obtain all dependencies on the calling thread
+     * @param processError Processes an exception thrown while obtaining the dependencies of a specification, on the
+     *      calling thread, before it is rethrown
+     */
+    PossibilityGroups(final Iterator<S> specifications, final Function<S, Set<R>> dependenciesFor,
+                      @Nullable final ParallelPolicy parallelPolicy, final UnaryOperator<RuntimeException> processError) {
+        this.specifications = specifications;
+        this.dependenciesFor = dependenciesFor;
+        this.parallelPolicy = parallelPolicy;
+        this.processError = processError;
+        this.groups = new ArrayList<>();
+        this.pending = new ArrayDeque<>();
+    }
+
+    /**
+     * Indicates whether there is a group at the specified position. Any specifications remaining form at least one
+     * more group, so only the groups preceding the specified position are built, if necessary.
+     *
+     * @param index Position of the group, counting from the newest group, which is at position zero
+     * @return {@code true} if there is a group at the specified position.
+     */
+    boolean hasGroup(final int index) {
+        boolean built = true;
+        while (built && this.groups.size() < index) {
+            built = buildOlder();
+        }
+        return index < this.groups.size()
+                || (index == this.groups.size() && (!this.pending.isEmpty() || this.specifications.hasNext()));
+    }
+
+    /**
+     * Obtains a copy of the group at the specified position, building the groups up to it if necessary.
+     *
+     * @param index Position of the group, counting from the newest group, which is at position zero
+     * @return New possibility set containing the specifications of the group, or an empty optional if there is no
+     *      group at the specified position.
+     */
+    Optional<PossibilitySet<R, S>> group(final int index) {
+        if (!hasGroup(index)) {
+            return Optional.empty();
+        }
+        if (index == this.groups.size()) {
+            buildOlder();
+        }
+
+        final Group<R, S> group = this.groups.get(index);
+        return Optional.of(new PossibilitySet<>(group.dependencies().set(), group.specifications()));
+    }
+
+    /**
+     * Obtains copies of all the groups, building them if necessary.
+     *
+     * @return New possibility sets containing the specifications of each group, oldest first.
+     */
+    List<PossibilitySet<R, S>> all() {
+        buildAll();
+
+        final List<PossibilitySet<R, S>> possibilitySets = new ArrayList<>();
+        for (int i = 0; hasGroup(i); i++) {
+            possibilitySets.add(group(i).orElseThrow());
+        }
+        Collections.reverse(possibilitySets);
+        return possibilitySets;
+    }
+
+    /**
+     * Builds all the remaining groups. Since every specification is needed, the dependencies of the specifications
+     * may be obtained concurrently.
+     */
+    void buildAll() {
+        this.exhaustive = true;
+        boolean built = true;
+        while (built) {
+            built = buildOlder();
+        }
+    }
+
+    /**
+     * Builds the group that precedes the oldest group built so far, if there are any specifications remaining.
+     *
+     * @return {@code true} if a group was built.
+     */
+    private boolean buildOlder() {
+        final Entry<R, S> newest = nextEntry();
+        if (newest == null) {
+            return false;
+        }
+
+        final List<S> group = new ArrayList<>();
+        group.add(newest.specification());
+        for (Entry<R, S> older = nextEntry(); older != null; older = nextEntry()) {
+            if (!newest.dependencies().matches(older.dependencies())) {
+                this.pending.addFirst(older);
+                break;
+            }
+            group.add(older.specification());
+        }
+
+        Collections.reverse(group);
+        this.groups.add(new Group<>(newest.dependencies(), List.copyOf(group)));
+        return true;
+    }
+
+    /**
+     * Obtains the next specification, newest first, together with its dependencies.
+     *
+     * @return Next specification and its dependencies, or {@code null} if there are no specifications remaining.
+     */
+    @Nullable
+    private Entry<R, S> nextEntry() {
+        if (this.pending.isEmpty()) {
+            readBatch();
+        }
+        return this.pending.pollFirst();
+    }
+
+    /**
+     * Reads the next specifications and obtains their dependencies. A single specification is read, unless all the
+     * groups have been requested and there is a parallel policy. In that case, a batch of specifications, one per
+     * thread of the pool of the policy, is read and their dependencies are obtained concurrently.
+     */
+    private void readBatch() {
+        final ParallelPolicy policy = this.parallelPolicy;
+        if (policy == null || !this.exhaustive) {
+            if (this.specifications.hasNext()) {
+                final S specification = this.specifications.next();
+                this.pending.addLast(new Entry<>(specification, dependencies(specification)));
+            }
+            return;
+        }
+
+        final List<S> batch = new ArrayList<>();
+        final List<CompletableFuture<Dependencies<R>>> tasks = new ArrayList<>();
+        try {
+            while (batch.size() < policy.getPool().getParallelism() && this.specifications.hasNext()) {
+                final S specification = this.specifications.next();
+                batch.add(specification);
+                tasks.add(policy.submit(() -> new Dependencies<>(this.dependenciesFor.apply(specification))));
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                this.pending.addLast(new Entry<>(batch.get(i), ParallelPolicy.join(tasks.get(i))));
+            }
+        } catch (final RuntimeException ex) {
+            throw this.processError.apply(ex);
+        } finally {
+            ParallelPolicy.awaitAll(tasks);
+        }
+    }
+
+    /**
+     * Obtains the dependencies of the specified specification on the calling thread.
+     *
+     * @param specification Specification whose dependencies are to be obtained
+     * @return Dependencies of the specification.
+     */
+    private Dependencies<R> dependencies(final S specification) {
+        try {
+            return new Dependencies<>(this.dependenciesFor.apply(specification));
+        } catch (final RuntimeException ex) {
+            throw this.processError.apply(ex);
+        }
+    }
+
+    /**
+     * Dependencies of a specification together with their hash code.
+     *
+     * @param set Dependencies
+     * @param hash Hash code of the dependencies
+     * @param <R> Requirement type
+     */
+    private record Dependencies<R>(Set<R> set, int hash) {
+
+        Dependencies(final Set<R> set) {
+            this(set, set.hashCode());
+        }
+
+        boolean matches(final Dependencies<R> other) {
+            return this.set == other.set || (this.hash == other.hash && this.set.equals(other.set));
+        }
+    }
+
+    /**
+     * A specification together with its dependencies.
+     *
+     * @param specification Specification
+     * @param dependencies Dependencies of the specification
+     * @param <R> Requirement type
+     * @param <S> Specification type
+     */
+    private record Entry<R, S>(S specification, Dependencies<R> dependencies) {
+    }
+
+    /**
+     * Contiguous specifications that have the same dependencies.
+     *
+     * @param dependencies Dependencies of the specifications
+     * @param specifications Specifications, oldest first
+     * @param <R> Requirement type
+     * @param <S> Specification type
+     */
+    private record Group<R, S>(Dependencies<R> dependencies, List<S> specifications) {
+    }
+}
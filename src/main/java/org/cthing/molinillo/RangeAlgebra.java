@@ -0,0 +1,37 @@
+package org.cthing.molinillo;
+
+/**
+ * Set operations on the ranges of specifications allowed by requirements. A specification provider that can combine
+ * its requirements symbolically (e.g. combining {@code ~> 1.2} and {@code < 1.5} into {@code >= 1.2, < 1.5})
+ * exposes this algebra using {@link SpecificationProvider#rangeAlgebra()}. The resolver then detects requirements
+ * that cannot be satisfied together without testing each candidate specification against each requirement.
+ *
+ * <p>
+ * The resolver only combines requirements that have the same name. An algebra may approximate, provided it errs on
+ * the side of allowing specifications: the intersection of two requirements must allow every specification that
+ * satisfies both requirements, and {@link #isEmpty(Object)} may only return {@code true} for a requirement that no
+ * specification can satisfy. An algebra that cannot represent an intersection exactly can therefore return either
+ * requirement, or any requirement allowing at least the specifications allowed by both.
+ * </p>
+ *
+ * @param <R> Requirement type
+ */
+public interface RangeAlgebra<R> {
+
+    /**
+     * Combines the specified requirements, which have the same name, into a single requirement.
+     *
+     * @param requirement1 First requirement to combine
+     * @param requirement2 Second requirement to combine
+     * @return Requirement allowing the specifications that are allowed by both requirements.
+     */
+    R intersect(R requirement1, R requirement2);
+
+    /**
+     * Indicates whether the specified requirement cannot be satisfied by any specification.
+     *
+     * @param requirement Requirement to test
+     * @return {@code true} if no specification can satisfy the requirement.
+     */
+    boolean isEmpty(R requirement);
+}
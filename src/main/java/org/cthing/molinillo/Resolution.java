@@ -2,11 +2,14 @@ package org.cthing.molinillo;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -14,6 +17,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -21,7 +25,9 @@ import org.cthing.molinillo.errors.CircularDependencyError;
 import org.cthing.molinillo.errors.NoSuchDependencyError;
 import org.cthing.molinillo.errors.ResolverError;
 import org.cthing.molinillo.errors.VersionConflictError;
+import org.cthing.molinillo.graph.Action;
 import org.cthing.molinillo.graph.Edge;
+import org.cthing.molinillo.graph.Log;
 import org.cthing.molinillo.graph.Vertex;
 import org.jspecify.annotations.Nullable;
 
@@ -35,7 +41,7 @@ import org.jspecify.annotations.Nullable;
 public class Resolution<R, S> {
 
     private static final String SWAP = "SWAP";
-    private static final String INITIAL_STATE = "INITIAL_STATE";
+    static final String INITIAL_STATE = "INITIAL_STATE";
     private static final String DATE_FORMAT = "yyyy.MM.dd HH:mm:ss:SSSZ";
 
     private final SpecificationProvider<R, S> specificationProvider;
@@ -50,6 +56,38 @@ public class Resolution<R, S> {
 
     private final Map<R, List<Integer>> parentsOf;
 
+    // Ancestor chain of each requirement whose chain has been requested, derived from parentsOf. Chains share their
+    // common ancestors. Cleared whenever the parent of a requirement with a chain may have changed.
+    private final Map<R, Ancestry<R>> ancestries;
+
+    private final NameInterner<R, S> names;
+
+    // Grouped possibilities of each requirement, shared by all the states created for the requirement.
+    private final Map<R, PossibilityGroups<R, S>> possibilityGroups;
+
+    @Nullable
+    private final RangeAlgebra<R> rangeAlgebra;
+
+    // Identifiers of the names of the requirements whose activation or conflict status has changed since the
+    // requirements were last ordered using the provider's dependency comparator. Only meaningful while
+    // requirementsOrdered is true.
+    private final BitSet reorderIds;
+    private boolean requirementsOrdered;
+
+    @Nullable
+    private CheckpointPolicy<R, S> checkpointPolicy;
+    private int checkpointedAt;
+
+    @Nullable
+    private RestartPolicy restartPolicy;
+    private int restarts;
+    private long unwinds;
+    private long perturbation;
+    private Map<String, Conflict<R, S>> learnedConflicts;
+
+    @Nullable
+    private ParallelPolicy parallelPolicy;
+
     /**
      * Constructs a resolution engine.
      *
@@ -67,6 +105,13 @@ public class Resolution<R, S> {
 
         this.states = new ArrayList<>();
         this.parentsOf = new HashMap<>();
+        this.ancestries = new HashMap<>();
+        this.names = new NameInterner<>(specificationProvider::nameForDependency,
+                                        specificationProvider::nameForSpecification);
+        this.possibilityGroups = new HashMap<>();
+        this.reorderIds = new BitSet();
+        this.rangeAlgebra = specificationProvider.rangeAlgebra().orElse(null);
+        this.learnedConflicts = new HashMap<>();
     }
 
     /**
@@ -86,16 +131,23 @@ public class Resolution<R, S> {
                     break;
                 }
 
+                checkpointIfNeeded();
                 indicateProgress();
 
                 if (state instanceof final DependencyState<R, S> dependencyState) {
-                    printf(getDepth(), "Creating possibility state for %s (%d remaining)", getRequirement().orElse(null),
-                           getPossibilities().size());
+                    // Counting all the remaining possibilities would require grouping them, so only the possibility
+                    // sets that have been built so far are counted.
+                    final List<PossibilitySet<R, S>> possibilities = getPossibilities();
+                    final int built = (possibilities instanceof final LazyPossibilitySets<R, S> lazyPossibilities)
+                                      ? lazyPossibilities.getBuilt().size() : possibilities.size();
+                    printf(getDepth(), "Creating possibility state for %s (%d built so far)",
+                           getRequirement().orElse(null), built);
                     final PossibilityState<R, S> possibilityState = dependencyState.popPossibilityState();
                     this.states.add(possibilityState);
                 }
 
                 processTopmostState();
+                restartIfNeeded();
             }
 
             return resolveActivatedSpecs();
@@ -140,6 +192,147 @@ public class Resolution<R, S> {
         return this.base;
     }
 
+    /**
+     * Specifies the policy for checkpointing the resolution while it is in progress.
+     *
+     * @param checkpointPolicy Checkpoint policy or {@code null} to disable checkpointing
+     */
+    void setCheckpointPolicy(@Nullable final CheckpointPolicy<R, S> checkpointPolicy) {
+        this.checkpointPolicy = checkpointPolicy;
+    }
+
+    /**
+     * Specifies the policy for restarting the resolution while it is in progress.
+     *
+     * @param restartPolicy Restart policy or {@code null} to disable restarts
+     */
+    void setRestartPolicy(@Nullable final RestartPolicy restartPolicy) {
+        this.restartPolicy = restartPolicy;
+    }
+
+    /**
+     * Specifies the policy for checking candidate specifications in parallel. The specification provider must be
+     * thread safe if a policy is specified.
+     *
+     * @param parallelPolicy Parallel policy or {@code null} to check all candidates on the resolving thread
+     */
+    void setParallelPolicy(@Nullable final ParallelPolicy parallelPolicy) {
+        this.parallelPolicy = parallelPolicy;
+    }
+
+    /**
+     * Obtains the number of times the resolution has been restarted.
+     *
+     * @return Number of restarts.
+     */
+    int getRestarts() {
+        return this.restarts;
+    }
+
+    /**
+     * Obtains the number of unwinds performed since the resolution was started or last restarted.
+     *
+     * @return Number of unwinds since the last restart.
+     */
+    long getUnwinds() {
+        return this.unwinds;
+    }
+
+    /**
+     * Obtains the seed used to perturb the order of equivalent requirements since the last restart.
+     *
+     * @return Perturbation of the requirement order, or zero if the order is not perturbed.
+     */
+    long getPerturbation() {
+        return this.perturbation;
+    }
+
+    /**
+     * Obtains the conflicts with which the resolution was last restarted.
+     *
+     * @return Conflicts learned before the most recent restart.
+     */
+    Map<String, Conflict<R, S>> getLearnedConflicts() {
+        return this.learnedConflicts;
+    }
+
+    /**
+     * Sets the progress of the restart policy. Used when resuming a resolution from a checkpoint, so that the
+     * resumed resolution restarts when the original would have, and orders equivalent requirements the same way.
+     *
+     * @param restarts Number of times the resolution has been restarted
+     * @param unwinds Number of unwinds performed since the last restart
+     * @param perturbation Seed used to perturb the order of equivalent requirements
+     * @param learnedConflicts Conflicts learned before the most recent restart
+     */
+    void setRestartProgress(final int restarts, final long unwinds, final long perturbation,
+                            final Map<String, Conflict<R, S>> learnedConflicts) {
+        this.restarts = restarts;
+        this.unwinds = unwinds;
+        this.perturbation = perturbation;
+        this.learnedConflicts = learnedConflicts;
+    }
+
+    /**
+     * Obtains the number of resolution iterations performed so far.
+     *
+     * @return Number of iterations.
+     */
+    int getIterationCount() {
+        return this.iterationCount;
+    }
+
+    /**
+     * Sets the number of resolution iterations already performed. Used when resuming a resolution from a
+     * checkpoint, at which point no further checkpoint is taken until the next interval.
+     *
+     * @param iterationCount Number of iterations already performed
+     */
+    void setIterationCount(final int iterationCount) {
+        this.iterationCount = iterationCount;
+        this.checkpointedAt = iterationCount;
+    }
+
+    /**
+     * Obtains the stack of resolution states.
+     *
+     * @return Resolution states. The list is live and is modified by the resolution.
+     */
+    List<@Nullable ResolutionState<R, S>> getStates() {
+        return this.states;
+    }
+
+    /**
+     * Obtains the indices of the states that introduced each requirement.
+     *
+     * @return Map of requirements to the indices of the states that introduced them. The map is live and is
+     *      modified by the resolution.
+     */
+    Map<R, List<Integer>> getParentsOf() {
+        return this.parentsOf;
+    }
+
+    /**
+     * Obtains the groups of candidate specifications built for each requirement.
+     *
+     * @return Map of requirements to the groups of their candidate specifications. The map is live and is modified
+     *      by the resolution.
+     */
+    Map<R, PossibilityGroups<R, S>> getPossibilityGroups() {
+        return this.possibilityGroups;
+    }
+
+    /**
+     * Obtains the groups of candidate specifications for the specified requirement, creating them if they have not
+     * been created already. The groups are shared by all the states created for the requirement.
+     *
+     * @param requirement Requirement whose candidate specifications are desired
+     * @return Groups of the candidate specifications for the requirement.
+     */
+    PossibilityGroups<R, S> possibilityGroupsFor(final R requirement) {
+        return this.possibilityGroups.computeIfAbsent(requirement, req -> possibilityGroups(searchForNewestFirst(req)));
+    }
+
     /**
      * See {@link ResolutionState#getName()}.
      */
@@ -183,10 +376,11 @@ public class Resolution<R, S> {
     }
 
     /**
-     * See {@link ResolutionState#getConflicts()}.
+     * See {@link ResolutionState#getConflicts()}. Before the initial state has been pushed, these are the conflicts
+     * learned before the most recent restart.
      */
     private Map<String, Conflict<R, S>> getConflicts() {
-        return getState().orElseGet(ResolutionState::new).getConflicts();
+        return getState().map(ResolutionState::getConflicts).orElse(this.learnedConflicts);
     }
 
     /**
@@ -208,14 +402,49 @@ public class Resolution<R, S> {
     }
 
     /**
-     * See {@link SpecificationProvider#dependenciesFor(Object)}.
+     * See {@link SpecificationProvider#searchForNewestFirst(Object)}. Errors that occur while iterating over the
+     * specifications are processed in the same way as errors that occur during the search.
      */
-    private Set<R> dependenciesFor(final S specification) {
+    private Iterator<S> searchForNewestFirst(final R dependency) {
+        final Iterator<S> specifications;
         try {
-            return this.specificationProvider.dependenciesFor(specification);
+            specifications = this.specificationProvider.searchForNewestFirst(dependency);
         } catch (final NoSuchDependencyError ex) {
             throw processNoSuchDependencyError(ex);
         }
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return specifications.hasNext();
+                } catch (final NoSuchDependencyError ex) {
+                    throw processNoSuchDependencyError(ex);
+                }
+            }
+
+            @Override
+            public S next() {
+                try {
+                    return specifications.next();
+                } catch (final NoSuchDependencyError ex) {
+                    throw processNoSuchDependencyError(ex);
+                }
+            }
+        };
+    }
+
+    /**
+     * Processes an exception thrown by {@link SpecificationProvider#dependenciesFor(Object)}, possibly on another
+     * thread, in the same way as the exceptions thrown by the other methods of the specification provider.
+     *
+     * @param error Exception to process
+     * @return Exception to rethrow.
+     */
+    private RuntimeException processDependenciesError(final RuntimeException error) {
+        return error instanceof final NoSuchDependencyError noSuchDependencyError
+               ? processNoSuchDependencyError(noSuchDependencyError)
+               : error;
     }
 
     /**
@@ -231,22 +460,93 @@ public class Resolution<R, S> {
     }
 
     /**
-     * See {@link SpecificationProvider#nameForDependency(Object)}.
+     * Obtains the specifications that satisfy the specified requirements, checking them in parallel if the parallel
+     * policy allows it. The requirements are checked directly against the specification provider, so that no
+     * resolution state is modified by the threads performing the checks.
+     *
+     * @param specifications Candidate specifications
+     * @param requirements Requirements that the specifications must satisfy
+     * @param activated Current dependency graph
+     * @return New list of the specifications that satisfy all the requirements, in their original order.
+     */
+    private List<S> satisfyingSpecifications(final List<S> specifications, final Collection<R> requirements,
+                                             final DependencyGraph<Payload<R, S>, R> activated) {
+        final Predicate<S> satisfied = specification -> requirements.stream().allMatch(requirement ->
+                this.specificationProvider.requirementSatisfiedBy(requirement, activated, specification));
+        try {
+            final ParallelPolicy policy = this.parallelPolicy;
+            return (policy == null) ? specifications.stream().filter(satisfied).collect(Collectors.toList())
+                                    : policy.filter(specifications, satisfied);
+        } catch (final NoSuchDependencyError ex) {
+            throw processNoSuchDependencyError(ex);
+        }
+    }
+
+    /**
+     * Obtains the last of the specifications that satisfies the specified requirements. If the parallel policy
+     * allows it, windows of candidates, starting from the end, are checked in parallel until a window containing a
+     * satisfying specification is found.
+     *
+     * @param specifications Candidate specifications
+     * @param requirements Requirements that the specification must satisfy
+     * @param activated Current dependency graph
+     * @return Last specification that satisfies all the requirements, if any.
+     */
+    private Optional<S> latestSatisfyingSpecification(final List<S> specifications, final Collection<R> requirements,
+                                                      final DependencyGraph<Payload<R, S>, R> activated) {
+        final ParallelPolicy policy = this.parallelPolicy;
+        if (policy == null || specifications.size() < policy.getFilterThreshold()) {
+            final Predicate<S> satisfied = specification -> requirements.stream().allMatch(requirement ->
+                    requirementSatisfiedBy(requirement, activated, specification));
+            return IntStream.iterate(specifications.size() - 1, i -> i >= 0, i -> i - 1)
+                            .mapToObj(specifications::get)
+                            .filter(satisfied)
+                            .findFirst();
+        }
+
+        for (int end = specifications.size(); end > 0; end -= policy.getFilterThreshold()) {
+            final List<S> window = specifications.subList(Math.max(0, end - policy.getFilterThreshold()), end);
+            final List<S> satisfying = satisfyingSpecifications(window, requirements, activated);
+            if (!satisfying.isEmpty()) {
+                return Optional.of(satisfying.get(satisfying.size() - 1));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * See {@link SpecificationProvider#nameForDependency(Object)}. The name of each dependency is only obtained from
+     * the provider once.
      */
     private String nameForDependency(final R dependency) {
         try {
-            return this.specificationProvider.nameForDependency(dependency);
+            return this.names.nameForDependency(dependency);
         } catch (final NoSuchDependencyError ex) {
             throw processNoSuchDependencyError(ex);
         }
     }
 
     /**
-     * See {@link SpecificationProvider#nameForSpecification(Object)}.
+     * See {@link SpecificationProvider#nameForSpecification(Object)}. The name of each specification is only
+     * obtained from the provider once.
      */
     private String nameForSpecification(final S specification) {
         try {
-            return this.specificationProvider.nameForSpecification(specification);
+            return this.names.nameForSpecification(specification);
+        } catch (final NoSuchDependencyError ex) {
+            throw processNoSuchDependencyError(ex);
+        }
+    }
+
+    /**
+     * Obtains the identifier of the name of the specified dependency.
+     *
+     * @param dependency Dependency whose name identifier is desired
+     * @return Identifier of the dependency's name.
+     */
+    private int dependencyId(final R dependency) {
+        try {
+            return this.names.dependencyId(dependency);
         } catch (final NoSuchDependencyError ex) {
             throw processNoSuchDependencyError(ex);
         }
@@ -279,13 +579,50 @@ public class Resolution<R, S> {
      */
     private List<R> sortDependencies(final List<R> dependencies, final DependencyGraph<Payload<R, S>, R> activated,
                                      final Map<String, Conflict<R, S>> conflicts) {
+        // Sorting is expected to be stable, so presenting the dependencies in a perturbed order perturbs the order
+        // of those that the provider considers equivalent.
+        final List<R> presented = this.perturbation == 0L
+                                  ? dependencies
+                                  : dependencies.stream()
+                                                .sorted(Comparator.comparingInt(this::perturbedRank))
+                                                .collect(Collectors.toList());
+
         try {
-            return this.specificationProvider.sortDependencies(dependencies, activated, conflicts);
+            return this.specificationProvider.sortDependencies(presented, activated, conflicts);
         } catch (final NoSuchDependencyError ex) {
             throw processNoSuchDependencyError(ex);
         }
     }
 
+    /**
+     * See {@link SpecificationProvider#dependencyComparator(DependencyGraph, Map)}.
+     */
+    private Optional<Comparator<R>> dependencyComparator(final DependencyGraph<Payload<R, S>, R> activated,
+                                                         final Map<String, Conflict<R, S>> conflicts) {
+        try {
+            final Optional<Comparator<R>> comparatorOpt =
+                    this.specificationProvider.dependencyComparator(activated, conflicts);
+            return this.perturbation == 0L
+                   ? comparatorOpt
+                   : comparatorOpt.map(comparator -> comparator.thenComparingInt(this::perturbedRank));
+        } catch (final NoSuchDependencyError ex) {
+            throw processNoSuchDependencyError(ex);
+        }
+    }
+
+    /**
+     * Ranks a dependency for the purpose of perturbing the order of equivalent dependencies after a restart.
+     *
+     * @param dependency Dependency to rank
+     * @return Rank of the dependency, which is the same for equal dependencies.
+     */
+    private int perturbedRank(final R dependency) {
+        long z = dependency.hashCode() ^ this.perturbation;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return Long.hashCode(z ^ (z >>> 33));
+    }
+
     /**
      * See {@link SpecificationProvider#allowMissing(Object)}.
      */
@@ -326,10 +663,16 @@ public class Resolution<R, S> {
     private void startResolution() {
         this.startedAt = System.currentTimeMillis();
 
-        pushInitialState();
+        if (this.states.isEmpty()) {
+            pushInitialState();
 
-        printf(0, "Starting resolution (%s)\nUser-requested dependencies: %s",
-               new SimpleDateFormat(DATE_FORMAT).format(new Date(this.startedAt)), this.originalRequested);
+            printf(0, "Starting resolution (%s)\nUser-requested dependencies: %s",
+                   new SimpleDateFormat(DATE_FORMAT).format(new Date(this.startedAt)), this.originalRequested);
+        } else {
+            printf(0, "Resuming resolution (%s) after %d steps\nUser-requested dependencies: %s",
+                   new SimpleDateFormat(DATE_FORMAT).format(new Date(this.startedAt)), this.iterationCount,
+                   this.originalRequested);
+        }
 
         this.resolverUi.beforeResolution();
     }
@@ -368,21 +711,15 @@ public class Resolution<R, S> {
         for (final Vertex<Payload<R, S>, R> vertex : getActivated().getVertices().values()) {
             vertex.getPayload().ifPresent(payload -> {
                 final List<S> possibilities = payload.getPossibilitySet().getPossibilities();
-                IntStream.iterate(possibilities.size() - 1, i -> i >= 0, i -> i - 1)
-                         .mapToObj(possibilities::get)
-                         .filter(possibility -> vertex.requirements()
-                                                      .stream()
-                                                      .allMatch(requirement -> requirementSatisfiedBy(requirement,
-                                                                                                      getActivated(),
-                                                                                                      possibility)))
-                         .findFirst()
-                         .ifPresent(possibility -> vertex.setPayload(new Payload<>(possibility)));
+                latestSatisfyingSpecification(possibilities, vertex.requirements(), getActivated())
+                        .ifPresent(possibility -> vertex.setPayload(new Payload<>(possibility)));
             });
         }
 
         // Generate a clone of the dependency graph but directly set the specification as the vertex payload rather
-        // that the specification wrapped in a Payload instance.
-        return getActivated().cloneGraph(Payload::getSpecification);
+        // that the specification wrapped in a Payload instance. The resolved graph starts with an empty history, so
+        // the clone is copied directly rather than through its action log.
+        return getActivated().cloneGraph(Payload::getSpecification, false);
     }
 
     /**
@@ -452,12 +789,17 @@ public class Resolution<R, S> {
                 this.states.subList(detailsForUnwind.getStateIndex() + 1, this.states.size());
         final List<@Nullable ResolutionState<R, S>> slicedStates = new ArrayList<>(statesToSlice);
         statesToSlice.clear();
+        if (!slicedStates.isEmpty()) {
+            this.ancestries.clear();
+        }
         raiseErrorUnlessState(conflicts);
+        this.unwinds++;
 
         if (!slicedStates.isEmpty()) {
             final ResolutionState<R, S> state = slicedStates.get(0);
             getActivated().rewindTo(Objects.requireNonNullElse(state, INITIAL_STATE));
         }
+        this.requirementsOrdered = false;
 
         final ResolutionState<R, S> state = getState().orElseThrow();
         state.setConflicts(conflicts);
@@ -467,7 +809,9 @@ public class Resolution<R, S> {
 
         final int lastStateIndex = this.states.size() - 1;
         for (final List<Integer> stateIndices : this.parentsOf.values()) {
-            stateIndices.removeIf(stateIndex -> stateIndex >= lastStateIndex);
+            if (stateIndices.removeIf(stateIndex -> stateIndex >= lastStateIndex)) {
+                this.ancestries.clear();
+            }
         }
         state.getUnusedUnwindOptions().removeIf(uw -> uw.getStateIndex() >= lastStateIndex);
     }
@@ -566,8 +910,7 @@ public class Resolution<R, S> {
         Collections.reverse(reversedBindingRequirements);
 
         for (final R r : reversedBindingRequirements) {
-            final List<R> partialTree = new ArrayList<>();
-            partialTree.add(r);
+            final List<R> partialTree = ancestryOf(r).tree();
             trees.add(partialTree);
             unwindDetails.add(new UnwindDetails<>(-1, null, partialTree, bindingRequirements, trees,
                                                   new HashSet<>()));
@@ -582,10 +925,11 @@ public class Resolution<R, S> {
             }
 
             // Next, look at the parent of this requirement, and check if the requirement could have been avoided
-            // if an alternative PossibilitySet had been chosen
-            R parentR = parentOf(r);
-            if (parentR != null) {
-                partialTree.add(0, parentR);
+            // if an alternative PossibilitySet had been chosen. The requirement tree ends with the requirement,
+            // preceded by its parent, grandparent and so on.
+            final int parentIndex = partialTree.size() - 2;
+            if (parentIndex >= 0) {
+                final R parentR = partialTree.get(parentIndex);
                 requirementState = findStateFor(parentR).orElseThrow();
                 if (requirementState.getPossibilities().stream().anyMatch(set -> !set.getDependencies().contains(r))) {
                         unwindDetails.add(new UnwindDetails<>(this.states.indexOf(requirementState), parentR,
@@ -595,22 +939,19 @@ public class Resolution<R, S> {
 
                 // Finally, look at the grandparent and up of this requirement, looking for any possibilities that
                 // wouldn't create their parent requirement
-                R grandparentR = parentOf(parentR);
-                while (grandparentR != null) {
-                    partialTree.add(0, grandparentR);
+                for (int i = parentIndex - 1; i >= 0; i--) {
+                    final R childR = partialTree.get(i + 1);
+                    final R grandparentR = partialTree.get(i);
                     requirementState = findStateFor(grandparentR).orElseThrow();
 
                     for (final PossibilitySet<R, S> possibilitySet : requirementState.getPossibilities()) {
-                        if (!possibilitySet.getDependencies().contains(parentR)) {
+                        if (!possibilitySet.getDependencies().contains(childR)) {
                             unwindDetails.add(new UnwindDetails<>(this.states.indexOf(requirementState),
                                                                   grandparentR, partialTree, bindingRequirements,
                                                                   trees, new HashSet<>()));
                             break;
                         }
                     }
-
-                    parentR = grandparentR;
-                    grandparentR = parentOf(parentR);
                 }
             }
         }
@@ -672,6 +1013,7 @@ public class Resolution<R, S> {
 
         final List<List<R>> unwindRequirementSets = unwindsToState.stream()
                                                                   .map(UnwindDetails::getConflictingRequirements)
+                                                                  .filter(reqs -> !requirementsIncompatible(reqs))
                                                                   .toList();
 
         final ResolutionState<R, S> state = getState().orElseThrow();
@@ -759,6 +1101,60 @@ public class Resolution<R, S> {
         return satisfied;
     }
 
+    /**
+     * Indicates whether the provider's range algebra shows that no specification can satisfy all the specified
+     * requirements, which must have the same name. This allows incompatible requirements to be detected without
+     * testing each candidate specification against each requirement.
+     *
+     * @param requirements Requirements to test
+     * @return {@code true} if the provider has a range algebra and, according to it, the requirements cannot be
+     *      satisfied together. Returns {@code false} if there is no range algebra or the requirements may be
+     *      compatible.
+     */
+    private boolean requirementsIncompatible(final Collection<R> requirements) {
+        final RangeAlgebra<R> algebra = this.rangeAlgebra;
+        if (algebra == null || requirements.isEmpty()) {
+            return false;
+        }
+
+        final Iterator<R> iter = requirements.iterator();
+        R merged = iter.next();
+        while (iter.hasNext()) {
+            merged = algebra.intersect(merged, iter.next());
+        }
+        return algebra.isEmpty(merged);
+    }
+
+    /**
+     * Combines the requirement that the possibilities of the specified payload are known to satisfy with the
+     * specified requirement, using the provider's range algebra.
+     *
+     * @param payload Payload of an activated vertex
+     * @param requirement Requirement to combine with that of the payload
+     * @return Combined requirement, or {@code null} if the provider has no range algebra or the requirement of the
+     *      payload is not known.
+     */
+    @Nullable
+    private R mergeRequirement(final Payload<R, S> payload, final R requirement) {
+        final RangeAlgebra<R> algebra = this.rangeAlgebra;
+        if (algebra == null) {
+            return null;
+        }
+        return payload.getMergedRequirement().map(merged -> algebra.intersect(merged, requirement)).orElse(null);
+    }
+
+    /**
+     * Indicates whether the provider's range algebra shows that no specification can satisfy the specified
+     * requirement.
+     *
+     * @param requirement Requirement to test, or {@code null} if there is no requirement to test
+     * @return {@code true} if the provider has a range algebra and, according to it, the requirement cannot be
+     *      satisfied.
+     */
+    private boolean requirementIncompatible(@Nullable final R requirement) {
+        return this.rangeAlgebra != null && requirement != null && this.rangeAlgebra.isEmpty(requirement);
+    }
+
     /**
      * Creates a minimal list of requirements that would cause the specified conflict to occur.
      *
@@ -826,12 +1222,11 @@ public class Resolution<R, S> {
      */
     private boolean bindingRequirementInSet(@Nullable final R requirement, final List<R> possibleBindingRequirements,
                                             final Collection<S> possibilities) {
-        return possibilities.stream()
-                            .anyMatch(poss -> possibilitySatisfiesRequirements(poss, possibleBindingRequirements
-                                    .stream()
-                                    .filter(req -> !req.equals(requirement))
-                                    .collect(Collectors.toList())
-        ));
+        final List<R> requirements = possibleBindingRequirements.stream()
+                                                                .filter(req -> !req.equals(requirement))
+                                                                .collect(Collectors.toList());
+        return !requirementsIncompatible(requirements)
+                && possibilities.stream().anyMatch(poss -> possibilitySatisfiesRequirements(poss, requirements));
     }
 
     /**
@@ -847,8 +1242,8 @@ public class Resolution<R, S> {
             return null;
         }
 
-        final List<Integer> parents = this.parentsOf.computeIfAbsent(requirement, key -> new ArrayList<>());
-        if (parents.isEmpty()) {
+        final List<Integer> parents = this.parentsOf.get(requirement);
+        if (parents == null || parents.isEmpty()) {
             return null;
         }
 
@@ -936,13 +1331,17 @@ public class Resolution<R, S> {
             requirements.put(latestVersion, newReqs);
         }
 
-        final Map<String, S> activatedByName = new HashMap<>();
-        for (final Vertex<Payload<R, S>, R> v : getActivated().getVertices().values()) {
-            if (v.getPayload().isPresent() && v.getPayload().get().getPossibilitySet().getLatestVersion().isPresent()) {
-                activatedByName.put(v.getName(),
-                                    v.getPayload().get().getPossibilitySet().getLatestVersion().get());
-            }
-        }
+        // The requirement trees and activated specifications are only needed if the conflict is reported, which
+        // is rarely the case. Capture the state they depend on now, and defer building them until they are used.
+        final List<Ancestry<R>> ancestries = vertex.requirements()
+                                                   .stream()
+                                                   .map(this::ancestryOf)
+                                                   .collect(Collectors.toList());
+        final List<List<R>> requirementTrees = Lazy.list(() -> ancestries.stream()
+                                                                         .map(Ancestry::tree)
+                                                                         .collect(Collectors.toList()));
+        final Action<Payload<R, S>, R, ?> lastAction = getActivated().getLog().getCurrentAction().orElseThrow();
+        final Map<String, S> activatedByName = Lazy.map(() -> activatedByName(lastAction));
 
         final R requirement = getRequirement().orElseThrow();
         final Optional<S> existingSpecification =
@@ -955,40 +1354,57 @@ public class Resolution<R, S> {
                                                        existingSpecification.orElse(null),
                                                        possibilitySet,
                                                        lockedRequirementOpt.orElse(null),
-                                                       requirementTrees(),
+                                                       requirementTrees,
                                                        activatedByName,
                                                        underlyingError);
         getConflicts().put(getName(), conflict);
+        this.reorderIds.set(this.names.id(getName()));
         return conflict;
     }
 
     /**
-     * Provides the requirement trees that led to every requirement for the current specification.
+     * Provides the chain of requirements that led to the specified requirement being required, starting with the
+     * specified requirement and ending with the explicitly requested requirement from which it originates. The
+     * chain is built from the chains of the ancestors of the requirement, which are built if necessary, so that each
+     * link is only determined once until the parents of the requirements change.
      *
-     * @return Requirement trees that led to every requirement for the current specification.
+     * @param requirement Requirement whose causes are to be obtained
+     * @return Chain of requirements which led to the specified requirement being required.
      */
-    private List<List<R>> requirementTrees() {
-        final Vertex<Payload<R, S>, R> vertex = getActivated().vertexNamed(getName()).orElseThrow();
-        return vertex.requirements()
-                     .stream()
-                     .map(this::requirementTreeFor)
-                     .collect(Collectors.toList());
+    private Ancestry<R> ancestryOf(final R requirement) {
+        final List<R> unbuilt = new ArrayList<>();
+        Ancestry<R> ancestry = null;
+        for (R req = requirement; req != null; req = parentOf(req)) {
+            ancestry = this.ancestries.get(req);
+            if (ancestry != null) {
+                break;
+            }
+            unbuilt.add(req);
+        }
+
+        for (int i = unbuilt.size() - 1; i >= 0; i--) {
+            ancestry = new Ancestry<>(unbuilt.get(i), ancestry);
+            this.ancestries.put(unbuilt.get(i), ancestry);
+        }
+        return Objects.requireNonNull(ancestry);
     }
 
     /**
-     * Provides a list of requirements that led to the specified requirement being required.
+     * Obtains the specifications that were activated when the specified action was the most recent action on the
+     * activated graph.
      *
-     * @param requirement Requirement whose causes are to be obtained
-     * @return Requirements which led to the specified requirement being required
+     * @param lastAction Most recent action on the activated graph at the point of interest
+     * @return Activated specifications keyed by name.
+     * @param <R> Requirement type
+     * @param <S> Specification type
      */
-    private List<R> requirementTreeFor(final R requirement) {
-        final List<R> tree = new ArrayList<>();
-
-        for (R req = requirement; req != null; req = parentOf(req)) {
-            tree.add(0, req);
+    private static <R, S> Map<String, S> activatedByName(final Action<Payload<R, S>, R, ?> lastAction) {
+        final Map<String, S> activatedByName = new HashMap<>();
+        for (final Map.Entry<String, Payload<R, S>> entry : Log.payloadsAt(lastAction).entrySet()) {
+            entry.getValue().getPossibilitySet().getLatestVersion()
+                 .ifPresent(spec -> activatedByName.put(entry.getKey(), spec));
         }
-
-        return tree;
+        return activatedByName;
     }
 
     /**
@@ -1012,6 +1428,45 @@ public class Resolution<R, S> {
         }
     }
 
+    /**
+     * Takes a checkpoint of the resolution if a checkpoint policy has been specified and the number of iterations
+     * performed is a multiple of its interval.
+     */
+    private void checkpointIfNeeded() {
+        final CheckpointPolicy<R, S> policy = this.checkpointPolicy;
+        if (policy != null && this.iterationCount > this.checkpointedAt
+                && (this.iterationCount % policy.getInterval()) == 0) {
+            this.checkpointedAt = this.iterationCount;
+            policy.getHandler().accept(CheckpointSerializer.write(this, policy));
+        }
+    }
+
+    /**
+     * Restarts the resolution if a restart policy has been specified and the number of unwinds performed since the
+     * resolution was started, or last restarted, has reached the number allowed by the policy. The resolution is
+     * restarted from the initial state with the conflicts encountered so far, and with a different perturbation of
+     * the order of equivalent requirements.
+     */
+    private void restartIfNeeded() {
+        final RestartPolicy policy = this.restartPolicy;
+        if (policy == null || this.unwinds < policy.unwindsBeforeRestart(this.restarts)) {
+            return;
+        }
+
+        this.learnedConflicts = new HashMap<>(getConflicts());
+        this.restarts++;
+        this.unwinds = 0;
+        this.perturbation = policy.perturbation(this.restarts);
+        printf(0, "Restarting resolution (restart %d) with %d conflicts", this.restarts, this.learnedConflicts.size());
+
+        this.states.clear();
+        this.parentsOf.clear();
+        this.ancestries.clear();
+        this.reorderIds.clear();
+        this.requirementsOrdered = false;
+        pushInitialState();
+    }
+
     /**
      * Writes output to the registered user interface object.
      *
@@ -1036,9 +1491,12 @@ public class Resolution<R, S> {
         } else {
             final Optional<S> latest = getPossibility().getLatestVersion();
             final R requirement = getRequirement().orElseThrow();
-            getPossibility().getPossibilities().removeIf(possibility -> !requirementSatisfiedBy(requirement,
-                                                                                                getActivated(),
-                                                                                                possibility));
+            final List<S> possibilities = getPossibility().getPossibilities();
+            final List<S> satisfying = satisfyingSpecifications(possibilities, List.of(requirement), getActivated());
+            if (satisfying.size() != possibilities.size()) {
+                possibilities.clear();
+                possibilities.addAll(satisfying);
+            }
 
             if (getPossibility().getLatestVersion().isEmpty()) {
                 // Ensure there's a possibility for better error messages
@@ -1057,31 +1515,42 @@ public class Resolution<R, S> {
      * @param vertex Vertex to update
      */
     private void attemptToFilterExistingSpec(final Vertex<Payload<R, S>, R> vertex) {
-        final PossibilitySet<R, S> filteredSet = filteredPossibilitySet(vertex);
-
-        if (!filteredSet.getPossibilities().isEmpty()) {
-            getActivated().setPayload(getName(), new Payload<>(filteredSet));
-            final Set<R> newRequirements = new LinkedHashSet<>(getRequirements());
-            pushStateForRequirements(newRequirements, false);
-        } else {
-            createConflict(null);
-            printf(getDepth(), "Unsatisfied by existing spec (%s)", vertex.getPayload().orElseThrow());
-            unwindForConflict();
+        // When the requirement that the existing possibilities satisfy is known to be incompatible with the current
+        // requirement, the filtered set is necessarily empty, so there is no need to compute it.
+        @Nullable final R mergedRequirement = mergeRequirement(vertex.getPayload().orElseThrow(), getRequirement().orElseThrow());
+        if (!requirementIncompatible(mergedRequirement)) {
+            final PossibilitySet<R, S> filteredSet = filteredPossibilitySet(vertex.getPayload().orElseThrow(),
+                                                                            getPossibility());
+
+            if (!filteredSet.getPossibilities().isEmpty()) {
+                getActivated().setPayload(getName(), new Payload<>(filteredSet, mergedRequirement));
+                this.reorderIds.set(this.names.id(getName()));
+                final Set<R> newRequirements = new LinkedHashSet<>(getRequirements());
+                pushStateForRequirements(newRequirements, false);
+                return;
+            }
         }
+
+        createConflict(null);
+        printf(getDepth(), "Unsatisfied by existing spec (%s)", vertex.getPayload().orElseThrow());
+        unwindForConflict();
     }
 
     /**
-     * Generates a possibility set consisting of the possibilities on the specified vertex that are also in the
-     * current state. In other words, the intersection of the current state possibilities and the vertex possibilities.
+     * Generates a possibility set consisting of the possibilities of the specified payload that are also in the
+     * specified possibility set. In other words, the intersection of the possibilities of the payload and those of
+     * the possibility set.
      *
-     * @param vertex Vertex whose possibilities are to be filtered by the current state's possibilities
-     * @return The possibilities on the specified vertex filtered by the possibilities in the current state.
+     * @param payload Payload of the vertex whose possibilities are to be filtered
+     * @param possibilitySet Possibility set with which to filter the possibilities of the payload
+     * @return The possibilities of the specified payload filtered by the specified possibility set.
      */
-    private PossibilitySet<R, S> filteredPossibilitySet(final Vertex<Payload<R, S>, R> vertex) {
-        final PossibilitySet<R, S> vertexPossibilitySet = vertex.getPayload().orElseThrow().getPossibilitySet();
+    private PossibilitySet<R, S> filteredPossibilitySet(final Payload<R, S> payload,
+                                                        final PossibilitySet<R, S> possibilitySet) {
+        final PossibilitySet<R, S> vertexPossibilitySet = payload.getPossibilitySet();
 
         final Set<S> commonPossibilities = new LinkedHashSet<>(vertexPossibilitySet.getPossibilities());
-        commonPossibilities.retainAll(getPossibility().getPossibilities());
+        commonPossibilities.retainAll(possibilitySet.getPossibilities());
 
         return new PossibilitySet<>(vertexPossibilitySet.getDependencies(), commonPossibilities);
     }
@@ -1102,7 +1571,9 @@ public class Resolution<R, S> {
     private void activateNewSpec() {
         getConflicts().remove(getName());
         printf(getDepth(), "Activated %s at %s", getName(), getPossibility());
-        getActivated().setPayload(getName(), new Payload<>(getPossibility()));
+        final R mergedRequirement = this.rangeAlgebra == null ? null : getRequirement().orElseThrow();
+        getActivated().setPayload(getName(), new Payload<>(getPossibility(), mergedRequirement));
+        this.reorderIds.set(this.names.id(getName()));
         requireNestedDependenciesFor(getPossibility());
     }
 
@@ -1118,6 +1589,7 @@ public class Resolution<R, S> {
                                                                                    .collect(Collectors.joining(", ")));
 
         for (final R d : nestedDependencies) {
+            this.reorderIds.set(dependencyId(d));
             getActivated().addChildVertex(nameForDependency(d), null,
                                           List.of(nameForSpecification(possibilitySet.getLatestVersion().orElseThrow())),
                                           d);
@@ -1125,6 +1597,9 @@ public class Resolution<R, S> {
             final List<Integer> parents = this.parentsOf.computeIfAbsent(d, key -> new ArrayList<>());
             if (parents.isEmpty()) {
                 parents.add(parentIndex);
+                if (this.ancestries.containsKey(d)) {
+                    this.ancestries.clear();
+                }
             }
         }
 
@@ -1153,8 +1628,7 @@ public class Resolution<R, S> {
     private void pushStateForRequirements(final Set<R> newRequirements, final boolean requiresSort,
                                           final DependencyGraph<Payload<R, S>, R> newActivated) {
         final List<R> sortedRequirements = requiresSort
-                                           ? sortDependencies(new ArrayList<>(newRequirements),
-                                                              newActivated, new HashMap<>(getConflicts()))
+                                           ? orderRequirements(newRequirements, newActivated)
                                            : new ArrayList<>(newRequirements);
 
         final Function<R, Boolean> isRequirementUnique =
@@ -1163,13 +1637,22 @@ public class Resolution<R, S> {
                                           .noneMatch(state -> Objects.equals(state.getRequirement().orElse(null),
                                                                              requirement));
 
+        // Forced requirements on activated specifications are propagated without creating states for them, so the
+        // first requirement that is a genuine choice point becomes the requirement of the new state.
+        int index = -1;
         R newRequirement;
+        List<PossibilitySet<R, S>> possibilities;
         do {
-            newRequirement = sortedRequirements.isEmpty() ? null : sortedRequirements.remove(0);
-        } while (newRequirement != null && !isRequirementUnique.apply(newRequirement));
+            index++;
+            while (index < sortedRequirements.size() && !isRequirementUnique.apply(sortedRequirements.get(index))) {
+                index++;
+            }
+            newRequirement = index < sortedRequirements.size() ? sortedRequirements.get(index) : null;
+            possibilities = possibilitiesForRequirement(newRequirement, newActivated);
+        } while (newRequirement != null && propagateForcedRequirement(newRequirement, possibilities, newActivated));
+        sortedRequirements.subList(0, Math.min(index + 1, sortedRequirements.size())).clear();
 
         final String newName = newRequirement != null ? nameForDependency(newRequirement) : "";
-        final List<PossibilitySet<R, S>> possibilities = possibilitiesForRequirement(newRequirement, newActivated);
 
         final DependencyState<R, S> newState = new DependencyState<>(newName, sortedRequirements,
                                                                      newActivated, newRequirement,
@@ -1180,6 +1663,133 @@ public class Resolution<R, S> {
         handleMissingOrPushDependencyState(newState);
     }
 
+    /**
+     * Propagates a forced requirement into the activated specification with the same name. A requirement is forced
+     * when it has a single possibility set, because its state would then offer no alternative to unwind to. If a
+     * version of the requirement has already been activated, the requirement can only be satisfied by narrowing the
+     * possibilities of the activated specification to those in the possibility set. This is done immediately,
+     * rather than by pushing a dependency state and a possibility state for the requirement. Requirements that are
+     * not forced, that are for specifications which have not been activated, or that conflict with the activated
+     * specification are not propagated, so that they are processed, and any conflict is reported, by way of the
+     * states for the requirement.
+     *
+     * @param requirement Requirement to propagate
+     * @param possibilities Possibility sets for the requirement
+     * @param activated Dependency graph
+     * @return {@code true} if the requirement was propagated.
+     */
+    private boolean propagateForcedRequirement(final R requirement, final List<PossibilitySet<R, S>> possibilities,
+                                               final DependencyGraph<Payload<R, S>, R> activated) {
+        final String name = nameForDependency(requirement);
+        final Optional<Payload<R, S>> payloadOpt = activated.vertexNamed(name).flatMap(Vertex::getPayload);
+        if (payloadOpt.isEmpty()) {
+            return false;
+        }
+
+        final boolean forced = possibilities instanceof final LazyPossibilitySets<R, S> lazyPossibilities
+                               ? lazyPossibilities.isSingleton()
+                               : possibilities.size() == 1;
+        if (!forced) {
+            return false;
+        }
+
+        final Payload<R, S> payload = payloadOpt.get();
+        @Nullable final R mergedRequirement = mergeRequirement(payload, requirement);
+        if (requirementIncompatible(mergedRequirement)) {
+            return false;
+        }
+
+        final PossibilitySet<R, S> filteredSet = filteredPossibilitySet(payload, possibilities.get(0));
+        if (filteredSet.getPossibilities().isEmpty()) {
+            return false;
+        }
+
+        printf(getDepth(), "Propagated %s into existing spec (%s)", requirement, payload);
+        activated.setPayload(name, new Payload<>(filteredSet, mergedRequirement));
+        this.reorderIds.set(this.names.id(name));
+        return true;
+    }
+
+    /**
+     * Orders the specified requirements from easiest to hardest to resolve. If the specification provider supplies a
+     * dependency comparator and the requirements of the current state are still ordered, apart from the requirements
+     * whose status has changed since, only the changed and the new requirements are sorted and then merged into the
+     * current order. Otherwise, all requirements are sorted.
+     *
+     * @param requirements Requirements to order. The requirements of the current state must come first, in their
+     *      current order, followed by any new requirements.
+     * @param activated Dependency graph
+     * @return Ordered requirements.
+     */
+    private List<R> orderRequirements(final Set<R> requirements, final DependencyGraph<Payload<R, S>, R> activated) {
+        final Map<String, Conflict<R, S>> conflicts = new HashMap<>(getConflicts());
+        final Optional<Comparator<R>> comparatorOpt = dependencyComparator(activated, conflicts);
+        if (comparatorOpt.isEmpty()) {
+            return sortDependencies(new ArrayList<>(requirements), activated, conflicts);
+        }
+
+        final List<R> orderedRequirements;
+        try {
+            orderedRequirements = this.requirementsOrdered
+                                  ? mergeRequirements(requirements, comparatorOpt.get())
+                                  : requirements.stream().sorted(comparatorOpt.get()).collect(Collectors.toList());
+        } catch (final NoSuchDependencyError ex) {
+            throw processNoSuchDependencyError(ex);
+        }
+
+        this.requirementsOrdered = true;
+        this.reorderIds.clear();
+        return orderedRequirements;
+    }
+
+    /**
+     * Orders the specified requirements by sorting the requirements whose status has changed together with the new
+     * requirements, and merging them with the unchanged requirements, which are already in order. The result is the
+     * same as a stable sort of all the requirements.
+     *
+     * @param requirements Requirements to order. The requirements of the current state must come first, in their
+     *      current order, followed by any new requirements.
+     * @param comparator Orders the requirements
+     * @return Ordered requirements.
+     */
+    private List<R> mergeRequirements(final Set<R> requirements, final Comparator<R> comparator) {
+        final int numOrdered = getRequirements().size();
+        final List<RankedRequirement<R>> unchanged = new ArrayList<>(numOrdered);
+        final List<RankedRequirement<R>> changed = new ArrayList<>();
+
+        int position = 0;
+        for (final R requirement : requirements) {
+            final RankedRequirement<R> ranked = new RankedRequirement<>(requirement, position);
+            if (position < numOrdered && !this.reorderIds.get(dependencyId(requirement))) {
+                unchanged.add(ranked);
+            } else {
+                changed.add(ranked);
+            }
+            position++;
+        }
+
+        final Comparator<RankedRequirement<R>> rankComparator =
+                Comparator.comparing(RankedRequirement<R>::requirement, comparator)
+                          .thenComparingInt(RankedRequirement::position);
+        changed.sort(rankComparator);
+
+        final List<R> orderedRequirements = new ArrayList<>(position);
+        int unchangedIndex = 0;
+        int changedIndex = 0;
+        while (unchangedIndex < unchanged.size() && changedIndex < changed.size()) {
+            if (rankComparator.compare(unchanged.get(unchangedIndex), changed.get(changedIndex)) <= 0) {
+                orderedRequirements.add(unchanged.get(unchangedIndex++).requirement());
+            } else {
+                orderedRequirements.add(changed.get(changedIndex++).requirement());
+            }
+        }
+        unchanged.subList(unchangedIndex, unchanged.size())
+                 .forEach(ranked -> orderedRequirements.add(ranked.requirement()));
+        changed.subList(changedIndex, changed.size())
+               .forEach(ranked -> orderedRequirements.add(ranked.requirement()));
+        return orderedRequirements;
+    }
+
     /**
      * Pushes a new dependency state. If the specification provider allows missing dependencies, and there are no
      * possibilities for that requirement, then the specified state is not pushed, and the vertex in the activated
@@ -1190,7 +1800,9 @@ public class Resolution<R, S> {
     private void handleMissingOrPushDependencyState(final DependencyState<R, S> state) {
         final Optional<R> requirementOpt = state.getRequirement();
         if (requirementOpt.isPresent() && state.getPossibilities().isEmpty() && allowMissing(requirementOpt.get())) {
-            state.getActivated().detachVertexNamed(state.getName());
+            state.getActivated()
+                 .detachVertexNamed(state.getName())
+                 .forEach(vertex -> this.reorderIds.set(this.names.id(vertex.getName())));
             pushStateForRequirements(new LinkedHashSet<>(state.getRequirements()), false, state.getActivated());
         } else {
             this.states.add(state);
@@ -1215,7 +1827,7 @@ public class Resolution<R, S> {
             return lockedRequirementPossibilitySet(requirement, activated);
         }
 
-        return groupPossibilities(searchFor(requirement));
+        return new LazyPossibilitySets<>(possibilityGroupsFor(requirement));
     }
 
     /**
@@ -1232,10 +1844,8 @@ public class Resolution<R, S> {
 
         // Long-winded way to build a possibilities array with either the locked requirement or nothing in it.
         // Required, because the API for locked_requirement is not guaranteed.
-        final List<S> lockedPossibilities =
-                allPossibilities.stream()
-                                .filter(possibility -> requirementSatisfiedBy(lockedRequirement, activated, possibility))
-                                .collect(Collectors.toList());
+        final List<S> lockedPossibilities = satisfyingSpecifications(allPossibilities, List.of(lockedRequirement),
+                                                                     activated);
 
         return groupPossibilities(lockedPossibilities);
     }
@@ -1249,21 +1859,81 @@ public class Resolution<R, S> {
      *      sub-dependency version constraints.
      */
     private List<PossibilitySet<R, S>> groupPossibilities(final List<S> possibilities) {
-        final List<PossibilitySet<R, S>> possibilitySets = new ArrayList<>();
-        PossibilitySet<R, S> currentPossibilitySet = null;
+        final List<S> newestFirst = new ArrayList<>(possibilities);
+        Collections.reverse(newestFirst);
+        return possibilityGroups(newestFirst.iterator()).all();
+    }
 
-        for (int i = possibilities.size() - 1; i >= 0; i--) {
-            final S possibility = possibilities.get(i);
-            final Set<R> dependencies = dependenciesFor(possibility);
+    /**
+     * Constructs the groups of the specified specifications. If there is a parallel policy, the dependencies of the
+     * specifications may be obtained concurrently, directly from the specification provider. Errors are processed
+     * on the resolving thread, as usual.
+     *
+     * @param specifications Specifications to group, newest first
+     * @return Groups of the specifications.
+     */
+    private PossibilityGroups<R, S> possibilityGroups(final Iterator<S> specifications) {
+        return new PossibilityGroups<>(specifications, this.specificationProvider::dependenciesFor,
+                                       this.parallelPolicy, this::processDependenciesError);
+    }
 
-            if (currentPossibilitySet != null && currentPossibilitySet.getDependencies().equals(dependencies)) {
-                currentPossibilitySet.getPossibilities().add(0, possibility);
-            } else {
-                currentPossibilitySet = new PossibilitySet<>(dependencies, List.of(possibility));
-                possibilitySets.add(0, currentPossibilitySet);
+    /**
+     * An immutable link in the chain of requirements that led to a requirement being required. Links are shared by
+     * the chains of all the requirements with a common ancestor.
+     *
+     * @param <R> Requirement type
+     */
+    private static final class Ancestry<R> {
+
+        private final R requirement;
+
+        @Nullable
+        private final Ancestry<R> parent;
+
+        @Nullable
+        private List<R> tree;
+
+        /**
+         * Constructs a link.
+         *
+         * @param requirement Requirement
+         * @param parent Chain of the requirement that led to the requirement being required, or {@code null} if the
+         *      requirement was explicitly requested
+         */
+        Ancestry(final R requirement, @Nullable final Ancestry<R> parent) {
+            this.requirement = requirement;
+            this.parent = parent;
+        }
+
+        /**
+         * Obtains the requirement tree that led to the requirement, starting with the explicitly requested
+         * requirement and ending with the requirement of this link. The tree is built once and shared.
+         *
+         * @return Unmodifiable requirement tree.
+         */
+        List<R> tree() {
+            List<R> result = this.tree;
+            if (result == null) {
+                final List<R> requirements = new ArrayList<>();
+                for (Ancestry<R> link = this; link != null; link = link.parent) {
+                    requirements.add(link.requirement);
+                }
+                Collections.reverse(requirements);
+                result = Collections.unmodifiableList(requirements);
+                this.tree = result;
             }
+            return result;
         }
+    }
 
-        return possibilitySets;
+    /**
+     * A requirement together with its position in the list of requirements being ordered, which is used to break
+     * ties so that the merged order matches that of a stable sort.
+     *
+     * @param requirement Requirement to order
+     * @param position Position of the requirement before ordering
+     * @param <R> Requirement type
+     */
+    private record RankedRequirement<R>(R requirement, int position) {
     }
 }
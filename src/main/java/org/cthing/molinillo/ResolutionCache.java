@@ -0,0 +1,44 @@
+package org.cthing.molinillo;
+
+import java.util.Optional;
+import java.util.Set;
+
+
+/**
+ * Stores the results of successful resolutions so that resolving the same requested dependencies against the same
+ * locking graph and an unchanged specification index can be answered without performing the resolution. A cache is
+ * registered with a resolver using {@link Resolver#setResolutionCache(ResolutionCache)} and is only consulted when
+ * the specification provider supplies an {@link SpecificationProvider#indexVersion() index version}.
+ *
+ * <p>
+ * Implementations must treat the requested dependencies as an unordered set and must return a graph that the caller
+ * is free to modify (i.e. a graph that is not shared with the cache or with other callers). Because a cache only
+ * saves work, implementations should treat a result that cannot be retrieved as a miss and should not throw when a
+ * result cannot be stored, so that a failure of the cache does not fail the resolution.
+ * </p>
+ *
+ * @param <R> Requirement type
+ * @param <S> Specification type
+ */
+public interface ResolutionCache<R, S> {
+
+    /**
+     * Obtains the result of a previous resolution.
+     *
+     * @param requested Dependencies that were requested
+     * @param base Graph of dependencies whose versions were locked
+     * @param indexVersion Version of the specification index against which the dependencies were resolved
+     * @return Graph of the resolved dependencies, if the cache contains a result for the specified resolution.
+     */
+    Optional<DependencyGraph<S, R>> get(Set<R> requested, DependencyGraph<R, R> base, String indexVersion);
+
+    /**
+     * Stores the result of a successful resolution.
+     *
+     * @param requested Dependencies that were requested
+     * @param base Graph of dependencies whose versions were locked
+     * @param indexVersion Version of the specification index against which the dependencies were resolved
+     * @param result Graph of the resolved dependencies
+     */
+    void put(Set<R> requested, DependencyGraph<R, R> base, String indexVersion, DependencyGraph<S, R> result);
+}
@@ -1,8 +1,13 @@
 package org.cthing.molinillo;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.cthing.molinillo.errors.ResolverError;
+import org.jspecify.annotations.Nullable;
 
 
 /**
@@ -16,6 +21,18 @@ public class Resolver<R, S> {
     private final SpecificationProvider<R, S> specificationProvider;
     private final UI resolverUI;
 
+    @Nullable
+    private CheckpointPolicy<R, S> checkpointPolicy;
+
+    @Nullable
+    private ResolutionCache<R, S> resolutionCache;
+
+    @Nullable
+    private RestartPolicy restartPolicy;
+
+    @Nullable
+    private ParallelPolicy parallelPolicy;
+
     /**
      * Constructs the resolver with the specified specification provider and a no-op user interface.
      *
@@ -36,6 +53,49 @@ public class Resolver<R, S> {
         this.resolverUI = resolverUI;
     }
 
+    /**
+     * Specifies the policy for checkpointing resolutions while they are in progress. A checkpoint policy is also
+     * required to resume a resolution from a checkpoint, because it provides the codecs used to decode the
+     * checkpoint.
+     *
+     * @param checkpointPolicy Checkpoint policy or {@code null} to disable checkpointing
+     */
+    public void setCheckpointPolicy(@Nullable final CheckpointPolicy<R, S> checkpointPolicy) {
+        this.checkpointPolicy = checkpointPolicy;
+    }
+
+    /**
+     * Specifies a cache for the results of resolutions. The cache is consulted before performing a resolution and
+     * the result of a successful resolution is stored in it. The cache is only used if the specification provider
+     * supplies an {@link SpecificationProvider#indexVersion() index version}.
+     *
+     * @param resolutionCache Resolution cache or {@code null} to disable caching
+     */
+    public void setResolutionCache(@Nullable final ResolutionCache<R, S> resolutionCache) {
+        this.resolutionCache = resolutionCache;
+    }
+
+    /**
+     * Specifies the policy for restarting resolutions that perform many unwinds without finding a resolution.
+     *
+     * @param restartPolicy Restart policy or {@code null} to disable restarts
+     */
+    public void setRestartPolicy(@Nullable final RestartPolicy restartPolicy) {
+        this.restartPolicy = restartPolicy;
+    }
+
+    /**
+     * Specifies the policy for performing work in parallel. Work is only performed in parallel if the specification
+     * provider is {@link SpecificationProvider#isThreadSafe() thread safe}. Independent components are only resolved
+     * in parallel if no checkpoint policy has been specified, because a checkpoint captures the state of a single
+     * resolution.
+     *
+     * @param parallelPolicy Parallel policy or {@code null} to perform all work on the calling thread
+     */
+    public void setParallelPolicy(@Nullable final ParallelPolicy parallelPolicy) {
+        this.parallelPolicy = parallelPolicy;
+    }
+
     /**
      * Performs the actual dependency resolution.
      *
@@ -58,8 +118,138 @@ public class Resolver<R, S> {
      */
     public DependencyGraph<S, R> resolve(final Set<R> requested, final DependencyGraph<R, R> base)
             throws ResolverError {
-        final Resolution<R, S> resolution = new Resolution<>(this.specificationProvider, this.resolverUI,
-                                                             requested, base);
+        final ResolutionCache<R, S> cache = this.resolutionCache;
+        final Optional<String> indexVersion = (cache == null) ? Optional.empty()
+                                                              : this.specificationProvider.indexVersion();
+        if (cache != null && indexVersion.isPresent()) {
+            final Optional<DependencyGraph<S, R>> cached = cache.get(requested, base, indexVersion.get());
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+
+        final DependencyGraph<S, R> result = resolveComponents(requested, base)
+                .orElseGet(() -> resolveSequentially(requested, base, this.resolverUI));
+
+        if (cache != null && indexVersion.isPresent()) {
+            cache.put(requested, base, indexVersion.get(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the specified requested dependencies using a single resolution on the calling thread.
+     *
+     * @param requested Dependencies to be resolved
+     * @param base Graph of dependencies whose versions are locked
+     * @param ui User interface for the resolution
+     * @return Graph of the resolved dependencies
+     * @throws ResolverError if there is an error trying to resolve the dependencies
+     */
+    private DependencyGraph<S, R> resolveSequentially(final Set<R> requested, final DependencyGraph<R, R> base,
+                                                      final UI ui) throws ResolverError {
+        final Resolution<R, S> resolution = new Resolution<>(this.specificationProvider, ui, requested, base);
+        resolution.setCheckpointPolicy(this.checkpointPolicy);
+        resolution.setRestartPolicy(this.restartPolicy);
+        resolution.setParallelPolicy(resolutionParallelPolicy());
+        return resolution.resolve();
+    }
+
+    /**
+     * Resolves the independent components of the specified requested dependencies concurrently, if the parallel
+     * policy allows it, and merges their results. If more than one component cannot be resolved, the error for the
+     * component containing the earliest requested dependency is thrown. If the results of the components cannot be
+     * merged, the requested dependencies are resolved together on the calling thread, and the user interface is told
+     * of the start and end of the resolution only once. All components have finished resolving when this method
+     * returns or throws.
+     *
+     * @param requested Dependencies to be resolved
+     * @param base Graph of dependencies whose versions are locked
+     * @return Graph of the resolved dependencies, or an empty optional if the components were not resolved, either
+     *      because the policies or the specification provider do not allow it, or because there is only one
+     *      component.
+     * @throws ResolverError if there is an error trying to resolve the dependencies
+     */
+    private Optional<DependencyGraph<S, R>> resolveComponents(final Set<R> requested,
+                                                              final DependencyGraph<R, R> base)
+            throws ResolverError {
+        final ParallelPolicy policy = this.parallelPolicy;
+        if (policy == null || this.checkpointPolicy != null || !this.specificationProvider.isThreadSafe()) {
+            return Optional.empty();
+        }
+
+        final List<Set<R>> components = Components.partition(this.specificationProvider, requested, base);
+        if (components.size() < 2) {
+            return Optional.empty();
+        }
+
+        final UI componentUI = new ComponentUI(this.resolverUI);
+        final List<CompletableFuture<DependencyGraph<S, R>>> tasks = new ArrayList<>();
+        this.resolverUI.beforeResolution();
+        try {
+            for (final Set<R> component : components) {
+                final Resolution<R, S> resolution = new Resolution<>(this.specificationProvider, componentUI,
+                                                                     component, base);
+                resolution.setRestartPolicy(this.restartPolicy);
+                resolution.setParallelPolicy(policy);
+                tasks.add(policy.submit(resolution::resolve));
+            }
+
+            final List<DependencyGraph<S, R>> results = new ArrayList<>();
+            for (final CompletableFuture<DependencyGraph<S, R>> task : tasks) {
+                results.add(ParallelPolicy.join(task));
+            }
+            final Optional<DependencyGraph<S, R>> merged = Components.merge(results);
+            if (merged.isPresent()) {
+                return merged;
+            }
+
+            // The components resolved a shared dependency differently, so resolve them together. The component user
+            // interface does not forward the start and end of the resolution, which have been indicated already.
+            return Optional.of(resolveSequentially(requested, base, componentUI));
+        } finally {
+            // A component may fail while others are still being resolved. Wait for them so that neither the
+            // specification provider nor the user interface is called once the resolution has ended.
+            ParallelPolicy.awaitAll(tasks);
+            this.resolverUI.afterResolution();
+        }
+    }
+
+    /**
+     * Obtains the parallel policy for a resolution performed by this resolver.
+     *
+     * @return Parallel policy of this resolver, or {@code null} if there is no policy or the specification provider
+     *      is not thread safe.
+     */
+    @Nullable
+    private ParallelPolicy resolutionParallelPolicy() {
+        return this.specificationProvider.isThreadSafe() ? this.parallelPolicy : null;
+    }
+
+    /**
+     * Resumes a dependency resolution from a checkpoint. The requested dependencies and locking graph are those
+     * of the resolution from which the checkpoint was taken. The specification provider must answer the same way
+     * it did when the checkpoint was taken for the resumed resolution to continue where it left off. Checkpoints
+     * continue to be taken according to the checkpoint policy.
+     *
+     * @param checkpoint Checkpoint from which to resume the resolution
+     * @return Graph of the resolved dependencies
+     * @throws ResolverError if there is an error trying to resolve the dependencies
+     * @throws IllegalStateException if a checkpoint policy has not been specified
+     * @throws IllegalArgumentException if the checkpoint could not be decoded using the codecs of the checkpoint
+     *      policy
+     */
+    public DependencyGraph<S, R> resume(final Checkpoint<R, S> checkpoint) throws ResolverError {
+        final CheckpointPolicy<R, S> policy = this.checkpointPolicy;
+        if (policy == null) {
+            throw new IllegalStateException("A checkpoint policy must be specified to resume a resolution");
+        }
+
+        final Resolution<R, S> resolution = CheckpointSerializer.read(checkpoint, policy, this.specificationProvider,
+                                                                      this.resolverUI);
+        resolution.setCheckpointPolicy(policy);
+        resolution.setRestartPolicy(this.restartPolicy);
+        resolution.setParallelPolicy(resolutionParallelPolicy());
         return resolution.resolve();
     }
 }
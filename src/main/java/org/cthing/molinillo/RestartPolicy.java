@@ -0,0 +1,129 @@
+package org.cthing.molinillo;
+
+/**
+ * Specifies when an in-progress resolution is restarted. A resolution that makes a poor choice early on can spend a
+ * long time exploring the consequences of that choice, because it only ever backtracks to the most recent choice
+ * that might resolve a conflict. Restarting the resolution after a number of unwinds gives it the opportunity to
+ * make different choices.
+ *
+ * <p>
+ * The number of unwinds allowed before each restart follows the Luby sequence (1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...)
+ * multiplied by the unit of the policy. Because the sequence is unbounded, every resolution is eventually allowed to
+ * run for as long as it needs, so restarts do not prevent a resolution from being found or from being proven
+ * impossible. The first attempt orders requirements exactly as a resolution without a restart policy does. Each
+ * restart perturbs the order of the requirements that the specification provider considers equivalent, and starts
+ * with the conflicts encountered so far, which the provider uses to order the requirements involved in them first.
+ * The specification provider is reused, so any data it caches is retained across restarts.
+ * </p>
+ *
+ * <p>
+ * A restart discards the resolution progress, so when a solution exists that is not unique, a resolution that has
+ * been restarted may find a different, equally valid, solution. The number of restarts performed so far is not
+ * included in a {@link Checkpoint}, so a resumed resolution begins the restart schedule anew.
+ * </p>
+ */
+public final class RestartPolicy {
+
+    private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+
+    private final int unit;
+    private final long seed;
+
+    /**
+     * Constructs a restart policy with a fixed seed, so that restarted resolutions are reproducible.
+     *
+     * @param unit Number of unwinds corresponding to one unit of the Luby sequence. Must be greater than zero.
+     */
+    public RestartPolicy(final int unit) {
+        this(unit, 0L);
+    }
+
+    /**
+     * Constructs a restart policy.
+     *
+     * @param unit Number of unwinds corresponding to one unit of the Luby sequence. Must be greater than zero.
+     * @param seed Seed from which the perturbation of the requirement order is derived for each restart
+     */
+    public RestartPolicy(final int unit, final long seed) {
+        if (unit <= 0) {
+            throw new IllegalArgumentException("Restart unit must be greater than zero");
+        }
+
+        this.unit = unit;
+        this.seed = seed;
+    }
+
+    /**
+     * Obtains the number of unwinds corresponding to one unit of the Luby sequence.
+     *
+     * @return Restart unit.
+     */
+    public int getUnit() {
+        return this.unit;
+    }
+
+    /**
+     * Obtains the seed from which the perturbation of the requirement order is derived.
+     *
+     * @return Perturbation seed.
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Obtains the number of unwinds after which the resolution is restarted.
+     *
+     * @param restarts Number of restarts performed so far
+     * @return Number of unwinds performed since the previous restart, or since the start of the resolution, after
+     *      which the resolution is restarted.
+     */
+    public long unwindsBeforeRestart(final int restarts) {
+        return luby(restarts + 1) * this.unit;
+    }
+
+    /**
+     * Obtains the seed used to perturb the order of equivalent requirements after the specified number of restarts.
+     *
+     * @param restarts Number of restarts performed so far
+     * @return Perturbation seed, which is zero, indicating no perturbation, if no restarts have been performed.
+     */
+    long perturbation(final int restarts) {
+        if (restarts == 0) {
+            return 0L;
+        }
+
+        long z = this.seed + restarts * SEED_INCREMENT;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return z == 0L ? 1L : z;
+    }
+
+    /**
+     * Obtains the specified element of the Luby sequence. The sequence is made up of repetitions of its own prefix,
+     * each followed by the next power of two: 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ...
+     *
+     * @param index One-based index of the element. Must be greater than zero.
+     * @return Element of the Luby sequence.
+     */
+    static long luby(final int index) {
+        if (index <= 0) {
+            throw new IllegalArgumentException("Luby sequence index must be greater than zero");
+        }
+
+        // Element 2^k - 1 is 2^(k - 1). Any other element repeats the element whose index is obtained by removing
+        // the preceding complete subsequence of length 2^(k - 1) - 1.
+        long i = index;
+        while (true) {
+            int k = 1;
+            while ((1L << k) - 1 < i) {
+                k++;
+            }
+            if ((1L << k) - 1 == i) {
+                return 1L << (k - 1);
+            }
+            i -= (1L << (k - 1)) - 1;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package org.cthing.molinillo;
 
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 
@@ -25,6 +29,32 @@ public interface SpecificationProvider<R, S> {
      */
     List<S> searchFor(R dependency);
 
+    /**
+     * Searches for the specifications that match the given dependency, providing them newest first (i.e. in the
+     * reverse of the order returned by {@link #searchFor(Object)}). The resolver only consumes as many
+     * specifications as it needs, which is typically the newest few, so a provider backed by a large index can
+     * produce the older specifications on demand rather than up front. By default, the list returned by
+     * {@link #searchFor(Object)} is iterated in reverse. This method should only depend on the specified dependency.
+     *
+     * @param dependency Dependency to match
+     * @return Specifications that satisfy the specified dependency, newest first.
+     */
+    default Iterator<S> searchForNewestFirst(final R dependency) {
+        final List<S> specifications = searchFor(dependency);
+        final ListIterator<S> iterator = specifications.listIterator(specifications.size());
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasPrevious();
+            }
+
+            @Override
+            public S next() {
+                return iterator.previous();
+            }
+        };
+    }
+
     /**
      * Provides the dependencies from the specified specification. Note that this method should only depend on the
      * specified specification.
@@ -98,6 +128,42 @@ public interface SpecificationProvider<R, S> {
     List<R> sortDependencies(List<R> dependencies, DependencyGraph<Payload<R, S>, R> activated,
                              Map<String, Conflict<R, S>> conflicts);
 
+    /**
+     * Provides a comparator that orders dependencies from easiest to hardest to resolve, as an alternative to
+     * {@link #sortDependencies(List, DependencyGraph, Map)}. When a comparator is provided, the resolver keeps the
+     * outstanding dependencies in order incrementally rather than sorting all of them each time new dependencies are
+     * required. Only the new dependencies, and the dependencies whose status has changed since they were last
+     * ordered, are sorted and merged into the existing order.
+     *
+     * <p>
+     * To allow this, the comparator may only base its ordering of a dependency on the dependency itself, on the
+     * vertex in the activated graph whose name is that of the dependency (e.g. whether the vertex has a payload),
+     * and on whether the conflicts contain an entry for that name. Sorting dependencies with the comparator must
+     * produce the same order as {@link #sortDependencies(List, DependencyGraph, Map)}. By default, no comparator is
+     * provided and the dependencies are sorted using {@link #sortDependencies(List, DependencyGraph, Map)}.
+     * </p>
+     *
+     * @param activated Current dependency graph
+     * @param conflicts Resolution conflicts
+     * @return Comparator that orders dependencies from easiest to hardest to resolve, if supported by the provider.
+     */
+    default Optional<Comparator<R>> dependencyComparator(final DependencyGraph<Payload<R, S>, R> activated,
+                                                         final Map<String, Conflict<R, S>> conflicts) {
+        return Optional.empty();
+    }
+
+    /**
+     * Provides the algebra used to combine requirements and to detect requirements that cannot be satisfied together
+     * without testing each candidate specification. By default, no algebra is provided and the resolver detects
+     * incompatible requirements by testing candidates using
+     * {@link #requirementSatisfiedBy(Object, DependencyGraph, Object)}.
+     *
+     * @return Algebra on the requirements of this provider, if supported by the provider.
+     */
+    default Optional<RangeAlgebra<R>> rangeAlgebra() {
+        return Optional.empty();
+    }
+
     /**
      * Indicates whether the specified dependency, which has no possible matching specifications, can be safely
      * skipped.
@@ -106,4 +172,27 @@ public interface SpecificationProvider<R, S> {
      * @return {@code true} if the specified dependency can be safely skipped.
      */
     boolean allowMissing(R dependency);
+
+    /**
+     * Provides a version identifier for the index of specifications consulted by this provider. The identifier must
+     * change whenever the answers given by the provider could change (e.g. a new specification is published). It
+     * allows the result of a resolution to be cached and reused by a {@link ResolutionCache} for as long as the index
+     * is unchanged. By default, no version is provided and resolution results are not cached.
+     *
+     * @return Version of the specification index, if available.
+     */
+    default Optional<String> indexVersion() {
+        return Optional.empty();
+    }
+
+    /**
+     * Indicates whether the methods of this provider may be called concurrently from multiple threads. A thread safe
+     * provider allows a resolver with a {@link ParallelPolicy} to perform work in parallel. By default, a provider is
+     * not considered to be thread safe, and all calls to it are made from the thread performing the resolution.
+     *
+     * @return {@code true} if the methods of this provider may be called concurrently.
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
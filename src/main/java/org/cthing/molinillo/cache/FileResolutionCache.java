@@ -0,0 +1,353 @@
+package org.cthing.molinillo.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.cthing.molinillo.DependencyGraph;
+import org.cthing.molinillo.DependencyGraphCodec;
+import org.cthing.molinillo.ResolutionCache;
+import org.cthing.molinillo.errors.CircularDependencyError;
+import org.cthing.molinillo.graph.Edge;
+import org.cthing.molinillo.graph.Vertex;
+import org.cthing.molinillo.io.BinaryIO;
+import org.cthing.molinillo.io.Codec;
+
+
+/**
+ * Resolution cache that stores each result in its own file within a directory, so that results can be shared
+ * between builds and between processes.
+ *
+ * <p>
+ * An entry is named by the SHA-256 hash of a canonical encoding of the index version, the requested dependencies and
+ * the locking graph. The encoding does not depend on the iteration order of the requested dependencies or of the
+ * graph, but it does depend on the bytes produced by the codecs, so the codecs must encode equal values identically
+ * for the keys to be stable across processes. Entries are written to a temporary file and atomically moved into
+ * place, so a reader never observes a partially written entry. The resolved graph of an entry is written using a
+ * {@link DependencyGraphCodec} followed by a checksum. Entries that cannot be decoded are treated as misses and are
+ * removed. The cache is best effort: entries that cannot be read are treated as misses, and results that cannot be
+ * written are not stored, so problems with the cache directory never cause a resolution to fail.
+ * </p>
+ *
+ * <p>
+ * The total size of the entries is bounded. When a new entry causes the bound to be exceeded, the least recently
+ * used entries, according to their last modified time which is updated on every hit, are removed until the cache is
+ * within its bound again.
+ * </p>
+ *
+ * @param <R> Requirement type
+ * @param <S> Specification type
+ */
+public final class FileResolutionCache<R, S> implements ResolutionCache<R, S> {
+
+    private static final int VERSION = 1;
+    private static final String ENTRY_SUFFIX = ".graph";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Cache entry file together with the attributes used for eviction.
+     *
+     * @param path Location of the entry
+     * @param size Size of the entry in bytes
+     * @param lastUsed Time the entry was last written or read
+     */
+    private record Entry(Path path, long size, FileTime lastUsed) {
+    }
+
+    private final Path directory;
+    private final long maxSize;
+    private final Codec<R> requirementCodec;
+    private final DependencyGraphCodec<S, R> graphCodec;
+
+    /**
+     * Constructs a cache that stores its entries in the specified directory. The directory is created when the first
+     * entry is stored, if it does not already exist.
+     *
+     * @param directory Directory in which to store the cache entries
+     * @param maxSize Maximum total size of the cache entries, in bytes. Must be greater than zero.
+     * @param requirementCodec Encodes and decodes requirements
+     * @param specificationCodec Encodes and decodes specifications
+     */
+    public FileResolutionCache(final Path directory, final long maxSize, final Codec<R> requirementCodec,
+                               final Codec<S> specificationCodec) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be greater than zero");
+        }
+
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.requirementCodec = requirementCodec;
+        this.graphCodec = new DependencyGraphCodec<>(specificationCodec, requirementCodec);
+    }
+
+    /**
+     * Obtains the directory in which the cache entries are stored.
+     *
+     * @return Cache directory.
+     */
+    public Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Obtains the maximum total size of the cache entries.
+     *
+     * @return Maximum size of the cache, in bytes.
+     */
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * An entry that cannot be read or decoded is treated as a miss.
+     * </p>
+     */
+    @Override
+    public Optional<DependencyGraph<S, R>> get(final Set<R> requested, final DependencyGraph<R, R> base,
+                                               final String indexVersion) {
+        final Path entry = entryPath(requested, base, indexVersion);
+
+        final byte[] data;
+        try {
+            data = Files.readAllBytes(entry);
+        } catch (final IOException ex) {
+            // Either there is no entry, or it could not be read, for example because it was evicted by another
+            // process while being read. Either way, the resolution is performed.
+            return Optional.empty();
+        }
+
+        final DependencyGraph<S, R> graph;
+        try {
+            graph = readGraph(data);
+        } catch (final IOException | CircularDependencyError ex) {
+            delete(entry);
+            return Optional.empty();
+        }
+
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (final IOException ex) {
+            // The entry was evicted by another process after it was read, which does not affect this hit.
+        }
+
+        return Optional.of(graph);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The result is not stored if the entry cannot be written, for example because the cache directory cannot be
+     * created or the disk is full.
+     * </p>
+     */
+    @Override
+    public void put(final Set<R> requested, final DependencyGraph<R, R> base, final String indexVersion,
+                    final DependencyGraph<S, R> result) {
+        final Path entry = entryPath(requested, base, indexVersion);
+
+        try {
+            final byte[] data = writeGraph(result);
+
+            Files.createDirectories(this.directory);
+            final Path temp = Files.createTempFile(this.directory, entry.getFileName().toString(), TEMP_SUFFIX);
+            try {
+                Files.write(temp, data);
+                try {
+                    Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (final AtomicMoveNotSupportedException ex) {
+                    Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            evict();
+        } catch (final IOException ex) {
+            // Caching is an optimization, so failing to store the result must not fail the resolution.
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the total size of the entries is within the maximum size of the
+     * cache.
+     *
+     * @throws IOException if the cache directory could not be listed
+     */
+    private void evict() throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        long totalSize = 0;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + ENTRY_SUFFIX)) {
+            for (final Path path : stream) {
+                try {
+                    final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    entries.add(new Entry(path, attributes.size(), attributes.lastModifiedTime()));
+                    totalSize += attributes.size();
+                } catch (final NoSuchFileException ex) {
+                    // Removed by another process while listing.
+                }
+            }
+        }
+
+        entries.sort(Comparator.comparing(Entry::lastUsed));
+        for (int i = 0; i < entries.size() && totalSize > this.maxSize; i++) {
+            final Entry entry = entries.get(i);
+            delete(entry.path());
+            totalSize -= entry.size();
+        }
+    }
+
+    /**
+     * Determines the location of the entry for the specified resolution.
+     *
+     * @param requested Dependencies that were requested
+     * @param base Graph of dependencies whose versions were locked
+     * @param indexVersion Version of the specification index
+     * @return Location of the cache entry.
+     */
+    private Path entryPath(final Set<R> requested, final DependencyGraph<R, R> base, final String indexVersion) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(VERSION);
+            BinaryIO.writeString(output, indexVersion);
+
+            final List<byte[]> requirements = new ArrayList<>();
+            for (final R requirement : requested) {
+                requirements.add(encode(this.requirementCodec, requirement));
+            }
+            writeSorted(requirements, output);
+
+            final List<Vertex<R, R>> vertices = new ArrayList<>(base.getVertices().values());
+            vertices.sort(Comparator.comparing(Vertex::getName));
+            BinaryIO.writeVarInt(output, vertices.size());
+            for (final Vertex<R, R> vertex : vertices) {
+                BinaryIO.writeString(output, vertex.getName());
+                output.writeBoolean(vertex.isRoot());
+                final R payload = vertex.getPayload().orElse(null);
+                output.writeBoolean(payload != null);
+                if (payload != null) {
+                    writeBytes(encode(this.requirementCodec, payload), output);
+                }
+
+                final List<byte[]> explicitRequirements = new ArrayList<>();
+                for (final R requirement : vertex.getExplicitRequirements()) {
+                    explicitRequirements.add(encode(this.requirementCodec, requirement));
+                }
+                writeSorted(explicitRequirements, output);
+
+                final List<byte[]> edges = new ArrayList<>();
+                for (final Edge<R, R> edge : vertex.getOutgoingEdges()) {
+                    final ByteArrayOutputStream edgeBytes = new ByteArrayOutputStream();
+                    final DataOutputStream edgeOutput = new DataOutputStream(edgeBytes);
+                    BinaryIO.writeString(edgeOutput, edge.getDestination().getName());
+                    writeBytes(encode(this.requirementCodec, edge.getRequirement()), edgeOutput);
+                    edges.add(edgeBytes.toByteArray());
+                }
+                writeSorted(edges, output);
+            }
+
+            output.flush();
+            digest.update(bytes.toByteArray());
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        final String key = HexFormat.of().formatHex(digest.digest());
+        return this.directory.resolve(key + ENTRY_SUFFIX);
+    }
+
+    /**
+     * Encodes the specified resolved dependency graph.
+     *
+     * @param graph Graph to encode
+     * @return Encoded graph.
+     * @throws IOException if a codec could not write a value
+     */
+    private byte[] writeGraph(final DependencyGraph<S, R> graph) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        this.graphCodec.write(graph, bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a resolved dependency graph.
+     *
+     * @param data Encoded graph
+     * @return Decoded graph.
+     * @throws IOException if the data is not a valid encoded graph
+     * @throws CircularDependencyError if the edges of the decoded graph form a cycle
+     */
+    private DependencyGraph<S, R> readGraph(final byte[] data) throws IOException {
+        final ByteArrayInputStream input = new ByteArrayInputStream(data);
+        final DependencyGraph<S, R> graph = this.graphCodec.read(input);
+        if (input.available() > 0) {
+            throw new IOException("Resolution cache entry has trailing data");
+        }
+        return graph;
+    }
+
+    private static <T> byte[] encode(final Codec<T> codec, final T value) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        codec.write(value, output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeSorted(final List<byte[]> values, final DataOutputStream output) throws IOException {
+        values.sort(Arrays::compare);
+        BinaryIO.writeVarInt(output, values.size());
+        for (final byte[] value : values) {
+            writeBytes(value, output);
+        }
+    }
+
+    private static void writeBytes(final byte[] value, final DataOutputStream output) throws IOException {
+        BinaryIO.writeVarInt(output, value.length);
+        output.write(value);
+    }
+
+    private static void delete(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException ex) {
+            // Another process may be using the entry. It will be removed by a later eviction.
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileResolutionCache { directory=" + this.directory + ", maxSize=" + this.maxSize + " }";
+    }
+}
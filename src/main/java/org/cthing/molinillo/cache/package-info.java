@@ -0,0 +1,7 @@
+/**
+ * Caching of resolution results across resolver invocations.
+ */
+@NullMarked
+package org.cthing.molinillo.cache;
+
+import org.jspecify.annotations.NullMarked;
@@ -3,6 +3,7 @@ package org.cthing.molinillo.errors;
 import java.io.Serial;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -36,6 +37,15 @@ public class CircularDependencyError extends ResolverError {
         this.vertices = new ArrayList<>(vertices);
     }
 
+    /**
+     * Obtains the vertices comprising the circular path.
+     *
+     * @return Vertices comprising the circular path.
+     */
+    public Collection<Vertex<?, ?>> getVertices() {
+        return Collections.unmodifiableCollection(this.vertices);
+    }
+
     /**
      * Obtains the non-null payloads in the vertices associated with the error.
      *
@@ -1,20 +1,22 @@
 package org.cthing.molinillo.graph;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 
 import org.cthing.molinillo.DependencyGraph;
-import org.jspecify.annotations.Nullable;
 
 
 /**
  * Action to detach a vertex from the dependency graph. Detaching a vertex removes the vertex from the graph and
- * deletes all its incoming and outgoing edges. Any non-root orphaned vertices are also removed. Note that the
- * {@link #up(DependencyGraph)} method recursively invokes the {@link DependencyGraph#detachVertexNamed(String)}
- * method to remove orphaned vertices. This means that a single call to the {@link #up(DependencyGraph)} cannot
- * necessarily be fully undone with a single call to the {@link #down(DependencyGraph)} method. The action log
- * might need to be popped to full restore the state of the dependency graph.
+ * deletes all its incoming and outgoing edges. Any non-root vertices orphaned by the removal are also removed, as are
+ * any vertices orphaned in turn by their removal. The orphaned vertices are found iteratively, without recursion, and
+ * are removed as part of this action rather than by separately logged actions. Therefore, a single call to the
+ * {@link #down(DependencyGraph)} method fully restores the state of the dependency graph.
  *
  * @param <P> Payload type
  * @param <R> Requirement type
@@ -23,8 +25,7 @@ public class DetachVertexNamed<P, R> extends Action<P, R, List<Vertex<P, R>>> {
 
     private final String name;
 
-    @Nullable
-    private Vertex<P, R> vertex;
+    private List<Vertex<P, R>> removedVertices;
 
     /**
      * Constructs the action.
@@ -33,6 +34,7 @@ public class DetachVertexNamed<P, R> extends Action<P, R, List<Vertex<P, R>>> {
      */
     public DetachVertexNamed(final String name) {
         this.name = name;
+        this.removedVertices = List.of();
     }
 
     /**
@@ -44,41 +46,72 @@ public class DetachVertexNamed<P, R> extends Action<P, R, List<Vertex<P, R>>> {
         return this.name;
     }
 
+    /**
+     * Obtains the vertices removed from the graph the last time the action was executed.
+     *
+     * @return Unmodifiable list of the removed vertices. The first vertex is the detached vertex, followed by the
+     *      orphaned vertices in the order they were removed. Empty if the action has not been executed or the vertex
+     *      was not in the graph.
+     */
+    public List<Vertex<P, R>> getRemovedVertices() {
+        return this.removedVertices;
+    }
+
     @Override
     public List<Vertex<P, R>> up(final DependencyGraph<P, R> graph) {
-        this.vertex = graph.getVertices().remove(this.name);
-        if (this.vertex == null) {
-            return List.of();
+        final Vertex<P, R> vertex = graph.getVertices().remove(this.name);
+        if (vertex == null) {
+            this.removedVertices = List.of();
+            return this.removedVertices;
         }
 
-        final List<Vertex<P, R>> removedVertices = new ArrayList<>();
-        removedVertices.add(this.vertex);
+        final List<Vertex<P, R>> removed = new ArrayList<>();
+        removed.add(vertex);
+
+        // Depth first traversal of the outgoing edges of the removed vertices. A destination vertex is orphaned once
+        // its last incoming edge is removed, at which point it is removed and its outgoing edges are traversed.
+        final Deque<Iterator<Edge<P, R>>> pending = new ArrayDeque<>();
+        pending.push(vertex.getOutgoingEdges().iterator());
+        while (!pending.isEmpty()) {
+            final Iterator<Edge<P, R>> edges = pending.getFirst();
+            if (!edges.hasNext()) {
+                pending.pop();
+                continue;
+            }
 
-        this.vertex.getOutgoingEdges().forEach(edge -> {
-            final Vertex<P, R> v = edge.getDestination();
-            v.getIncomingEdges().remove(edge);
-            if (!v.isRoot() && v.getIncomingEdges().isEmpty()) {
-                removedVertices.addAll(graph.detachVertexNamed(v.getName()));
+            final Edge<P, R> edge = edges.next();
+            final Vertex<P, R> destination = edge.getDestination();
+            destination.getIncomingEdges().remove(edge);
+            if (!destination.isRoot() && destination.getIncomingEdges().isEmpty()) {
+                graph.getVertices().remove(destination.getName());
+                removed.add(destination);
+                pending.push(destination.getOutgoingEdges().iterator());
             }
-        });
+        }
 
-        this.vertex.getIncomingEdges().forEach(edge -> {
-            final Vertex<P, R> v = edge.getOrigin();
-            v.getOutgoingEdges().remove(edge);
-        });
+        // Only the detached vertex can have incoming edges, because the orphaned vertices have none left.
+        for (final Edge<P, R> edge : vertex.getIncomingEdges()) {
+            edge.getOrigin().getOutgoingEdges().remove(edge);
+        }
 
-        return removedVertices;
+        this.removedVertices = Collections.unmodifiableList(removed);
+        return this.removedVertices;
     }
 
     @Override
     public void down(final DependencyGraph<P, R> graph) {
-        if (this.vertex == null) {
-            return;
+        // Restore the vertices in the reverse order of their removal, so that the edges are reinstated in the order
+        // in which they were added.
+        for (int i = this.removedVertices.size() - 1; i >= 0; i--) {
+            final Vertex<P, R> vertex = this.removedVertices.get(i);
+            graph.getVertices().put(vertex.getName(), vertex);
+            for (final Edge<P, R> edge : vertex.getOutgoingEdges()) {
+                edge.getDestination().getIncomingEdges().add(edge);
+            }
+            for (final Edge<P, R> edge : vertex.getIncomingEdges()) {
+                edge.getOrigin().getOutgoingEdges().add(edge);
+            }
         }
-
-        graph.getVertices().put(this.vertex.getName(), this.vertex);
-        this.vertex.getOutgoingEdges().forEach(edge -> edge.getDestination().getIncomingEdges().add(edge));
-        this.vertex.getIncomingEdges().forEach(edge -> edge.getOrigin().getOutgoingEdges().add(edge));
     }
 
     @Override
@@ -1,8 +1,13 @@
 package org.cthing.molinillo.graph;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 
 import org.cthing.molinillo.DependencyGraph;
 import org.jspecify.annotations.Nullable;
@@ -22,6 +27,8 @@ public class Log<P, R> implements Iterable<Action<P, R, ?>> {
     @Nullable
     private Action<P, R, ?> firstAction;
 
+    private long modificationCount;
+
     /**
      * Tags the current state of the dependency graph for possible undo.
      *
@@ -68,7 +75,7 @@ public class Log<P, R> implements Iterable<Action<P, R, ?>> {
 
     /**
      * Removes the specified vertex from the dependency graph, all edges related to it and any orphaned non-root
-     * vertices.
+     * vertices. The removal is logged as a single action, so it is undone in a single step.
      *
      * @param graph Dependency graph from which the vertex is to be removed
      * @param name Name of the vertex to remove
@@ -103,6 +110,56 @@ public class Log<P, R> implements Iterable<Action<P, R, ?>> {
         pushAction(graph, new SetPayload<>(name, payload));
     }
 
+    /**
+     * Obtains the most recently executed action in the log. An action's link to its predecessor is retained even
+     * after the action is undone, so the action identifies the history of the graph up to this point regardless of
+     * subsequent changes to the log (see {@link #payloadsAt(Action)}).
+     *
+     * @return Most recent action in the log, if any.
+     */
+    public Optional<Action<P, R, ?>> getCurrentAction() {
+        return Optional.ofNullable(this.currentAction);
+    }
+
+    /**
+     * Reconstructs the payloads of the vertices in the graph as they were immediately after the specified action
+     * was executed. The reconstruction replays the history leading up to and including the action, so it does not
+     * depend on the current contents of the graph or of the log.
+     *
+     * @param action Last action whose effects are to be included
+     * @return Payloads of the vertices in the graph keyed by vertex name. Vertices without a payload are not
+     *      included.
+     * @param <P> Payload type
+     * @param <R> Requirement type
+     */
+    @SuppressWarnings("unchecked")
+    public static <P, R> Map<String, P> payloadsAt(final Action<P, R, ?> action) {
+        final Deque<Action<P, R, ?>> history = new ArrayDeque<>();
+        for (Action<P, R, ?> a = action; a != null; a = a.getPrevious()) {
+            history.push(a);
+        }
+
+        final Map<String, P> payloads = new HashMap<>();
+        for (final Action<P, R, ?> a : history) {
+            if (a instanceof final AddVertex<?, ?> addVertex) {
+                final Optional<P> payload = (Optional<P>)addVertex.getPayload();
+                payload.ifPresent(p -> payloads.putIfAbsent(addVertex.getName(), p));
+            } else if (a instanceof final SetPayload<?, ?> setPayload) {
+                final Optional<P> payload = (Optional<P>)setPayload.getPayload();
+                if (payload.isPresent()) {
+                    payloads.put(setPayload.getName(), payload.get());
+                } else {
+                    payloads.remove(setPayload.getName());
+                }
+            } else if (a instanceof final DetachVertexNamed<?, ?> detachVertex) {
+                for (final Vertex<?, ?> vertex : detachVertex.getRemovedVertices()) {
+                    payloads.remove(vertex.getName());
+                }
+            }
+        }
+        return payloads;
+    }
+
     @Override
     public Iterator<Action<P, R, ?>> iterator() {
         return new Iterator<>() {
@@ -126,6 +183,17 @@ public class Log<P, R> implements Iterable<Action<P, R, ?>> {
         };
     }
 
+    /**
+     * Obtains the number of times the dependency graph has been modified by executing or undoing an action. Tags do
+     * not modify the graph, so are not counted. The count can be used to determine whether information derived from
+     * the graph is still current.
+     *
+     * @return Number of modifications made to the graph through this log.
+     */
+    public long getModificationCount() {
+        return this.modificationCount;
+    }
+
     /**
      * Removes the most recent action from the log and undoes its execution.
      *
@@ -142,8 +210,11 @@ public class Log<P, R> implements Iterable<Action<P, R, ?>> {
         this.currentAction = action.getPrevious();
         if (this.currentAction == null) {
             this.firstAction = null;
+        } else {
+            this.currentAction.setNext(null);
         }
 
+        countModification(action);
         action.down(graph);
         return action;
     }
@@ -167,6 +238,18 @@ public class Log<P, R> implements Iterable<Action<P, R, ?>> {
             this.firstAction = action;
         }
 
+        countModification(action);
         return action.up(graph);
     }
+
+    /**
+     * Counts the execution or undo of the specified action as a modification of the graph, unless it is a tag.
+     *
+     * @param action Action being executed or undone
+     */
+    private void countModification(final Action<P, R, ?> action) {
+        if (!(action instanceof Tag)) {
+            this.modificationCount++;
+        }
+    }
 }
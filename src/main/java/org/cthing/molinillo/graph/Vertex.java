@@ -1,11 +1,16 @@
 package org.cthing.molinillo.graph;
 
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.jspecify.annotations.Nullable;
 
@@ -13,7 +18,8 @@ import org.jspecify.annotations.Nullable;
 /**
  * Represents a vertex in the dependency graph. A vertex contains a set of edges that point inward from other
  * vertices and a set of edges that point outward to other vertices. A vertex may contain a payload and may
- * have requirements set on it.
+ * have requirements set on it. The combined requirements of the vertex and its incoming edges are maintained as
+ * requirements and edges are added and removed, so obtaining them does not require any computation.
  *
  * @param <P> Payload type
  * @param <R> Requirement type
@@ -30,6 +36,11 @@ public class Vertex<P, R> {
     private final Set<Edge<P, R>> outgoingEdges;
     private final Set<Edge<P, R>> incomingEdges;
 
+    // Number of explicit requirements and incoming edges contributing each of the combined requirements. A hash map
+    // is used so that the requirements are iterated in the same order as a hash set of them.
+    private final Map<R, Integer> requirementCounts;
+    private final Set<R> requirements;
+
     /**
      * Constructs a vertex with the specified name and payload.
      *
@@ -40,9 +51,11 @@ public class Vertex<P, R> {
         this.name = name;
         this.payload = payload;
         this.root = false;
-        this.explicitRequirements = new LinkedHashSet<>();
+        this.requirementCounts = new HashMap<>();
+        this.requirements = Collections.unmodifiableSet(this.requirementCounts.keySet());
+        this.explicitRequirements = new RequirementSourceSet<>(Function.identity());
         this.outgoingEdges = new LinkedHashSet<>();
-        this.incomingEdges = new LinkedHashSet<>();
+        this.incomingEdges = new RequirementSourceSet<>(Edge::getRequirement);
     }
 
     /**
@@ -129,12 +142,11 @@ public class Vertex<P, R> {
     /**
      * Obtains the combined requirements of this vertex and all incoming edges.
      *
-     * @return Requirements of this vertex and all incoming edges.
+     * @return Unmodifiable view of the requirements of this vertex and all incoming edges. The view reflects
+     *      subsequent changes to the requirements and incoming edges of the vertex.
      */
     public Set<R> requirements() {
-        final Stream<R> requirements1 = this.incomingEdges.stream().map(Edge::getRequirement);
-        final Stream<R> requitements2 = this.explicitRequirements.stream();
-        return Stream.concat(requirements1, requitements2).collect(Collectors.toSet());
+        return this.requirements;
     }
 
     /**
@@ -214,4 +226,85 @@ public class Vertex<P, R> {
     public int hashCode() {
         return Objects.hash(this.name);
     }
+
+    /**
+     * Set of the sources of requirements on the vertex (i.e. explicit requirements or incoming edges), which updates
+     * the combined requirements of the vertex as sources are added and removed.
+     *
+     * @param <E> Type of the requirement sources
+     */
+    private final class RequirementSourceSet<E> extends AbstractSet<E> {
+
+        private final Set<E> sources;
+        private final Function<E, R> requirementOf;
+
+        RequirementSourceSet(final Function<E, R> requirementOf) {
+            this.sources = new LinkedHashSet<>();
+            this.requirementOf = requirementOf;
+        }
+
+        @Override
+        public boolean add(final E source) {
+            if (!this.sources.add(source)) {
+                return false;
+            }
+            Vertex.this.requirementCounts.merge(this.requirementOf.apply(source), 1, Integer::sum);
+            return true;
+        }
+
+        @Override
+        public boolean remove(final Object obj) {
+            if (!this.sources.remove(obj)) {
+                return false;
+            }
+            // The object is equal to a member of the set, so it is a requirement source.
+            @SuppressWarnings("unchecked")
+            final E source = (E)obj;
+            removeRequirement(source);
+            return true;
+        }
+
+        @Override
+        public boolean contains(final Object obj) {
+            return this.sources.contains(obj);
+        }
+
+        @Override
+        public int size() {
+            return this.sources.size();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            final Iterator<E> iterator = this.sources.iterator();
+            return new Iterator<>() {
+                @Nullable
+                private E current;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    final E source = iterator.next();
+                    this.current = source;
+                    return source;
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                    removeRequirement(Objects.requireNonNull(this.current));
+                    this.current = null;
+                }
+            };
+        }
+
+        private void removeRequirement(final E source) {
+            Vertex.this.requirementCounts.computeIfPresent(this.requirementOf.apply(source),
+                                                           (requirement, count) -> count == 1 ? null : count - 1);
+        }
+    }
 }
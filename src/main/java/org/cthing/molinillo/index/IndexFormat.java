@@ -0,0 +1,30 @@
+package org.cthing.molinillo.index;
+
+/**
+ * Constants describing the binary specification index file format. The format is designed to be memory-mapped and
+ * searched in place, so all integers are written as fixed size, big-endian 32-bit values and all strings are written
+ * as their UTF-8 byte count followed by the bytes. Names are recorded in ascending order of their UTF-8 bytes,
+ * compared as unsigned values, and the table at the end of the file locates each name record so that a name can be
+ * found using a binary search. The specifications of a name are recorded oldest first. The dependencies of each
+ * specification are preceded by their size in bytes so that they can be skipped without being decoded.
+ *
+ * <pre>
+ * index          := MAGIC VERSION nameRecord* nameTable tableOffset
+ * nameRecord     := name count specification*
+ * specification  := version dependencySize count dependency*
+ * dependency     := name requirement
+ * nameTable      := count nameRecordOffset*
+ * </pre>
+ */
+final class IndexFormat {
+
+    static final int MAGIC = 0x4D4C5349;        // "MLSI"
+    static final int VERSION = 1;
+
+    static final int INT_SIZE = Integer.BYTES;
+    static final int HEADER_SIZE = 2 * INT_SIZE;
+    static final int TRAILER_SIZE = INT_SIZE;
+
+    private IndexFormat() {
+    }
+}
@@ -0,0 +1,103 @@
+package org.cthing.molinillo.index;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.cthing.molinillo.AbstractSpecificationProvider;
+
+
+/**
+ * Specification provider backed by a {@link SpecificationIndex}. The index stores versions and requirements as
+ * strings, so subclasses provide their interpretation by creating dependencies from the requirements stored in the
+ * index and by determining whether a dependency allows a specification. Subclasses must also implement
+ * {@link #requirementSatisfiedBy(Object, org.cthing.molinillo.DependencyGraph, Object)}.
+ *
+ * <p>
+ * The specifications of a name are read from the index the first time the name is searched for, and the dependencies
+ * of a specification are decoded and converted the first time they are requested. Both are retained for the lifetime
+ * of the provider, so that only the portion of the index visited by a resolution is ever decoded.
+ * </p>
+ *
+ * @param <R> Requirement type
+ */
+public abstract class IndexSpecificationProvider<R> extends AbstractSpecificationProvider<R, IndexedSpecification> {
+
+    private final SpecificationIndex index;
+    private final Map<String, List<IndexedSpecification>> specifications;
+    private final Map<IndexedSpecification, Set<R>> dependencies;
+
+    /**
+     * Constructs a provider for the specified index.
+     *
+     * @param index Index providing the specifications
+     */
+    protected IndexSpecificationProvider(final SpecificationIndex index) {
+        this.index = index;
+        this.specifications = new HashMap<>();
+        this.dependencies = new HashMap<>();
+    }
+
+    /**
+     * Obtains the index providing the specifications.
+     *
+     * @return Index providing the specifications.
+     */
+    public SpecificationIndex getIndex() {
+        return this.index;
+    }
+
+    @Override
+    public List<IndexedSpecification> searchFor(final R dependency) {
+        return specificationsNamed(nameForDependency(dependency)).stream()
+                                                                 .filter(spec -> allows(dependency, spec))
+                                                                 .collect(Collectors.toList());
+    }
+
+    @Override
+    public String nameForSpecification(final IndexedSpecification specification) {
+        return specification.getName();
+    }
+
+    @Override
+    public Set<R> dependenciesFor(final IndexedSpecification specification) {
+        return this.dependencies.computeIfAbsent(specification, spec -> {
+            final Set<R> deps = new LinkedHashSet<>();
+            spec.getDependencies().forEach((name, requirement) -> deps.add(createDependency(name, requirement)));
+            return Collections.unmodifiableSet(deps);
+        });
+    }
+
+    /**
+     * Obtains all specifications with the specified name.
+     *
+     * @param name Name of the specifications
+     * @return Specifications with the specified name, oldest first.
+     */
+    protected List<IndexedSpecification> specificationsNamed(final String name) {
+        return this.specifications.computeIfAbsent(name, this.index::specificationsNamed);
+    }
+
+    /**
+     * Creates a dependency from a requirement stored in the index.
+     *
+     * @param name Name of the dependency
+     * @param requirement Requirement stored in the index
+     * @return Dependency corresponding to the requirement.
+     */
+    protected abstract R createDependency(String name, String requirement);
+
+    /**
+     * Determines whether the specified dependency allows the specified specification (e.g. whether the version of the
+     * specification is within the version constraint of the dependency).
+     *
+     * @param dependency Dependency being searched for
+     * @param specification Specification with the same name as the dependency
+     * @return {@code true} if the specification is a match for the dependency.
+     */
+    protected abstract boolean allows(R dependency, IndexedSpecification specification);
+}
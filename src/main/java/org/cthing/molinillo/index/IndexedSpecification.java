@@ -0,0 +1,84 @@
+package org.cthing.molinillo.index;
+
+import java.util.Map;
+import java.util.Objects;
+
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Specification read from a {@link SpecificationIndex}. The name and version of the specification are decoded when
+ * the specification is read from the index, but its dependencies are only decoded the first time they are requested.
+ * Specifications are equal if they have the same name and version.
+ */
+public final class IndexedSpecification {
+
+    private final SpecificationIndex index;
+    private final String name;
+    private final String version;
+    private final int dependenciesOffset;
+
+    @Nullable
+    private Map<String, String> dependencies;
+
+    IndexedSpecification(final SpecificationIndex index, final String name, final String version,
+                         final int dependenciesOffset) {
+        this.index = index;
+        this.name = name;
+        this.version = version;
+        this.dependenciesOffset = dependenciesOffset;
+    }
+
+    /**
+     * Obtains the name of the specification.
+     *
+     * @return Name of the specification.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Obtains the version of the specification, exactly as it was written to the index.
+     *
+     * @return Version of the specification.
+     */
+    public String getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Obtains the dependencies of the specification. The dependencies are decoded from the index on the first call.
+     *
+     * @return Names of the dependencies mapped to their requirements, exactly as they were written to the index.
+     */
+    public synchronized Map<String, String> getDependencies() {
+        if (this.dependencies == null) {
+            this.dependencies = this.index.readDependencies(this.dependenciesOffset);
+        }
+        return this.dependencies;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+
+        final IndexedSpecification that = (IndexedSpecification)obj;
+        return this.name.equals(that.name) && this.version.equals(that.version);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.name, this.version);
+    }
+
+    @Override
+    public String toString() {
+        return this.name + " (" + this.version + ')';
+    }
+}
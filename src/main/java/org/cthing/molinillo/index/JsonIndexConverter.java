@@ -0,0 +1,140 @@
+package org.cthing.molinillo.index;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cthing.molinillo.io.JsonReader;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Converts specification indices from JSON to the binary index format. The JSON index is an object whose members map
+ * a name to an array of specifications. Each specification is an object with a {@code name} member, a
+ * {@code version} member and a {@code dependencies} member, which is an object mapping the name of each dependency to
+ * its requirement. For example:
+ *
+ * <pre>
+ * {
+ *   "rack-mount": [
+ *     {
+ *       "name": "rack-mount",
+ *       "version": "0.6.0",
+ *       "dependencies": {
+ *         "rack": "&gt;= 1.0.0"
+ *       }
+ *     }
+ *   ]
+ * }
+ * </pre>
+ *
+ * <p>
+ * The JSON index is read as a stream, and comments are permitted. Members of a specification other than those above
+ * are ignored. Neither the binary index nor the JSON index interpret versions, so a comparator must be provided to
+ * order the specifications of each name oldest first.
+ * </p>
+ */
+public final class JsonIndexConverter {
+
+    /**
+     * Specification read from the JSON index.
+     *
+     * @param name Name of the specification
+     * @param version Version of the specification
+     * @param dependencies Names of the dependencies mapped to their requirements
+     */
+    private record Specification(String name, String version, Map<String, String> dependencies) {
+    }
+
+    private JsonIndexConverter() {
+    }
+
+    /**
+     * Converts the specified JSON index file to a binary index file.
+     *
+     * @param jsonIndex Location of the JSON index file, which must be encoded using UTF-8
+     * @param binaryIndex Location for the binary index file. An existing file is replaced.
+     * @param versionComparator Orders versions from oldest to newest
+     * @throws IOException if there was a problem reading or writing the files, or the JSON index is malformed
+     */
+    public static void convert(final Path jsonIndex, final Path binaryIndex,
+                               final Comparator<String> versionComparator) throws IOException {
+        try (Reader reader = Files.newBufferedReader(jsonIndex, StandardCharsets.UTF_8)) {
+            read(reader, versionComparator).write(binaryIndex);
+        }
+    }
+
+    /**
+     * Reads the specifications in the specified JSON index.
+     *
+     * @param jsonIndex Provides the JSON index. The reader is not closed.
+     * @param versionComparator Orders versions from oldest to newest
+     * @return Index writer containing the specifications read from the JSON index.
+     * @throws IOException if there was a problem reading the JSON index or it is malformed
+     */
+    public static SpecificationIndexWriter read(final Reader jsonIndex,
+                                                final Comparator<String> versionComparator) throws IOException {
+        final SpecificationIndexWriter writer = new SpecificationIndexWriter();
+        final JsonReader reader = new JsonReader(jsonIndex);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            final List<Specification> specifications = new ArrayList<>();
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                specifications.add(readSpecification(reader, name));
+            }
+            reader.endArray();
+
+            specifications.sort(Comparator.comparing(Specification::version, versionComparator));
+            for (final Specification specification : specifications) {
+                writer.add(specification.name(), specification.version(), specification.dependencies());
+            }
+        }
+        reader.endObject();
+
+        if (reader.peek() != JsonReader.Token.END_DOCUMENT) {
+            throw new IOException("Unexpected content after the specification index");
+        }
+        return writer;
+    }
+
+    private static Specification readSpecification(final JsonReader reader, final String defaultName)
+            throws IOException {
+        String name = defaultName;
+        @Nullable String version = null;
+        final Map<String, String> dependencies = new LinkedHashMap<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name" -> name = reader.nextString();
+                case "version" -> version = reader.nextString();
+                case "dependencies" -> {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        final String dependencyName = reader.nextName();
+                        dependencies.put(dependencyName, reader.nextString());
+                    }
+                    reader.endObject();
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (version == null) {
+            throw new IOException("Specification of " + name + " does not have a version");
+        }
+        return new Specification(name, version, dependencies);
+    }
+}
@@ -0,0 +1,225 @@
+package org.cthing.molinillo.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Read-only specification index backed by a memory-mapped index file written by {@link SpecificationIndexWriter}.
+ * Opening an index only maps the file, so the cost of opening it does not depend on its size, and the operating
+ * system shares the pages of the file between all processes using it. A name is found using a binary search of the
+ * mapped name table, the specifications of a name are only decoded when they are requested, and the dependencies of
+ * a specification are only decoded when they are first requested from the {@link IndexedSpecification}.
+ *
+ * <p>
+ * An index is safe for use by multiple threads. Index files are limited to 2GB, the maximum size of a single mapped
+ * buffer.
+ * </p>
+ */
+public final class SpecificationIndex {
+
+    private final ByteBuffer buffer;
+    private final int nameTableOffset;
+    private final int nameCount;
+
+    private SpecificationIndex(final ByteBuffer buffer, final int nameTableOffset) {
+        this.buffer = buffer;
+        this.nameTableOffset = nameTableOffset;
+        this.nameCount = buffer.getInt(nameTableOffset);
+    }
+
+    /**
+     * Opens the specified index file.
+     *
+     * @param path Location of the index file
+     * @return Index backed by the file.
+     * @throws IOException if the file could not be mapped or is not a specification index
+     */
+    public static SpecificationIndex open(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Specification index is too large to map: " + path);
+            }
+            if (size < IndexFormat.HEADER_SIZE + IndexFormat.INT_SIZE + IndexFormat.TRAILER_SIZE) {
+                throw new IOException("Not a specification index: " + path);
+            }
+
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != IndexFormat.MAGIC) {
+                throw new IOException("Not a specification index: " + path);
+            }
+            final int version = buffer.getInt(IndexFormat.INT_SIZE);
+            if (version != IndexFormat.VERSION) {
+                throw new IOException("Unsupported specification index version " + version + ": " + path);
+            }
+
+            final int tableOffset = buffer.getInt((int)size - IndexFormat.TRAILER_SIZE);
+            if (tableOffset < IndexFormat.HEADER_SIZE
+                    || tableOffset > size - IndexFormat.TRAILER_SIZE - IndexFormat.INT_SIZE
+                    || (long)buffer.getInt(tableOffset) * IndexFormat.INT_SIZE
+                            != size - IndexFormat.TRAILER_SIZE - IndexFormat.INT_SIZE - tableOffset) {
+                throw new IOException("Corrupt specification index: " + path);
+            }
+
+            return new SpecificationIndex(buffer, tableOffset);
+        }
+    }
+
+    /**
+     * Obtains the number of names in the index.
+     *
+     * @return Number of names in the index.
+     */
+    public int size() {
+        return this.nameCount;
+    }
+
+    /**
+     * Obtains the names in the index. The names are decoded as they are accessed.
+     *
+     * @return Names in the index, in ascending order of their UTF-8 bytes.
+     */
+    public List<String> getNames() {
+        return new AbstractList<>() {
+            @Override
+            public String get(final int index) {
+                if (index < 0 || index >= SpecificationIndex.this.nameCount) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return readString(nameRecordOffset(index));
+            }
+
+            @Override
+            public int size() {
+                return SpecificationIndex.this.nameCount;
+            }
+        };
+    }
+
+    /**
+     * Indicates whether the index contains specifications with the specified name.
+     *
+     * @param name Name to find
+     * @return {@code true} if the index contains the name.
+     */
+    public boolean contains(final String name) {
+        return find(name) >= 0;
+    }
+
+    /**
+     * Obtains the specifications with the specified name.
+     *
+     * @param name Name of the specifications
+     * @return Specifications with the specified name, oldest first. Returns an empty list if the index does not
+     *      contain the name.
+     */
+    public List<IndexedSpecification> specificationsNamed(final String name) {
+        final int nameIndex = find(name);
+        if (nameIndex < 0) {
+            return List.of();
+        }
+
+        int offset = nameRecordOffset(nameIndex);
+        offset += IndexFormat.INT_SIZE + this.buffer.getInt(offset);
+        final int count = this.buffer.getInt(offset);
+        offset += IndexFormat.INT_SIZE;
+
+        final List<IndexedSpecification> specifications = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final String version = readString(offset);
+            offset += IndexFormat.INT_SIZE + this.buffer.getInt(offset);
+            final int dependencySize = this.buffer.getInt(offset);
+            offset += IndexFormat.INT_SIZE;
+            specifications.add(new IndexedSpecification(this, name, version, offset));
+            offset += dependencySize;
+        }
+        return Collections.unmodifiableList(specifications);
+    }
+
+    /**
+     * Decodes the dependencies that start at the specified location.
+     *
+     * @param offset Location of the dependency count in the index
+     * @return Dependency names mapped to their requirements, in the order they were written.
+     */
+    Map<String, String> readDependencies(final int offset) {
+        int position = offset;
+        final int count = this.buffer.getInt(position);
+        position += IndexFormat.INT_SIZE;
+
+        final Map<String, String> dependencies = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            final String name = readString(position);
+            position += IndexFormat.INT_SIZE + this.buffer.getInt(position);
+            final String requirement = readString(position);
+            position += IndexFormat.INT_SIZE + this.buffer.getInt(position);
+            dependencies.put(name, requirement);
+        }
+        return Collections.unmodifiableMap(dependencies);
+    }
+
+    /**
+     * Performs a binary search of the name table for the specified name.
+     *
+     * @param name Name to find
+     * @return Index of the name in the name table, or -1 if the name is not in the index.
+     */
+    private int find(final String name) {
+        final byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = this.nameCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int comparison = compareName(nameRecordOffset(mid), key);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the name stored at the specified location with the specified name, without decoding the stored name.
+     *
+     * @param offset Location of the stored name
+     * @param key UTF-8 bytes of the name to compare against
+     * @return Negative, zero or positive value as the stored name is less than, equal to or greater than the key.
+     */
+    private int compareName(final int offset, final byte[] key) {
+        final int length = this.buffer.getInt(offset);
+        final int start = offset + IndexFormat.INT_SIZE;
+        final int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            final int comparison = Byte.compareUnsigned(this.buffer.get(start + i), key[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private int nameRecordOffset(final int nameIndex) {
+        return this.buffer.getInt(this.nameTableOffset + IndexFormat.INT_SIZE + nameIndex * IndexFormat.INT_SIZE);
+    }
+
+    private String readString(final int offset) {
+        final byte[] bytes = new byte[this.buffer.getInt(offset)];
+        this.buffer.get(offset + IndexFormat.INT_SIZE, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,137 @@
+package org.cthing.molinillo.index;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Writes specification index files that can be opened using {@link SpecificationIndex#open(Path)}. Specifications
+ * are accumulated in memory and written when {@link #write(Path)} is called. The index does not interpret versions,
+ * so the specifications of each name must be added oldest first, which is the order in which a specification
+ * provider returns them.
+ */
+public final class SpecificationIndexWriter {
+
+    /**
+     * Specification to be written to the index.
+     *
+     * @param version Version of the specification
+     * @param dependencies Names of the dependencies mapped to their requirements
+     */
+    private record Specification(String version, Map<String, String> dependencies) {
+    }
+
+    private final Map<String, List<Specification>> specifications;
+
+    /**
+     * Constructs a writer for an empty index.
+     */
+    public SpecificationIndexWriter() {
+        this.specifications = new HashMap<>();
+    }
+
+    /**
+     * Adds a specification to the index. Specifications with the same name must be added oldest first.
+     *
+     * @param name Name of the specification
+     * @param version Version of the specification
+     * @param dependencies Names of the dependencies of the specification mapped to their requirements. The
+     *      requirements are written as is and their interpretation is left to the specification provider.
+     * @return This writer.
+     */
+    public SpecificationIndexWriter add(final String name, final String version,
+                                        final Map<String, String> dependencies) {
+        this.specifications.computeIfAbsent(name, n -> new ArrayList<>())
+                           .add(new Specification(version, new LinkedHashMap<>(dependencies)));
+        return this;
+    }
+
+    /**
+     * Writes the index containing all specifications added so far to the specified file.
+     *
+     * @param path Location for the index file. An existing file is replaced.
+     * @throws IOException if there was a problem writing the file or the index exceeds the maximum size of an index
+     *      file
+     */
+    public void write(final Path path) throws IOException {
+        final Map<String, byte[]> encodedNames = new HashMap<>();
+        this.specifications.keySet().forEach(name -> encodedNames.put(name, name.getBytes(StandardCharsets.UTF_8)));
+        final List<String> names = new ArrayList<>(encodedNames.keySet());
+        names.sort((name1, name2) -> Arrays.compareUnsigned(encodedNames.get(name1), encodedNames.get(name2)));
+        final int[] nameOffsets = new int[names.size()];
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(IndexFormat.MAGIC);
+            output.writeInt(IndexFormat.VERSION);
+
+            for (int i = 0; i < nameOffsets.length; i++) {
+                final String name = names.get(i);
+                nameOffsets[i] = offset(output);
+                writeBytes(output, encodedNames.get(name));
+
+                final List<Specification> specs = this.specifications.get(name);
+                output.writeInt(specs.size());
+                for (final Specification spec : specs) {
+                    writeString(output, spec.version());
+                    final byte[] dependencies = encodeDependencies(spec.dependencies());
+                    writeBytes(output, dependencies);
+                }
+            }
+
+            final int tableOffset = offset(output);
+            output.writeInt(nameOffsets.length);
+            for (final int nameOffset : nameOffsets) {
+                output.writeInt(nameOffset);
+            }
+            output.writeInt(tableOffset);
+            offset(output);
+        }
+    }
+
+    private static byte[] encodeDependencies(final Map<String, String> dependencies) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(dependencies.size());
+            for (final Map.Entry<String, String> dependency : dependencies.entrySet()) {
+                writeString(output, dependency.getKey());
+                writeString(output, dependency.getValue());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        writeBytes(output, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(final DataOutputStream output, final byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Obtains the number of bytes written so far, which is the offset of the next byte to be written.
+     *
+     * @param output Index file output
+     * @return Offset of the next byte to be written.
+     * @throws IOException if the index has exceeded the maximum size of an index file
+     */
+    private static int offset(final DataOutputStream output) throws IOException {
+        final int size = output.size();
+        if (size == Integer.MAX_VALUE) {
+            throw new IOException("Specification index exceeds the maximum size of " + Integer.MAX_VALUE + " bytes");
+        }
+        return size;
+    }
+}
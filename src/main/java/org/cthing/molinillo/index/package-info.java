@@ -0,0 +1,7 @@
+/**
+ * Memory-mapped binary specification index files and a specification provider backed by them.
+ */
+@NullMarked
+package org.cthing.molinillo.index;
+
+import org.jspecify.annotations.NullMarked;
@@ -0,0 +1,108 @@
+package org.cthing.molinillo.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Low level helpers for the compact binary formats used throughout the library. Integers are written as unsigned
+ * LEB128 variable length quantities so that the small counts and table indices that dominate these formats occupy a
+ * single byte in the common case.
+ */
+public final class BinaryIO {
+
+    private static final int SEVEN_BITS = 0x7F;
+    private static final int CONTINUATION = 0x80;
+    private static final int MAX_VARINT_SHIFT = 28;
+    private static final int STRING_CHUNK_SIZE = 8192;
+
+    private BinaryIO() {
+    }
+
+    /**
+     * Writes a non-negative integer using a variable number of bytes.
+     *
+     * @param output Destination for the integer
+     * @param value Non-negative integer to write
+     * @throws IOException if there was a problem writing the value
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public static void writeVarInt(final DataOutput output, final int value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value cannot be encoded: " + value);
+        }
+
+        int remaining = value;
+        while ((remaining & ~SEVEN_BITS) != 0) {
+            output.writeByte((remaining & SEVEN_BITS) | CONTINUATION);
+            remaining >>>= 7;
+        }
+        output.writeByte(remaining);
+    }
+
+    /**
+     * Reads a non-negative integer written by {@link #writeVarInt(DataOutput, int)}.
+     *
+     * @param input Source of the integer
+     * @return Integer read from the input.
+     * @throws IOException if there was a problem reading the value or the encoding is malformed
+     */
+    public static int readVarInt(final DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift <= MAX_VARINT_SHIFT; shift += 7) {
+            final int b = input.readUnsignedByte();
+            value |= (b & SEVEN_BITS) << shift;
+            if ((b & CONTINUATION) == 0) {
+                if (value < 0) {
+                    throw new IOException("Malformed variable length integer");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+
+    /**
+     * Writes a string as its UTF-8 byte count followed by the bytes. Unlike {@link DataOutput#writeUTF(String)},
+     * there is no limit on the length of the string.
+     *
+     * @param output Destination for the string
+     * @param value String to write
+     * @throws IOException if there was a problem writing the value
+     */
+    public static void writeString(final DataOutput output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}. The byte count is not trusted to allocate
+     * the bytes of a long string up front. Instead, the bytes are read in chunks, so a corrupt byte count fails at the
+     * end of the input rather than causing a huge allocation.
+     *
+     * @param input Source of the string
+     * @return String read from the input.
+     * @throws IOException if there was a problem reading the value
+     */
+    public static String readString(final DataInput input) throws IOException {
+        final int length = readVarInt(input);
+        if (length <= STRING_CHUNK_SIZE) {
+            final byte[] bytes = new byte[length];
+            input.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(STRING_CHUNK_SIZE);
+        final byte[] chunk = new byte[STRING_CHUNK_SIZE];
+        for (int remaining = length; remaining > 0; remaining -= STRING_CHUNK_SIZE) {
+            final int count = Math.min(remaining, STRING_CHUNK_SIZE);
+            input.readFully(chunk, 0, count);
+            bytes.write(chunk, 0, count);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
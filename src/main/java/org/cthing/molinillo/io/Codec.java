@@ -0,0 +1,55 @@
+package org.cthing.molinillo.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * Converts values to and from a binary representation. The resolver is generic with respect to the requirement and
+ * specification types, so any facility that persists resolution artifacts (e.g. traces, checkpoints, cached results)
+ * must be given a codec for each of those types. A codec must read back exactly the bytes it wrote, and the value it
+ * reads must be equal (i.e. {@link Object#equals(Object)}) to the value that was written.
+ *
+ * @param <T> Type of the value to encode and decode
+ */
+public interface Codec<T> {
+
+    /**
+     * Writes the specified value to the specified output.
+     *
+     * @param value Value to write
+     * @param output Destination for the encoded value
+     * @throws IOException if there was a problem writing the value
+     */
+    void write(T value, DataOutput output) throws IOException;
+
+    /**
+     * Reads a value from the specified input.
+     *
+     * @param input Source of the encoded value
+     * @return Value read from the input.
+     * @throws IOException if there was a problem reading the value
+     */
+    T read(DataInput input) throws IOException;
+
+    /**
+     * Provides a codec for strings. Strings are encoded as a variable length byte count followed by their UTF-8
+     * bytes.
+     *
+     * @return Codec for strings.
+     */
+    static Codec<String> strings() {
+        return new Codec<>() {
+            @Override
+            public void write(final String value, final DataOutput output) throws IOException {
+                BinaryIO.writeString(output, value);
+            }
+
+            @Override
+            public String read(final DataInput input) throws IOException {
+                return BinaryIO.readString(input);
+            }
+        };
+    }
+}
@@ -0,0 +1,529 @@
+package org.cthing.molinillo.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Streaming reader for JSON documents. The document is read one token at a time, so that arbitrarily large documents
+ * can be processed without building a tree of the entire document in memory. Line ({@code //}) and block
+ * ({@code /* *}{@code /}) comments are permitted anywhere whitespace is permitted and are ignored.
+ *
+ * <p>
+ * Typical usage reads an object as follows:
+ * </p>
+ * <pre>
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *     final String name = reader.nextName();
+ *     final String value = reader.nextString();
+ * }
+ * reader.endObject();
+ * </pre>
+ */
+public final class JsonReader implements Closeable {
+
+    /**
+     * Types of tokens in a JSON document.
+     */
+    public enum Token {
+        /** Start of an object (i.e. <code>{</code>). */
+        BEGIN_OBJECT,
+
+        /** End of an object (i.e. <code>}</code>). */
+        END_OBJECT,
+
+        /** Start of an array (i.e. {@code [}). */
+        BEGIN_ARRAY,
+
+        /** End of an array (i.e. {@code ]}). */
+        END_ARRAY,
+
+        /** Name of an object member. */
+        NAME,
+
+        /** String value. */
+        STRING,
+
+        /** Numeric value. */
+        NUMBER,
+
+        /** Boolean value (i.e. {@code true} or {@code false}). */
+        BOOLEAN,
+
+        /** Null value. */
+        NULL,
+
+        /** End of the document. */
+        END_DOCUMENT
+    }
+
+    private enum Context {
+        EMPTY_DOCUMENT,
+        NONEMPTY_DOCUMENT,
+        EMPTY_ARRAY,
+        NONEMPTY_ARRAY,
+        EMPTY_OBJECT,
+        NONEMPTY_OBJECT,
+        DANGLING_NAME
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int EOF = -1;
+    private static final int HEX_DIGITS = 4;
+    private static final int HEX_RADIX = 16;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private final Deque<Context> contexts;
+    private final StringBuilder text;
+    private int position;
+    private int limit;
+    private int line;
+
+    @Nullable
+    private Token peeked;
+
+    @Nullable
+    private String peekedText;
+
+    /**
+     * Constructs a reader for the JSON document provided by the specified reader. The reader is buffered internally,
+     * so there is no need to provide a buffered reader.
+     *
+     * @param reader Provides the JSON document
+     */
+    public JsonReader(final Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+        this.contexts = new ArrayDeque<>();
+        this.contexts.push(Context.EMPTY_DOCUMENT);
+        this.text = new StringBuilder();
+        this.line = 1;
+    }
+
+    /**
+     * Obtains the type of the next token without consuming it.
+     *
+     * @return Type of the next token.
+     * @throws IOException if there was a problem reading the document or the document is malformed
+     */
+    public Token peek() throws IOException {
+        if (this.peeked == null) {
+            this.peeked = readToken();
+        }
+        return this.peeked;
+    }
+
+    /**
+     * Indicates whether the current object or array has another member or element.
+     *
+     * @return {@code true} if there is another member or element in the current object or array.
+     * @throws IOException if there was a problem reading the document or the document is malformed
+     */
+    public boolean hasNext() throws IOException {
+        final Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @throws IOException if there was a problem reading the document or the next token is not the start of an
+     *      object
+     */
+    public void beginObject() throws IOException {
+        consume(Token.BEGIN_OBJECT);
+        this.contexts.push(Context.EMPTY_OBJECT);
+    }
+
+    /**
+     * Consumes the end of an object.
+     *
+     * @throws IOException if there was a problem reading the document or the next token is not the end of an object
+     */
+    public void endObject() throws IOException {
+        consume(Token.END_OBJECT);
+        this.contexts.pop();
+    }
+
+    /**
+     * Consumes the start of an array.
+     *
+     * @throws IOException if there was a problem reading the document or the next token is not the start of an
+     *      array
+     */
+    public void beginArray() throws IOException {
+        consume(Token.BEGIN_ARRAY);
+        this.contexts.push(Context.EMPTY_ARRAY);
+    }
+
+    /**
+     * Consumes the end of an array.
+     *
+     * @throws IOException if there was a problem reading the document or the next token is not the end of an array
+     */
+    public void endArray() throws IOException {
+        consume(Token.END_ARRAY);
+        this.contexts.pop();
+    }
+
+    /**
+     * Consumes the name of an object member.
+     *
+     * @return Name of the member.
+     * @throws IOException if there was a problem reading the document or the next token is not a member name
+     */
+    public String nextName() throws IOException {
+        return consume(Token.NAME);
+    }
+
+    /**
+     * Consumes a string or numeric value.
+     *
+     * @return String value, or the literal text of a numeric value.
+     * @throws IOException if there was a problem reading the document or the next token is not a string or number
+     */
+    public String nextString() throws IOException {
+        return consume(peek() == Token.NUMBER ? Token.NUMBER : Token.STRING);
+    }
+
+    /**
+     * Consumes an integer value.
+     *
+     * @return Integer value.
+     * @throws IOException if there was a problem reading the document or the next token is not an integer
+     */
+    public long nextLong() throws IOException {
+        final String number = consume(Token.NUMBER);
+        try {
+            return Long.parseLong(number);
+        } catch (final NumberFormatException ex) {
+            throw syntaxError("Expected an integer but found " + number);
+        }
+    }
+
+    /**
+     * Consumes a boolean value.
+     *
+     * @return Boolean value.
+     * @throws IOException if there was a problem reading the document or the next token is not a boolean
+     */
+    public boolean nextBoolean() throws IOException {
+        return Boolean.parseBoolean(consume(Token.BOOLEAN));
+    }
+
+    /**
+     * Consumes a null value.
+     *
+     * @throws IOException if there was a problem reading the document or the next token is not null
+     */
+    public void nextNull() throws IOException {
+        consume(Token.NULL);
+    }
+
+    /**
+     * Consumes the next value, including all members or elements of an object or array. If the next token is the
+     * name of an object member, the name and the member's value are consumed.
+     *
+     * @throws IOException if there was a problem reading the document or there is no value to skip
+     */
+    public void skipValue() throws IOException {
+        int depth = 0;
+        while (true) {
+            final Token token = peek();
+            if (depth == 0 && (token == Token.END_OBJECT || token == Token.END_ARRAY || token == Token.END_DOCUMENT)) {
+                throw syntaxError("Expected a value but found " + token);
+            }
+            switch (token) {
+                case BEGIN_OBJECT -> {
+                    beginObject();
+                    depth++;
+                }
+                case BEGIN_ARRAY -> {
+                    beginArray();
+                    depth++;
+                }
+                case END_OBJECT -> {
+                    endObject();
+                    depth--;
+                }
+                case END_ARRAY -> {
+                    endArray();
+                    depth--;
+                }
+                case NAME -> {
+                    nextName();
+                    continue;
+                }
+                default -> consume(token);
+            }
+            if (depth == 0) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+    /**
+     * Consumes the next token, which must be of the specified type.
+     *
+     * @param expected Type of token expected
+     * @return Text of the token, or the empty string if the token has no text.
+     * @throws IOException if there was a problem reading the document or the next token is of a different type
+     */
+    private String consume(final Token expected) throws IOException {
+        final Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but found " + token);
+        }
+
+        final String tokenText = this.peekedText == null ? "" : this.peekedText;
+        this.peeked = null;
+        this.peekedText = null;
+        return tokenText;
+    }
+
+    /**
+     * Reads the next token from the document.
+     *
+     * @return Type of the token read. The text of the token, if any, is stored in {@link #peekedText}.
+     * @throws IOException if there was a problem reading the document or the document is malformed
+     */
+    private Token readToken() throws IOException {
+        final Context context = this.contexts.pop();
+        switch (context) {
+            case EMPTY_DOCUMENT -> this.contexts.push(Context.NONEMPTY_DOCUMENT);
+            case NONEMPTY_DOCUMENT -> {
+                this.contexts.push(context);
+                final int c = nextNonWhitespace();
+                if (c != EOF) {
+                    throw syntaxError("Unexpected content after the end of the document");
+                }
+                return Token.END_DOCUMENT;
+            }
+            case EMPTY_ARRAY, NONEMPTY_ARRAY -> {
+                this.contexts.push(Context.NONEMPTY_ARRAY);
+                final int c = nextNonWhitespace();
+                if (c == ']') {
+                    return Token.END_ARRAY;
+                }
+                if (context == Context.NONEMPTY_ARRAY) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or ']'");
+                    }
+                } else if (c != EOF) {
+                    unread();
+                }
+            }
+            case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+                int c = nextNonWhitespace();
+                if (c == '}') {
+                    this.contexts.push(context);
+                    return Token.END_OBJECT;
+                }
+                if (context == Context.NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a member name");
+                }
+                this.contexts.push(Context.DANGLING_NAME);
+                this.peekedText = readString();
+                return Token.NAME;
+            }
+            case DANGLING_NAME -> {
+                this.contexts.push(Context.NONEMPTY_OBJECT);
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+            }
+            default -> throw new IllegalStateException("Unexpected context: " + context);
+        }
+
+        return readValue();
+    }
+
+    /**
+     * Reads the token that starts a value.
+     *
+     * @return Type of the token read.
+     * @throws IOException if there was a problem reading the document or the document is malformed
+     */
+    private Token readValue() throws IOException {
+        final int c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                this.peekedText = readString();
+                return Token.STRING;
+            case 't':
+                readLiteral("rue");
+                this.peekedText = "true";
+                return Token.BOOLEAN;
+            case 'f':
+                readLiteral("alse");
+                this.peekedText = "false";
+                return Token.BOOLEAN;
+            case 'n':
+                readLiteral("ull");
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    this.peekedText = readNumber((char)c);
+                    return Token.NUMBER;
+                }
+                throw syntaxError(c == EOF ? "Unexpected end of the document" : "Unexpected character '" + (char)c + "'");
+        }
+    }
+
+    private String readString() throws IOException {
+        this.text.setLength(0);
+        while (true) {
+            final int c = nextChar();
+            if (c == '"') {
+                return this.text.toString();
+            }
+            if (c == EOF || c == '\n') {
+                throw syntaxError("Unterminated string");
+            }
+            if (c == '\\') {
+                this.text.append(readEscape());
+            } else {
+                this.text.append((char)c);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        final int c = nextChar();
+        return switch (c) {
+            case '"', '\\', '/' -> (char)c;
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            case 'u' -> {
+                int value = 0;
+                for (int i = 0; i < HEX_DIGITS; i++) {
+                    final int digit = Character.digit(nextChar(), HEX_RADIX);
+                    if (digit < 0) {
+                        throw syntaxError("Malformed unicode escape");
+                    }
+                    value = value * HEX_RADIX + digit;
+                }
+                yield (char)value;
+            }
+            default -> throw syntaxError("Malformed escape sequence");
+        };
+    }
+
+    private String readNumber(final char first) throws IOException {
+        this.text.setLength(0);
+        this.text.append(first);
+        while (true) {
+            final int c = nextChar();
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                this.text.append((char)c);
+            } else {
+                if (c != EOF) {
+                    unread();
+                }
+                return this.text.toString();
+            }
+        }
+    }
+
+    private void readLiteral(final String remainder) throws IOException {
+        for (int i = 0; i < remainder.length(); i++) {
+            if (nextChar() != remainder.charAt(i)) {
+                throw syntaxError("Malformed literal");
+            }
+        }
+    }
+
+    /**
+     * Reads the next character that is not whitespace or part of a comment.
+     *
+     * @return Next significant character, or {@link #EOF} if the end of the document has been reached.
+     * @throws IOException if there was a problem reading the document or a comment is not terminated
+     */
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            final int c = nextChar();
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                continue;
+            }
+            if (c != '/') {
+                return c;
+            }
+
+            final int next = nextChar();
+            if (next == '/') {
+                int skipped = nextChar();
+                while (skipped != '\n' && skipped != EOF) {
+                    skipped = nextChar();
+                }
+            } else if (next == '*') {
+                int previous = 0;
+                int skipped = nextChar();
+                while (previous != '*' || skipped != '/') {
+                    if (skipped == EOF) {
+                        throw syntaxError("Unterminated comment");
+                    }
+                    previous = skipped;
+                    skipped = nextChar();
+                }
+            } else {
+                throw syntaxError("Unexpected character '/'");
+            }
+        }
+    }
+
+    private int nextChar() throws IOException {
+        if (this.position == this.limit) {
+            final int count = this.reader.read(this.buffer);
+            if (count <= 0) {
+                return EOF;
+            }
+            this.position = 0;
+            this.limit = count;
+        }
+
+        final char c = this.buffer[this.position++];
+        if (c == '\n') {
+            this.line++;
+        }
+        return c;
+    }
+
+    /**
+     * Pushes back the character most recently read by {@link #nextChar()}.
+     */
+    private void unread() {
+        this.position--;
+        if (this.buffer[this.position] == '\n') {
+            this.line--;
+        }
+    }
+
+    private IOException syntaxError(final String message) {
+        return new IOException("Malformed JSON at line " + this.line + ": " + message);
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Binary encoding support for persisting resolution artifacts such as traces, checkpoints and dependency graphs.
+ */
+@NullMarked
+package org.cthing.molinillo.io;
+
+import org.jspecify.annotations.NullMarked;
@@ -0,0 +1,96 @@
+package org.cthing.molinillo.trace;
+
+/**
+ * Constants describing the binary trace file format. A trace consists of a header followed by a sequence of records,
+ * each introduced by a one byte record type. Requirements and specifications are written once, in a definition
+ * record, and are subsequently referred to by their dense index in the order of definition. All counts and indices
+ * are written as variable length integers.
+ *
+ * <pre>
+ * trace      := MAGIC VERSION request record* outcome
+ * request    := REQUEST count requirementId* vertexCount vertex* edgeCount edge*
+ * vertex     := name flags [requirementId]
+ * edge       := originIndex destinationIndex requirementId
+ * call       := callType arguments status (answer | error)
+ * error      := requirementId requiredByCount name*
+ * </pre>
+ *
+ * <p>
+ * The name of each requirement and specification is recorded as a call the first time it is asked for. A replay
+ * answers names from these calls whenever they are asked for, rather than in order.
+ * </p>
+ *
+ * <p>
+ * The comparator and range algebra offered by a provider are recorded as calls answering whether they are present,
+ * and each use of them is recorded as a call of its own. Specifications searched for newest first are recorded as a
+ * search call without an answer followed by one call for each step of the iteration, answering the next
+ * specification or the end of the iteration, because the resolver interleaves the iterations with other calls.
+ * </p>
+ */
+final class TraceFormat {
+
+    static final int MAGIC = 0x4D4C5452;        // "MLTR"
+    static final int VERSION = 1;
+
+    static final int DEFINE_REQUIREMENT = 1;
+    static final int DEFINE_SPECIFICATION = 2;
+    static final int REQUEST = 3;
+    static final int SEARCH_FOR = 10;
+    static final int DEPENDENCIES_FOR = 11;
+    static final int REQUIREMENT_SATISFIED_BY = 12;
+    static final int NAME_FOR_DEPENDENCY = 13;
+    static final int NAME_FOR_SPECIFICATION = 14;
+    static final int NAME_FOR_EXPLICIT_DEPENDENCY_SOURCE = 15;
+    static final int NAME_FOR_LOCKING_DEPENDENCY_SOURCE = 16;
+    static final int SORT_DEPENDENCIES = 17;
+    static final int ALLOW_MISSING = 18;
+    static final int DEPENDENCY_COMPARATOR = 19;
+    static final int COMPARE_DEPENDENCIES = 20;
+    static final int RANGE_ALGEBRA = 21;
+    static final int INTERSECT = 22;
+    static final int IS_EMPTY = 23;
+    static final int SEARCH_FOR_NEWEST_FIRST = 24;
+    static final int NEXT_NEWEST_FIRST = 25;
+    static final int DECISION = 30;
+    static final int OUTCOME = 31;
+
+    static final int STATUS_OK = 0;
+    static final int STATUS_NO_SUCH_DEPENDENCY = 1;
+
+    static final int OUTCOME_RESOLVED = 0;
+    static final int OUTCOME_FAILED = 1;
+
+    static final int VERTEX_ROOT = 0x01;
+    static final int VERTEX_PAYLOAD = 0x02;
+
+    private TraceFormat() {
+    }
+
+    /**
+     * Provides a readable name for the specified record type for use in diagnostic messages.
+     *
+     * @param recordType Record type
+     * @return Name of the record type.
+     */
+    static String nameOf(final int recordType) {
+        return switch (recordType) {
+            case SEARCH_FOR -> "searchFor";
+            case DEPENDENCIES_FOR -> "dependenciesFor";
+            case REQUIREMENT_SATISFIED_BY -> "requirementSatisfiedBy";
+            case NAME_FOR_DEPENDENCY -> "nameForDependency";
+            case NAME_FOR_SPECIFICATION -> "nameForSpecification";
+            case NAME_FOR_EXPLICIT_DEPENDENCY_SOURCE -> "nameForExplicitDependencySource";
+            case NAME_FOR_LOCKING_DEPENDENCY_SOURCE -> "nameForLockingDependencySource";
+            case SORT_DEPENDENCIES -> "sortDependencies";
+            case ALLOW_MISSING -> "allowMissing";
+            case DEPENDENCY_COMPARATOR -> "dependencyComparator";
+            case COMPARE_DEPENDENCIES -> "compare";
+            case RANGE_ALGEBRA -> "rangeAlgebra";
+            case INTERSECT -> "intersect";
+            case IS_EMPTY -> "isEmpty";
+            case SEARCH_FOR_NEWEST_FIRST -> "searchForNewestFirst";
+            case NEXT_NEWEST_FIRST -> "next";
+            default -> "record " + recordType;
+        };
+    }
+}
@@ -0,0 +1,825 @@
+package org.cthing.molinillo.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.cthing.molinillo.Conflict;
+import org.cthing.molinillo.DependencyGraph;
+import org.cthing.molinillo.Payload;
+import org.cthing.molinillo.RangeAlgebra;
+import org.cthing.molinillo.Resolver;
+import org.cthing.molinillo.SpecificationProvider;
+import org.cthing.molinillo.UI;
+import org.cthing.molinillo.errors.NoSuchDependencyError;
+import org.cthing.molinillo.errors.ResolverError;
+import org.cthing.molinillo.graph.Edge;
+import org.cthing.molinillo.graph.Vertex;
+import org.cthing.molinillo.io.BinaryIO;
+import org.cthing.molinillo.io.Codec;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Records a resolution into a compact binary trace. The recorder wraps the real specification provider and writes
+ * every call made to it, together with its answer, to the trace. The messages describing the decisions made by the
+ * resolution are recorded as well. A trace can be replayed without access to the original provider or its index
+ * using a {@link TraceReplayer}, which makes it possible to attach a pathological resolution to a bug report or
+ * benchmark it offline.
+ *
+ * <p>
+ * A recorder captures a single resolution, which is performed by calling {@link #resolve(Set, DependencyGraph, UI)}.
+ * Requirements and specifications are written using the specified codecs the first time they are encountered and
+ * are subsequently referred to by index, so that each distinct value is stored only once. Likewise, the name of each
+ * distinct requirement and specification is obtained from the wrapped provider and recorded only once, because names
+ * may only depend on the values themselves. The trace therefore does not depend on whether the resolution asks for
+ * the names of equal values once or many times.
+ * </p>
+ *
+ * <p>
+ * The dependency comparator, range algebra and newest first search of the wrapped provider are forwarded to the
+ * resolution, so that it follows the same path as it would with the provider itself. Each comparison, range
+ * operation and step of a newest first search is recorded as a call of its own.
+ * </p>
+ *
+ * @param <R> Requirement type
+ * @param <S> Specification type
+ */
+public final class TraceRecorder<R, S> implements SpecificationProvider<R, S>, Closeable {
+
+    /**
+     * Writes a portion of a trace record.
+     */
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write() throws IOException;
+    }
+
+    private final SpecificationProvider<R, S> delegate;
+    private final Codec<R> requirementCodec;
+    private final Codec<S> specificationCodec;
+    private final DataOutputStream output;
+    private final Map<R, Integer> requirementIds;
+    private final Map<S, Integer> specificationIds;
+    private final Map<Integer, String> dependencyNames;
+    private final Map<Integer, String> specificationNames;
+    private boolean resolved;
+
+    /**
+     * Constructs a recorder that writes its trace to the specified stream. The trace header is written immediately.
+     *
+     * @param delegate Specification provider whose answers are recorded
+     * @param requirementCodec Encodes requirements into the trace
+     * @param specificationCodec Encodes specifications into the trace
+     * @param outputStream Destination for the trace. The stream is closed when the recorder is closed.
+     * @throws IOException if the trace header could not be written
+     */
+    public TraceRecorder(final SpecificationProvider<R, S> delegate, final Codec<R> requirementCodec,
+                         final Codec<S> specificationCodec, final OutputStream outputStream) throws IOException {
+        this.delegate = delegate;
+        this.requirementCodec = requirementCodec;
+        this.specificationCodec = specificationCodec;
+        this.output = new DataOutputStream(new BufferedOutputStream(outputStream));
+        this.requirementIds = new HashMap<>();
+        this.specificationIds = new HashMap<>();
+        this.dependencyNames = new HashMap<>();
+        this.specificationNames = new HashMap<>();
+
+        this.output.writeInt(TraceFormat.MAGIC);
+        this.output.writeByte(TraceFormat.VERSION);
+    }
+
+    /**
+     * Performs a dependency resolution using this recorder as the specification provider, and records the request,
+     * all provider calls, the resolution decisions and the outcome to the trace. The trace is flushed when the
+     * resolution completes, whether successfully or not.
+     *
+     * @param requested Dependencies to be resolved
+     * @param base Graph of dependencies whose versions are locked
+     * @param resolverUI Provides output on the progress of the resolution process
+     * @return Graph of the resolved dependencies
+     * @throws ResolverError if there is an error trying to resolve the dependencies
+     * @throws IllegalStateException if this recorder has already been used for a resolution
+     * @throws UncheckedIOException if there was a problem writing the trace
+     */
+    public synchronized DependencyGraph<S, R> resolve(final Set<R> requested, final DependencyGraph<R, R> base,
+                                                      final UI resolverUI) throws ResolverError {
+        if (this.resolved) {
+            throw new IllegalStateException("A trace recorder can only record a single resolution");
+        }
+        this.resolved = true;
+
+        record(() -> writeRequest(requested, base));
+
+        final Resolver<R, S> resolver = new Resolver<>(this, new RecordingUI(resolverUI));
+        try {
+            final DependencyGraph<S, R> result = resolver.resolve(requested, base);
+            record(() -> writeResolvedOutcome(result));
+            return result;
+        } catch (final ResolverError ex) {
+            record(() -> {
+                this.output.writeByte(TraceFormat.OUTCOME);
+                this.output.writeByte(TraceFormat.OUTCOME_FAILED);
+                BinaryIO.writeString(this.output, String.valueOf(ex.getMessage()));
+            });
+            throw ex;
+        } finally {
+            record(this.output::flush);
+        }
+    }
+
+    @Override
+    public synchronized List<S> searchFor(final R dependency) {
+        final int dependencyId = requirementId(dependency);
+        final List<S> specifications;
+        try {
+            specifications = this.delegate.searchFor(dependency);
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.SEARCH_FOR, () -> BinaryIO.writeVarInt(this.output, dependencyId), ex);
+        }
+
+        final int[] ids = specificationIds(specifications);
+        record(() -> {
+            this.output.writeByte(TraceFormat.SEARCH_FOR);
+            BinaryIO.writeVarInt(this.output, dependencyId);
+            this.output.writeByte(TraceFormat.STATUS_OK);
+            writeIds(ids);
+        });
+        return specifications;
+    }
+
+    @Override
+    public synchronized Iterator<S> searchForNewestFirst(final R dependency) {
+        final int dependencyId = requirementId(dependency);
+        final Iterator<S> specifications;
+        try {
+            specifications = this.delegate.searchForNewestFirst(dependency);
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.SEARCH_FOR_NEWEST_FIRST,
+                              () -> BinaryIO.writeVarInt(this.output, dependencyId), ex);
+        }
+
+        record(() -> {
+            this.output.writeByte(TraceFormat.SEARCH_FOR_NEWEST_FIRST);
+            BinaryIO.writeVarInt(this.output, dependencyId);
+            this.output.writeByte(TraceFormat.STATUS_OK);
+        });
+        return new RecordingIterator(dependencyId, specifications);
+    }
+
+    @Override
+    public synchronized Set<R> dependenciesFor(final S specification) {
+        final int specificationId = specificationId(specification);
+        final Set<R> dependencies;
+        try {
+            dependencies = this.delegate.dependenciesFor(specification);
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.DEPENDENCIES_FOR,
+                              () -> BinaryIO.writeVarInt(this.output, specificationId), ex);
+        }
+
+        final int[] ids = requirementIds(dependencies);
+        record(() -> {
+            this.output.writeByte(TraceFormat.DEPENDENCIES_FOR);
+            BinaryIO.writeVarInt(this.output, specificationId);
+            this.output.writeByte(TraceFormat.STATUS_OK);
+            writeIds(ids);
+        });
+        return dependencies;
+    }
+
+    @Override
+    public synchronized boolean requirementSatisfiedBy(final R requirement,
+                                                       final DependencyGraph<Payload<R, S>, R> activated,
+                                                       final S specification) {
+        final int requirementId = requirementId(requirement);
+        final int specificationId = specificationId(specification);
+        final RecordWriter arguments = () -> {
+            BinaryIO.writeVarInt(this.output, requirementId);
+            BinaryIO.writeVarInt(this.output, specificationId);
+        };
+
+        final boolean satisfied;
+        try {
+            satisfied = this.delegate.requirementSatisfiedBy(requirement, activated, specification);
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.REQUIREMENT_SATISFIED_BY, arguments, ex);
+        }
+
+        record(() -> {
+            this.output.writeByte(TraceFormat.REQUIREMENT_SATISFIED_BY);
+            arguments.write();
+            this.output.writeByte(TraceFormat.STATUS_OK);
+            this.output.writeBoolean(satisfied);
+        });
+        return satisfied;
+    }
+
+    @Override
+    public synchronized String nameForDependency(final R dependency) {
+        final int dependencyId = requirementId(dependency);
+        final String recordedName = this.dependencyNames.get(dependencyId);
+        if (recordedName != null) {
+            return recordedName;
+        }
+
+        final String name;
+        try {
+            name = this.delegate.nameForDependency(dependency);
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.NAME_FOR_DEPENDENCY,
+                              () -> BinaryIO.writeVarInt(this.output, dependencyId), ex);
+        }
+
+        record(() -> {
+            this.output.writeByte(TraceFormat.NAME_FOR_DEPENDENCY);
+            BinaryIO.writeVarInt(this.output, dependencyId);
+            this.output.writeByte(TraceFormat.STATUS_OK);
+            BinaryIO.writeString(this.output, name);
+        });
+        this.dependencyNames.put(dependencyId, name);
+        return name;
+    }
+
+    @Override
+    public synchronized String nameForSpecification(final S specification) {
+        final int specificationId = specificationId(specification);
+        final String recordedName = this.specificationNames.get(specificationId);
+        if (recordedName != null) {
+            return recordedName;
+        }
+
+        final String name;
+        try {
+            name = this.delegate.nameForSpecification(specification);
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.NAME_FOR_SPECIFICATION,
+                              () -> BinaryIO.writeVarInt(this.output, specificationId), ex);
+        }
+
+        record(() -> {
+            this.output.writeByte(TraceFormat.NAME_FOR_SPECIFICATION);
+            BinaryIO.writeVarInt(this.output, specificationId);
+            this.output.writeByte(TraceFormat.STATUS_OK);
+            BinaryIO.writeString(this.output, name);
+        });
+        this.specificationNames.put(specificationId, name);
+        return name;
+    }
+
+    @Override
+    public synchronized String nameForExplicitDependencySource() {
+        final String name;
+        try {
+            name = this.delegate.nameForExplicitDependencySource();
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.NAME_FOR_EXPLICIT_DEPENDENCY_SOURCE, () -> { }, ex);
+        }
+
+        record(() -> {
+            this.output.writeByte(TraceFormat.NAME_FOR_EXPLICIT_DEPENDENCY_SOURCE);
+            this.output.writeByte(TraceFormat.STATUS_OK);
+            BinaryIO.writeString(this.output, name);
+        });
+        return name;
+    }
+
+    @Override
+    public synchronized String nameForLockingDependencySource() {
+        final String name;
+        try {
+            name = this.delegate.nameForLockingDependencySource();
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.NAME_FOR_LOCKING_DEPENDENCY_SOURCE, () -> { }, ex);
+        }
+
+        record(() -> {
+            this.output.writeByte(TraceFormat.NAME_FOR_LOCKING_DEPENDENCY_SOURCE);
+            this.output.writeByte(TraceFormat.STATUS_OK);
+            BinaryIO.writeString(this.output, name);
+        });
+        return name;
+    }
+
+    @Override
+    public synchronized List<R> sortDependencies(final List<R> dependencies,
+                                                 final DependencyGraph<Payload<R, S>, R> activated,
+                                                 final Map<String, Conflict<R, S>> conflicts) {
+        final int[] dependencyIds = requirementIds(dependencies);
+        final List<R> sorted;
+        try {
+            sorted = this.delegate.sortDependencies(dependencies, activated, conflicts);
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.SORT_DEPENDENCIES, () -> writeIds(dependencyIds), ex);
+        }
+
+        final int[] sortedIds = requirementIds(sorted);
+        record(() -> {
+            this.output.writeByte(TraceFormat.SORT_DEPENDENCIES);
+            writeIds(dependencyIds);
+            this.output.writeByte(TraceFormat.STATUS_OK);
+            writeIds(sortedIds);
+        });
+        return sorted;
+    }
+
+    @Override
+    public synchronized Optional<Comparator<R>> dependencyComparator(final DependencyGraph<Payload<R, S>, R> activated,
+                                                                      final Map<String, Conflict<R, S>> conflicts) {
+        final Optional<Comparator<R>> comparatorOpt;
+        try {
+            comparatorOpt = this.delegate.dependencyComparator(activated, conflicts);
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.DEPENDENCY_COMPARATOR, () -> { }, ex);
+        }
+
+        record(() -> {
+            this.output.writeByte(TraceFormat.DEPENDENCY_COMPARATOR);
+            this.output.writeByte(TraceFormat.STATUS_OK);
+            this.output.writeBoolean(comparatorOpt.isPresent());
+        });
+        return comparatorOpt.map(RecordingComparator::new);
+    }
+
+    @Override
+    public synchronized Optional<RangeAlgebra<R>> rangeAlgebra() {
+        final Optional<RangeAlgebra<R>> algebraOpt;
+        try {
+            algebraOpt = this.delegate.rangeAlgebra();
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.RANGE_ALGEBRA, () -> { }, ex);
+        }
+
+        record(() -> {
+            this.output.writeByte(TraceFormat.RANGE_ALGEBRA);
+            this.output.writeByte(TraceFormat.STATUS_OK);
+            this.output.writeBoolean(algebraOpt.isPresent());
+        });
+        return algebraOpt.map(RecordingRangeAlgebra::new);
+    }
+
+    @Override
+    public synchronized boolean allowMissing(final R dependency) {
+        final int dependencyId = requirementId(dependency);
+        final boolean allowed;
+        try {
+            allowed = this.delegate.allowMissing(dependency);
+        } catch (final NoSuchDependencyError ex) {
+            throw recordError(TraceFormat.ALLOW_MISSING, () -> BinaryIO.writeVarInt(this.output, dependencyId), ex);
+        }
+
+        record(() -> {
+            this.output.writeByte(TraceFormat.ALLOW_MISSING);
+            BinaryIO.writeVarInt(this.output, dependencyId);
+            this.output.writeByte(TraceFormat.STATUS_OK);
+            this.output.writeBoolean(allowed);
+        });
+        return allowed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.output.close();
+    }
+
+    /**
+     * Executes the specified trace writing operation, converting any I/O error into an unchecked exception so that
+     * it can propagate through the specification provider interface.
+     *
+     * @param writer Operation to perform
+     */
+    private void record(final RecordWriter writer) {
+        try {
+            writer.write();
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Records a call that failed because a dependency could not be found. The dependency is assumed to be of the
+     * requirement type.
+     *
+     * @param recordType Type of call that failed
+     * @param arguments Writes the arguments of the call
+     * @param error Error thrown by the delegate provider
+     * @return The specified error so that it can be rethrown.
+     */
+    private NoSuchDependencyError recordError(final int recordType, final RecordWriter arguments,
+                                              final NoSuchDependencyError error) {
+        final R dependency = error.getDependency();
+        final int dependencyId = requirementId(dependency);
+        final Set<Object> requiredBy = error.getRequiredBy();
+        record(() -> {
+            this.output.writeByte(recordType);
+            arguments.write();
+            this.output.writeByte(TraceFormat.STATUS_NO_SUCH_DEPENDENCY);
+            BinaryIO.writeVarInt(this.output, dependencyId);
+            BinaryIO.writeVarInt(this.output, requiredBy.size());
+            for (final Object source : requiredBy) {
+                BinaryIO.writeString(this.output, source.toString());
+            }
+        });
+        return error;
+    }
+
+    /**
+     * Writes the requested dependencies and the locking graph.
+     *
+     * @param requested Dependencies to be resolved
+     * @param base Graph of dependencies whose versions are locked
+     * @throws IOException if there was a problem writing the trace
+     */
+    private void writeRequest(final Set<R> requested, final DependencyGraph<R, R> base) throws IOException {
+        final int[] requestedIds = requirementIds(requested);
+
+        final List<Vertex<R, R>> vertices = new ArrayList<>(base.getVertices().values());
+        final Map<String, Integer> vertexIndices = new HashMap<>();
+        final int[] payloadIds = new int[vertices.size()];
+        final List<int[]> edges = new ArrayList<>();
+        for (int i = 0; i < vertices.size(); i++) {
+            final Vertex<R, R> vertex = vertices.get(i);
+            vertexIndices.put(vertex.getName(), i);
+            payloadIds[i] = vertex.getPayload().map(this::requirementId).orElse(-1);
+        }
+        for (int i = 0; i < vertices.size(); i++) {
+            for (final Edge<R, R> edge : vertices.get(i).getOutgoingEdges()) {
+                edges.add(new int[] { i, vertexIndices.get(edge.getDestination().getName()),
+                                      requirementId(edge.getRequirement()) });
+            }
+        }
+
+        this.output.writeByte(TraceFormat.REQUEST);
+        writeIds(requestedIds);
+        BinaryIO.writeVarInt(this.output, vertices.size());
+        for (int i = 0; i < vertices.size(); i++) {
+            final Vertex<R, R> vertex = vertices.get(i);
+            BinaryIO.writeString(this.output, vertex.getName());
+            final int flags = (vertex.isRoot() ? TraceFormat.VERTEX_ROOT : 0)
+                              | (payloadIds[i] >= 0 ? TraceFormat.VERTEX_PAYLOAD : 0);
+            this.output.writeByte(flags);
+            if (payloadIds[i] >= 0) {
+                BinaryIO.writeVarInt(this.output, payloadIds[i]);
+            }
+        }
+        BinaryIO.writeVarInt(this.output, edges.size());
+        for (final int[] edge : edges) {
+            writeIds(edge.length, edge);
+        }
+    }
+
+    /**
+     * Writes the outcome of a successful resolution as the name and specification of each resolved vertex.
+     *
+     * @param result Resolved dependency graph
+     * @throws IOException if there was a problem writing the trace
+     */
+    private void writeResolvedOutcome(final DependencyGraph<S, R> result) throws IOException {
+        final Map<String, Integer> resolvedIds = new TreeMap<>();
+        for (final Vertex<S, R> vertex : result.getVertices().values()) {
+            vertex.getPayload().ifPresent(spec -> resolvedIds.put(vertex.getName(), specificationId(spec)));
+        }
+
+        this.output.writeByte(TraceFormat.OUTCOME);
+        this.output.writeByte(TraceFormat.OUTCOME_RESOLVED);
+        BinaryIO.writeVarInt(this.output, resolvedIds.size());
+        for (final Map.Entry<String, Integer> entry : resolvedIds.entrySet()) {
+            BinaryIO.writeString(this.output, entry.getKey());
+            BinaryIO.writeVarInt(this.output, entry.getValue());
+        }
+    }
+
+    /**
+     * Writes a count followed by the specified indices.
+     *
+     * @param ids Indices to write
+     * @throws IOException if there was a problem writing the trace
+     */
+    private void writeIds(final int[] ids) throws IOException {
+        BinaryIO.writeVarInt(this.output, ids.length);
+        writeIds(ids.length, ids);
+    }
+
+    /**
+     * Writes the specified number of indices without a count.
+     *
+     * @param count Number of indices to write
+     * @param ids Indices to write
+     * @throws IOException if there was a problem writing the trace
+     */
+    private void writeIds(final int count, final int[] ids) throws IOException {
+        for (int i = 0; i < count; i++) {
+            BinaryIO.writeVarInt(this.output, ids[i]);
+        }
+    }
+
+    /**
+     * Obtains the trace index of the specified requirement, writing a definition record for the requirement if it
+     * has not been seen before.
+     *
+     * @param requirement Requirement whose index is desired
+     * @return Index of the requirement in the trace.
+     */
+    private int requirementId(final R requirement) {
+        final Integer existingId = this.requirementIds.get(requirement);
+        if (existingId != null) {
+            return existingId;
+        }
+
+        final int id = this.requirementIds.size();
+        this.requirementIds.put(requirement, id);
+        record(() -> {
+            this.output.writeByte(TraceFormat.DEFINE_REQUIREMENT);
+            this.requirementCodec.write(requirement, this.output);
+        });
+        return id;
+    }
+
+    /**
+     * Obtains the trace indices of the specified requirements, defining any that have not been seen before.
+     *
+     * @param requirements Requirements whose indices are desired
+     * @return Indices of the requirements in the trace, in iteration order.
+     */
+    private int[] requirementIds(final Collection<R> requirements) {
+        final int[] ids = new int[requirements.size()];
+        int i = 0;
+        for (final R requirement : requirements) {
+            ids[i++] = requirementId(requirement);
+        }
+        return ids;
+    }
+
+    /**
+     * Obtains the trace index of the specified specification, writing a definition record for the specification if
+     * it has not been seen before.
+     *
+     * @param specification Specification whose index is desired
+     * @return Index of the specification in the trace.
+     */
+    private int specificationId(final S specification) {
+        final Integer existingId = this.specificationIds.get(specification);
+        if (existingId != null) {
+            return existingId;
+        }
+
+        final int id = this.specificationIds.size();
+        this.specificationIds.put(specification, id);
+        record(() -> {
+            this.output.writeByte(TraceFormat.DEFINE_SPECIFICATION);
+            this.specificationCodec.write(specification, this.output);
+        });
+        return id;
+    }
+
+    /**
+     * Obtains the trace indices of the specified specifications, defining any that have not been seen before.
+     *
+     * @param specifications Specifications whose indices are desired
+     * @return Indices of the specifications in the trace, in iteration order.
+     */
+    private int[] specificationIds(final Collection<S> specifications) {
+        final int[] ids = new int[specifications.size()];
+        int i = 0;
+        for (final S specification : specifications) {
+            ids[i++] = specificationId(specification);
+        }
+        return ids;
+    }
+
+    /**
+     * Records each step of an iteration over the specifications found by a newest first search. Each step is
+     * recorded when the iteration advances, which is the first time {@link #hasNext()} or {@link #next()} is called
+     * for the step.
+     */
+    private final class RecordingIterator implements Iterator<S> {
+
+        private final int dependencyId;
+        private final Iterator<S> specifications;
+        @Nullable
+        private S nextSpecification;
+        private boolean advanced;
+
+        RecordingIterator(final int dependencyId, final Iterator<S> specifications) {
+            this.dependencyId = dependencyId;
+            this.specifications = specifications;
+        }
+
+        @Override
+        public boolean hasNext() {
+            synchronized (TraceRecorder.this) {
+                if (!this.advanced) {
+                    advance();
+                }
+                return this.nextSpecification != null;
+            }
+        }
+
+        @Override
+        public S next() {
+            synchronized (TraceRecorder.this) {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final S specification = this.nextSpecification;
+                this.nextSpecification = null;
+                this.advanced = false;
+                return specification;
+            }
+        }
+
+        private void advance() {
+            final RecordWriter arguments = () -> BinaryIO.writeVarInt(TraceRecorder.this.output, this.dependencyId);
+            final S specification;
+            try {
+                specification = this.specifications.hasNext() ? this.specifications.next() : null;
+            } catch (final NoSuchDependencyError ex) {
+                throw recordError(TraceFormat.NEXT_NEWEST_FIRST, arguments, ex);
+            }
+
+            final int specificationId = specification == null ? -1 : specificationId(specification);
+            record(() -> {
+                TraceRecorder.this.output.writeByte(TraceFormat.NEXT_NEWEST_FIRST);
+                arguments.write();
+                TraceRecorder.this.output.writeByte(TraceFormat.STATUS_OK);
+                TraceRecorder.this.output.writeBoolean(specificationId >= 0);
+                if (specificationId >= 0) {
+                    BinaryIO.writeVarInt(TraceRecorder.this.output, specificationId);
+                }
+            });
+            this.nextSpecification = specification;
+            this.advanced = true;
+        }
+    }
+
+    /**
+     * Records each comparison made by the dependency comparator of the wrapped provider.
+     */
+    private final class RecordingComparator implements Comparator<R> {
+
+        private final Comparator<R> comparator;
+
+        RecordingComparator(final Comparator<R> comparator) {
+            this.comparator = comparator;
+        }
+
+        @Override
+        public int compare(final R dependency1, final R dependency2) {
+            synchronized (TraceRecorder.this) {
+                final int dependencyId1 = requirementId(dependency1);
+                final int dependencyId2 = requirementId(dependency2);
+                final RecordWriter arguments = () -> {
+                    BinaryIO.writeVarInt(TraceRecorder.this.output, dependencyId1);
+                    BinaryIO.writeVarInt(TraceRecorder.this.output, dependencyId2);
+                };
+
+                final int result;
+                try {
+                    result = Integer.signum(this.comparator.compare(dependency1, dependency2));
+                } catch (final NoSuchDependencyError ex) {
+                    throw recordError(TraceFormat.COMPARE_DEPENDENCIES, arguments, ex);
+                }
+
+                record(() -> {
+                    TraceRecorder.this.output.writeByte(TraceFormat.COMPARE_DEPENDENCIES);
+                    arguments.write();
+                    TraceRecorder.this.output.writeByte(TraceFormat.STATUS_OK);
+                    TraceRecorder.this.output.writeByte(result);
+                });
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Records each operation performed by the range algebra of the wrapped provider.
+     */
+    private final class RecordingRangeAlgebra implements RangeAlgebra<R> {
+
+        private final RangeAlgebra<R> algebra;
+
+        RecordingRangeAlgebra(final RangeAlgebra<R> algebra) {
+            this.algebra = algebra;
+        }
+
+        @Override
+        public R intersect(final R requirement1, final R requirement2) {
+            synchronized (TraceRecorder.this) {
+                final int requirementId1 = requirementId(requirement1);
+                final int requirementId2 = requirementId(requirement2);
+                final RecordWriter arguments = () -> {
+                    BinaryIO.writeVarInt(TraceRecorder.this.output, requirementId1);
+                    BinaryIO.writeVarInt(TraceRecorder.this.output, requirementId2);
+                };
+
+                final R intersection;
+                try {
+                    intersection = this.algebra.intersect(requirement1, requirement2);
+                } catch (final NoSuchDependencyError ex) {
+                    throw recordError(TraceFormat.INTERSECT, arguments, ex);
+                }
+
+                final int intersectionId = requirementId(intersection);
+                record(() -> {
+                    TraceRecorder.this.output.writeByte(TraceFormat.INTERSECT);
+                    arguments.write();
+                    TraceRecorder.this.output.writeByte(TraceFormat.STATUS_OK);
+                    BinaryIO.writeVarInt(TraceRecorder.this.output, intersectionId);
+                });
+                return intersection;
+            }
+        }
+
+        @Override
+        public boolean isEmpty(final R requirement) {
+            synchronized (TraceRecorder.this) {
+                final int requirementId = requirementId(requirement);
+                final RecordWriter arguments = () -> BinaryIO.writeVarInt(TraceRecorder.this.output, requirementId);
+
+                final boolean empty;
+                try {
+                    empty = this.algebra.isEmpty(requirement);
+                } catch (final NoSuchDependencyError ex) {
+                    throw recordError(TraceFormat.IS_EMPTY, arguments, ex);
+                }
+
+                record(() -> {
+                    TraceRecorder.this.output.writeByte(TraceFormat.IS_EMPTY);
+                    arguments.write();
+                    TraceRecorder.this.output.writeByte(TraceFormat.STATUS_OK);
+                    TraceRecorder.this.output.writeBoolean(empty);
+                });
+                return empty;
+            }
+        }
+    }
+
+    /**
+     * Records the decisions reported by the resolution and forwards them to the user's interface.
+     */
+    private final class RecordingUI implements UI {
+
+        private final UI delegateUI;
+
+        RecordingUI(final UI delegateUI) {
+            this.delegateUI = delegateUI;
+        }
+
+        @Override
+        public void indicateProgress() {
+            this.delegateUI.indicateProgress();
+        }
+
+        @Override
+        public int getProgressRate() {
+            return this.delegateUI.getProgressRate();
+        }
+
+        @Override
+        public void beforeResolution() {
+            this.delegateUI.beforeResolution();
+        }
+
+        @Override
+        public void afterResolution() {
+            this.delegateUI.afterResolution();
+        }
+
+        @Override
+        public void printf(final int depth, final String format, final @Nullable Object... args) {
+            final String message = String.format(format, args);
+            synchronized (TraceRecorder.this) {
+                record(() -> {
+                    TraceRecorder.this.output.writeByte(TraceFormat.DECISION);
+                    BinaryIO.writeVarInt(TraceRecorder.this.output, depth);
+                    BinaryIO.writeString(TraceRecorder.this.output, message);
+                });
+            }
+            this.delegateUI.printf(depth, format, args);
+        }
+
+        @Override
+        public boolean isDebugMode() {
+            return this.delegateUI.isDebugMode();
+        }
+
+        @Override
+        public void setDebugMode(@Nullable final Boolean debugMode) {
+            this.delegateUI.setDebugMode(debugMode);
+        }
+    }
+}
@@ -0,0 +1,584 @@
+package org.cthing.molinillo.trace;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.cthing.molinillo.Conflict;
+import org.cthing.molinillo.DefaultUI;
+import org.cthing.molinillo.DependencyGraph;
+import org.cthing.molinillo.Payload;
+import org.cthing.molinillo.RangeAlgebra;
+import org.cthing.molinillo.Resolver;
+import org.cthing.molinillo.SpecificationProvider;
+import org.cthing.molinillo.UI;
+import org.cthing.molinillo.errors.NoSuchDependencyError;
+import org.cthing.molinillo.errors.ResolverError;
+import org.cthing.molinillo.graph.Vertex;
+import org.cthing.molinillo.io.BinaryIO;
+import org.cthing.molinillo.io.Codec;
+import org.jspecify.annotations.Nullable;
+
+
+/**
+ * Replays a trace written by a {@link TraceRecorder}. The replayer is a specification provider that answers every
+ * call from the trace rather than from an index, so a recorded resolution can be reproduced deterministically
+ * without access to the original provider. The calls made during the replay must match the calls in the trace, in
+ * order and with equal arguments. If the resolution diverges from the trace, for example because the resolver has
+ * been changed in a way that alters its behavior, an {@link IllegalStateException} is thrown identifying the first
+ * call that differs.
+ *
+ * <p>
+ * The simplest way to replay a trace is to call {@link #resolve()}. Alternatively, the replayer can be passed to a
+ * {@link Resolver} together with the {@link #getRequested() requested dependencies} and
+ * {@link #getBase() locking graph} read from the trace. Replay is only deterministic if the decoded requirements
+ * have the same hash codes as the recorded ones, because the resolver iterates over the requested dependencies in
+ * hash order.
+ * </p>
+ *
+ * <p>
+ * The names of requirements and specifications are answered from the trace whenever they are asked for, rather than
+ * in the order they were recorded, so the replay does not depend on how often the resolver asks for a name.
+ * </p>
+ *
+ * <p>
+ * The replayer offers a dependency comparator and a range algebra only if the recorded provider offered them, and
+ * answers each comparison, range operation and step of a newest first search from the trace.
+ * </p>
+ *
+ * @param <R> Requirement type
+ * @param <S> Specification type
+ */
+public final class TraceReplayer<R, S> implements SpecificationProvider<R, S> {
+
+    /**
+     * A provider call read from the trace.
+     */
+    private static final class Call {
+        final int type;
+        final List<Object> arguments;
+        @Nullable
+        final Object answer;
+        @Nullable
+        final Object missingDependency;
+        final Set<Object> requiredBy;
+
+        Call(final int type, final List<Object> arguments, @Nullable final Object answer,
+             @Nullable final Object missingDependency, final Set<Object> requiredBy) {
+            this.type = type;
+            this.arguments = arguments;
+            this.answer = answer;
+            this.missingDependency = missingDependency;
+            this.requiredBy = requiredBy;
+        }
+    }
+
+    private final List<R> requirements;
+    private final List<S> specifications;
+    private final Set<R> requested;
+    private final DependencyGraph<R, R> base;
+    private final List<Call> calls;
+    private final Map<Object, String> dependencyNames;
+    private final Map<Object, String> specificationNames;
+    private final List<String> decisions;
+    @Nullable
+    private Map<String, S> recordedResolution;
+    @Nullable
+    private String recordedFailure;
+    private int position;
+
+    /**
+     * Reads a trace from the specified stream. The entire trace is read and decoded by the constructor. The stream
+     * is not closed.
+     *
+     * @param requirementCodec Decodes requirements from the trace. Must be compatible with the codec used to record
+     *      the trace.
+     * @param specificationCodec Decodes specifications from the trace. Must be compatible with the codec used to
+     *      record the trace.
+     * @param inputStream Source of the trace
+     * @throws IOException if the trace could not be read or is malformed
+     */
+    public TraceReplayer(final Codec<R> requirementCodec, final Codec<S> specificationCodec,
+                         final InputStream inputStream) throws IOException {
+        this.requirements = new ArrayList<>();
+        this.specifications = new ArrayList<>();
+        this.requested = new LinkedHashSet<>();
+        this.base = new DependencyGraph<>();
+        this.calls = new ArrayList<>();
+        this.dependencyNames = new HashMap<>();
+        this.specificationNames = new HashMap<>();
+        this.decisions = new ArrayList<>();
+
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        if (input.readInt() != TraceFormat.MAGIC) {
+            throw new IOException("Not a resolution trace");
+        }
+        final int version = input.readUnsignedByte();
+        if (version != TraceFormat.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+
+        for (int recordType = input.read(); recordType >= 0; recordType = input.read()) {
+            switch (recordType) {
+                case TraceFormat.DEFINE_REQUIREMENT -> this.requirements.add(requirementCodec.read(input));
+                case TraceFormat.DEFINE_SPECIFICATION -> this.specifications.add(specificationCodec.read(input));
+                case TraceFormat.REQUEST -> readRequest(input);
+                case TraceFormat.DECISION -> this.decisions.add(String.format(":%4d: ", BinaryIO.readVarInt(input))
+                                                                        + BinaryIO.readString(input));
+                case TraceFormat.OUTCOME -> readOutcome(input);
+                default -> addCall(readCall(recordType, input));
+            }
+        }
+    }
+
+    /**
+     * Obtains the dependencies that were requested in the recorded resolution.
+     *
+     * @return Requested dependencies.
+     */
+    public Set<R> getRequested() {
+        return Collections.unmodifiableSet(this.requested);
+    }
+
+    /**
+     * Obtains the graph of locked dependencies used in the recorded resolution.
+     *
+     * @return Locking dependency graph.
+     */
+    public DependencyGraph<R, R> getBase() {
+        return this.base;
+    }
+
+    /**
+     * Obtains the decisions reported by the recorded resolution, in the order they were made. Each message is
+     * prefixed with the depth of the resolution at the time of the decision.
+     *
+     * @return Recorded resolution decisions.
+     */
+    public List<String> getDecisions() {
+        return Collections.unmodifiableList(this.decisions);
+    }
+
+    /**
+     * Obtains the resolved specification for each dependency, if the recorded resolution succeeded.
+     *
+     * @return Resolved specifications indexed by dependency name, or an empty optional if the recorded resolution
+     *      failed or the trace is incomplete.
+     */
+    public Optional<Map<String, S>> getRecordedResolution() {
+        return Optional.ofNullable(this.recordedResolution).map(Collections::unmodifiableMap);
+    }
+
+    /**
+     * Obtains the error message of the recorded resolution, if it failed.
+     *
+     * @return Error message of the failed resolution, or an empty optional if the recorded resolution succeeded or
+     *      the trace is incomplete.
+     */
+    public Optional<String> getRecordedFailure() {
+        return Optional.ofNullable(this.recordedFailure);
+    }
+
+    /**
+     * Replays the recorded resolution without any user interface output.
+     *
+     * @return Graph of the resolved dependencies
+     * @throws ResolverError if the recorded resolution failed
+     * @throws IllegalStateException if the resolution diverges from the trace
+     */
+    public DependencyGraph<S, R> resolve() throws ResolverError {
+        return resolve(new DefaultUI());
+    }
+
+    /**
+     * Replays the recorded resolution. The replay always starts from the beginning of the trace.
+     *
+     * @param resolverUI Provides output on the progress of the resolution process
+     * @return Graph of the resolved dependencies
+     * @throws ResolverError if the recorded resolution failed
+     * @throws IllegalStateException if the resolution diverges from the trace
+     */
+    public synchronized DependencyGraph<S, R> resolve(final UI resolverUI) throws ResolverError {
+        this.position = 0;
+        return new Resolver<>(this, resolverUI).resolve(this.requested, this.base);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized List<S> searchFor(final R dependency) {
+        return (List<S>)nextAnswer(TraceFormat.SEARCH_FOR, dependency);
+    }
+
+    @Override
+    public synchronized Iterator<S> searchForNewestFirst(final R dependency) {
+        nextAnswer(TraceFormat.SEARCH_FOR_NEWEST_FIRST, dependency);
+        return new Iterator<>() {
+            @Nullable
+            private Optional<S> nextSpecification;
+
+            @Override
+            public boolean hasNext() {
+                synchronized (TraceReplayer.this) {
+                    if (this.nextSpecification == null) {
+                        @SuppressWarnings("unchecked")
+                        final Optional<S> specification =
+                                (Optional<S>)nextAnswer(TraceFormat.NEXT_NEWEST_FIRST, dependency);
+                        this.nextSpecification = specification;
+                    }
+                    return this.nextSpecification.isPresent();
+                }
+            }
+
+            @Override
+            public S next() {
+                synchronized (TraceReplayer.this) {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final S specification = Objects.requireNonNull(this.nextSpecification).get();
+                    this.nextSpecification = null;
+                    return specification;
+                }
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized Set<R> dependenciesFor(final S specification) {
+        return (Set<R>)nextAnswer(TraceFormat.DEPENDENCIES_FOR, specification);
+    }
+
+    @Override
+    public synchronized boolean requirementSatisfiedBy(final R requirement,
+                                                       final DependencyGraph<Payload<R, S>, R> activated,
+                                                       final S specification) {
+        return (Boolean)nextAnswer(TraceFormat.REQUIREMENT_SATISFIED_BY, requirement, specification);
+    }
+
+    @Override
+    public synchronized String nameForDependency(final R dependency) {
+        final String name = this.dependencyNames.get(dependency);
+        return (name == null) ? (String)nextAnswer(TraceFormat.NAME_FOR_DEPENDENCY, dependency) : name;
+    }
+
+    @Override
+    public synchronized String nameForSpecification(final S specification) {
+        final String name = this.specificationNames.get(specification);
+        return (name == null) ? (String)nextAnswer(TraceFormat.NAME_FOR_SPECIFICATION, specification) : name;
+    }
+
+    @Override
+    public synchronized String nameForExplicitDependencySource() {
+        return (String)nextAnswer(TraceFormat.NAME_FOR_EXPLICIT_DEPENDENCY_SOURCE);
+    }
+
+    @Override
+    public synchronized String nameForLockingDependencySource() {
+        return (String)nextAnswer(TraceFormat.NAME_FOR_LOCKING_DEPENDENCY_SOURCE);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized List<R> sortDependencies(final List<R> dependencies,
+                                                 final DependencyGraph<Payload<R, S>, R> activated,
+                                                 final Map<String, Conflict<R, S>> conflicts) {
+        final List<R> recorded = (List<R>)nextAnswer(TraceFormat.SORT_DEPENDENCIES, dependencies);
+
+        // Answer with the caller's own instances so that the sorted list is indistinguishable from one produced by
+        // the original provider.
+        final Map<R, R> callerInstances = new IdentityHashMap<>();
+        final List<R> expected = (List<R>)this.calls.get(this.position - 1).arguments.get(0);
+        for (int i = 0; i < expected.size(); i++) {
+            callerInstances.put(expected.get(i), dependencies.get(i));
+        }
+        final List<R> sorted = new ArrayList<>(recorded.size());
+        for (final R requirement : recorded) {
+            sorted.add(callerInstances.getOrDefault(requirement, requirement));
+        }
+        return sorted;
+    }
+
+    @Override
+    public synchronized Optional<Comparator<R>> dependencyComparator(final DependencyGraph<Payload<R, S>, R> activated,
+                                                                      final Map<String, Conflict<R, S>> conflicts) {
+        if (!(Boolean)nextAnswer(TraceFormat.DEPENDENCY_COMPARATOR)) {
+            return Optional.empty();
+        }
+        return Optional.of((dependency1, dependency2) -> {
+            synchronized (this) {
+                return (Integer)nextAnswer(TraceFormat.COMPARE_DEPENDENCIES, dependency1, dependency2);
+            }
+        });
+    }
+
+    @Override
+    public synchronized Optional<RangeAlgebra<R>> rangeAlgebra() {
+        if (!(Boolean)nextAnswer(TraceFormat.RANGE_ALGEBRA)) {
+            return Optional.empty();
+        }
+        return Optional.of(new RangeAlgebra<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public R intersect(final R requirement1, final R requirement2) {
+                synchronized (TraceReplayer.this) {
+                    return (R)nextAnswer(TraceFormat.INTERSECT, requirement1, requirement2);
+                }
+            }
+
+            @Override
+            public boolean isEmpty(final R requirement) {
+                synchronized (TraceReplayer.this) {
+                    return (Boolean)nextAnswer(TraceFormat.IS_EMPTY, requirement);
+                }
+            }
+        });
+    }
+
+    @Override
+    public synchronized boolean allowMissing(final R dependency) {
+        return (Boolean)nextAnswer(TraceFormat.ALLOW_MISSING, dependency);
+    }
+
+    /**
+     * Consumes the next call in the trace, verifying that it matches the call being made.
+     *
+     * @param recordType Type of the call being made
+     * @param arguments Arguments of the call being made
+     * @return Recorded answer to the call.
+     * @throws NoSuchDependencyError if the recorded call failed because a dependency could not be found
+     * @throws IllegalStateException if the call being made does not match the next call in the trace
+     */
+    private Object nextAnswer(final int recordType, final Object... arguments) {
+        if (this.position >= this.calls.size()) {
+            throw new IllegalStateException("Resolution diverged from the trace: unexpected call to "
+                                                    + TraceFormat.nameOf(recordType) + " after the last recorded call");
+        }
+
+        final Call call = this.calls.get(this.position);
+        if (call.type != recordType || !call.arguments.equals(List.of(arguments))) {
+            throw new IllegalStateException("Resolution diverged from the trace at call " + this.position
+                                                    + ": expected " + TraceFormat.nameOf(call.type) + call.arguments
+                                                    + " but was " + TraceFormat.nameOf(recordType)
+                                                    + List.of(arguments));
+        }
+        this.position++;
+
+        if (call.missingDependency != null) {
+            throw new NoSuchDependencyError(call.missingDependency, call.requiredBy);
+        }
+        return Objects.requireNonNull(call.answer);
+    }
+
+    /**
+     * Adds a call read from the trace to the calls to be replayed. The names answered by the recorded provider are
+     * not replayed in order but kept by requirement and specification, so that they can be answered however often and
+     * whenever they are asked for.
+     *
+     * @param call Call read from the trace
+     */
+    private void addCall(final Call call) {
+        if (call.answer != null && call.type == TraceFormat.NAME_FOR_DEPENDENCY) {
+            this.dependencyNames.put(call.arguments.get(0), (String)call.answer);
+        } else if (call.answer != null && call.type == TraceFormat.NAME_FOR_SPECIFICATION) {
+            this.specificationNames.put(call.arguments.get(0), (String)call.answer);
+        } else {
+            this.calls.add(call);
+        }
+    }
+
+    /**
+     * Reads a provider call record.
+     *
+     * @param recordType Type of the call
+     * @param input Source of the record
+     * @return Call read from the trace.
+     * @throws IOException if the record could not be read or is malformed
+     */
+    private Call readCall(final int recordType, final DataInputStream input) throws IOException {
+        final List<Object> arguments = switch (recordType) {
+            case TraceFormat.SEARCH_FOR, TraceFormat.NAME_FOR_DEPENDENCY, TraceFormat.ALLOW_MISSING,
+                 TraceFormat.IS_EMPTY, TraceFormat.SEARCH_FOR_NEWEST_FIRST, TraceFormat.NEXT_NEWEST_FIRST ->
+                    List.of(requirement(input));
+            case TraceFormat.DEPENDENCIES_FOR, TraceFormat.NAME_FOR_SPECIFICATION -> List.of(specification(input));
+            case TraceFormat.REQUIREMENT_SATISFIED_BY -> List.of(requirement(input), specification(input));
+            case TraceFormat.SORT_DEPENDENCIES -> List.of(readRequirementList(input));
+            case TraceFormat.COMPARE_DEPENDENCIES, TraceFormat.INTERSECT -> List.of(requirement(input),
+                                                                                    requirement(input));
+            case TraceFormat.NAME_FOR_EXPLICIT_DEPENDENCY_SOURCE, TraceFormat.NAME_FOR_LOCKING_DEPENDENCY_SOURCE,
+                 TraceFormat.DEPENDENCY_COMPARATOR, TraceFormat.RANGE_ALGEBRA -> List.of();
+            default -> throw new IOException("Unknown trace record type " + recordType);
+        };
+
+        final int status = input.readUnsignedByte();
+        if (status == TraceFormat.STATUS_NO_SUCH_DEPENDENCY) {
+            final R missingDependency = requirement(input);
+            final int count = BinaryIO.readVarInt(input);
+            final Set<Object> requiredBy = new LinkedHashSet<>();
+            for (int i = 0; i < count; i++) {
+                requiredBy.add(BinaryIO.readString(input));
+            }
+            return new Call(recordType, arguments, null, missingDependency, requiredBy);
+        }
+        if (status != TraceFormat.STATUS_OK) {
+            throw new IOException("Unknown call status " + status);
+        }
+
+        final Object answer = switch (recordType) {
+            case TraceFormat.SEARCH_FOR -> readSpecificationList(input);
+            case TraceFormat.DEPENDENCIES_FOR -> new LinkedHashSet<>(readRequirementList(input));
+            case TraceFormat.SORT_DEPENDENCIES -> readRequirementList(input);
+            case TraceFormat.REQUIREMENT_SATISFIED_BY, TraceFormat.ALLOW_MISSING, TraceFormat.DEPENDENCY_COMPARATOR,
+                 TraceFormat.RANGE_ALGEBRA, TraceFormat.IS_EMPTY -> input.readBoolean();
+            case TraceFormat.COMPARE_DEPENDENCIES -> (int)input.readByte();
+            case TraceFormat.INTERSECT -> requirement(input);
+            case TraceFormat.NEXT_NEWEST_FIRST -> input.readBoolean() ? Optional.of(specification(input))
+                                                                      : Optional.empty();
+            // The search itself has no answer, the specifications are answered as they are iterated
+            case TraceFormat.SEARCH_FOR_NEWEST_FIRST -> Boolean.TRUE;
+            default -> BinaryIO.readString(input);
+        };
+        return new Call(recordType, arguments, answer, null, Set.of());
+    }
+
+    /**
+     * Reads the requested dependencies and the locking graph.
+     *
+     * @param input Source of the record
+     * @throws IOException if the record could not be read or is malformed
+     */
+    private void readRequest(final DataInputStream input) throws IOException {
+        this.requested.addAll(readRequirementList(input));
+
+        final int vertexCount = BinaryIO.readVarInt(input);
+        final List<Vertex<R, R>> vertices = new ArrayList<>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            final String name = BinaryIO.readString(input);
+            final int flags = input.readUnsignedByte();
+            final R payload = (flags & TraceFormat.VERTEX_PAYLOAD) != 0 ? requirement(input) : null;
+            vertices.add(this.base.addVertex(name, payload, (flags & TraceFormat.VERTEX_ROOT) != 0));
+        }
+
+        final int edgeCount = BinaryIO.readVarInt(input);
+        for (int i = 0; i < edgeCount; i++) {
+            final Vertex<R, R> origin = vertex(vertices, BinaryIO.readVarInt(input));
+            final Vertex<R, R> destination = vertex(vertices, BinaryIO.readVarInt(input));
+            this.base.addEdge(origin, destination, requirement(input));
+        }
+    }
+
+    /**
+     * Reads the outcome of the recorded resolution.
+     *
+     * @param input Source of the record
+     * @throws IOException if the record could not be read or is malformed
+     */
+    private void readOutcome(final DataInputStream input) throws IOException {
+        final int outcome = input.readUnsignedByte();
+        if (outcome == TraceFormat.OUTCOME_FAILED) {
+            this.recordedFailure = BinaryIO.readString(input);
+        } else if (outcome == TraceFormat.OUTCOME_RESOLVED) {
+            final int count = BinaryIO.readVarInt(input);
+            final Map<String, S> resolution = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                final String name = BinaryIO.readString(input);
+                resolution.put(name, specification(input));
+            }
+            this.recordedResolution = resolution;
+        } else {
+            throw new IOException("Unknown resolution outcome " + outcome);
+        }
+    }
+
+    /**
+     * Reads a count followed by that many requirement indices.
+     *
+     * @param input Source of the list
+     * @return Requirements referred to by the indices.
+     * @throws IOException if the list could not be read or refers to an undefined requirement
+     */
+    private List<R> readRequirementList(final DataInputStream input) throws IOException {
+        final int count = BinaryIO.readVarInt(input);
+        final List<R> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(requirement(input));
+        }
+        return list;
+    }
+
+    /**
+     * Reads a count followed by that many specification indices.
+     *
+     * @param input Source of the list
+     * @return Specifications referred to by the indices.
+     * @throws IOException if the list could not be read or refers to an undefined specification
+     */
+    private List<S> readSpecificationList(final DataInputStream input) throws IOException {
+        final int count = BinaryIO.readVarInt(input);
+        final List<S> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(specification(input));
+        }
+        return list;
+    }
+
+    /**
+     * Reads a requirement index and resolves it to the previously defined requirement.
+     *
+     * @param input Source of the index
+     * @return Requirement referred to by the index.
+     * @throws IOException if the index could not be read or refers to an undefined requirement
+     */
+    private R requirement(final DataInputStream input) throws IOException {
+        final int id = BinaryIO.readVarInt(input);
+        if (id >= this.requirements.size()) {
+            throw new IOException("Reference to undefined requirement " + id);
+        }
+        return this.requirements.get(id);
+    }
+
+    /**
+     * Reads a specification index and resolves it to the previously defined specification.
+     *
+     * @param input Source of the index
+     * @return Specification referred to by the index.
+     * @throws IOException if the index could not be read or refers to an undefined specification
+     */
+    private S specification(final DataInputStream input) throws IOException {
+        final int id = BinaryIO.readVarInt(input);
+        if (id >= this.specifications.size()) {
+            throw new IOException("Reference to undefined specification " + id);
+        }
+        return this.specifications.get(id);
+    }
+
+    /**
+     * Obtains the vertex with the specified index in the locking graph record.
+     *
+     * @param vertices Vertices read so far
+     * @param index Index of the vertex
+     * @return Vertex with the specified index.
+     * @throws IOException if the index does not refer to a vertex
+     */
+    private Vertex<R, R> vertex(final List<Vertex<R, R>> vertices, final int index) throws IOException {
+        if (index >= vertices.size()) {
+            throw new IOException("Reference to undefined vertex " + index);
+        }
+        return vertices.get(index);
+    }
+}
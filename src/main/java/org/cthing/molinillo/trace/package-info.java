@@ -0,0 +1,7 @@
+/**
+ * Recording of resolutions to binary trace files and offline replay of those traces.
+ */
+@NullMarked
+package org.cthing.molinillo.trace;
+
+import org.jspecify.annotations.NullMarked;
@@ -0,0 +1,299 @@
+package org.cthing.molinillo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cthing.molinillo.errors.VersionConflictError;
+import org.cthing.molinillo.fixtures.TestCase;
+import org.cthing.molinillo.fixtures.TestDependency;
+import org.cthing.molinillo.fixtures.TestIndex;
+import org.cthing.molinillo.fixtures.TestSpecification;
+import org.cthing.molinillo.io.BinaryIO;
+import org.cthing.molinillo.io.Codec;
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+
+public class CheckpointTest {
+
+    private final List<Object> objectTable = new ArrayList<>();
+
+    /**
+     * The test fixtures cannot be serialized, so the codec writes the index of the value in a table shared by the
+     * writer and the reader.
+     */
+    private <T> Codec<T> tableCodec() {
+        return new Codec<>() {
+            @Override
+            public void write(final T value, final DataOutput output) throws IOException {
+                CheckpointTest.this.objectTable.add(value);
+                BinaryIO.writeVarInt(output, CheckpointTest.this.objectTable.size() - 1);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T read(final DataInput input) throws IOException {
+                return (T)CheckpointTest.this.objectTable.get(BinaryIO.readVarInt(input));
+            }
+        };
+    }
+
+    private Resolver<TestDependency, TestSpecification> resolver(
+            final TestIndex index, final int interval,
+            final List<Checkpoint<TestDependency, TestSpecification>> checkpoints) {
+        final Resolver<TestDependency, TestSpecification> resolver = new Resolver<>(index);
+        resolver.setCheckpointPolicy(new CheckpointPolicy<>(interval, tableCodec(), tableCodec(), checkpoints::add));
+        return resolver;
+    }
+
+    @Test
+    public void testResumeFromEveryCheckpoint() {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final List<Checkpoint<TestDependency, TestSpecification>> checkpoints = new ArrayList<>();
+        final DependencyGraph<TestSpecification, TestDependency> result =
+                resolver(testCase.getIndex(), 1, checkpoints).resolve(testCase.getRequested(), testCase.getBase());
+        assertThat(result).isEqualTo(testCase.getResult());
+        assertThat(checkpoints).isNotEmpty();
+
+        for (final Checkpoint<TestDependency, TestSpecification> checkpoint : checkpoints) {
+            final List<Checkpoint<TestDependency, TestSpecification>> resumedCheckpoints = new ArrayList<>();
+            final Resolver<TestDependency, TestSpecification> resolver =
+                    resolver(testCase.getIndex(), 1, resumedCheckpoints);
+            assertThat(resolver.resume(checkpoint)).isEqualTo(testCase.getResult());
+            assertThat(resumedCheckpoints).allMatch(cp -> cp.getIterationCount() > checkpoint.getIterationCount());
+        }
+    }
+
+    @Test
+    public void testResumeWithRangeAlgebra() {
+        // The range algebra is consulted whenever the requirement merged into an activated payload is known, so the
+        // resumed resolution consults it exactly as often as the original did after the checkpoint only if the
+        // merged requirements survive the checkpoint.
+        final AtomicInteger intersections = new AtomicInteger();
+
+        class AlgebraIndex extends TestIndex {
+            AlgebraIndex(final Map<String, TestSpecification[]> specsByName) {
+                super(specsByName);
+            }
+
+            @Override
+            public Optional<RangeAlgebra<TestDependency>> rangeAlgebra() {
+                return Optional.of(new RangeAlgebra<>() {
+                    @Override
+                    public TestDependency intersect(final TestDependency requirement1,
+                                                    final TestDependency requirement2) {
+                        intersections.incrementAndGet();
+                        return requirement1.intersect(requirement2);
+                    }
+
+                    @Override
+                    public boolean isEmpty(final TestDependency requirement) {
+                        return requirement.getVersionConstraint().isEmpty();
+                    }
+                });
+            }
+        }
+
+        final TestCase testCase = TestCase.fromFixture("three_way_conflict");
+        final List<Checkpoint<TestDependency, TestSpecification>> checkpoints = new ArrayList<>();
+        final List<Integer> intersectionsAtCheckpoint = new ArrayList<>();
+        final Resolver<TestDependency, TestSpecification> resolver =
+                new Resolver<>(new AlgebraIndex(testCase.getIndex().getSpecs()));
+        resolver.setCheckpointPolicy(new CheckpointPolicy<>(1, tableCodec(), tableCodec(), checkpoint -> {
+            checkpoints.add(checkpoint);
+            intersectionsAtCheckpoint.add(intersections.get());
+        }));
+        assertThat(resolver.resolve(testCase.getRequested(), testCase.getBase())).isEqualTo(testCase.getResult());
+        final int totalIntersections = intersections.get();
+        assertThat(checkpoints).isNotEmpty();
+
+        for (int i = 0; i < checkpoints.size(); i++) {
+            intersections.set(0);
+            final Resolver<TestDependency, TestSpecification> resumedResolver =
+                    new Resolver<>(new AlgebraIndex(testCase.getIndex().getSpecs()));
+            resumedResolver.setCheckpointPolicy(new CheckpointPolicy<>(1, tableCodec(), tableCodec(),
+                                                                       checkpoint -> { }));
+            assertThat(resumedResolver.resume(checkpoints.get(i))).isEqualTo(testCase.getResult());
+            assertThat(intersections.get()).as("checkpoint %d", i)
+                                           .isEqualTo(totalIntersections - intersectionsAtCheckpoint.get(i));
+        }
+    }
+
+    @Test
+    public void testPossibilitiesRemainLazy() {
+        // Taking a checkpoint must not build the possibility sets that the resolution has not needed yet, so the
+        // dependencies of a specification are obtained no more often than without checkpoints.
+        final AtomicInteger dependencyRequests = new AtomicInteger();
+
+        class CountingIndex extends TestIndex {
+            CountingIndex(final Map<String, TestSpecification[]> specsByName) {
+                super(specsByName);
+            }
+
+            @Override
+            public Set<TestDependency> dependenciesFor(final TestSpecification specification) {
+                dependencyRequests.incrementAndGet();
+                return super.dependenciesFor(specification);
+            }
+        }
+
+        final TestCase testCase = TestCase.fromFixture("deep_complex_conflict");
+        final DependencyGraph<TestSpecification, TestDependency> result =
+                new Resolver<>(new CountingIndex(testCase.getIndex().getSpecs())).resolve(testCase.getRequested(),
+                                                                                          testCase.getBase());
+        final int requestsWithoutCheckpoints = dependencyRequests.getAndSet(0);
+
+        final List<Checkpoint<TestDependency, TestSpecification>> checkpoints = new ArrayList<>();
+        assertThat(resolver(new CountingIndex(testCase.getIndex().getSpecs()), 1, checkpoints)
+                           .resolve(testCase.getRequested(), testCase.getBase())).isEqualTo(result);
+        assertThat(dependencyRequests.get()).isEqualTo(requestsWithoutCheckpoints);
+        assertThat(checkpoints).isNotEmpty();
+
+        final Checkpoint<TestDependency, TestSpecification> checkpoint = checkpoints.get(checkpoints.size() / 2);
+        assertThat(resolver(testCase.getIndex(), 1, new ArrayList<>()).resume(checkpoint)).isEqualTo(result);
+    }
+
+    @Test
+    public void testResumeWithLockedDependencies() {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict_unwinding");
+        final List<Checkpoint<TestDependency, TestSpecification>> checkpoints = new ArrayList<>();
+        resolver(testCase.getIndex(), 10, checkpoints).resolve(testCase.getRequested(), testCase.getBase());
+        assertThat(checkpoints).isNotEmpty();
+
+        for (final Checkpoint<TestDependency, TestSpecification> checkpoint : checkpoints) {
+            final Resolver<TestDependency, TestSpecification> resolver =
+                    resolver(testCase.getIndex(), 10, new ArrayList<>());
+            assertThat(resolver.resume(checkpoint)).isEqualTo(testCase.getResult());
+        }
+    }
+
+    @Test
+    public void testResumeAfterRestart() {
+        // A resumed resolution restarts when the original would have, with the same perturbation of the requirement
+        // order, only if the progress of the restart policy survives the checkpoint.
+        final AtomicInteger restarts = new AtomicInteger();
+        final AtomicInteger steps = new AtomicInteger();
+        final UI ui = new DebugUI() {
+            @Override
+            public void printf(final int depth, final String format, final @Nullable Object... args) {
+                if (format.startsWith("Restarting")) {
+                    restarts.incrementAndGet();
+                } else if (format.startsWith("Finished")) {
+                    steps.set((Integer)args[0]);
+                }
+            }
+
+            @Override
+            public boolean isDebugMode() {
+                return true;
+            }
+        };
+
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final List<Checkpoint<TestDependency, TestSpecification>> checkpoints = new ArrayList<>();
+        final List<Integer> restartsAtCheckpoint = new ArrayList<>();
+        final Resolver<TestDependency, TestSpecification> resolver = new Resolver<>(testCase.getIndex(), ui);
+        resolver.setRestartPolicy(new RestartPolicy(1));
+        resolver.setCheckpointPolicy(new CheckpointPolicy<>(5, tableCodec(), tableCodec(), checkpoint -> {
+            checkpoints.add(checkpoint);
+            restartsAtCheckpoint.add(restarts.get());
+        }));
+        assertThat(resolver.resolve(testCase.getRequested(), testCase.getBase())).isEqualTo(testCase.getResult());
+        final int totalRestarts = restarts.get();
+        final int totalSteps = steps.get();
+        assertThat(restartsAtCheckpoint).anyMatch(count -> count > 0);
+
+        for (int i = 0; i < checkpoints.size(); i++) {
+            restarts.set(0);
+            final Resolver<TestDependency, TestSpecification> resumedResolver =
+                    new Resolver<>(testCase.getIndex(), ui);
+            resumedResolver.setRestartPolicy(new RestartPolicy(1));
+            resumedResolver.setCheckpointPolicy(new CheckpointPolicy<>(5, tableCodec(), tableCodec(),
+                                                                       checkpoint -> { }));
+            assertThat(resumedResolver.resume(checkpoints.get(i))).isEqualTo(testCase.getResult());
+            assertThat(restarts.get()).as("checkpoint %d", i)
+                                      .isEqualTo(totalRestarts - restartsAtCheckpoint.get(i));
+            assertThat(steps.get()).as("checkpoint %d", i).isEqualTo(totalSteps);
+        }
+    }
+
+    @Test
+    public void testResumeConflict() {
+        final TestCase testCase = TestCase.fromFixture("unresolvable_child");
+        final List<Checkpoint<TestDependency, TestSpecification>> checkpoints = new ArrayList<>();
+        final VersionConflictError expected = catchThrowableOfType(VersionConflictError.class, () ->
+                resolver(testCase.getIndex(), 1, checkpoints).resolve(testCase.getRequested(), testCase.getBase()));
+        assertThat(checkpoints).isNotEmpty();
+
+        for (final Checkpoint<TestDependency, TestSpecification> checkpoint : checkpoints) {
+            final Resolver<TestDependency, TestSpecification> resolver =
+                    resolver(testCase.getIndex(), 1, new ArrayList<>());
+            final VersionConflictError actual = catchThrowableOfType(VersionConflictError.class,
+                                                                     () -> resolver.resume(checkpoint));
+            assertThat(actual.getMessage()).isEqualTo(expected.getMessage());
+            assertThat(actual.messageWithTrees()).isEqualTo(expected.messageWithTrees());
+        }
+    }
+
+    @Test
+    public void testInterval() {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final List<Checkpoint<TestDependency, TestSpecification>> checkpoints = new ArrayList<>();
+        resolver(testCase.getIndex(), 5, checkpoints).resolve(testCase.getRequested(), testCase.getBase());
+        assertThat(checkpoints).isNotEmpty();
+        assertThat(checkpoints).allMatch(checkpoint -> checkpoint.getIterationCount() % 5 == 0);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new CheckpointPolicy<>(0, tableCodec(), tableCodec(),
+                                                                                      checkpoint -> { }));
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final List<Checkpoint<TestDependency, TestSpecification>> checkpoints = new ArrayList<>();
+        resolver(testCase.getIndex(), 3, checkpoints).resolve(testCase.getRequested(), testCase.getBase());
+        final Checkpoint<TestDependency, TestSpecification> checkpoint = checkpoints.get(checkpoints.size() / 2);
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        checkpoint.writeTo(outputStream);
+        final Checkpoint<TestDependency, TestSpecification> readCheckpoint =
+                Checkpoint.readFrom(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertThat(readCheckpoint.getIterationCount()).isEqualTo(checkpoint.getIterationCount());
+
+        final Resolver<TestDependency, TestSpecification> resolver =
+                resolver(testCase.getIndex(), 3, new ArrayList<>());
+        assertThat(resolver.resume(readCheckpoint)).isEqualTo(testCase.getResult());
+    }
+
+    @Test
+    public void testResumeWithoutPolicy() {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final List<Checkpoint<TestDependency, TestSpecification>> checkpoints = new ArrayList<>();
+        resolver(testCase.getIndex(), 1, checkpoints).resolve(testCase.getRequested(), testCase.getBase());
+
+        final Resolver<TestDependency, TestSpecification> resolver = new Resolver<>(testCase.getIndex());
+        assertThatIllegalStateException().isThrownBy(() -> resolver.resume(checkpoints.get(0)));
+    }
+
+    @Test
+    public void testNotACheckpoint() {
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> Checkpoint.readFrom(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5 })))
+                .withMessage("Not a resolution checkpoint");
+    }
+}
@@ -0,0 +1,36 @@
+package org.cthing.molinillo;
+
+import org.cthing.molinillo.graph.Vertex;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class ClosureIndexTest {
+
+    @Test
+    public void testIndex() {
+        final DependencyGraph<String, String> graph = new DependencyGraph<>();
+        final Vertex<String, String> vertex1 = graph.addVertex("vertex1", "payload1", true);
+        final Vertex<String, String> vertex2 = graph.addVertex("vertex2", "payload2", false);
+        final Vertex<String, String> vertex3 = graph.addVertex("vertex3", "payload3", false);
+        graph.addEdge(vertex1, vertex2, "req");
+        graph.addEdge(vertex1, vertex3, "req");
+        graph.addEdge(vertex2, vertex3, "req");
+
+        final ClosureIndex<String, String> index = new ClosureIndex<>(graph);
+        assertThat(index.isCurrent(graph)).isTrue();
+        assertThat(index.dependsOn("vertex1", "vertex3")).isTrue();
+        assertThat(index.dependsOn("vertex3", "vertex1")).isFalse();
+        assertThat(index.dependencies("vertex1")).containsExactly(vertex3, vertex2);
+        assertThat(index.dependents("vertex3")).containsExactly(vertex2, vertex1);
+        assertThat(index.dependencyCount("vertex1")).isEqualTo(2);
+        assertThat(index.dependentCount("vertex2")).isEqualTo(1);
+
+        graph.tag("tag1");
+        assertThat(index.isCurrent(graph)).isTrue();
+
+        graph.setPayload("vertex2", "payload4");
+        assertThat(index.isCurrent(graph)).isFalse();
+    }
+}
@@ -0,0 +1,129 @@
+package org.cthing.molinillo;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.cthing.molinillo.fixtures.TestDependency;
+import org.cthing.molinillo.fixtures.TestIndex;
+import org.cthing.molinillo.fixtures.TestSpecification;
+import org.cthing.molinillo.graph.Vertex;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class ComponentsTest {
+
+    private final TestIndex index = new TestIndex(new HashMap<>(Map.of(
+            "a", new TestSpecification[] { new TestSpecification("a", "1.0", Map.of("b", ">= 1.0")) },
+            "b", new TestSpecification[] { new TestSpecification("b", "1.0", Map.of()) },
+            "c", new TestSpecification[] {
+                    new TestSpecification("c", "1.0", Map.of("b", ">= 1.0")),
+                    new TestSpecification("c", "2.0", Map.of("d", ">= 1.0"))
+            },
+            "d", new TestSpecification[] { new TestSpecification("d", "1.0", Map.of("e", ">= 1.0")) },
+            "e", new TestSpecification[] { new TestSpecification("e", "1.0", Map.of()) },
+            "f", new TestSpecification[] { new TestSpecification("f", "1.0", Map.of("e", ">= 1.0")) }
+    )));
+
+    private final TestDependency depA = new TestDependency("a");
+    private final TestDependency depC = new TestDependency("c", ">= 2.0");
+    private final TestDependency depF = new TestDependency("f");
+    private final TestDependency depG = new TestDependency("g");
+
+    @Test
+    public void testPartition() {
+        final Set<TestDependency> requested = new LinkedHashSet<>(List.of(this.depA, this.depC, this.depF,
+                                                                          this.depG));
+        assertThat(Components.partition(this.index, requested, new DependencyGraph<>()))
+                .containsExactly(Set.of(this.depA), Set.of(this.depC, this.depF), Set.of(this.depG));
+    }
+
+    @Test
+    public void testPartitionLocked() {
+        final Set<TestDependency> requested = new LinkedHashSet<>(List.of(this.depA, this.depC, this.depF));
+        final DependencyGraph<TestDependency, TestDependency> base = new DependencyGraph<>();
+        base.addVertex("c", new TestDependency("c", "= 1.0"), true);
+
+        // The locked version of c depends on b, which joins c to the component containing a.
+        assertThat(Components.partition(this.index, requested, base))
+                .containsExactly(Set.of(this.depA, this.depC, this.depF));
+    }
+
+    @Test
+    public void testPartitionProviderCalls() {
+        final AtomicInteger searches = new AtomicInteger();
+        final AtomicInteger expansions = new AtomicInteger();
+        final TestIndex countingIndex = new TestIndex(new HashMap<>(Map.of(
+                "a", IntStream.rangeClosed(1, 20)
+                              .mapToObj(i -> new TestSpecification("a", i + ".0", Map.of("b", ">= 1.0")))
+                              .toArray(TestSpecification[]::new),
+                "b", IntStream.rangeClosed(1, 20)
+                              .mapToObj(i -> new TestSpecification("b", i + ".0", Map.of()))
+                              .toArray(TestSpecification[]::new)
+        ))) {
+            @Override
+            public List<TestSpecification> searchFor(final TestDependency dependency) {
+                searches.incrementAndGet();
+                return super.searchFor(dependency);
+            }
+
+            @Override
+            public Set<TestDependency> dependenciesFor(final TestSpecification specification) {
+                expansions.incrementAndGet();
+                return super.dependenciesFor(specification);
+            }
+        };
+
+        // Ten requirements on a find overlapping specifications, each of which depends on the same requirement on b.
+        final Set<TestDependency> requested = IntStream.rangeClosed(1, 10)
+                                                       .mapToObj(i -> new TestDependency("a", ">= " + i + ".0"))
+                                                       .collect(Collectors.toCollection(LinkedHashSet::new));
+        assertThat(Components.partition(countingIndex, requested, new DependencyGraph<>())).containsExactly(requested);
+        assertThat(searches).hasValue(11);
+        assertThat(expansions).hasValue(40);
+    }
+
+    @Test
+    public void testMerge() {
+        final DependencyGraph<String, String> graph1 = new DependencyGraph<>();
+        final Vertex<String, String> a = graph1.addVertex("a", "a1", true);
+        final Vertex<String, String> b = graph1.addVertex("b", "b1", false);
+        graph1.addEdge(a, b, "b>=1");
+
+        final DependencyGraph<String, String> graph2 = new DependencyGraph<>();
+        final Vertex<String, String> c = graph2.addVertex("c", "c2", true);
+        final Vertex<String, String> d = graph2.addVertex("d", "d1", false);
+        graph2.addEdge(c, d, "d>=1");
+        graph2.addVertex("b", "b1", true);
+
+        final DependencyGraph<String, String> expected = new DependencyGraph<>();
+        final Vertex<String, String> expectedA = expected.addVertex("a", "a1", true);
+        final Vertex<String, String> expectedB = expected.addVertex("b", "b1", true);
+        final Vertex<String, String> expectedC = expected.addVertex("c", "c2", true);
+        final Vertex<String, String> expectedD = expected.addVertex("d", "d1", false);
+        expected.addEdge(expectedA, expectedB, "b>=1");
+        expected.addEdge(expectedC, expectedD, "d>=1");
+
+        assertThat(Components.merge(List.of(graph1, graph2))).contains(expected);
+        assertThat(Components.merge(List.of(graph1))).contains(graph1);
+        assertThat(Components.merge(List.<DependencyGraph<String, String>>of())).contains(new DependencyGraph<>());
+    }
+
+    @Test
+    public void testMergeDisagreement() {
+        final DependencyGraph<String, String> graph1 = new DependencyGraph<>();
+        graph1.addVertex("a", "a1", true);
+
+        final DependencyGraph<String, String> graph2 = new DependencyGraph<>();
+        graph2.addVertex("a", "a2", true);
+
+        assertThat(Components.merge(List.of(graph1, graph2))).isEmpty();
+    }
+}
@@ -0,0 +1,181 @@
+package org.cthing.molinillo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.cthing.molinillo.graph.Vertex;
+import org.cthing.molinillo.io.Codec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+
+public class DependencyGraphCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final DependencyGraph<String, String> graph = new DependencyGraph<>();
+
+    @BeforeEach
+    public void setUp() {
+        final Vertex<String, String> vertex1 = this.graph.addVertex("A", "1.0", true);
+        final Vertex<String, String> vertex2 = this.graph.addVertex("B", "2.0", false);
+        final Vertex<String, String> vertex3 = this.graph.addVertex("C", null, false);
+        vertex1.getExplicitRequirements().add(">= 1");
+        this.graph.addEdge(vertex1, vertex2, ">= 2");
+        this.graph.addEdge(vertex1, vertex3, "any");
+        this.graph.addEdge(vertex2, vertex3, "< 3");
+    }
+
+    private void assertSameGraph(final DependencyGraph<String, String> actual) {
+        assertThat(actual).isEqualTo(this.graph);
+        assertThat(actual.getLog()).isEmpty();
+        for (final Vertex<String, String> vertex : this.graph.getVertices().values()) {
+            final Vertex<String, String> actualVertex = actual.vertexNamed(vertex.getName()).orElseThrow();
+            assertThat(actualVertex.isRoot()).isEqualTo(vertex.isRoot());
+            assertThat(actualVertex.getPayload()).isEqualTo(vertex.getPayload());
+            assertThat(actualVertex.getExplicitRequirements()).isEqualTo(vertex.getExplicitRequirements());
+            assertThat(actualVertex.getIncomingEdges()).isEqualTo(vertex.getIncomingEdges());
+        }
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        final DependencyGraphCodec<String, String> codec =
+                new DependencyGraphCodec<>(Codec.strings(), Codec.strings());
+        final Path path = this.tempDir.resolve("graph.bin");
+        codec.write(this.graph, path);
+        assertSameGraph(codec.read(path));
+
+        final DependencyGraphCodec<String, String> noChecksum =
+                new DependencyGraphCodec<>(Codec.strings(), Codec.strings(), false);
+        final Path path2 = this.tempDir.resolve("graph2.bin");
+        noChecksum.write(this.graph, path2);
+        assertThat(Files.size(path2)).isEqualTo(Files.size(path) - Integer.BYTES);
+        assertSameGraph(codec.read(path2));
+    }
+
+    @Test
+    public void testStream() throws IOException {
+        final DependencyGraphCodec<String, String> codec =
+                new DependencyGraphCodec<>(Codec.strings(), Codec.strings());
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.write(this.graph, output);
+        codec.write(new DependencyGraph<>(), output);
+
+        final ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray());
+        assertSameGraph(codec.read(input));
+        assertThat(codec.read(input).isEmpty()).isTrue();
+        assertThat(input.available()).isZero();
+    }
+
+    @Test
+    public void testDeterministic() throws IOException {
+        final DependencyGraph<String, String> reversed = new DependencyGraph<>();
+        final Vertex<String, String> vertex3 = reversed.addVertex("C", null, false);
+        final Vertex<String, String> vertex2 = reversed.addVertex("B", "2.0", false);
+        final Vertex<String, String> vertex1 = reversed.addVertex("A", "1.0", true);
+        vertex1.getExplicitRequirements().add(">= 1");
+        reversed.addEdge(vertex2, vertex3, "< 3");
+        reversed.addEdge(vertex1, vertex3, "any");
+        reversed.addEdge(vertex1, vertex2, ">= 2");
+
+        final DependencyGraphCodec<String, String> codec =
+                new DependencyGraphCodec<>(Codec.strings(), Codec.strings());
+        final ByteArrayOutputStream output1 = new ByteArrayOutputStream();
+        final ByteArrayOutputStream output2 = new ByteArrayOutputStream();
+        codec.write(this.graph, output1);
+        codec.write(reversed, output2);
+        assertThat(output2.toByteArray()).isEqualTo(output1.toByteArray());
+    }
+
+    @Test
+    public void testCorrupt() throws IOException {
+        final DependencyGraphCodec<String, String> codec =
+                new DependencyGraphCodec<>(Codec.strings(), Codec.strings());
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.write(this.graph, output);
+        final byte[] bytes = output.toByteArray();
+
+        final byte[] corrupt = bytes.clone();
+        corrupt[8] ^= 1;
+        assertThatIOException().isThrownBy(() -> codec.read(new ByteArrayInputStream(corrupt)))
+                               .withMessage("Dependency graph checksum mismatch");
+
+        final byte[] notGraph = bytes.clone();
+        notGraph[0] = 0;
+        assertThatIOException().isThrownBy(() -> codec.read(new ByteArrayInputStream(notGraph)))
+                               .withMessage("Not a dependency graph");
+
+        // The names are written after the header and vertex count, each preceded by its length.
+        final byte[] duplicate = bytes.clone();
+        assertThat(duplicate[10]).isEqualTo((byte)'B');
+        duplicate[10] = 'A';
+        assertThatIOException().isThrownBy(() -> codec.read(new ByteArrayInputStream(duplicate)))
+                               .withMessage("Duplicate vertex A");
+
+        final Path path = this.tempDir.resolve("graph.bin");
+        final byte[] extra = new byte[bytes.length + 1];
+        System.arraycopy(bytes, 0, extra, 0, bytes.length);
+        Files.write(path, extra);
+        assertThatIOException().isThrownBy(() -> codec.read(path))
+                               .withMessage("Unexpected content after the dependency graph: " + path);
+    }
+
+    @Test
+    public void testCorruptCounts() throws IOException {
+        final DependencyGraphCodec<String, String> codec =
+                new DependencyGraphCodec<>(Codec.strings(), Codec.strings());
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.write(this.graph, output);
+        final byte[] bytes = output.toByteArray();
+
+        // The vertex count follows the header, and the length of the first name follows the vertex count. Corrupt
+        // counts must not be trusted to allocate memory before the checksum can be verified.
+        final byte[] vertexCount = replace(bytes, 6, new byte[] { (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x7F });
+        assertThatIOException().isThrownBy(() -> codec.read(new ByteArrayInputStream(vertexCount)));
+
+        final byte[] nameLength = replace(bytes, 7, new byte[] { (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07 });
+        assertThatIOException().isThrownBy(() -> codec.read(new ByteArrayInputStream(nameLength)));
+    }
+
+    @Test
+    public void testCodecFailure() throws IOException {
+        final DependencyGraphCodec<String, String> codec =
+                new DependencyGraphCodec<>(Codec.strings(), Codec.strings());
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.write(this.graph, output);
+
+        final DependencyGraphCodec<String, String> failing = new DependencyGraphCodec<>(Codec.strings(), new Codec<>() {
+            @Override
+            public void write(final String value, final DataOutput out) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String read(final DataInput input) {
+                throw new IllegalArgumentException("Unknown requirement");
+            }
+        });
+        assertThatIOException().isThrownBy(() -> failing.read(new ByteArrayInputStream(output.toByteArray())))
+                               .withMessage("Malformed value in dependency graph")
+                               .withCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] replace(final byte[] bytes, final int position, final byte[] replacement) {
+        final byte[] replaced = new byte[bytes.length - 1 + replacement.length];
+        System.arraycopy(bytes, 0, replaced, 0, position);
+        System.arraycopy(replacement, 0, replaced, position, replacement.length);
+        System.arraycopy(bytes, position + 1, replaced, position + replacement.length, bytes.length - position - 1);
+        return replaced;
+    }
+}
@@ -0,0 +1,106 @@
+package org.cthing.molinillo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cthing.molinillo.graph.Vertex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+
+public class DependencyGraphExecutorTest {
+
+    private final DependencyGraph<String, String> graph = new DependencyGraph<>();
+    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+    @BeforeEach
+    public void setUp() {
+        final Vertex<String, String> app = this.graph.addVertex("app", "1", true);
+        final Vertex<String, String> lib = this.graph.addVertex("lib", "1", false);
+        final Vertex<String, String> util = this.graph.addVertex("util", "1", false);
+        final Vertex<String, String> log = this.graph.addVertex("log", "1", false);
+        this.graph.addVertex("extra", "1", false);
+        this.graph.addEdge(app, lib, "req");
+        this.graph.addEdge(lib, util, "req");
+        this.graph.addEdge(app, log, "req");
+        this.graph.addEdge(util, log, "req");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.executorService.shutdownNow();
+    }
+
+    @Test
+    public void testConstruction() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new DependencyGraphExecutor(Runnable::run, 0))
+                                            .withMessage("Parallelism must be greater than zero");
+    }
+
+    @Test
+    public void testCriticalPathFirst() throws InterruptedException {
+        final List<String> names = new ArrayList<>();
+        new DependencyGraphExecutor(Runnable::run, 1).execute(this.graph, vertex -> names.add(vertex.getName()));
+        assertThat(names).containsExactly("log", "util", "lib", "app", "extra");
+
+        names.clear();
+        new DependencyGraphExecutor(Runnable::run, 1).execute(this.graph, vertex -> names.add(vertex.getName()),
+                                                              vertex -> "extra".equals(vertex.getName()) ? 10 : 1);
+        assertThat(names).containsExactly("extra", "log", "util", "lib", "app");
+    }
+
+    @Test
+    public void testDependencyOrder() throws InterruptedException {
+        final DependencyGraph<String, String> chains = new DependencyGraph<>();
+        for (int i = 0; i < 40; i++) {
+            chains.addVertex("v" + i, "1", false);
+        }
+        for (int i = 0; i < 40; i++) {
+            for (int j = i + 3; j < 40; j += 7) {
+                chains.addEdge(chains.vertexNamed("v" + i).orElseThrow(), chains.vertexNamed("v" + j).orElseThrow(),
+                               "req");
+            }
+        }
+
+        final List<String> completed = Collections.synchronizedList(new ArrayList<>());
+        final List<String> violations = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        new DependencyGraphExecutor(this.executorService, 2).execute(chains, vertex -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            for (final Vertex<String, String> successor : vertex.successors()) {
+                if (!completed.contains(successor.getName())) {
+                    violations.add(vertex.getName());
+                }
+            }
+            completed.add(vertex.getName());
+            running.decrementAndGet();
+        });
+
+        assertThat(completed).hasSize(40);
+        assertThat(violations).isEmpty();
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void testFailure() {
+        final List<String> names = Collections.synchronizedList(new ArrayList<>());
+        assertThatIllegalStateException().isThrownBy(() -> new DependencyGraphExecutor(this.executorService, 2)
+                .execute(this.graph, vertex -> {
+                    if ("util".equals(vertex.getName())) {
+                        throw new IllegalStateException("Failed " + vertex.getName());
+                    }
+                    names.add(vertex.getName());
+                })).withMessage("Failed util");
+        assertThat(names).doesNotContain("lib", "app");
+    }
+}
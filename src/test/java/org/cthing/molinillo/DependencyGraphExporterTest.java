@@ -0,0 +1,105 @@
+package org.cthing.molinillo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.cthing.molinillo.graph.Vertex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class DependencyGraphExporterTest {
+
+    private final DependencyGraph<String, String> graph = new DependencyGraph<>();
+
+    @BeforeEach
+    public void setUp() {
+        final Vertex<String, String> vertex1 = this.graph.addVertex("A", "p1", true);
+        final Vertex<String, String> vertex2 = this.graph.addVertex("C", null, false);
+        final Vertex<String, String> vertex3 = this.graph.addVertex("B", "<\"p3\">", false);
+        this.graph.addEdge(vertex1, vertex3, ">= 1");
+        this.graph.addEdge(vertex1, vertex2, "req");
+        this.graph.addEdge(vertex3, vertex2, "req");
+    }
+
+    @Test
+    public void testToDot() throws IOException {
+        final StringBuilder dot = new StringBuilder();
+        DependencyGraphExporter.toDot(this.graph, dot);
+        assertThat(dot).hasToString("""
+                                    digraph G {
+                                    A [label="{A|p1}"]
+                                    B [label="{B|<"p3">}"]
+                                    C [label="{C}"]
+                                      A -> B [label=>= 1]
+                                      A -> C [label=req]
+                                      B -> C [label=req]}
+                                    """);
+        assertThat(this.graph.toDot()).isEqualTo(dot.toString());
+
+        final StringBuilder empty = new StringBuilder();
+        DependencyGraphExporter.toDot(new DependencyGraph<String, String>(), empty);
+        assertThat(empty).hasToString("digraph G {\n\n}\n");
+    }
+
+    @Test
+    public void testToJson() throws IOException {
+        final String expected = """
+                                {"vertices":[
+                                {"name":"A","payload":"p1","root":true},
+                                {"name":"B","payload":"<\\"p3\\">","root":false},
+                                {"name":"C","payload":null,"root":false}
+                                ],"edges":[
+                                {"origin":"A","destination":"B","requirement":">= 1"},
+                                {"origin":"A","destination":"C","requirement":"req"},
+                                {"origin":"B","destination":"C","requirement":"req"}
+                                ]}
+                                """;
+
+        final StringBuilder json = new StringBuilder();
+        DependencyGraphExporter.toJson(this.graph, json);
+        assertThat(json).hasToString(expected);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DependencyGraphExporter.toJson(this.graph, Channels.newChannel(bytes));
+        assertThat(bytes.toString(StandardCharsets.UTF_8)).isEqualTo(expected);
+
+        final StringBuilder empty = new StringBuilder();
+        DependencyGraphExporter.toJson(new DependencyGraph<String, String>(), empty);
+        assertThat(empty).hasToString("{\"vertices\":[\n],\"edges\":[\n]}\n");
+    }
+
+    @Test
+    public void testToGraphMl() throws IOException {
+        final StringBuilder graphMl = new StringBuilder();
+        DependencyGraphExporter.toGraphMl(this.graph, graphMl);
+        assertThat(graphMl).hasToString("""
+            <?xml version="1.0" encoding="UTF-8"?>
+            <graphml xmlns="http://graphml.graphdrawing.org/xmlns">
+              <key id="payload" for="node" attr.name="payload" attr.type="string"/>
+              <key id="root" for="node" attr.name="root" attr.type="boolean"/>
+              <key id="requirement" for="edge" attr.name="requirement" attr.type="string"/>
+              <graph id="G" edgedefault="directed">
+                <node id="A"><data key="payload">p1</data><data key="root">true</data></node>
+                <node id="B"><data key="payload">&lt;&quot;p3&quot;&gt;</data><data key="root">false</data></node>
+                <node id="C"><data key="root">false</data></node>
+                <edge source="A" target="B"><data key="requirement">&gt;= 1</data></edge>
+                <edge source="A" target="C"><data key="requirement">req</data></edge>
+                <edge source="B" target="C"><data key="requirement">req</data></edge>
+              </graph>
+            </graphml>
+            """);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DependencyGraphExporter.toGraphMl(this.graph, Channels.newChannel(bytes));
+        assertThat(bytes.toString(StandardCharsets.UTF_8)).isEqualTo(graphMl.toString());
+
+        final ByteArrayOutputStream dotBytes = new ByteArrayOutputStream();
+        DependencyGraphExporter.toDot(this.graph, Channels.newChannel(dotBytes));
+        assertThat(dotBytes.toString(StandardCharsets.UTF_8)).isEqualTo(this.graph.toDot());
+    }
+}
@@ -0,0 +1,91 @@
+package org.cthing.molinillo;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.function.Function;
+
+import org.cthing.molinillo.errors.CircularDependencyError;
+import org.cthing.molinillo.graph.Vertex;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+
+public class DependencyGraphImporterTest {
+
+    private static DependencyGraph<String, String> fromJson(final String json) throws IOException {
+        return DependencyGraphImporter.fromJson(new StringReader(json), Function.identity(), Function.identity());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final DependencyGraph<Integer, String> graph = new DependencyGraph<>();
+        final Vertex<Integer, String> vertex1 = graph.addVertex("A", 1, true);
+        final Vertex<Integer, String> vertex2 = graph.addVertex("B", 2, false);
+        final Vertex<Integer, String> vertex3 = graph.addVertex("C\n\"", null, false);
+        graph.addEdge(vertex1, vertex2, ">= 1");
+        graph.addEdge(vertex1, vertex3, "req");
+        graph.addEdge(vertex2, vertex3, "req");
+
+        final StringBuilder json = new StringBuilder();
+        DependencyGraphExporter.toJson(graph, json);
+        final DependencyGraph<Integer, String> imported =
+                DependencyGraphImporter.fromJson(new StringReader(json.toString()), Integer::valueOf,
+                                                 Function.identity());
+        assertThat(imported).isEqualTo(graph);
+        assertThat(imported.getLog()).isEmpty();
+        assertThat(imported.vertexNamed("A").orElseThrow().isRoot()).isTrue();
+        assertThat(imported.vertexNamed("B").orElseThrow().isRoot()).isFalse();
+        assertThat(imported.vertexNamed("C\n\"").orElseThrow().getPayload()).isEmpty();
+    }
+
+    @Test
+    public void testIgnoredMembers() throws IOException {
+        final DependencyGraph<String, String> graph = fromJson("""
+                                                               {
+                                                                 // Comments are permitted
+                                                                 "version": 1,
+                                                                 "vertices": [
+                                                                   {"name": "A", "payload": "1", "extra": [1, 2]},
+                                                                   {"name": "B"}
+                                                                 ],
+                                                                 "edges": [
+                                                                   {"origin": "A", "destination": "B",
+                                                                    "requirement": "req", "weight": 2}
+                                                                 ]
+                                                               }
+                                                               """);
+        assertThat(graph.getVertices()).containsOnlyKeys("A", "B");
+        assertThat(graph.vertexNamed("A").orElseThrow().isRoot()).isFalse();
+        assertThat(graph.vertexNamed("B").orElseThrow().getPayload()).isEmpty();
+        assertThat(graph.dependsOn("A", "B")).isTrue();
+    }
+
+    @Test
+    public void testMalformed() {
+        assertThatIOException().isThrownBy(() -> fromJson("{\"vertices\":[{\"payload\":\"1\"}]}"))
+                               .withMessage("Vertex does not have a name");
+        assertThatIOException().isThrownBy(() -> fromJson("{\"edges\":[{\"origin\":\"A\",\"destination\":\"B\"}]}"))
+                               .withMessage("Edge must have an origin, destination and requirement");
+        assertThatIOException().isThrownBy(() -> fromJson("""
+                                                          {"vertices":[{"name":"A"}],
+                                                           "edges":[{"origin":"A","destination":"B","requirement":"r"}]}
+                                                          """))
+                               .withMessage("Edge refers to unknown vertex B");
+        assertThatIOException().isThrownBy(() -> fromJson("{\"vertices\":[{\"name\":\"A\"},{\"name\":\"A\"}]}"))
+                               .withMessage("Duplicate vertex A");
+        assertThatIOException().isThrownBy(() -> fromJson("{} {}"))
+                               .withMessageContaining("Unexpected content after the end of the document");
+    }
+
+    @Test
+    public void testCycle() {
+        assertThatExceptionOfType(CircularDependencyError.class).isThrownBy(() -> fromJson("""
+                {"vertices":[{"name":"A"},{"name":"B"}],
+                 "edges":[{"origin":"A","destination":"B","requirement":"r"},
+                          {"origin":"B","destination":"A","requirement":"r"}]}
+                """));
+    }
+}
@@ -1,7 +1,9 @@
 package org.cthing.molinillo;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.cthing.molinillo.errors.CircularDependencyError;
 import org.cthing.molinillo.graph.Action;
@@ -236,6 +238,229 @@ public class DependencyGraphTest {
         assertThat(vertices.get("v3").getPayload()).contains(3);
     }
 
+    @Test
+    public void testCloneGraphWithoutHistory() {
+        final Vertex<String, String> vertex1 = this.graph.addVertex("v1", "1", true);
+        final Vertex<String, String> vertex2 = this.graph.addVertex("v2", "2", false);
+        final Vertex<String, String> vertex3 = this.graph.addVertex("v3", null, false);
+        this.graph.addEdge(vertex1, vertex2, "req1");
+        this.graph.addEdge(vertex1, vertex3, "req2");
+        this.graph.addEdge(vertex2, vertex3, "req3");
+
+        final DependencyGraph<String, String> recorded = this.graph.cloneGraph(Function.identity());
+        assertThat(recorded).isEqualTo(this.graph);
+        assertThat(recorded.getLog()).hasSize(6);
+
+        final DependencyGraph<Integer, String> graph2 = this.graph.cloneGraph(payload -> Integer.parseInt(payload, 10),
+                                                                              false);
+        assertThat(graph2.getLog()).isEmpty();
+        assertThat(graph2.getVertices().keySet()).containsExactlyInAnyOrder("v1", "v2", "v3");
+        final Vertex<Integer, String> clone1 = graph2.vertexNamed("v1").orElseThrow();
+        final Vertex<Integer, String> clone2 = graph2.vertexNamed("v2").orElseThrow();
+        final Vertex<Integer, String> clone3 = graph2.vertexNamed("v3").orElseThrow();
+        assertThat(clone1.getPayload()).contains(1);
+        assertThat(clone2.getPayload()).contains(2);
+        assertThat(clone3.getPayload()).isEmpty();
+        assertThat(clone1.isRoot()).isTrue();
+        assertThat(clone2.isRoot()).isFalse();
+        assertThat(clone1.getOutgoingEdges()).containsExactlyInAnyOrder(new Edge<>(clone1, clone2, "req1"),
+                                                                          new Edge<>(clone1, clone3, "req2"));
+        assertThat(clone3.getIncomingEdges()).containsExactlyInAnyOrder(new Edge<>(clone1, clone3, "req2"),
+                                                                          new Edge<>(clone2, clone3, "req3"));
+        assertThat(clone3.requirements()).containsExactlyInAnyOrder("req2", "req3");
+
+        graph2.tag("tag1");
+        graph2.detachVertexNamed("v2");
+        assertThat(clone1.successors()).containsExactly(clone3);
+        graph2.rewindTo("tag1");
+        assertThat(clone1.successors()).containsExactlyInAnyOrder(clone2, clone3);
+    }
+
+    @Test
+    public void testSubgraph() {
+        final Vertex<String, String> vertex1 = this.graph.addVertex("v1", "1", true);
+        final Vertex<String, String> vertex2 = this.graph.addVertex("v2", "2", true);
+        final Vertex<String, String> vertex3 = this.graph.addVertex("v3", "3", false);
+        final Vertex<String, String> vertex4 = this.graph.addVertex("v4", "4", false);
+        this.graph.addEdge(vertex1, vertex2, "req1");
+        this.graph.addEdge(vertex2, vertex3, "req2");
+        this.graph.addEdge(vertex4, vertex3, "req3");
+
+        final DependencyGraph<String, String> subgraph = this.graph.subgraph(List.of("v2"));
+        assertThat(subgraph.getLog()).isEmpty();
+        assertThat(subgraph.getVertices().keySet()).containsExactlyInAnyOrder("v2", "v3");
+        final Vertex<String, String> sub2 = subgraph.vertexNamed("v2").orElseThrow();
+        final Vertex<String, String> sub3 = subgraph.vertexNamed("v3").orElseThrow();
+        assertThat(sub2.isRoot()).isTrue();
+        assertThat(sub3.isRoot()).isFalse();
+        assertThat(sub3.getPayload()).contains("3");
+        assertThat(sub2.getOutgoingEdges()).containsExactly(new Edge<>(sub2, sub3, "req2"));
+        assertThat(sub3.getIncomingEdges()).containsExactly(new Edge<>(sub2, sub3, "req2"));
+
+        assertThat(this.graph.subgraph(List.of("v1", "v4")).getVertices()).hasSize(4);
+        assertThat(this.graph.subgraph(List.of("v5")).getVertices()).isEmpty();
+    }
+
+    @Test
+    public void testTopologicalSort() {
+        assertThat(this.graph.topologicalSort()).isEmpty();
+
+        final Vertex<String, String> app = this.graph.addVertex("app", "1", true);
+        final Vertex<String, String> lib = this.graph.addVertex("lib", "1", false);
+        final Vertex<String, String> util = this.graph.addVertex("util", "1", false);
+        final Vertex<String, String> log = this.graph.addVertex("log", "1", false);
+        final Vertex<String, String> extra = this.graph.addVertex("extra", "1", false);
+        this.graph.addEdge(app, lib, "req");
+        this.graph.addEdge(lib, util, "req");
+        this.graph.addEdge(app, log, "req");
+        this.graph.addEdge(util, log, "req");
+
+        assertThat(this.graph.topologicalSort()).containsExactly(extra, log, util, lib, app);
+    }
+
+    @Test
+    public void testTopologicalSortWithCycle() {
+        final Vertex<String, String> vertex1 = this.graph.addVertex("vertex1", "payload1", false);
+        final Vertex<String, String> vertex2 = this.graph.addVertex("vertex2", "payload2", false);
+        final Vertex<String, String> vertex3 = this.graph.addVertex("vertex3", "payload3", false);
+        this.graph.addVertex("vertex4", "payload4", false);
+        this.graph.addEdge(vertex1, vertex2, "req");
+        this.graph.addEdge(vertex2, vertex3, "req");
+
+        // A cycle cannot be created using addEdge, so the edge is added directly.
+        final Edge<String, String> edge = new Edge<>(vertex3, vertex2, "req");
+        vertex3.getOutgoingEdges().add(edge);
+        vertex2.getIncomingEdges().add(edge);
+
+        assertThatExceptionOfType(CircularDependencyError.class)
+                .isThrownBy(this.graph::topologicalSort)
+                .withMessage("There is a circular dependency between vertex2 and vertex3");
+        assertThatExceptionOfType(CircularDependencyError.class).isThrownBy(this.graph::levels);
+    }
+
+    @Test
+    public void testLevels() {
+        assertThat(this.graph.levels()).isEmpty();
+
+        final Vertex<String, String> app = this.graph.addVertex("app", "1", true);
+        final Vertex<String, String> lib = this.graph.addVertex("lib", "1", false);
+        final Vertex<String, String> util = this.graph.addVertex("util", "1", false);
+        final Vertex<String, String> log = this.graph.addVertex("log", "1", false);
+        final Vertex<String, String> extra = this.graph.addVertex("extra", "1", false);
+        this.graph.addEdge(app, lib, "req");
+        this.graph.addEdge(lib, util, "req");
+        this.graph.addEdge(app, log, "req");
+        this.graph.addEdge(util, log, "req");
+        this.graph.addEdge(app, extra, "req");
+
+        assertThat(this.graph.levels()).containsExactly(List.of(extra, log), List.of(util), List.of(lib), List.of(app));
+    }
+
+    @Test
+    public void testTransitiveClosure() {
+        final Vertex<String, String> app = this.graph.addVertex("app", "1", true);
+        final Vertex<String, String> lib = this.graph.addVertex("lib", "1", false);
+        final Vertex<String, String> util = this.graph.addVertex("util", "1", false);
+        final Vertex<String, String> log = this.graph.addVertex("log", "1", false);
+        final Vertex<String, String> extra = this.graph.addVertex("extra", "1", false);
+        this.graph.addEdge(app, lib, "req");
+        this.graph.addEdge(lib, util, "req");
+        this.graph.addEdge(app, log, "req");
+        this.graph.addEdge(util, log, "req");
+
+        assertThat(this.graph.dependsOn("app", "log")).isTrue();
+        assertThat(this.graph.dependsOn("log", "app")).isFalse();
+        assertThat(this.graph.dependsOn("app", "app")).isFalse();
+        assertThat(this.graph.dependsOn("app", "extra")).isFalse();
+        assertThat(this.graph.dependsOn("app", "unknown")).isFalse();
+        assertThat(this.graph.transitiveDependencies("app")).containsExactly(log, util, lib);
+        assertThat(this.graph.transitiveDependencies("log")).isEmpty();
+        assertThat(this.graph.transitiveDependencies("unknown")).isEmpty();
+        assertThat(this.graph.transitiveDependents("log")).containsExactly(util, lib, app);
+        assertThat(this.graph.transitiveDependents("extra")).isEmpty();
+        assertThat(this.graph.transitiveDependencyCount("lib")).isEqualTo(2);
+        assertThat(this.graph.transitiveDependencyCount("unknown")).isZero();
+        assertThat(this.graph.transitiveDependentCount("util")).isEqualTo(2);
+
+        this.graph.tag("tag1");
+        this.graph.addEdge(log, extra, "req");
+        assertThat(this.graph.dependsOn("app", "extra")).isTrue();
+        assertThat(this.graph.transitiveDependentCount("extra")).isEqualTo(4);
+
+        this.graph.rewindTo("tag1");
+        assertThat(this.graph.dependsOn("app", "extra")).isFalse();
+        assertThat(this.graph.transitiveDependentCount("extra")).isZero();
+
+        this.graph.detachVertexNamed("lib");
+        assertThat(this.graph.transitiveDependencies("app")).containsExactly(log);
+        assertThat(this.graph.dependsOn("app", "util")).isFalse();
+    }
+
+    @Test
+    public void testDiff() {
+        final Vertex<String, String> app = this.graph.addVertex("app", "1", true);
+        final Vertex<String, String> lib = this.graph.addVertex("lib", "1", false);
+        final Vertex<String, String> util = this.graph.addVertex("util", "1", false);
+        final Vertex<String, String> log = this.graph.addVertex("log", "1", false);
+        this.graph.addEdge(app, lib, "req");
+        this.graph.addEdge(lib, util, "req");
+        this.graph.addEdge(app, log, "req");
+
+        final DependencyGraph<String, String> other = new DependencyGraph<>();
+        final Vertex<String, String> app2 = other.addVertex("app", "1", true);
+        final Vertex<String, String> lib2 = other.addVertex("lib", "2", false);
+        final Vertex<String, String> log2 = other.addVertex("log", "1", false);
+        final Vertex<String, String> json2 = other.addVertex("json", "1", false);
+        other.addEdge(app2, lib2, "req");
+        other.addEdge(app2, log2, "req2");
+        other.addEdge(lib2, json2, "req");
+
+        final List<String> changes = new ArrayList<>();
+        final DependencyGraphDiffListener<String, String> listener = new DependencyGraphDiffListener<>() {
+            @Override
+            public void vertexAdded(final Vertex<String, String> vertex) {
+                changes.add("+" + vertex.getName());
+            }
+
+            @Override
+            public void vertexRemoved(final Vertex<String, String> vertex) {
+                changes.add("-" + vertex.getName());
+            }
+
+            @Override
+            public void vertexChanged(final Vertex<String, String> oldVertex, final Vertex<String, String> newVertex) {
+                changes.add(oldVertex.getName() + ":" + oldVertex.getPayload().orElseThrow() + "->"
+                                    + newVertex.getPayload().orElseThrow());
+            }
+
+            @Override
+            public void edgeAdded(final Edge<String, String> edge) {
+                changes.add("+" + edge);
+            }
+
+            @Override
+            public void edgeRemoved(final Edge<String, String> edge) {
+                changes.add("-" + edge);
+            }
+        };
+
+        this.graph.diff(other, listener);
+        assertThat(changes).containsExactly(
+                "-" + new Edge<>(app, log, "req"),
+                "+" + new Edge<>(app2, log2, "req2"),
+                "+json",
+                "lib:1->2",
+                "-" + new Edge<>(lib, util, "req"),
+                "+" + new Edge<>(lib2, json2, "req"),
+                "-util"
+        );
+
+        changes.clear();
+        this.graph.diff(this.graph, listener);
+        this.graph.diff(this.graph.cloneGraph(Function.identity()), listener);
+        assertThat(changes).isEmpty();
+    }
+
     @Test
     public void testToDot() throws CircularDependencyError {
         final Vertex<String, String> vertex1 = this.graph.addVertex("A", "p1", false);
@@ -0,0 +1,123 @@
+package org.cthing.molinillo;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.cthing.molinillo.graph.Vertex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+
+public class FrozenDependencyGraphTest {
+
+    private final DependencyGraph<String, String> graph = new DependencyGraph<>();
+
+    @BeforeEach
+    public void setUp() {
+        final Vertex<String, String> app = this.graph.addVertex("app", "1.0", true);
+        final Vertex<String, String> lib = this.graph.addVertex("lib", "2.0", false);
+        final Vertex<String, String> log = this.graph.addVertex("log", null, false);
+        app.getExplicitRequirements().add("app >= 1");
+        this.graph.addEdge(app, lib, "lib >= 2");
+        this.graph.addEdge(app, log, "log >= 1");
+        this.graph.addEdge(app, log, "log < 2");
+        this.graph.addEdge(lib, log, "log >= 1.5");
+    }
+
+    @Test
+    public void testFreeze() {
+        final FrozenDependencyGraph<String, String> frozen = this.graph.freeze();
+        assertThat(frozen.size()).isEqualTo(3);
+        assertThat(frozen.isEmpty()).isFalse();
+        assertThat(frozen.getNames()).containsExactly("app", "lib", "log");
+        assertThat(frozen.contains("lib")).isTrue();
+        assertThat(frozen.contains("json")).isFalse();
+        assertThat(frozen).hasToString("FrozenDependencyGraph { vertices=3 }");
+
+        assertThat(frozen.getPayload("app")).contains("1.0");
+        assertThat(frozen.getPayload("log")).isEmpty();
+        assertThat(frozen.getPayload("json")).isEmpty();
+        assertThat(frozen.isRoot("app")).isTrue();
+        assertThat(frozen.isRoot("lib")).isFalse();
+        assertThat(frozen.isRoot("json")).isFalse();
+
+        assertThat(frozen.requirements("app")).containsExactly("app >= 1");
+        assertThat(frozen.requirements("log")).containsExactlyInAnyOrder("log >= 1", "log < 2", "log >= 1.5");
+        assertThat(frozen.requirements("json")).isEmpty();
+
+        assertThat(frozen.successors("app")).containsExactly("lib", "log");
+        assertThat(frozen.successors("log")).isEmpty();
+        assertThat(frozen.successors("json")).isEmpty();
+        assertThat(frozen.predecessors("log")).containsExactly("app", "lib");
+        assertThat(frozen.predecessors("app")).isEmpty();
+
+        assertThat(frozen.edgeRequirements("app", "log")).containsExactlyInAnyOrder("log >= 1", "log < 2");
+        assertThat(frozen.edgeRequirements("lib", "log")).containsExactly("log >= 1.5");
+        assertThat(frozen.edgeRequirements("log", "app")).isEmpty();
+        assertThat(frozen.edgeRequirements("app", "json")).isEmpty();
+    }
+
+    @Test
+    public void testSnapshot() {
+        final FrozenDependencyGraph<String, String> frozen = this.graph.freeze();
+        this.graph.detachVertexNamed("lib");
+        this.graph.setPayload("app", "1.1");
+
+        assertThat(frozen.getNames()).containsExactly("app", "lib", "log");
+        assertThat(frozen.getPayload("app")).contains("1.0");
+        assertThat(frozen.predecessors("log")).containsExactly("app", "lib");
+        assertThat(this.graph.freeze().getNames()).containsExactly("app", "log");
+    }
+
+    @Test
+    public void testUnmodifiable() {
+        final FrozenDependencyGraph<String, String> frozen = this.graph.freeze();
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> frozen.getNames().clear());
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> frozen.successors("app").set(0, "json"));
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> frozen.requirements("app").add("app < 2"));
+        assertThatExceptionOfType(UnsupportedOperationException.class)
+                .isThrownBy(() -> frozen.edgeRequirements("lib", "log").clear());
+    }
+
+    @Test
+    public void testSubgraph() {
+        this.graph.addVertex("tool", "3.0", true);
+        this.graph.addChildVertex("json", "4.0", List.of("tool"), "json >= 4");
+        final FrozenDependencyGraph<String, String> frozen = this.graph.freeze();
+
+        final DependencyGraph<String, String> lib = frozen.subgraph(List.of("lib", "unknown"));
+        assertThat(lib.getLog()).isEmpty();
+        assertThat(lib.getVertices().keySet()).containsExactlyInAnyOrder("lib", "log");
+        assertThat(lib.vertexNamed("lib").orElseThrow().isRoot()).isTrue();
+        assertThat(lib.vertexNamed("log").orElseThrow().requirements()).containsExactly("log >= 1.5");
+
+        final List<DependencyGraph<String, String>> subgraphs = Stream.of(List.of("app"), List.of("tool"))
+                                                                      .parallel()
+                                                                      .map(frozen::subgraph)
+                                                                      .toList();
+        final DependencyGraph<String, String> app = subgraphs.get(0);
+        assertThat(app.getVertices().keySet()).containsExactlyInAnyOrder("app", "lib", "log");
+        assertThat(app.vertexNamed("app").orElseThrow().getPayload()).contains("1.0");
+        assertThat(app.vertexNamed("lib").orElseThrow().isRoot()).isFalse();
+        assertThat(app.vertexNamed("log").orElseThrow().requirements())
+                .containsExactlyInAnyOrder("log >= 1", "log < 2", "log >= 1.5");
+        final DependencyGraph<String, String> tool = subgraphs.get(1);
+        assertThat(tool.getVertices().keySet()).containsExactlyInAnyOrder("tool", "json");
+        assertThat(tool.vertexNamed("json").orElseThrow().requirements()).containsExactly("json >= 4");
+
+        assertThat(frozen.subgraph(List.of()).getVertices()).isEmpty();
+    }
+
+    @Test
+    public void testEmpty() {
+        final FrozenDependencyGraph<String, String> frozen = new DependencyGraph<String, String>().freeze();
+        assertThat(frozen.size()).isZero();
+        assertThat(frozen.isEmpty()).isTrue();
+        assertThat(frozen.getNames()).isEmpty();
+    }
+}
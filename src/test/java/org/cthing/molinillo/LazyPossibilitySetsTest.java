@@ -0,0 +1,117 @@
+package org.cthing.molinillo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.cthing.molinillo.fixtures.TestPossibilities.DEPENDENCIES;
+import static org.cthing.molinillo.fixtures.TestPossibilities.SPECIFICATIONS;
+import static org.cthing.molinillo.fixtures.TestPossibilities.newestFirst;
+
+
+public class LazyPossibilitySetsTest {
+
+    private final List<String> dependenciesRequested = new ArrayList<>();
+
+    private LazyPossibilitySets<String, String> possibilitySets(final List<String> specifications) {
+        return new LazyPossibilitySets<>(newestFirst(specifications).iterator(), spec -> {
+            this.dependenciesRequested.add(spec);
+            return DEPENDENCIES.get(spec);
+        });
+    }
+
+    @Test
+    public void testGrouping() {
+        assertThat(possibilitySets(SPECIFICATIONS)).containsExactly(
+                new PossibilitySet<>(Set.of("a"), List.of("1.0", "1.1")),
+                new PossibilitySet<>(Set.of("a", "b"), List.of("2.0", "2.1", "2.2")),
+                new PossibilitySet<>(Set.of(), List.of("3.0"))
+        );
+        assertThat(this.dependenciesRequested).containsExactlyElementsOf(newestFirst(SPECIFICATIONS));
+    }
+
+    @Test
+    public void testRemoveNewest() {
+        final LazyPossibilitySets<String, String> possibilitySets = possibilitySets(SPECIFICATIONS);
+
+        assertThat(possibilitySets.removeNewest()).isEqualTo(new PossibilitySet<>(Set.of(), List.of("3.0")));
+        assertThat(this.dependenciesRequested).containsExactly("3.0", "2.2");
+
+        assertThat(possibilitySets.removeNewest()).isEqualTo(new PossibilitySet<>(Set.of("a", "b"),
+                                                                                  List.of("2.0", "2.1", "2.2")));
+        assertThat(this.dependenciesRequested).containsExactly("3.0", "2.2", "2.1", "2.0", "1.1");
+
+        assertThat(possibilitySets.removeNewest()).isEqualTo(new PossibilitySet<>(Set.of("a"),
+                                                                                  List.of("1.0", "1.1")));
+        assertThat(possibilitySets.removeNewest()).isNull();
+        assertThat(possibilitySets).isEmpty();
+    }
+
+    @Test
+    public void testIsEmpty() {
+        assertThat(possibilitySets(List.of())).isEmpty();
+
+        final LazyPossibilitySets<String, String> possibilitySets = possibilitySets(SPECIFICATIONS);
+        assertThat(possibilitySets.isEmpty()).isFalse();
+        assertThat(this.dependenciesRequested).containsExactly("3.0", "2.2");
+    }
+
+    @Test
+    public void testIsSingleton() {
+        assertThat(possibilitySets(List.of()).isSingleton()).isFalse();
+
+        final LazyPossibilitySets<String, String> possibilitySets = possibilitySets(SPECIFICATIONS);
+        assertThat(possibilitySets.isSingleton()).isFalse();
+        assertThat(this.dependenciesRequested).containsExactly("3.0", "2.2");
+
+        possibilitySets.removeNewest();
+        possibilitySets.removeNewest();
+        assertThat(possibilitySets.isSingleton()).isTrue();
+        assertThat(possibilitySets).containsExactly(new PossibilitySet<>(Set.of("a"), List.of("1.0", "1.1")));
+    }
+
+    @Test
+    public void testRestore() {
+        final PossibilityGroups<String, String> groups =
+                new PossibilityGroups<>(newestFirst(SPECIFICATIONS).iterator(), spec -> {
+                    this.dependenciesRequested.add(spec);
+                    return DEPENDENCIES.get(spec);
+                });
+        final LazyPossibilitySets<String, String> possibilitySets = new LazyPossibilitySets<>(groups);
+        possibilitySets.removeNewest();
+        assertThat(possibilitySets.isEmpty()).isFalse();
+        assertThat(possibilitySets.getCopied()).isEqualTo(2);
+        assertThat(possibilitySets.getBuilt()).containsExactly(new PossibilitySet<>(Set.of("a", "b"),
+                                                                                    List.of("2.0", "2.1", "2.2")));
+        assertThat(this.dependenciesRequested).containsExactly("3.0", "2.2", "2.1", "2.0", "1.1");
+
+        final LazyPossibilitySets<String, String> restored =
+                new LazyPossibilitySets<>(groups, possibilitySets.getBuilt(), possibilitySets.getCopied());
+        assertThat(restored.getGroups()).isSameAs(groups);
+        assertThat(restored.removeNewest()).isEqualTo(new PossibilitySet<>(Set.of("a", "b"),
+                                                                           List.of("2.0", "2.1", "2.2")));
+        assertThat(restored.removeNewest()).isEqualTo(new PossibilitySet<>(Set.of("a"), List.of("1.0", "1.1")));
+        assertThat(restored.removeNewest()).isNull();
+        assertThat(possibilitySets).hasSize(2);
+        assertThat(this.dependenciesRequested).containsExactly("3.0", "2.2", "2.1", "2.0", "1.1", "1.0");
+    }
+
+    @Test
+    public void testModification() {
+        final LazyPossibilitySets<String, String> possibilitySets = possibilitySets(SPECIFICATIONS);
+        assertThat(possibilitySets.isEmpty()).isFalse();
+
+        possibilitySets.removeIf(set -> set.getDependencies().contains("b"));
+        assertThat(possibilitySets).containsExactly(
+                new PossibilitySet<>(Set.of("a"), List.of("1.0", "1.1")),
+                new PossibilitySet<>(Set.of(), List.of("3.0"))
+        );
+
+        possibilitySets.add(new PossibilitySet<>(Set.of("c"), List.of("4.0")));
+        assertThat(possibilitySets).hasSize(3);
+        assertThat(possibilitySets.removeNewest()).isEqualTo(new PossibilitySet<>(Set.of("c"), List.of("4.0")));
+    }
+}
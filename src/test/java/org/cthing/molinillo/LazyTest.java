@@ -0,0 +1,54 @@
+package org.cthing.molinillo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.entry;
+
+
+public class LazyTest {
+
+    @Test
+    public void testList() {
+        final AtomicInteger calls = new AtomicInteger();
+        final List<String> list = Lazy.list(() -> {
+            calls.incrementAndGet();
+            return new ArrayList<>(List.of("abc", "def"));
+        });
+        assertThat(calls.get()).isZero();
+
+        assertThat(list).containsExactly("abc", "def");
+        assertThat(list).isEqualTo(List.of("abc", "def"));
+        assertThat(list).hasSameHashCodeAs(List.of("abc", "def"));
+        assertThat(list.get(1)).isEqualTo("def");
+        assertThat(calls.get()).isEqualTo(1);
+
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> list.add("ghi"));
+    }
+
+    @Test
+    public void testMap() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Map<String, String> map = Lazy.map(() -> {
+            calls.incrementAndGet();
+            return new HashMap<>(Map.of("abc", "def"));
+        });
+        assertThat(calls.get()).isZero();
+
+        assertThat(map).containsOnly(entry("abc", "def"));
+        assertThat(map).isEqualTo(Map.of("abc", "def"));
+        assertThat(map).hasSameHashCodeAs(Map.of("abc", "def"));
+        assertThat(map.get("abc")).isEqualTo("def");
+        assertThat(map.containsKey("xyz")).isFalse();
+        assertThat(calls.get()).isEqualTo(1);
+
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> map.put("ghi", "jkl"));
+    }
+}
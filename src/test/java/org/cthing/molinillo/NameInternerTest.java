@@ -0,0 +1,54 @@
+package org.cthing.molinillo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class NameInternerTest {
+
+    private final List<Object> named = new ArrayList<>();
+
+    private NameInterner<StringBuilder, StringBuilder> interner() {
+        return new NameInterner<>(dependency -> {
+            this.named.add(dependency);
+            return dependency.toString();
+        }, specification -> {
+            this.named.add(specification);
+            return specification.toString();
+        });
+    }
+
+    @Test
+    public void testIds() {
+        final NameInterner<StringBuilder, StringBuilder> interner = interner();
+
+        assertThat(interner.id("abc")).isEqualTo(0);
+        assertThat(interner.id("def")).isEqualTo(1);
+        assertThat(interner.id(new StringBuilder("abc").toString())).isEqualTo(0);
+        assertThat(interner.id("ghi")).isEqualTo(2);
+        assertThat(interner.name(1)).isEqualTo("def");
+    }
+
+    @Test
+    public void testDependencies() {
+        final NameInterner<StringBuilder, StringBuilder> interner = interner();
+        final StringBuilder dependency1 = new StringBuilder("abc");
+        final StringBuilder dependency2 = new StringBuilder("abc");
+        final StringBuilder specification = new StringBuilder("def");
+
+        assertThat(interner.dependencyId(dependency1)).isEqualTo(0);
+        assertThat(interner.dependencyId(dependency1)).isEqualTo(0);
+        assertThat(interner.dependencyId(dependency2)).isEqualTo(0);
+        assertThat(interner.specificationId(specification)).isEqualTo(1);
+        assertThat(interner.specificationId(specification)).isEqualTo(1);
+        assertThat(this.named).containsExactly(dependency1, dependency2, specification);
+
+        assertThat(interner.nameForDependency(dependency2)).isSameAs(interner.nameForDependency(dependency1));
+        assertThat(interner.nameForSpecification(specification)).isSameAs(interner.name(1));
+        assertThat(this.named).hasSize(3);
+    }
+}
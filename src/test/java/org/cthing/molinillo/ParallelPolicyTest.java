@@ -0,0 +1,102 @@
+package org.cthing.molinillo;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+
+public class ParallelPolicyTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    public void tearDown() {
+        this.pool.shutdownNow();
+    }
+
+    @Test
+    public void testConstruction() {
+        final ParallelPolicy policy = new ParallelPolicy(this.pool);
+        assertThat(policy.getPool()).isSameAs(this.pool);
+        assertThat(policy.getFilterThreshold()).isEqualTo(ParallelPolicy.DEFAULT_FILTER_THRESHOLD);
+
+        assertThat(new ParallelPolicy(this.pool, 10).getFilterThreshold()).isEqualTo(10);
+        assertThatIllegalArgumentException().isThrownBy(() -> new ParallelPolicy(this.pool, 0))
+                                            .withMessage("Filter threshold must be greater than zero");
+    }
+
+    @Test
+    public void testFilter() {
+        final List<Integer> items = IntStream.range(0, 1000).boxed().toList();
+        final List<Integer> expected = items.stream().filter(i -> i % 3 == 0).collect(Collectors.toList());
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        final ParallelPolicy policy = new ParallelPolicy(this.pool, 100);
+        assertThat(policy.filter(items, i -> {
+            threads.add(Thread.currentThread().getName());
+            return i % 3 == 0;
+        })).isEqualTo(expected);
+        assertThat(threads).doesNotContain(Thread.currentThread().getName());
+
+        threads.clear();
+        assertThat(policy.filter(items.subList(0, 99), i -> {
+            threads.add(Thread.currentThread().getName());
+            return i % 3 == 0;
+        })).isEqualTo(expected.subList(0, 33));
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+
+        assertThat(policy.filter(List.<Integer>of(), i -> true)).isEmpty();
+        assertThat(new ParallelPolicy(this.pool, 1).filter(List.of(1, 2, 3), i -> i != 2)).containsExactly(1, 3);
+    }
+
+    @Test
+    public void testMap() {
+        final List<Integer> items = IntStream.range(0, 1000).boxed().toList();
+        final List<String> expected = items.stream().map(String::valueOf).collect(Collectors.toList());
+
+        assertThat(new ParallelPolicy(this.pool, 100).map(items, String::valueOf)).isEqualTo(expected);
+        assertThat(new ParallelPolicy(this.pool).map(items, String::valueOf)).isEqualTo(expected);
+        assertThat(new ParallelPolicy(this.pool, 1).map(List.of(1, 2), i -> null)).containsExactly(null, null);
+    }
+
+    @Test
+    public void testFilterException() {
+        final ParallelPolicy policy = new ParallelPolicy(this.pool, 1);
+        assertThatIllegalStateException().isThrownBy(() -> policy.filter(List.of(1, 2, 3, 4, 5, 6, 7, 8), i -> {
+            if (i >= 3) {
+                throw new IllegalStateException("Failed at " + i);
+            }
+            return true;
+        })).withMessage("Failed at 3");
+    }
+
+    @Test
+    public void testFilterExceptionWaitsForChunks() {
+        final AtomicInteger tested = new AtomicInteger();
+        final ParallelPolicy policy = new ParallelPolicy(this.pool, 1);
+        assertThatIllegalStateException().isThrownBy(() -> policy.filter(List.of(0, 1, 2, 3, 4, 5, 6, 7), i -> {
+            if (i == 1) {
+                throw new IllegalStateException("Failed at " + i);
+            }
+            try {
+                Thread.sleep(50);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            tested.incrementAndGet();
+            return true;
+        })).withMessage("Failed at 1");
+        assertThat(tested).hasValue(7);
+    }
+}
@@ -0,0 +1,134 @@
+package org.cthing.molinillo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.cthing.molinillo.fixtures.TestPossibilities.DEPENDENCIES;
+import static org.cthing.molinillo.fixtures.TestPossibilities.SPECIFICATIONS;
+import static org.cthing.molinillo.fixtures.TestPossibilities.newestFirst;
+
+
+public class PossibilityGroupsTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final List<String> dependenciesRequested = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    public void tearDown() {
+        this.pool.shutdownNow();
+    }
+
+    private Set<String> dependenciesFor(final String specification) {
+        this.dependenciesRequested.add(specification);
+        return DEPENDENCIES.get(specification);
+    }
+
+    @Test
+    public void testGroups() {
+        final PossibilityGroups<String, String> groups =
+                new PossibilityGroups<>(newestFirst(SPECIFICATIONS).iterator(), this::dependenciesFor);
+
+        assertThat(groups.hasGroup(0)).isTrue();
+        assertThat(this.dependenciesRequested).isEmpty();
+        assertThat(groups.group(0)).contains(new PossibilitySet<>(Set.of(), List.of("3.0")));
+        assertThat(this.dependenciesRequested).containsExactly("3.0", "2.2");
+
+        assertThat(groups.hasGroup(2)).isTrue();
+        assertThat(groups.hasGroup(3)).isFalse();
+        assertThat(groups.group(3)).isEmpty();
+        assertThat(groups.all()).containsExactly(
+                new PossibilitySet<>(Set.of("a"), List.of("1.0", "1.1")),
+                new PossibilitySet<>(Set.of("a", "b"), List.of("2.0", "2.1", "2.2")),
+                new PossibilitySet<>(Set.of(), List.of("3.0"))
+        );
+        assertThat(this.dependenciesRequested).containsExactlyElementsOf(newestFirst(SPECIFICATIONS));
+    }
+
+    @Test
+    public void testShared() {
+        final PossibilityGroups<String, String> groups =
+                new PossibilityGroups<>(newestFirst(SPECIFICATIONS).iterator(), this::dependenciesFor);
+        final LazyPossibilitySets<String, String> possibilitySets1 = new LazyPossibilitySets<>(groups);
+        final LazyPossibilitySets<String, String> possibilitySets2 = new LazyPossibilitySets<>(groups);
+
+        final PossibilitySet<String, String> newest = possibilitySets1.removeNewest();
+        assertThat(newest).isNotNull();
+        newest.getPossibilities().clear();
+        possibilitySets1.get(0).getPossibilities().remove("1.0");
+
+        assertThat(possibilitySets2).containsExactly(
+                new PossibilitySet<>(Set.of("a"), List.of("1.0", "1.1")),
+                new PossibilitySet<>(Set.of("a", "b"), List.of("2.0", "2.1", "2.2")),
+                new PossibilitySet<>(Set.of(), List.of("3.0"))
+        );
+        assertThat(this.dependenciesRequested).containsExactlyElementsOf(newestFirst(SPECIFICATIONS));
+    }
+
+    @Test
+    public void testParallel() {
+        final List<String> specifications = new ArrayList<>();
+        final Map<String, Set<String>> dependencies = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            final String specification = String.valueOf(i);
+            specifications.add(specification);
+            dependencies.put(specification, Set.of("d" + (i / 10)));
+        }
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        final PossibilityGroups<String, String> groups =
+                new PossibilityGroups<>(newestFirst(specifications).iterator(), specification -> {
+                    threads.add(Thread.currentThread().getName());
+                    this.dependenciesRequested.add(specification);
+                    return dependencies.get(specification);
+                }, new ParallelPolicy(this.pool), UnaryOperator.identity());
+
+        // Groups requested one at a time are built lazily on the calling thread
+        assertThat(groups.group(0)).contains(new PossibilitySet<>(Set.of("d9"), specifications.subList(90, 100)));
+        assertThat(this.dependenciesRequested).hasSize(11);
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+
+        // Once all the groups are requested, the dependencies are obtained concurrently
+        threads.clear();
+        final List<PossibilitySet<String, String>> possibilitySets = groups.all();
+        assertThat(possibilitySets).hasSize(10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(possibilitySets.get(i)).isEqualTo(new PossibilitySet<>(Set.of("d" + i),
+                                                                              specifications.subList(i * 10,
+                                                                                                     i * 10 + 10)));
+        }
+        assertThat(this.dependenciesRequested).hasSize(100).doesNotHaveDuplicates();
+        assertThat(threads).doesNotContain(Thread.currentThread().getName());
+    }
+
+    @Test
+    public void testParallelError() {
+        final PossibilityGroups<String, String> groups =
+                new PossibilityGroups<>(newestFirst(SPECIFICATIONS).iterator(), specification -> {
+                    final Set<String> dependencies = dependenciesFor(specification);
+                    if ("2.1".equals(specification)) {
+                        throw new IllegalStateException("No dependencies for " + specification);
+                    }
+                    return dependencies;
+                }, new ParallelPolicy(this.pool), ex -> new IllegalStateException("Processed", ex));
+
+        assertThat(groups.group(0)).contains(new PossibilitySet<>(Set.of(), List.of("3.0")));
+        assertThat(this.dependenciesRequested).containsExactly("3.0", "2.2");
+        assertThatIllegalStateException().isThrownBy(groups::all)
+                                         .withMessage("Processed")
+                                         .havingCause()
+                                         .withMessage("No dependencies for 2.1");
+        assertThat(this.dependenciesRequested).containsOnlyOnce("2.1");
+    }
+}
@@ -5,7 +5,10 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.cthing.molinillo.errors.CircularDependencyError;
@@ -16,12 +19,15 @@ import org.cthing.molinillo.fixtures.BerkshelfTestIndex;
 import org.cthing.molinillo.fixtures.BundlerNoPenaltyTestIndex;
 import org.cthing.molinillo.fixtures.BundlerTestIndex;
 import org.cthing.molinillo.fixtures.CocoaPodsTestIndex;
+import org.cthing.molinillo.fixtures.ComparatorTestIndex;
 import org.cthing.molinillo.fixtures.NoSuchDependencyTestIndex;
 import org.cthing.molinillo.fixtures.RandomTestIndex;
 import org.cthing.molinillo.fixtures.TestCase;
 import org.cthing.molinillo.fixtures.TestDependency;
 import org.cthing.molinillo.fixtures.TestIndex;
 import org.cthing.molinillo.fixtures.TestSpecification;
+import org.cthing.molinillo.graph.Vertex;
+import org.jspecify.annotations.Nullable;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.DynamicTest;
 import org.junit.jupiter.api.Test;
@@ -47,6 +53,16 @@ public class ResolverTest {
             RandomTestIndex.class
     );
 
+    // Indexes that order dependencies using their requirement comparator, which can therefore also be offered to the
+    // resolver as a dependency comparator.
+    private static final Set<Class<? extends TestIndex>> COMPARATOR_INDEX_CLASSES = Set.of(
+            TestIndex.class,
+            BundlerTestIndex.class,
+            BundlerNoPenaltyTestIndex.class,
+            CocoaPodsTestIndex.class,
+            BerkshelfTestIndex.class
+    );
+
     private static boolean ignoreTest(final Class<? extends TestIndex> indexClass, final TestCase testCase) {
         // This index occasionally finds orders that are very slow to resolve (e.g. seconds to minutes).
         // This is a problem in the Molinillo algorithm and the Molinillo project team has not found a
@@ -59,40 +75,47 @@ public class ResolverTest {
     public List<DynamicTest> resolveTestFactory() {
         final List<DynamicTest> tests = new ArrayList<>();
         for (final Class<? extends TestIndex> indexClass : INDEX_CLASSES) {
-            for (final TestCase testCase : TestCase.all()) {
-                if (ignoreTest(indexClass, testCase)) {
+            for (final boolean useComparator : List.of(false, true)) {
+                if (useComparator && !COMPARATOR_INDEX_CLASSES.contains(indexClass)) {
                     continue;
                 }
 
-                final String testName = indexClass.getSimpleName() + ": " + testCase.getName()
-                        + " (" + testCase.getFixture().getName() + ")";
-                final DynamicTest dynamicTest =
-                        DynamicTest.dynamicTest(testName, () -> {
-                            final Set<String> conflicts = testCase.getConflicts();
-                            if (conflicts.isEmpty()) {
-                                final DependencyGraph<TestSpecification, TestDependency> result =
-                                        testCase.resolve(indexClass);
-                                assertThat(result).isEqualTo(testCase.getResult());
-                            } else {
-                                final Throwable throwable =
-                                        catchThrowableOfType(ResolverError.class, () -> testCase.resolve(indexClass));
-                                if (throwable instanceof final CircularDependencyError error) {
-                                    final List<Payload<TestDependency, TestSpecification>> payloads = error.getPayloads();
-                                    final Set<String> deps =
-                                            payloads.stream()
-                                                    .flatMap(payload -> payload.getPossibilitySet().getDependencies()
-                                                                               .stream()
-                                                                               .map(TestDependency::getName))
-                                                    .collect(Collectors.toSet());
-                                    assertThat(deps).isEqualTo(conflicts);
-                                } else if (throwable instanceof final VersionConflictError error) {
-                                    assertThat(error.getConflicts().keySet()).isEqualTo(conflicts);
+                for (final TestCase testCase : TestCase.all()) {
+                    if (ignoreTest(indexClass, testCase)) {
+                        continue;
+                    }
+
+                    final String testName = indexClass.getSimpleName() + (useComparator ? " with comparator" : "")
+                            + ": " + testCase.getName() + " (" + testCase.getFixture().getName() + ")";
+                    final DynamicTest dynamicTest =
+                            DynamicTest.dynamicTest(testName, () -> {
+                                final Set<String> conflicts = testCase.getConflicts();
+                                if (conflicts.isEmpty()) {
+                                    final DependencyGraph<TestSpecification, TestDependency> result =
+                                            testCase.resolve(indexClass, useComparator);
+                                    assertThat(result).isEqualTo(testCase.getResult());
                                 } else {
-                                    fail("Unexpected exception thrown: " + throwable);
+                                    final Throwable throwable =
+                                            catchThrowableOfType(ResolverError.class,
+                                                                 () -> testCase.resolve(indexClass, useComparator));
+                                    if (throwable instanceof final CircularDependencyError error) {
+                                        final List<Payload<TestDependency, TestSpecification>> payloads = error.getPayloads();
+                                        final Set<String> deps =
+                                                payloads.stream()
+                                                        .flatMap(payload -> payload.getPossibilitySet().getDependencies()
+                                                                                   .stream()
+                                                                                   .map(TestDependency::getName))
+                                                        .collect(Collectors.toSet());
+                                        assertThat(deps).isEqualTo(conflicts);
+                                    } else if (throwable instanceof final VersionConflictError error) {
+                                        assertThat(error.getConflicts().keySet()).isEqualTo(conflicts);
+                                    } else {
+                                        fail("Unexpected exception thrown: " + throwable);
+                                    }
                                 }
-                            }
-                        });
-                tests.add(dynamicTest);
+                            });
+                    tests.add(dynamicTest);
+                }
             }
         }
         return tests;
@@ -322,6 +345,290 @@ public class ResolverTest {
                 .withMessage("There is a circular dependency between a and b and c and d");
     }
 
+    @Test
+    @DisplayName("Orders requirements incrementally using the dependency comparator")
+    public void testDependencyComparator() {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict_unwinding");
+        final AtomicInteger sorts = new AtomicInteger();
+
+        class SortingIndex extends TestIndex {
+            SortingIndex() {
+                super(testCase.getIndex().getSpecs());
+            }
+
+            @Override
+            public List<TestDependency> sortDependencies(final List<TestDependency> dependencies,
+                                                         final DependencyGraph<Payload<TestDependency, TestSpecification>,
+                                                                 TestDependency> activated,
+                                                         final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
+                sorts.incrementAndGet();
+                return super.sortDependencies(dependencies, activated, conflicts);
+            }
+        }
+
+        final TestIndex comparatorIndex = new ComparatorTestIndex(new SortingIndex());
+        assertThat(new Resolver<>(comparatorIndex).resolve(testCase.getRequested(), testCase.getBase()))
+                .isEqualTo(testCase.getResult());
+        assertThat(sorts.get()).isZero();
+
+        final TestIndex sortingIndex = new SortingIndex();
+        assertThat(new Resolver<>(sortingIndex).resolve(testCase.getRequested(), testCase.getBase()))
+                .isEqualTo(testCase.getResult());
+        assertThat(sorts.get()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Detects incompatible requirements using the range algebra")
+    public void testRangeAlgebra() {
+        final AtomicInteger checks = new AtomicInteger();
+
+        class CountingIndex extends TestIndex {
+            CountingIndex(final Map<String, TestSpecification[]> specsByName) {
+                super(specsByName);
+            }
+
+            @Override
+            public boolean requirementSatisfiedBy(final TestDependency requirement,
+                                                  final DependencyGraph<Payload<TestDependency, TestSpecification>,
+                                                          TestDependency> activated,
+                                                  final TestSpecification specification) {
+                checks.incrementAndGet();
+                return super.requirementSatisfiedBy(requirement, activated, specification);
+            }
+        }
+
+        class AlgebraIndex extends CountingIndex {
+            AlgebraIndex(final Map<String, TestSpecification[]> specsByName) {
+                super(specsByName);
+            }
+
+            @Override
+            public Optional<RangeAlgebra<TestDependency>> rangeAlgebra() {
+                return Optional.of(new RangeAlgebra<>() {
+                    @Override
+                    public TestDependency intersect(final TestDependency requirement1,
+                                                    final TestDependency requirement2) {
+                        return requirement1.intersect(requirement2);
+                    }
+
+                    @Override
+                    public boolean isEmpty(final TestDependency requirement) {
+                        return requirement.getVersionConstraint().isEmpty();
+                    }
+                });
+            }
+        }
+
+        int plainChecks = 0;
+        int algebraChecks = 0;
+        for (final TestCase testCase : TestCase.all()) {
+            checks.set(0);
+            final Object plainOutcome = resolveOutcome(testCase, new CountingIndex(testCase.getIndex().getSpecs()));
+            plainChecks += checks.get();
+
+            checks.set(0);
+            final Object algebraOutcome = resolveOutcome(testCase, new AlgebraIndex(testCase.getIndex().getSpecs()));
+            algebraChecks += checks.get();
+
+            assertThat(algebraOutcome).as(testCase.getName()).isEqualTo(plainOutcome);
+        }
+        assertThat(algebraChecks).isLessThan(plainChecks);
+    }
+
+    @Test
+    @DisplayName("Propagates forced requirements into activated specifications")
+    public void testForcedRequirementPropagation() {
+        final TestIndex index = new TestIndex(new HashMap<>(Map.of(
+                "a", new TestSpecification[] { new TestSpecification("a", "1.0", Map.of("c", "= 1.0")) },
+                "b", new TestSpecification[] { new TestSpecification("b", "1.0", Map.of("c", ">= 1.0")) },
+                "c", new TestSpecification[] { new TestSpecification("c", "1.0", Map.of()) }
+        )));
+        final List<String> propagated = new ArrayList<>();
+        final UI ui = new DebugUI() {
+            @Override
+            public void printf(final int depth, final String format, final @Nullable Object... args) {
+                if (format.startsWith("Propagated")) {
+                    propagated.add(String.format(format, args));
+                }
+            }
+
+            @Override
+            public boolean isDebugMode() {
+                return true;
+            }
+        };
+
+        final DependencyGraph<TestSpecification, TestDependency> results =
+                new Resolver<>(index, ui).resolve(Set.of(new TestDependency("a"), new TestDependency("b")));
+        assertThat(results.vertexNamed("c").flatMap(Vertex::getPayload))
+                .contains(new TestSpecification("c", "1.0", Map.of()));
+        assertThat(propagated).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Reports the creation of each possibility state without building all possibilities")
+    public void testCreatingPossibilityStateMessage() {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final List<String> created = new ArrayList<>();
+        final UI ui = new DebugUI() {
+            @Override
+            public void printf(final int depth, final String format, final @Nullable Object... args) {
+                if (format.startsWith("Creating possibility state")) {
+                    created.add(String.format(format, args));
+                }
+            }
+
+            @Override
+            public boolean isDebugMode() {
+                return false;
+            }
+        };
+
+        final Resolver<TestDependency, TestSpecification> resolver = new Resolver<>(testCase.getIndex(), ui);
+        assertThat(resolver.resolve(testCase.getRequested(), testCase.getBase())).isEqualTo(testCase.getResult());
+        assertThat(created).isNotEmpty().allMatch(message -> message.endsWith(" built so far)"));
+    }
+
+    @Test
+    @DisplayName("Restarts resolutions according to the restart policy")
+    public void testRestartPolicy() {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict_unwinding");
+        final AtomicInteger restarts = new AtomicInteger();
+        final UI ui = new DebugUI() {
+            @Override
+            public void printf(final int depth, final String format, final @Nullable Object... args) {
+                if (format.startsWith("Restarting")) {
+                    restarts.incrementAndGet();
+                }
+            }
+
+            @Override
+            public boolean isDebugMode() {
+                return true;
+            }
+        };
+
+        final Resolver<TestDependency, TestSpecification> resolver = new Resolver<>(testCase.getIndex(), ui);
+        resolver.setRestartPolicy(new RestartPolicy(1));
+        assertThat(resolver.resolve(testCase.getRequested(), testCase.getBase())).isEqualTo(testCase.getResult());
+        assertThat(restarts.get()).isPositive();
+
+        // Without restarts, this index occasionally takes minutes to resolve this case (see ignoreTest). The seeds
+        // are fixed so that a failure can be reproduced.
+        for (final long seed : new long[] { 1L, 2L, 3L, 4L, 5L }) {
+            final Resolver<TestDependency, TestSpecification> randomResolver =
+                    new Resolver<>(new RandomTestIndex(testCase.getIndex().getSpecs(), seed), new DebugUI());
+            randomResolver.setRestartPolicy(new RestartPolicy(20, seed));
+            assertThat(randomResolver.resolve(testCase.getRequested(), testCase.getBase()))
+                    .as("seed %d", seed)
+                    .isEqualTo(testCase.getResult());
+        }
+    }
+
+    @Test
+    @DisplayName("Resolves independent components and filters candidates in parallel")
+    public void testParallelPolicy() {
+        class ThreadSafeTestIndex extends TestIndex {
+            ThreadSafeTestIndex(final Map<String, TestSpecification[]> specsByName) {
+                super(specsByName);
+            }
+
+            @Override
+            public synchronized List<TestSpecification> searchFor(final TestDependency dependency) {
+                return super.searchFor(dependency);
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+        }
+
+        final TestIndex index = new ThreadSafeTestIndex(new HashMap<>(Map.of(
+                "a", new TestSpecification[] { new TestSpecification("a", "1.0", Map.of("b", ">= 1.0")) },
+                "b", new TestSpecification[] {
+                        new TestSpecification("b", "1.0", Map.of()),
+                        new TestSpecification("b", "2.0", Map.of())
+                },
+                "c", new TestSpecification[] { new TestSpecification("c", "1.0", Map.of("d", "< 2.0")) },
+                "d", new TestSpecification[] {
+                        new TestSpecification("d", "1.0", Map.of()),
+                        new TestSpecification("d", "2.0", Map.of())
+                },
+                "e", new TestSpecification[] { new TestSpecification("e", "1.0", Map.of("d", ">= 2.0")) }
+        )));
+        final Set<TestDependency> requested = Set.of(new TestDependency("a"), new TestDependency("c"));
+        assertThat(Components.partition(index, requested, new DependencyGraph<>())).hasSize(2);
+        final DependencyGraph<TestSpecification, TestDependency> expected = new Resolver<>(index).resolve(requested);
+
+        final Resolver<TestDependency, TestSpecification> resolver = new Resolver<>(index);
+        resolver.setParallelPolicy(new ParallelPolicy(ForkJoinPool.commonPool()));
+        assertThat(resolver.resolve(requested)).isEqualTo(expected);
+        assertThat(expected.getVertices()).containsOnlyKeys("a", "b", "c", "d");
+
+        final List<String> events = new ArrayList<>();
+        final UI ui = new DebugUI() {
+            @Override
+            public void beforeResolution() {
+                events.add("before");
+            }
+
+            @Override
+            public void afterResolution() {
+                events.add("after");
+            }
+
+            @Override
+            public void printf(final int depth, final String format, final @Nullable Object... args) {
+                events.add("printf");
+            }
+
+            @Override
+            public boolean isDebugMode() {
+                return true;
+            }
+        };
+        final Resolver<TestDependency, TestSpecification> bracketedResolver = new Resolver<>(index, ui);
+        bracketedResolver.setParallelPolicy(new ParallelPolicy(ForkJoinPool.commonPool()));
+        assertThat(bracketedResolver.resolve(requested)).isEqualTo(expected);
+        assertThat(events).hasSizeGreaterThan(2).startsWith("before").endsWith("after");
+        assertThat(events).containsOnlyOnce("before", "after");
+
+        final Set<TestDependency> conflicting = Set.of(new TestDependency("a"), new TestDependency("c"),
+                                                       new TestDependency("e"));
+        final VersionConflictError error = catchThrowableOfType(() -> resolver.resolve(conflicting),
+                                                                VersionConflictError.class);
+        assertThat(error.getConflicts()).containsOnlyKeys("d");
+
+        events.clear();
+        assertThat(catchThrowableOfType(() -> bracketedResolver.resolve(conflicting), VersionConflictError.class))
+                .isNotNull();
+        assertThat(events).endsWith("after").containsOnlyOnce("before", "after");
+
+        for (final TestCase testCase : TestCase.all()) {
+            final Resolver<TestDependency, TestSpecification> fixtureResolver =
+                    new Resolver<>(new ThreadSafeTestIndex(testCase.getIndex().getSpecs()));
+            fixtureResolver.setParallelPolicy(new ParallelPolicy(ForkJoinPool.commonPool(), 1));
+            assertThat(resolveOutcome(testCase, fixtureResolver)).isEqualTo(resolveOutcome(testCase,
+                                                                                           testCase.getIndex()));
+        }
+    }
+
+    private static Object resolveOutcome(final TestCase testCase, final TestIndex index) {
+        return resolveOutcome(testCase, new Resolver<>(index));
+    }
+
+    private static Object resolveOutcome(final TestCase testCase,
+                                         final Resolver<TestDependency, TestSpecification> resolver) {
+        try {
+            return resolver.resolve(testCase.getRequested(), testCase.getBase());
+        } catch (final VersionConflictError ex) {
+            return ex.getConflicts().keySet();
+        } catch (final CircularDependencyError ex) {
+            return ex.getMessage();
+        }
+    }
+
     @TestFactory
     public List<DynamicTest> equallyValidTestFactory() {
         final List<DynamicTest> tests = new ArrayList<>();
@@ -0,0 +1,63 @@
+package org.cthing.molinillo;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+
+public class RestartPolicyTest {
+
+    @Test
+    public void testConstruction() {
+        final RestartPolicy policy = new RestartPolicy(10);
+        assertThat(policy.getUnit()).isEqualTo(10);
+        assertThat(policy.getSeed()).isZero();
+
+        final RestartPolicy seededPolicy = new RestartPolicy(5, 1234L);
+        assertThat(seededPolicy.getUnit()).isEqualTo(5);
+        assertThat(seededPolicy.getSeed()).isEqualTo(1234L);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> new RestartPolicy(0))
+                                            .withMessage("Restart unit must be greater than zero");
+    }
+
+    @Test
+    public void testLuby() {
+        assertThat(LongStream.rangeClosed(1, 15).map(i -> RestartPolicy.luby((int)i)))
+                .containsExactly(1L, 1L, 2L, 1L, 1L, 2L, 4L, 1L, 1L, 2L, 1L, 1L, 2L, 4L, 8L);
+        assertThat(RestartPolicy.luby(Integer.MAX_VALUE)).isEqualTo(1L << 30);
+        assertThatIllegalArgumentException().isThrownBy(() -> RestartPolicy.luby(0));
+    }
+
+    @Test
+    public void testUnwindsBeforeRestart() {
+        final RestartPolicy policy = new RestartPolicy(10);
+        assertThat(policy.unwindsBeforeRestart(0)).isEqualTo(10);
+        assertThat(policy.unwindsBeforeRestart(1)).isEqualTo(10);
+        assertThat(policy.unwindsBeforeRestart(2)).isEqualTo(20);
+        assertThat(policy.unwindsBeforeRestart(6)).isEqualTo(40);
+
+        final RestartPolicy largePolicy = new RestartPolicy(Integer.MAX_VALUE);
+        assertThat(largePolicy.unwindsBeforeRestart(Integer.MAX_VALUE - 1)).isEqualTo((1L << 30) * Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testPerturbation() {
+        final RestartPolicy policy = new RestartPolicy(10);
+        assertThat(policy.perturbation(0)).isZero();
+
+        final Set<Long> perturbations = new HashSet<>();
+        for (int restarts = 1; restarts <= 100; restarts++) {
+            assertThat(policy.perturbation(restarts)).isNotZero();
+            perturbations.add(policy.perturbation(restarts));
+        }
+        assertThat(perturbations).hasSize(100);
+        assertThat(new RestartPolicy(10).perturbation(3)).isEqualTo(policy.perturbation(3));
+        assertThat(new RestartPolicy(10, 1L).perturbation(3)).isNotEqualTo(policy.perturbation(3));
+    }
+}
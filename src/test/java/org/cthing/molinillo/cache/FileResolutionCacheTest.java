@@ -0,0 +1,237 @@
+package org.cthing.molinillo.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.cthing.molinillo.DependencyGraph;
+import org.cthing.molinillo.Resolver;
+import org.cthing.molinillo.fixtures.TestCase;
+import org.cthing.molinillo.fixtures.TestDependency;
+import org.cthing.molinillo.fixtures.TestIndex;
+import org.cthing.molinillo.fixtures.TestSpecification;
+import org.cthing.molinillo.io.BinaryIO;
+import org.cthing.molinillo.io.Codec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+
+public class FileResolutionCacheTest {
+
+    private final Map<String, Object> objects = new HashMap<>();
+
+    @TempDir
+    Path cacheDir;
+
+    /**
+     * The test fixtures cannot be serialized, so the codec writes the string form of the value, which identifies
+     * it within a fixture, and looks the value up by that string when reading.
+     */
+    private <T> Codec<T> keyedCodec() {
+        return new Codec<>() {
+            @Override
+            public void write(final T value, final DataOutput output) throws IOException {
+                final String key = value.toString();
+                FileResolutionCacheTest.this.objects.put(key, value);
+                BinaryIO.writeString(output, key);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T read(final DataInput input) throws IOException {
+                return (T)FileResolutionCacheTest.this.objects.get(BinaryIO.readString(input));
+            }
+        };
+    }
+
+    private FileResolutionCache<TestDependency, TestSpecification> cache(final long maxSize) {
+        return new FileResolutionCache<>(this.cacheDir, maxSize, keyedCodec(), keyedCodec());
+    }
+
+    private List<Path> entries() throws IOException {
+        try (Stream<Path> files = Files.list(this.cacheDir)) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    public void testPutAndGet() throws IOException {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final FileResolutionCache<TestDependency, TestSpecification> cache = cache(1024 * 1024);
+
+        assertThat(cache.get(testCase.getRequested(), testCase.getBase(), "1")).isEmpty();
+
+        cache.put(testCase.getRequested(), testCase.getBase(), "1", testCase.getResult());
+        assertThat(entries()).hasSize(1);
+
+        final Optional<DependencyGraph<TestSpecification, TestDependency>> cached =
+                cache.get(testCase.getRequested(), testCase.getBase(), "1");
+        assertThat(cached).contains(testCase.getResult());
+        assertThat(cached.get()).isNotSameAs(testCase.getResult());
+
+        assertThat(cache.get(testCase.getRequested(), testCase.getBase(), "2")).isEmpty();
+        assertThat(cache.get(Set.of(), testCase.getBase(), "1")).isEmpty();
+    }
+
+    @Test
+    public void testKeyIndependentOfOrder() {
+        final TestDependency dep1 = new TestDependency("a", "1.0");
+        final TestDependency dep2 = new TestDependency("b", "2.0");
+        final DependencyGraph<TestSpecification, TestDependency> result = new DependencyGraph<>();
+        final FileResolutionCache<TestDependency, TestSpecification> cache = cache(1024 * 1024);
+
+        final Set<TestDependency> requested1 = new LinkedHashSet<>(List.of(dep1, dep2));
+        final Set<TestDependency> requested2 = new LinkedHashSet<>(List.of(dep2, dep1));
+        cache.put(requested1, new DependencyGraph<>(), "1", result);
+        assertThat(cache.get(requested2, new DependencyGraph<>(), "1")).contains(result);
+    }
+
+    @Test
+    public void testCorruptEntry() throws IOException {
+        final TestCase testCase = TestCase.fromFixture("simple");
+        final FileResolutionCache<TestDependency, TestSpecification> cache = cache(1024 * 1024);
+        cache.put(testCase.getRequested(), testCase.getBase(), "1", testCase.getResult());
+
+        final Path entry = entries().get(0);
+        Files.write(entry, new byte[] { 1, 2, 3 });
+
+        assertThat(cache.get(testCase.getRequested(), testCase.getBase(), "1")).isEmpty();
+        assertThat(entries()).isEmpty();
+    }
+
+    @Test
+    public void testUndecodableEntry() throws IOException {
+        final TestCase testCase = TestCase.fromFixture("simple");
+        cache(1024 * 1024).put(testCase.getRequested(), testCase.getBase(), "1", testCase.getResult());
+
+        final Codec<TestSpecification> specificationCodec = keyedCodec();
+        final FileResolutionCache<TestDependency, TestSpecification> cache =
+                new FileResolutionCache<>(this.cacheDir, 1024 * 1024, keyedCodec(), new Codec<>() {
+                    @Override
+                    public void write(final TestSpecification value, final DataOutput output) throws IOException {
+                        specificationCodec.write(value, output);
+                    }
+
+                    @Override
+                    public TestSpecification read(final DataInput input) {
+                        throw new IllegalStateException("Unknown specification");
+                    }
+                });
+        assertThat(cache.get(testCase.getRequested(), testCase.getBase(), "1")).isEmpty();
+        assertThat(entries()).isEmpty();
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final FileResolutionCache<TestDependency, TestSpecification> unbounded = cache(1024 * 1024);
+        unbounded.put(testCase.getRequested(), testCase.getBase(), "0", testCase.getResult());
+        final long entrySize = Files.size(entries().get(0));
+        Files.delete(entries().get(0));
+
+        final FileResolutionCache<TestDependency, TestSpecification> cache = cache(entrySize * 2);
+        cache.put(testCase.getRequested(), testCase.getBase(), "1", testCase.getResult());
+        cache.put(testCase.getRequested(), testCase.getBase(), "2", testCase.getResult());
+        assertThat(entries()).hasSize(2);
+
+        for (final Path entry : entries()) {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(1000));
+        }
+        assertThat(cache.get(testCase.getRequested(), testCase.getBase(), "1")).isPresent();
+
+        cache.put(testCase.getRequested(), testCase.getBase(), "3", testCase.getResult());
+        assertThat(entries()).hasSize(2);
+        assertThat(cache.get(testCase.getRequested(), testCase.getBase(), "1")).isPresent();
+        assertThat(cache.get(testCase.getRequested(), testCase.getBase(), "2")).isEmpty();
+        assertThat(cache.get(testCase.getRequested(), testCase.getBase(), "3")).isPresent();
+    }
+
+    @Test
+    public void testResolverUsesCache() {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final AtomicInteger searches = new AtomicInteger();
+        final TestIndex index = new TestIndex(testCase.getIndex().getSpecs()) {
+            @Override
+            public List<TestSpecification> searchFor(final TestDependency dependency) {
+                searches.incrementAndGet();
+                return super.searchFor(dependency);
+            }
+
+            @Override
+            public Optional<String> indexVersion() {
+                return Optional.of("1");
+            }
+        };
+
+        final Resolver<TestDependency, TestSpecification> resolver = new Resolver<>(index);
+        resolver.setResolutionCache(cache(1024 * 1024));
+
+        assertThat(resolver.resolve(testCase.getRequested(), testCase.getBase())).isEqualTo(testCase.getResult());
+        assertThat(searches.get()).isPositive();
+
+        searches.set(0);
+        assertThat(resolver.resolve(testCase.getRequested(), testCase.getBase())).isEqualTo(testCase.getResult());
+        assertThat(searches.get()).isZero();
+    }
+
+    @Test
+    public void testResolverWithoutIndexVersion() throws IOException {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final Resolver<TestDependency, TestSpecification> resolver = new Resolver<>(testCase.getIndex());
+        resolver.setResolutionCache(cache(1024 * 1024));
+
+        assertThat(resolver.resolve(testCase.getRequested(), testCase.getBase())).isEqualTo(testCase.getResult());
+        assertThat(entries()).isEmpty();
+    }
+
+    @Test
+    public void testUnwritableDirectory() throws IOException {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final Path file = Files.createFile(this.cacheDir.resolve("file"));
+        final FileResolutionCache<TestDependency, TestSpecification> cache =
+                new FileResolutionCache<>(file.resolve("cache"), 1024 * 1024, keyedCodec(), keyedCodec());
+        final TestIndex index = new TestIndex(testCase.getIndex().getSpecs()) {
+            @Override
+            public Optional<String> indexVersion() {
+                return Optional.of("1");
+            }
+        };
+
+        final Resolver<TestDependency, TestSpecification> resolver = new Resolver<>(index);
+        resolver.setResolutionCache(cache);
+        assertThat(resolver.resolve(testCase.getRequested(), testCase.getBase())).isEqualTo(testCase.getResult());
+        assertThat(cache.get(testCase.getRequested(), testCase.getBase(), "1")).isEmpty();
+    }
+
+    @Test
+    public void testUnreadableEntry() throws IOException {
+        final TestCase testCase = TestCase.fromFixture("simple");
+        final FileResolutionCache<TestDependency, TestSpecification> cache = cache(1024 * 1024);
+        cache.put(testCase.getRequested(), testCase.getBase(), "1", testCase.getResult());
+
+        final Path entry = entries().get(0);
+        Files.delete(entry);
+        Files.createDirectory(entry);
+
+        assertThat(cache.get(testCase.getRequested(), testCase.getBase(), "1")).isEmpty();
+    }
+
+    @Test
+    public void testInvalidMaxSize() {
+        assertThatIllegalArgumentException().isThrownBy(() -> cache(0));
+    }
+}
@@ -1,11 +1,9 @@
 package org.cthing.molinillo.fixtures;
 
 import java.util.Comparator;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import org.cthing.molinillo.Conflict;
 import org.cthing.molinillo.DependencyGraph;
@@ -20,11 +18,9 @@ public class BerkshelfTestIndex extends TestIndex {
     }
 
     @Override
-    @SuppressWarnings("MethodDoesntCallSuperMethod")
-    public List<TestDependency> sortDependencies(final List<TestDependency> dependencies,
-                                                 final DependencyGraph<Payload<TestDependency, TestSpecification>,
-                                                         TestDependency> activated,
-                                                 final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
+    protected Comparator<TestDependency> requirementComparator(
+            final DependencyGraph<Payload<TestDependency, TestSpecification>, TestDependency> activated,
+            final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
         final Function<TestDependency, Integer> payloadFunction = dep -> {
             final Optional<Vertex<Payload<TestDependency, TestSpecification>, TestDependency>> vertexOpt =
                     activated.vertexNamed(nameForDependency(dep));
@@ -39,12 +35,9 @@ public class BerkshelfTestIndex extends TestIndex {
                    ? versionsOf(nameForDependency(dep))
                    : 0;
         };
-        final Comparator<TestDependency> requirementComparator = Comparator.comparing(payloadFunction)
-                                                                           .thenComparing(conflictsFunction)
-                                                                           .thenComparing(versionsFunction);
-        return dependencies.stream()
-                           .sorted(requirementComparator)
-                           .collect(Collectors.toList());
+        return Comparator.comparing(payloadFunction)
+                         .thenComparing(conflictsFunction)
+                         .thenComparing(versionsFunction);
     }
 
     private int versionsOf(final String dependencyName) {
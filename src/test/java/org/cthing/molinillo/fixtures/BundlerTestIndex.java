@@ -5,7 +5,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import org.cthing.molinillo.Conflict;
 import org.cthing.molinillo.DependencyGraph;
@@ -28,11 +27,9 @@ public class BundlerTestIndex extends TestIndex {
     }
 
     @Override
-    @SuppressWarnings("MethodDoesntCallSuperMethod")
-    public List<TestDependency> sortDependencies(final List<TestDependency> dependencies,
-                                                  final DependencyGraph<Payload<TestDependency, TestSpecification>,
-                                                          TestDependency> activated,
-                                                  final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
+    protected Comparator<TestDependency> requirementComparator(
+            final DependencyGraph<Payload<TestDependency, TestSpecification>, TestDependency> activated,
+            final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
         final Function<TestDependency, Long> payloadFunction = dep -> {
             final Vertex<Payload<TestDependency, TestSpecification>, TestDependency> vertex =
                     activated.vertexNamed(nameForDependency(dep)).orElseThrow();
@@ -51,14 +48,11 @@ public class BundlerTestIndex extends TestIndex {
                     activated.vertexNamed(nameForDependency(dep)).orElseThrow();
             return vertex.getPayload().isEmpty() ? searchFor(dep).size() : 0L;
         };
-        final Comparator<TestDependency> requirementComparator = Comparator.comparing(payloadFunction)
-                                                                           .thenComparing(rootFunction)
-                                                                           .thenComparing(constainedFunction)
-                                                                           .thenComparing(conflictsFunction)
-                                                                           .thenComparing(countFunction);
-        return dependencies.stream()
-                           .sorted(requirementComparator)
-                           .collect(Collectors.toList());
+        return Comparator.comparing(payloadFunction)
+                         .thenComparing(rootFunction)
+                         .thenComparing(constainedFunction)
+                         .thenComparing(conflictsFunction)
+                         .thenComparing(countFunction);
     }
 
     protected long amountConstrained(final TestDependency dependency) {
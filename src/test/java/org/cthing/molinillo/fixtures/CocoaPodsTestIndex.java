@@ -44,10 +44,9 @@ public class CocoaPodsTestIndex extends TestIndex {
     }
 
     @Override
-    public List<TestDependency> sortDependencies(final List<TestDependency> dependencies,
-                                                 final DependencyGraph<Payload<TestDependency, TestSpecification>,
-                                                         TestDependency> activated,
-                                                 final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
+    protected Comparator<TestDependency> requirementComparator(
+            final DependencyGraph<Payload<TestDependency, TestSpecification>, TestDependency> activated,
+            final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
         final Function<TestDependency, Integer> payloadFunction = dep -> {
             final Optional<Vertex<Payload<TestDependency, TestSpecification>, TestDependency>> vertexOpt =
                     activated.vertexNamed(nameForDependency(dep));
@@ -57,13 +56,10 @@ public class CocoaPodsTestIndex extends TestIndex {
         final Function<TestDependency, Integer> conflictsFunction =
                 dep -> conflicts.containsKey(nameForDependency(dep)) ? 0 : 1;
         final Function<TestDependency, Integer> countFunction = dep -> searchFor(dep).size();
-        final Comparator<TestDependency> requirementComparator = Comparator.comparing(payloadFunction)
-                                                                           .thenComparing(preReleaseFunction)
-                                                                           .thenComparing(conflictsFunction)
-                                                                           .thenComparing(countFunction);
-        return dependencies.stream()
-                           .sorted(requirementComparator)
-                           .collect(Collectors.toList());
+        return Comparator.comparing(payloadFunction)
+                         .thenComparing(preReleaseFunction)
+                         .thenComparing(conflictsFunction)
+                         .thenComparing(countFunction);
     }
 
     private PossibleVersions possibilityVersionsForRootName(final TestDependency dependency,
@@ -0,0 +1,87 @@
+package org.cthing.molinillo.fixtures;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.cthing.molinillo.Conflict;
+import org.cthing.molinillo.DependencyGraph;
+import org.cthing.molinillo.Payload;
+
+
+/**
+ * Answers every call using another test index, but also offers the dependency order of that index as a dependency
+ * comparator, so that the resolver orders the outstanding requirements incrementally rather than sorting them.
+ */
+@SuppressWarnings("MethodDoesntCallSuperMethod")
+public class ComparatorTestIndex extends TestIndex {
+
+    private final TestIndex index;
+
+    public ComparatorTestIndex(final TestIndex index) {
+        super(index.getSpecs());
+        this.index = index;
+    }
+
+    @Override
+    public boolean requirementSatisfiedBy(final TestDependency requirement,
+                                          final DependencyGraph<Payload<TestDependency, TestSpecification>,
+                                                  TestDependency> activated,
+                                          final TestSpecification specification) {
+        return this.index.requirementSatisfiedBy(requirement, activated, specification);
+    }
+
+    @Override
+    public List<TestSpecification> searchFor(final TestDependency dependency) {
+        return this.index.searchFor(dependency);
+    }
+
+    @Override
+    public String nameForDependency(final TestDependency dependency) {
+        return this.index.nameForDependency(dependency);
+    }
+
+    @Override
+    public String nameForSpecification(final TestSpecification specification) {
+        return this.index.nameForSpecification(specification);
+    }
+
+    @Override
+    public Set<TestDependency> dependenciesFor(final TestSpecification specification) {
+        return this.index.dependenciesFor(specification);
+    }
+
+    @Override
+    public List<TestDependency> sortDependencies(final List<TestDependency> dependencies,
+                                                 final DependencyGraph<Payload<TestDependency, TestSpecification>,
+                                                         TestDependency> activated,
+                                                 final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
+        return this.index.sortDependencies(dependencies, activated, conflicts);
+    }
+
+    @Override
+    public Optional<Comparator<TestDependency>> dependencyComparator(
+            final DependencyGraph<Payload<TestDependency, TestSpecification>, TestDependency> activated,
+            final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
+        return Optional.of(requirementComparator(activated, conflicts));
+    }
+
+    @Override
+    protected Comparator<TestDependency> requirementComparator(
+            final DependencyGraph<Payload<TestDependency, TestSpecification>, TestDependency> activated,
+            final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
+        return this.index.requirementComparator(activated, conflicts);
+    }
+
+    @Override
+    public boolean allowMissing(final TestDependency dependency) {
+        return this.index.allowMissing(dependency);
+    }
+
+    @Override
+    public void setAllowMissing(final TestDependency... requirements) {
+        this.index.setAllowMissing(requirements);
+    }
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.cthing.molinillo.Conflict;
 import org.cthing.molinillo.DependencyGraph;
@@ -12,8 +13,19 @@ import org.cthing.molinillo.Payload;
 
 public class RandomTestIndex extends TestIndex {
 
+    private final Random random;
+
     public RandomTestIndex(final Map<String, TestSpecification[]> specsByName) {
+        this(specsByName, new Random());
+    }
+
+    public RandomTestIndex(final Map<String, TestSpecification[]> specsByName, final long seed) {
+        this(specsByName, new Random(seed));
+    }
+
+    private RandomTestIndex(final Map<String, TestSpecification[]> specsByName, final Random random) {
         super(specsByName);
+        this.random = random;
     }
 
     @Override
@@ -23,7 +35,7 @@ public class RandomTestIndex extends TestIndex {
                                                          TestDependency> activated,
                                                  final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
         final List<TestDependency> shuffledDependencies = new ArrayList<>(dependencies);
-        Collections.shuffle(shuffledDependencies);
+        Collections.shuffle(shuffledDependencies, this.random);
         return shuffledDependencies;
     }
 }
@@ -31,6 +31,7 @@ public final class TestCase {
     private final File fixture;
     private final JsonNode rootNode;
     private final String name;
+    private final String indexName;
     private final TestIndex index;
     private final Set<TestDependency> requested;
     private final Set<String> conflicts;
@@ -40,8 +41,8 @@ public final class TestCase {
         this.rootNode = rootNode;
         this.name = rootNode.get("name").asText();
 
-        final String indexName = rootNode.has("index") ? rootNode.get("index").asText() : "awesome";
-        this.index = TestIndex.fromFixture(indexName);
+        this.indexName = rootNode.has("index") ? rootNode.get("index").asText() : "awesome";
+        this.index = TestIndex.fromFixture(this.indexName);
 
         this.requested = new LinkedHashSet<>();
         rootNode.get("requested").properties().forEach(entry -> {
@@ -84,6 +85,10 @@ public final class TestCase {
         return this.name;
     }
 
+    public String getIndexName() {
+        return this.indexName;
+    }
+
     public TestIndex getIndex() {
         return this.index;
     }
@@ -112,12 +117,18 @@ public final class TestCase {
     }
 
     public DependencyGraph<TestSpecification, TestDependency> resolve(final Class<? extends TestIndex> indexClass) {
-        final TestIndex testIndex;
+        return resolve(indexClass, false);
+    }
+
+    public DependencyGraph<TestSpecification, TestDependency> resolve(final Class<? extends TestIndex> indexClass,
+                                                                      final boolean useComparator) {
+        final TestIndex baseIndex;
         try {
-            testIndex = indexClass.getDeclaredConstructor(Map.class).newInstance(this.index.getSpecs());
+            baseIndex = indexClass.getDeclaredConstructor(Map.class).newInstance(this.index.getSpecs());
         } catch (final ReflectiveOperationException ex) {
             throw new IllegalStateException(ex);
         }
+        final TestIndex testIndex = useComparator ? new ComparatorTestIndex(baseIndex) : baseIndex;
 
         final DebugUI debugUi = new DebugUI();
         //debugUi.setDebugMode(true);
@@ -1,6 +1,8 @@
 package org.cthing.molinillo.fixtures;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 import org.cthing.versionparser.Version;
 import org.cthing.versionparser.VersionConstraint;
@@ -11,11 +13,13 @@ import org.cthing.versionparser.gem.GemVersionScheme;
 public final class TestDependency implements Comparable<TestDependency> {
 
     private final String name;
+    private final List<String> versionConstraints;
     private final VersionConstraint versionConstraint;
     private final boolean prerelease;
 
     public TestDependency(final String name, final String... versionConstraints) {
         this.name = name;
+        this.versionConstraints = List.of(versionConstraints);
         try {
             this.versionConstraint = GemVersionScheme.parseConstraint(versionConstraints);
         } catch (final VersionParsingException ex) {
@@ -50,6 +54,13 @@ public final class TestDependency implements Comparable<TestDependency> {
         return this.prerelease;
     }
 
+    public TestDependency intersect(final TestDependency other) {
+        final String[] constraints = Stream.concat(this.versionConstraints.stream(), other.versionConstraints.stream())
+                                           .filter(constraint -> !constraint.isBlank())
+                                           .toArray(String[]::new);
+        return constraints.length == 0 ? this : new TestDependency(this.name, constraints);
+    }
+
     @Override
     public int compareTo(final TestDependency other) {
         return this.name.compareTo(other.name);
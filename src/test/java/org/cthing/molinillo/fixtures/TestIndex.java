@@ -113,6 +113,14 @@ public class TestIndex extends AbstractSpecificationProvider<TestDependency, Tes
                                                  final DependencyGraph<Payload<TestDependency, TestSpecification>,
                                                          TestDependency> activated,
                                                  final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
+        return dependencies.stream()
+                           .sorted(requirementComparator(activated, conflicts))
+                           .collect(Collectors.toList());
+    }
+
+    protected Comparator<TestDependency> requirementComparator(
+            final DependencyGraph<Payload<TestDependency, TestSpecification>, TestDependency> activated,
+            final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
         final Function<TestDependency, Integer> payloadFunction = dep -> {
             final Optional<Vertex<Payload<TestDependency, TestSpecification>, TestDependency>> vertexOpt =
                     activated.vertexNamed(nameForDependency(dep));
@@ -126,13 +134,10 @@ public class TestIndex extends AbstractSpecificationProvider<TestDependency, Tes
                     activated.vertexNamed(nameForDependency(dep));
             return (vertexOpt.isEmpty() || vertexOpt.get().getPayload().isEmpty()) ? searchFor(dep).size() : 0;
         };
-        final Comparator<TestDependency> requirementComparator = Comparator.comparing(payloadFunction)
-                                                                           .thenComparing(preReleaseFunction)
-                                                                           .thenComparing(conflictsFunction)
-                                                                           .thenComparing(countFunction);
-        return dependencies.stream()
-                           .sorted(requirementComparator)
-                           .collect(Collectors.toList());
+        return Comparator.comparing(payloadFunction)
+                         .thenComparing(preReleaseFunction)
+                         .thenComparing(conflictsFunction)
+                         .thenComparing(countFunction);
     }
 
     @Override
@@ -0,0 +1,31 @@
+package org.cthing.molinillo.fixtures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+public final class TestPossibilities {
+
+    // Specifications oldest first, with the dependencies of each.
+    public static final Map<String, Set<String>> DEPENDENCIES = Map.of(
+            "1.0", Set.of("a"),
+            "1.1", Set.of("a"),
+            "2.0", Set.of("a", "b"),
+            "2.1", Set.of("a", "b"),
+            "2.2", Set.of("a", "b"),
+            "3.0", Set.of()
+    );
+    public static final List<String> SPECIFICATIONS = List.of("1.0", "1.1", "2.0", "2.1", "2.2", "3.0");
+
+    private TestPossibilities() {
+    }
+
+    public static List<String> newestFirst(final List<String> specifications) {
+        final List<String> reversed = new ArrayList<>(specifications);
+        Collections.reverse(reversed);
+        return reversed;
+    }
+}
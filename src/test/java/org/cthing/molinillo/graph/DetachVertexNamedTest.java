@@ -19,6 +19,7 @@ public class DetachVertexNamedTest {
     public void testConstruction() {
         final DetachVertexNamed<String, String> detachAction = new DetachVertexNamed<>("abc");
         assertThat(detachAction.getName()).isEqualTo("abc");
+        assertThat(detachAction.getRemovedVertices()).isEmpty();
         assertThat(detachAction).hasToString("DetachVertexNamed { name=abc }");
     }
 
@@ -83,12 +84,10 @@ public class DetachVertexNamedTest {
 
         // Note that the deletion of vertex C resulted in the deletion of vertex D because it was orphaned.
         // Vertex E was not deleted because it was marked as a root vertex. The deletion of the orphaned vertex
-        // D was done recursively through the dependency graph, which meant it generated an action in the log.
-        // Therefore, to fully restore the state, the original (not logged action) needed to be undone and the
-        // log needed to be popped to undo the second action. This is why cyclic coupling across three classes
-        // leads to testing challenges (in this case the need to interact with the action log).
+        // D was done by the action itself, without logging another action, so undoing the action fully restores
+        // the state.
+        assertThat(detachAction.getRemovedVertices()).containsExactly(vertexC, vertexD);
         detachAction.down(graph);
-        graph.rewindTo("start");
         assertThat(graph.getVertices()).contains(entry(vertexA.getName(), vertexA));
         assertThat(graph.getVertices()).contains(entry(vertexB.getName(), vertexB));
         assertThat(graph.getVertices()).contains(entry(vertexC.getName(), vertexC));
@@ -105,4 +104,35 @@ public class DetachVertexNamedTest {
         assertThat(vertexE.getIncomingEdges()).containsExactlyInAnyOrder(edgeCE);
         assertThat(vertexE.getOutgoingEdges()).isEmpty();
     }
+
+    @Test
+    public void testDeepOrphans() {
+        final DependencyGraph<String, String> graph = new DependencyGraph<>();
+        Vertex<String, String> parent = graph.addVertex("V0", "0", true);
+        for (int i = 1; i <= 10000; i++) {
+            final Vertex<String, String> child = graph.addVertex("V" + i, String.valueOf(i), false);
+            graph.addEdge(parent, child, "");
+            parent = child;
+        }
+        final Vertex<String, String> shared = graph.addVertex("shared", "s", false);
+        graph.addEdge(graph.vertexNamed("V0").orElseThrow(), shared, "");
+        graph.addEdge(parent, shared, "");
+        graph.tag("start");
+        final long modificationCount = graph.getLog().getModificationCount();
+
+        final List<Vertex<String, String>> removedVertices = graph.detachVertexNamed("V1");
+        assertThat(removedVertices).hasSize(10000);
+        assertThat(removedVertices.get(0).getName()).isEqualTo("V1");
+        assertThat(graph.getVertices()).containsOnlyKeys("V0", "shared");
+        assertThat(graph.vertexNamed("shared").orElseThrow().predecessors()).extracting(Vertex::getName)
+                                                                             .containsExactly("V0");
+        assertThat(graph.getLog().getModificationCount()).isEqualTo(modificationCount + 1);
+
+        graph.rewindTo("start");
+        assertThat(graph.getVertices()).hasSize(10002);
+        assertThat(graph.vertexNamed("V10000").orElseThrow().getIncomingEdges()).hasSize(1);
+        assertThat(graph.vertexNamed("shared").orElseThrow().predecessors()).extracting(Vertex::getName)
+                                                                             .containsExactlyInAnyOrder("V0",
+                                                                                                        "V10000");
+    }
 }
@@ -1,11 +1,13 @@
 package org.cthing.molinillo.graph;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.cthing.molinillo.DependencyGraph;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 
 public class LogTest {
@@ -50,6 +52,21 @@ public class LogTest {
         assertThat(this.graph.isEmpty()).isTrue();
     }
 
+    @Test
+    public void testModificationCount() {
+        assertThat(this.log.getModificationCount()).isZero();
+        this.log.tag(this.graph, "tag1");
+        assertThat(this.log.getModificationCount()).isZero();
+
+        this.log.addVertex(this.graph, "vertex1", "payload1", false);
+        this.log.addVertex(this.graph, "vertex2", "payload2", false);
+        this.log.addEdgeNoCircular(this.graph, "vertex1", "vertex2", "req");
+        assertThat(this.log.getModificationCount()).isEqualTo(3);
+
+        this.log.rewindTo(this.graph, "tag1");
+        assertThat(this.log.getModificationCount()).isEqualTo(6);
+    }
+
     @Test
     public void testAddEdgeNoCircular() {
         this.log.tag(this.graph, "tag1");
@@ -184,4 +201,49 @@ public class LogTest {
         this.log.forEach(action -> action.up(copy));
         assertThat(copy).isEqualTo(this.graph);
     }
+
+    @Test
+    public void testIteratorAfterRewind() {
+        this.log.tag(this.graph, "tag1");
+        this.log.addVertex(this.graph, "vertex1", "payload1", false);
+        this.log.tag(this.graph, "tag2");
+        this.log.addVertex(this.graph, "vertex2", "payload2", false);
+
+        this.log.rewindTo(this.graph, "tag2");
+
+        final List<Action<String, String, ?>> actions = new ArrayList<>();
+        this.log.forEach(actions::add);
+        assertThat(actions).containsExactly(new Tag<>("tag1"), new AddVertex<>("vertex1", "payload1", false));
+
+        this.log.rewindTo(this.graph, "tag1");
+        assertThat(this.log.iterator().hasNext()).isFalse();
+    }
+
+    @Test
+    public void testPayloadsAt() {
+        assertThat(this.log.getCurrentAction()).isEmpty();
+
+        this.log.tag(this.graph, "tag1");
+        this.log.addVertex(this.graph, "A", "payloadA", true);
+        this.log.addVertex(this.graph, "B", null, false);
+        this.log.addVertex(this.graph, "C", "payloadC", false);
+        this.log.addEdgeNoCircular(this.graph, "A", "C", "req");
+        this.log.addVertex(this.graph, "A", "payload17", false);
+        this.log.addVertex(this.graph, "B", "payloadB", false);
+        this.log.setPayload(this.graph, "C", "payload42");
+        final Action<String, String, ?> action = this.log.getCurrentAction().orElseThrow();
+        assertThat(Log.payloadsAt(action)).containsOnly(entry("A", "payloadA"), entry("B", "payloadB"),
+                                                        entry("C", "payload42"));
+
+        this.log.tag(this.graph, "tag2");
+        this.log.detachVertexNamed(this.graph, "A");
+        this.log.setPayload(this.graph, "B", null);
+        assertThat(Log.payloadsAt(this.log.getCurrentAction().orElseThrow())).isEmpty();
+
+        this.log.rewindTo(this.graph, "tag1");
+        this.log.addVertex(this.graph, "D", "payloadD", true);
+        assertThat(Log.payloadsAt(action)).containsOnly(entry("A", "payloadA"), entry("B", "payloadB"),
+                                                        entry("C", "payload42"));
+        assertThat(Log.payloadsAt(this.log.getCurrentAction().orElseThrow())).containsOnly(entry("D", "payloadD"));
+    }
 }
@@ -1,8 +1,13 @@
 package org.cthing.molinillo.graph;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 
 public class VertexTest {
@@ -54,6 +59,38 @@ public class VertexTest {
         assertThat(vertex1.requirements()).containsExactlyInAnyOrder("req1", "req2");
     }
 
+    @Test
+    public void testRequirementsMaintained() {
+        final Vertex<String, String> vertex1 = new Vertex<>("v1", "v1 payload");
+        final Vertex<String, String> vertex2 = new Vertex<>("v2", "v2 payload");
+        final Vertex<String, String> vertex3 = new Vertex<>("v3", "v3 payload");
+        final Set<String> requirements = vertex1.requirements();
+
+        final Edge<String, String> edge1 = new Edge<>(vertex2, vertex1, "req1");
+        final Edge<String, String> edge2 = new Edge<>(vertex3, vertex1, "req1");
+        final Edge<String, String> edge3 = new Edge<>(vertex3, vertex1, "req2");
+        vertex1.getExplicitRequirements().add("req1");
+        vertex1.getIncomingEdges().addAll(List.of(edge1, edge2, edge3));
+        assertThat(vertex1.getIncomingEdges().add(edge1)).isFalse();
+        assertThat(requirements).containsExactlyInAnyOrder("req1", "req2");
+
+        assertThat(vertex1.getIncomingEdges().remove(new Edge<>(vertex3, vertex1, "req2"))).isTrue();
+        assertThat(requirements).containsExactly("req1");
+
+        vertex1.getExplicitRequirements().clear();
+        vertex1.getIncomingEdges().removeIf(edge -> edge.getOrigin().equals(vertex2));
+        assertThat(requirements).containsExactly("req1");
+
+        final Iterator<Edge<String, String>> iterator = vertex1.getIncomingEdges().iterator();
+        assertThat(iterator.next()).isEqualTo(edge2);
+        iterator.remove();
+        assertThat(vertex1.getIncomingEdges()).isEmpty();
+        assertThat(requirements).isEmpty();
+        assertThat(vertex1.requirements()).isSameAs(requirements);
+
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> requirements.add("req3"));
+    }
+
     @Test
     public void testPredecessors() {
         final Vertex<String, String> vertex1 = new Vertex<>("v1", "v1 payload");
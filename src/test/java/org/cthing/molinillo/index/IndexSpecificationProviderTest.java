@@ -0,0 +1,169 @@
+package org.cthing.molinillo.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.cthing.molinillo.Conflict;
+import org.cthing.molinillo.DebugUI;
+import org.cthing.molinillo.DependencyGraph;
+import org.cthing.molinillo.Payload;
+import org.cthing.molinillo.Resolver;
+import org.cthing.molinillo.fixtures.TestCase;
+import org.cthing.molinillo.fixtures.TestDependency;
+import org.cthing.molinillo.fixtures.TestLocations;
+import org.cthing.molinillo.fixtures.TestSpecification;
+import org.cthing.molinillo.graph.Vertex;
+import org.cthing.versionparser.Version;
+import org.cthing.versionparser.VersionParsingException;
+import org.cthing.versionparser.gem.GemVersionScheme;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+public class IndexSpecificationProviderTest {
+
+    private static final Map<String, SpecificationIndex> INDICES = new HashMap<>();
+
+    @TempDir
+    static Path indexDir;
+
+    /**
+     * Provider with the same semantics as the {@link org.cthing.molinillo.fixtures.TestIndex}.
+     */
+    private static final class GemIndex extends IndexSpecificationProvider<TestDependency> {
+
+        GemIndex(final SpecificationIndex index) {
+            super(index);
+        }
+
+        @Override
+        public String nameForDependency(final TestDependency dependency) {
+            return dependency.getName();
+        }
+
+        @Override
+        public boolean requirementSatisfiedBy(final TestDependency requirement,
+                                              final DependencyGraph<Payload<TestDependency, IndexedSpecification>,
+                                                      TestDependency> activated,
+                                              final IndexedSpecification specification) {
+            final Version version = parseVersion(specification.getVersion());
+            if (version.isPreRelease() && !requirement.isPreRelease()) {
+                final Vertex<Payload<TestDependency, IndexedSpecification>, TestDependency> vertex =
+                        activated.vertexNamed(specification.getName()).orElseThrow();
+                if (vertex.requirements().stream().noneMatch(TestDependency::isPreRelease)) {
+                    return false;
+                }
+            }
+            return requirement.getVersionConstraint().allows(version);
+        }
+
+        @Override
+        public List<TestDependency> sortDependencies(
+                final List<TestDependency> dependencies,
+                final DependencyGraph<Payload<TestDependency, IndexedSpecification>, TestDependency> activated,
+                final Map<String, Conflict<TestDependency, IndexedSpecification>> conflicts) {
+            final Function<TestDependency, Integer> payloadFunction = dep -> {
+                final Optional<Vertex<Payload<TestDependency, IndexedSpecification>, TestDependency>> vertexOpt =
+                        activated.vertexNamed(dep.getName());
+                return (vertexOpt.isEmpty() || vertexOpt.get().getPayload().isEmpty()) ? 1 : 0;
+            };
+            final Function<TestDependency, Integer> preReleaseFunction = dep -> dep.isPreRelease() ? 0 : 1;
+            final Function<TestDependency, Integer> conflictsFunction =
+                    dep -> conflicts.containsKey(dep.getName()) ? 0 : 1;
+            final Function<TestDependency, Integer> countFunction = dep -> {
+                final Optional<Vertex<Payload<TestDependency, IndexedSpecification>, TestDependency>> vertexOpt =
+                        activated.vertexNamed(dep.getName());
+                return (vertexOpt.isEmpty() || vertexOpt.get().getPayload().isEmpty()) ? searchFor(dep).size() : 0;
+            };
+            return dependencies.stream()
+                               .sorted(Comparator.comparing(payloadFunction)
+                                                 .thenComparing(preReleaseFunction)
+                                                 .thenComparing(conflictsFunction)
+                                                 .thenComparing(countFunction))
+                               .collect(Collectors.toList());
+        }
+
+        @Override
+        protected TestDependency createDependency(final String name, final String requirement) {
+            return new TestDependency(name, requirement.split("\\s*,\\s*"));
+        }
+
+        @Override
+        protected boolean allows(final TestDependency dependency, final IndexedSpecification specification) {
+            return dependency.getVersionConstraint().allows(parseVersion(specification.getVersion()));
+        }
+    }
+
+    private static Version parseVersion(final String version) {
+        try {
+            return GemVersionScheme.parseVersion(version);
+        } catch (final VersionParsingException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+
+    private static synchronized SpecificationIndex index(final String indexName) throws IOException {
+        SpecificationIndex index = INDICES.get(indexName);
+        if (index == null) {
+            final Path indexFile = indexDir.resolve(indexName + ".idx");
+            JsonIndexConverter.convert(new File(TestLocations.INDEX_DIR, indexName + ".json").toPath(), indexFile,
+                                       Comparator.comparing(IndexSpecificationProviderTest::parseVersion));
+            index = SpecificationIndex.open(indexFile);
+            INDICES.put(indexName, index);
+        }
+        return index;
+    }
+
+    @TestFactory
+    public List<DynamicTest> resolveTestFactory() {
+        final List<DynamicTest> tests = new ArrayList<>();
+        for (final TestCase testCase : TestCase.all()) {
+            if (!testCase.getConflicts().isEmpty()) {
+                continue;
+            }
+
+            final String testName = testCase.getName() + " (" + testCase.getFixture().getName() + ")";
+            tests.add(DynamicTest.dynamicTest(testName, () -> {
+                final GemIndex provider = new GemIndex(index(testCase.getIndexName()));
+                final Resolver<TestDependency, IndexedSpecification> resolver = new Resolver<>(provider, new DebugUI());
+                final DependencyGraph<IndexedSpecification, TestDependency> result =
+                        resolver.resolve(testCase.getRequested(), testCase.getBase());
+
+                final DependencyGraph<TestSpecification, TestDependency> converted =
+                        result.cloneGraph(spec -> new TestSpecification(spec.getName(), spec.getVersion(),
+                                                                        spec.getDependencies()));
+                assertThat(converted).isEqualTo(testCase.getResult());
+            }));
+        }
+        return tests;
+    }
+
+    @Test
+    public void testSearchFor() throws IOException {
+        final GemIndex provider = new GemIndex(index("awesome"));
+
+        final List<IndexedSpecification> racks = provider.searchFor(new TestDependency("rack", ">= 1.0"));
+        assertThat(racks).isNotEmpty();
+        assertThat(racks).allSatisfy(spec -> assertThat(spec.getName()).isEqualTo("rack"));
+        assertThat(racks).extracting(spec -> parseVersion(spec.getVersion()))
+                         .isSortedAccordingTo(Comparator.naturalOrder());
+        assertThat(provider.searchFor(new TestDependency("missing", ">= 0"))).isEmpty();
+
+        final IndexedSpecification spec = racks.get(0);
+        assertThat(provider.nameForSpecification(spec)).isEqualTo("rack");
+        assertThat(provider.dependenciesFor(spec)).isSameAs(provider.dependenciesFor(spec));
+    }
+}
@@ -0,0 +1,117 @@
+package org.cthing.molinillo.index;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+import static org.assertj.core.api.Assertions.entry;
+
+
+public class SpecificationIndexTest {
+
+    @TempDir
+    Path indexDir;
+
+    private SpecificationIndex write(final SpecificationIndexWriter writer) throws IOException {
+        final Path indexFile = this.indexDir.resolve("test.idx");
+        writer.write(indexFile);
+        return SpecificationIndex.open(indexFile);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final SpecificationIndexWriter writer = new SpecificationIndexWriter();
+        writer.add("rack", "1.0", Map.of())
+              .add("rack", "1.1", Map.of())
+              .add("rails", "3.0", Map.of("rack", ">= 1.0", "activesupport", "= 3.0"))
+              .add("activesupport", "3.0", Map.of())
+              .add("été", "0.1", Map.of("rack", "~> 1.0"));
+        final SpecificationIndex index = write(writer);
+
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.getNames()).containsExactly("activesupport", "rack", "rails", "été");
+        assertThat(index.contains("rails")).isTrue();
+        assertThat(index.contains("rail")).isFalse();
+        assertThat(index.contains("zzz")).isFalse();
+
+        final List<IndexedSpecification> racks = index.specificationsNamed("rack");
+        assertThat(racks).extracting(IndexedSpecification::getVersion).containsExactly("1.0", "1.1");
+        assertThat(racks.get(0).getDependencies()).isEmpty();
+
+        final IndexedSpecification rails = index.specificationsNamed("rails").get(0);
+        assertThat(rails.getName()).isEqualTo("rails");
+        assertThat(rails.toString()).isEqualTo("rails (3.0)");
+        assertThat(rails.getDependencies()).containsOnly(entry("rack", ">= 1.0"), entry("activesupport", "= 3.0"));
+        assertThat(rails.getDependencies()).isSameAs(rails.getDependencies());
+
+        assertThat(index.specificationsNamed("été").get(0).getDependencies()).containsOnly(entry("rack", "~> 1.0"));
+        assertThat(index.specificationsNamed("missing")).isEmpty();
+        assertThat(index.specificationsNamed("rack")).isEqualTo(racks);
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        final SpecificationIndex index = write(new SpecificationIndexWriter());
+        assertThat(index.size()).isZero();
+        assertThat(index.getNames()).isEmpty();
+        assertThat(index.specificationsNamed("rack")).isEmpty();
+    }
+
+    @Test
+    public void testInvalidFile() throws IOException {
+        final Path indexFile = this.indexDir.resolve("invalid.idx");
+        Files.write(indexFile, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+        assertThatIOException().isThrownBy(() -> SpecificationIndex.open(indexFile))
+                               .withMessageStartingWith("Not a specification index");
+
+        Files.write(indexFile, new byte[] { 1, 2, 3 });
+        assertThatIOException().isThrownBy(() -> SpecificationIndex.open(indexFile))
+                               .withMessageStartingWith("Not a specification index");
+    }
+
+    @Test
+    public void testJsonConversion() throws IOException {
+        final String json = """
+                {
+                  // Versions are deliberately out of order
+                  "rack": [
+                    { "name": "rack", "version": "1.1", "dependencies": {} },
+                    { "name": "rack", "version": "1.0", "dependencies": {}, "platform": "ruby" }
+                  ],
+                  "rails": [
+                    {
+                      "name": "rails",
+                      "version": "3.0",
+                      "dependencies": { "rack": ">= 1.0, < 2.0" }
+                    }
+                  ]
+                }
+                """;
+        final SpecificationIndex index = write(JsonIndexConverter.read(new StringReader(json),
+                                                                       Comparator.naturalOrder()));
+
+        assertThat(index.getNames()).containsExactly("rack", "rails");
+        assertThat(index.specificationsNamed("rack")).extracting(IndexedSpecification::getVersion)
+                                                     .containsExactly("1.0", "1.1");
+        assertThat(index.specificationsNamed("rails").get(0).getDependencies())
+                .containsOnly(entry("rack", ">= 1.0, < 2.0"));
+    }
+
+    @Test
+    public void testJsonConversionErrors() {
+        assertThatIOException().isThrownBy(() -> JsonIndexConverter.read(new StringReader("{ \"rack\": [ {} ] }"),
+                                                                          Comparator.naturalOrder()))
+                               .withMessage("Specification of rack does not have a version");
+        assertThatIOException().isThrownBy(() -> JsonIndexConverter.read(new StringReader("[]"),
+                                                                          Comparator.naturalOrder()));
+    }
+}
@@ -0,0 +1,96 @@
+package org.cthing.molinillo.io;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+
+public class JsonReaderTest {
+
+    @Test
+    public void testRead() throws IOException {
+        final JsonReader reader = new JsonReader(new StringReader("""
+                {
+                  "name": "rack",   // Line comment
+                  "escaped": "a\\"b\\\\c\\u00e9\\n",
+                  /* Block
+                     comment */
+                  "count": 12,
+                  "ratio": -1.5e3,
+                  "flags": [true, false, null],
+                  "empty": {},
+                  "none": []
+                }
+                """));
+
+        assertThat(reader.peek()).isEqualTo(JsonReader.Token.BEGIN_OBJECT);
+        reader.beginObject();
+        assertThat(reader.nextName()).isEqualTo("name");
+        assertThat(reader.nextString()).isEqualTo("rack");
+        assertThat(reader.nextName()).isEqualTo("escaped");
+        assertThat(reader.nextString()).isEqualTo("a\"b\\cé\n");
+        assertThat(reader.nextName()).isEqualTo("count");
+        assertThat(reader.peek()).isEqualTo(JsonReader.Token.NUMBER);
+        assertThat(reader.nextLong()).isEqualTo(12L);
+        assertThat(reader.nextName()).isEqualTo("ratio");
+        assertThat(reader.nextString()).isEqualTo("-1.5e3");
+        assertThat(reader.nextName()).isEqualTo("flags");
+        reader.beginArray();
+        assertThat(reader.nextBoolean()).isTrue();
+        assertThat(reader.nextBoolean()).isFalse();
+        assertThat(reader.peek()).isEqualTo(JsonReader.Token.NULL);
+        reader.nextNull();
+        assertThat(reader.hasNext()).isFalse();
+        reader.endArray();
+        assertThat(reader.nextName()).isEqualTo("empty");
+        reader.beginObject();
+        assertThat(reader.hasNext()).isFalse();
+        reader.endObject();
+        assertThat(reader.nextName()).isEqualTo("none");
+        reader.beginArray();
+        reader.endArray();
+        assertThat(reader.hasNext()).isFalse();
+        reader.endObject();
+        assertThat(reader.peek()).isEqualTo(JsonReader.Token.END_DOCUMENT);
+    }
+
+    @Test
+    public void testSkipValue() throws IOException {
+        final JsonReader reader = new JsonReader(new StringReader("""
+                { "a": { "b": [1, {"c": "d"}, []] }, "e": "f", "g": 1 }
+                """));
+
+        reader.beginObject();
+        reader.skipValue();
+        assertThat(reader.nextName()).isEqualTo("e");
+        reader.skipValue();
+        assertThat(reader.nextName()).isEqualTo("g");
+        reader.skipValue();
+        reader.endObject();
+        assertThat(reader.peek()).isEqualTo(JsonReader.Token.END_DOCUMENT);
+    }
+
+    @Test
+    public void testMalformed() {
+        assertThatIOException().isThrownBy(() -> new JsonReader(new StringReader("{ \"a\" 1 }")).skipValue())
+                               .withMessage("Malformed JSON at line 1: Expected ':'");
+        assertThatIOException().isThrownBy(() -> new JsonReader(new StringReader("[1 2]")).skipValue())
+                               .withMessage("Malformed JSON at line 1: Expected ',' or ']'");
+        assertThatIOException().isThrownBy(() -> new JsonReader(new StringReader("[\n\"abc")).skipValue())
+                               .withMessage("Malformed JSON at line 2: Unterminated string");
+        assertThatIOException().isThrownBy(() -> new JsonReader(new StringReader("[tru]")).skipValue())
+                               .withMessage("Malformed JSON at line 1: Malformed literal");
+        assertThatIOException().isThrownBy(() -> {
+                                    final JsonReader reader = new JsonReader(new StringReader("{} {}"));
+                                    reader.skipValue();
+                                    reader.peek();
+                                })
+                               .withMessage("Malformed JSON at line 1: Unexpected content after the end of the document");
+        assertThatIOException().isThrownBy(() -> new JsonReader(new StringReader("\"abc\"")).nextName())
+                               .withMessage("Malformed JSON at line 1: Expected NAME but found STRING");
+    }
+}
@@ -0,0 +1,239 @@
+package org.cthing.molinillo.trace;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cthing.molinillo.Conflict;
+import org.cthing.molinillo.DefaultUI;
+import org.cthing.molinillo.DependencyGraph;
+import org.cthing.molinillo.Payload;
+import org.cthing.molinillo.RangeAlgebra;
+import org.cthing.molinillo.Resolver;
+import org.cthing.molinillo.errors.NoSuchDependencyError;
+import org.cthing.molinillo.errors.ResolverError;
+import org.cthing.molinillo.errors.VersionConflictError;
+import org.cthing.molinillo.fixtures.NoSuchDependencyTestIndex;
+import org.cthing.molinillo.fixtures.TestCase;
+import org.cthing.molinillo.fixtures.TestDependency;
+import org.cthing.molinillo.fixtures.TestIndex;
+import org.cthing.molinillo.fixtures.TestSpecification;
+import org.cthing.molinillo.io.BinaryIO;
+import org.cthing.molinillo.io.Codec;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+
+public class TraceRecorderTest {
+
+    private final List<Object> objectTable = new ArrayList<>();
+
+    /**
+     * The test fixtures cannot be serialized, so the codec writes the index of the value in a table shared by the
+     * recorder and the replayer.
+     */
+    private <T> Codec<T> tableCodec() {
+        return new Codec<>() {
+            @Override
+            public void write(final T value, final DataOutput output) throws IOException {
+                TraceRecorderTest.this.objectTable.add(value);
+                BinaryIO.writeVarInt(output, TraceRecorderTest.this.objectTable.size() - 1);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T read(final DataInput input) throws IOException {
+                return (T)TraceRecorderTest.this.objectTable.get(BinaryIO.readVarInt(input));
+            }
+        };
+    }
+
+    private byte[] record(final TestIndex index, final Set<TestDependency> requested,
+                          final DependencyGraph<TestDependency, TestDependency> base) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (TraceRecorder<TestDependency, TestSpecification> recorder =
+                     new TraceRecorder<>(index, tableCodec(), tableCodec(), outputStream)) {
+            try {
+                recorder.resolve(requested, base, new DefaultUI());
+            } catch (final ResolverError ex) {
+                // Failures are recorded in the trace
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    private TraceReplayer<TestDependency, TestSpecification> replayer(final byte[] trace) throws IOException {
+        return new TraceReplayer<>(tableCodec(), tableCodec(), new ByteArrayInputStream(trace));
+    }
+
+    @Test
+    public void testReplaySuccessfulResolution() throws IOException {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final byte[] trace = record(testCase.getIndex(), testCase.getRequested(), testCase.getBase());
+
+        final TraceReplayer<TestDependency, TestSpecification> replayer = replayer(trace);
+        assertThat(replayer.getRequested()).isEqualTo(testCase.getRequested());
+        assertThat(replayer.getBase()).isEqualTo(testCase.getBase());
+        assertThat(replayer.getDecisions()).isNotEmpty();
+        assertThat(replayer.getDecisions().get(0)).contains("Starting resolution");
+        assertThat(replayer.getRecordedFailure()).isEmpty();
+        assertThat(replayer.getRecordedResolution()).isPresent();
+
+        final DependencyGraph<TestSpecification, TestDependency> result = replayer.resolve();
+        assertThat(result).isEqualTo(testCase.getResult());
+        assertThat(replayer.getRecordedResolution().get()).hasSize(result.getVertices().size());
+
+        // Replay can be repeated
+        assertThat(replayer.resolve()).isEqualTo(testCase.getResult());
+    }
+
+    @Test
+    public void testReplayProviderExtensions() throws IOException {
+        final AtomicInteger searches = new AtomicInteger();
+        final AtomicInteger comparisons = new AtomicInteger();
+        final AtomicInteger intersections = new AtomicInteger();
+
+        class ExtendedIndex extends TestIndex {
+            ExtendedIndex(final Map<String, TestSpecification[]> specsByName) {
+                super(specsByName);
+            }
+
+            @Override
+            public Iterator<TestSpecification> searchForNewestFirst(final TestDependency dependency) {
+                searches.incrementAndGet();
+                return super.searchForNewestFirst(dependency);
+            }
+
+            @Override
+            public Optional<Comparator<TestDependency>> dependencyComparator(
+                    final DependencyGraph<Payload<TestDependency, TestSpecification>, TestDependency> activated,
+                    final Map<String, Conflict<TestDependency, TestSpecification>> conflicts) {
+                final Comparator<TestDependency> comparator = requirementComparator(activated, conflicts);
+                return Optional.of((dependency1, dependency2) -> {
+                    comparisons.incrementAndGet();
+                    return comparator.compare(dependency1, dependency2);
+                });
+            }
+
+            @Override
+            public Optional<RangeAlgebra<TestDependency>> rangeAlgebra() {
+                return Optional.of(new RangeAlgebra<>() {
+                    @Override
+                    public TestDependency intersect(final TestDependency requirement1,
+                                                    final TestDependency requirement2) {
+                        intersections.incrementAndGet();
+                        return requirement1.intersect(requirement2);
+                    }
+
+                    @Override
+                    public boolean isEmpty(final TestDependency requirement) {
+                        return requirement.getVersionConstraint().isEmpty();
+                    }
+                });
+            }
+        }
+
+        final TestCase testCase = TestCase.fromFixture("three_way_conflict");
+        final byte[] trace = record(new ExtendedIndex(testCase.getIndex().getSpecs()), testCase.getRequested(),
+                                    testCase.getBase());
+
+        // The recorder forwards the extensions of the provider rather than falling back to the basic calls
+        assertThat(searches.get()).isPositive();
+        assertThat(comparisons.get()).isPositive();
+        assertThat(intersections.get()).isPositive();
+
+        final TraceReplayer<TestDependency, TestSpecification> replayer = replayer(trace);
+        assertThat(replayer.resolve()).isEqualTo(testCase.getResult());
+    }
+
+    @Test
+    public void testReplayAllFixtures() throws IOException {
+        // The fixture indexes create distinct but equal requirements, which the trace stores only once
+        for (final TestCase testCase : TestCase.all()) {
+            final byte[] trace = record(testCase.getIndex(), testCase.getRequested(), testCase.getBase());
+
+            final TraceReplayer<TestDependency, TestSpecification> replayer = replayer(trace);
+            if (replayer.getRecordedFailure().isPresent()) {
+                assertThatExceptionOfType(ResolverError.class).as(testCase.getName())
+                                                              .isThrownBy(replayer::resolve)
+                                                              .withMessage(replayer.getRecordedFailure().get());
+            } else {
+                assertThat(replayer.resolve()).as(testCase.getName()).isEqualTo(testCase.getResult());
+            }
+        }
+    }
+
+    @Test
+    public void testReplayWithLockedDependencies() throws IOException {
+        final TestCase testCase = TestCase.fromFixture("simple_with_base");
+        final byte[] trace = record(testCase.getIndex(), testCase.getRequested(), testCase.getBase());
+
+        final TraceReplayer<TestDependency, TestSpecification> replayer = replayer(trace);
+        assertThat(replayer.getBase()).isEqualTo(testCase.getBase());
+        assertThat(replayer.resolve()).isEqualTo(testCase.getResult());
+    }
+
+    @Test
+    public void testReplayConflict() throws IOException {
+        final TestIndex index = TestIndex.fromFixture("awesome");
+        final byte[] trace = record(index, Set.of(new TestDependency("missing", "3.0")), new DependencyGraph<>());
+
+        final TraceReplayer<TestDependency, TestSpecification> replayer = replayer(trace);
+        assertThat(replayer.getRecordedResolution()).isEmpty();
+        assertThat(replayer.getRecordedFailure()).hasValueSatisfying(message -> assertThat(message)
+                .contains("'missing ([3.0])' required by 'user-specified dependency'"));
+        assertThatExceptionOfType(VersionConflictError.class).isThrownBy(replayer::resolve)
+                                                             .withMessage(replayer.getRecordedFailure().get());
+    }
+
+    @Test
+    public void testReplayNoSuchDependency() throws IOException {
+        final TestIndex index = new NoSuchDependencyTestIndex(TestIndex.fromFixture("awesome").getSpecs());
+        final byte[] trace = record(index, Set.of(new TestDependency("missing", "3.0")), new DependencyGraph<>());
+
+        final TraceReplayer<TestDependency, TestSpecification> replayer = replayer(trace);
+        assertThatExceptionOfType(NoSuchDependencyError.class).isThrownBy(replayer::resolve)
+                                                              .withMessage(replayer.getRecordedFailure().get());
+    }
+
+    @Test
+    public void testDivergence() throws IOException {
+        final TestCase testCase = TestCase.fromFixture("complex_conflict");
+        final byte[] trace = record(testCase.getIndex(), testCase.getRequested(), testCase.getBase());
+
+        final TraceReplayer<TestDependency, TestSpecification> replayer = replayer(trace);
+        final Resolver<TestDependency, TestSpecification> resolver = new Resolver<>(replayer);
+        assertThatIllegalStateException().isThrownBy(() -> resolver.resolve(Set.of(new TestDependency("rails", "3.0"))))
+                                         .withMessageStartingWith("Resolution diverged from the trace at call 0");
+    }
+
+    @Test
+    public void testRecordOnce() throws IOException {
+        final TestIndex index = TestIndex.fromFixture("awesome");
+        try (TraceRecorder<TestDependency, TestSpecification> recorder =
+                     new TraceRecorder<>(index, tableCodec(), tableCodec(), new ByteArrayOutputStream())) {
+            recorder.resolve(Set.of(new TestDependency("rack", ">= 0")), new DependencyGraph<>(), new DefaultUI());
+            assertThatIllegalStateException().isThrownBy(() -> recorder.resolve(Set.of(), new DependencyGraph<>(),
+                                                                                new DefaultUI()));
+        }
+    }
+
+    @Test
+    public void testNotATrace() {
+        assertThatExceptionOfType(IOException.class).isThrownBy(() -> replayer(new byte[] { 1, 2, 3, 4, 5 }))
+                                                    .withMessage("Not a resolution trace");
+    }
+}